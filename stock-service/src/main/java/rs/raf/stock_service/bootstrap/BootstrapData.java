@@ -2,7 +2,6 @@ package rs.raf.stock_service.bootstrap;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
 import rs.raf.stock_service.domain.dto.*;
@@ -24,7 +23,6 @@ import java.time.LocalDateTime;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.concurrent.*;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -38,6 +36,10 @@ public class BootstrapData implements CommandLineRunner {
     @Autowired private HolidayService holidayService;
     @Autowired private ListingRepository listingRepository;
     @Autowired private ListingPriceHistoryRepository priceHistoryRepository;
+    @Autowired private ListingPriceHistoryBulkWriter priceHistoryWriter;
+    @Autowired private PriceHistoryStore priceHistoryStore;
+    @Autowired private CandleRollupService candleRollupService;
+    @Autowired private IndicatorService indicatorService;
     @Autowired private ExchangeRepository exchangeRepository;
     @Autowired private StocksService stocksService;
     @Autowired private ForexService forexService;
@@ -54,8 +56,7 @@ public class BootstrapData implements CommandLineRunner {
     @Autowired private OtcOptionRepository otcOptionRepository;
     @Autowired private OtcOfferRepository otcOfferRepository;
 
-    @Value("${bootstrap.thread.pool.size:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}")
-    private int threadPoolSize;
+    @Autowired private FanOutExecutor fanOutExecutor;
 
     private final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
@@ -142,16 +143,19 @@ public class BootstrapData implements CommandLineRunner {
 
         List<ListingPriceHistory> all = refreshInParallel(stocks, stock -> {
             try {
-                TimeSeriesDto dto = listingService.getPriceHistoryFromAlphaVantage(stock.getTicker(), "5min", "compact");
-                Set<LocalDateTime> existing = priceHistoryRepository.findDatesByListingId(stock.getId());
-                return createNewHistory(stock, dto, existing);
+                LocalDateTime watermark = priceHistoryRepository.findLatestDateByListingId(stock.getId()).orElse(null);
+                TimeSeriesDto dto = listingService.getPriceHistoryFromAlphaVantage(stock.getTicker(), "5min", "compact", watermark);
+                return createNewHistory(stock, dto);
             } catch (Exception e) {
                 log.warn("Stock history failed for {}", stock.getTicker(), e);
                 return List.of();
             }
         });
 
-        saveInBatches(all, 100, priceHistoryRepository::saveAllAndFlush);
+        priceHistoryWriter.insertIgnoringDuplicates(all);
+        priceHistoryStore.append(all);
+        candleRollupService.roll(all);
+        indicatorService.update(all);
         System.out.println("Zavrsio stock history");
 
     }
@@ -198,16 +202,19 @@ public class BootstrapData implements CommandLineRunner {
 
         List<ListingPriceHistory> all = refreshInParallel(pairs, pair -> {
             try {
-                TimeSeriesDto dto = listingService.getForexPriceHistory(pair.getId(), "5min");
-                Set<LocalDateTime> existing = priceHistoryRepository.findDatesByListingId(pair.getId());
-                return createNewHistory(pair, dto, existing);
+                LocalDateTime watermark = priceHistoryRepository.findLatestDateByListingId(pair.getId()).orElse(null);
+                TimeSeriesDto dto = listingService.getForexPriceHistory(pair.getId(), "5min", watermark);
+                return createNewHistory(pair, dto);
             } catch (Exception e) {
                 log.warn("Forex history failed for {}", pair.getTicker(), e);
                 return List.of();
             }
         });
 
-        saveInBatches(all, 100, priceHistoryRepository::saveAllAndFlush);
+        priceHistoryWriter.insertIgnoringDuplicates(all);
+        priceHistoryStore.append(all);
+        candleRollupService.roll(all);
+        indicatorService.update(all);
         System.out.println("Zavrsio forex history");
 
     }
@@ -255,7 +262,7 @@ public class BootstrapData implements CommandLineRunner {
                     o.setMaintenanceMargin(dto.getMaintenanceMargin());
                     o.setPrice(dto.getPrice());
                     o.setTicker(dto.getTicker());
-                    o.setImpliedVolatility(BigDecimal.ONE);
+                    o.setImpliedVolatility(dto.getImpliedVolatility());
                     o.setOpenInterest(new Random().nextInt(500) + 100);
                     o.setOnSale(true);
                     return o;
@@ -651,11 +658,10 @@ public class BootstrapData implements CommandLineRunner {
         ));
     }
 
-    private List<ListingPriceHistory> createNewHistory(Listing listing, TimeSeriesDto dto, Set<LocalDateTime> existingDates) {
+    private List<ListingPriceHistory> createNewHistory(Listing listing, TimeSeriesDto dto) {
         return dto.getValues().stream()
                 .map(v -> {
                     LocalDateTime date = LocalDateTime.parse(v.getDatetime(), formatter);
-                    if (existingDates.contains(date)) return null;
                     return ListingPriceHistory.builder()
                             .listing(listing)
                             .date(date)
@@ -666,7 +672,7 @@ public class BootstrapData implements CommandLineRunner {
                             .volume(v.getVolume())
                             .change(v.getClose().subtract(v.getOpen()))
                             .build();
-                }).filter(Objects::nonNull).toList();
+                }).toList();
     }
 
     private <T> void saveInBatches(List<T> list, int size, Consumer<List<T>> saver) {
@@ -678,43 +684,11 @@ public class BootstrapData implements CommandLineRunner {
     }
 
     private <T> void refreshInParallel(List<T> items, Consumer<T> task) {
-        ExecutorService executor = Executors.newFixedThreadPool(threadPoolSize);
-        for (T item : items) {
-            executor.submit(() -> {
-                try {
-                    task.accept(item);
-                } catch (Exception e) {
-                    log.error("Parallel task error", e);
-                }
-            });
-        }
-        executor.shutdown();
-        try {
-            executor.awaitTermination(15, TimeUnit.MINUTES);
-        } catch (InterruptedException e) {
-            log.error("Parallel task timeout", e);
-        }
+        fanOutExecutor.forEach(items, task);
     }
 
     private <T, R> List<R> refreshInParallel(List<T> items, Function<T, List<R>> task) {
-        ExecutorService executor = Executors.newFixedThreadPool(threadPoolSize);
-        List<Future<List<R>>> futures = new ArrayList<>();
-
-        for (T item : items) {
-            futures.add(executor.submit(() -> task.apply(item)));
-        }
-
-        List<R> result = new ArrayList<>();
-        for (Future<List<R>> future : futures) {
-            try {
-                result.addAll(future.get());
-            } catch (Exception e) {
-                log.error("Parallel fetch failed", e);
-            }
-        }
-
-        executor.shutdown();
-        return result;
+        return fanOutExecutor.flatMap(items, task);
     }
 
     private BootstrapData getSelfProxy() {
@@ -32,6 +32,11 @@ public interface AlphavantageClient {
                            @RequestParam(value = "outputsize", defaultValue = "compact") String outputsize,
                            @RequestParam(value = "datatype", defaultValue = "json") String datatype);
 
+    // Endpoint za Stock daily
+    @GetMapping("/query?function=TIME_SERIES_DAILY")
+    String getDailyData(@RequestParam("symbol") String symbol,
+                        @RequestParam(value = "outputsize", defaultValue = "compact") String outputsize);
+
     // Endpoint za FX_INTRADAY
     @GetMapping("/query?function=FX_INTRADAY")
     String getForexPriceHistory(@RequestParam("from_symbol") String fromSymbol,
@@ -39,6 +44,12 @@ public interface AlphavantageClient {
                                 @RequestParam("interval") String interval,
                                 @RequestParam(value = "outputsize", required = false, defaultValue = "compact") String outputsize);
 
+    // Endpoint za FX_DAILY
+    @GetMapping("/query?function=FX_DAILY")
+    String getForexDailyPriceHistory(@RequestParam("from_symbol") String fromSymbol,
+                                     @RequestParam("to_symbol") String toSymbol,
+                                     @RequestParam(value = "outputsize", required = false, defaultValue = "compact") String outputsize);
+
     //Endpoint za bulk insert stockova
     @GetMapping("/query?function=REALTIME_BULK_QUOTES")
     String getRealtimeBulkQuotes(@RequestParam("symbol") String symbols);
@@ -0,0 +1,45 @@
+package rs.raf.stock_service.client;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import rs.raf.stock_service.domain.dto.CacheStatsDto;
+import rs.raf.stock_service.utils.TtlCache;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Response caches for Alpha Vantage calls. Quotes change constantly and get a short TTL, while company overviews
+ * and symbol search results rarely change and are kept much longer. Other functions are not cached.
+ */
+@Component
+public class AlphavantageResponseCache {
+
+    private static final Set<String> QUOTE_FUNCTIONS = Set.of("GLOBAL_QUOTE", "REALTIME_BULK_QUOTES", "CURRENCY_EXCHANGE_RATE");
+    private static final Set<String> REFERENCE_FUNCTIONS = Set.of("OVERVIEW", "SYMBOL_SEARCH");
+
+    private final TtlCache<String, byte[]> quotes;
+    private final TtlCache<String, byte[]> overviews;
+
+    public AlphavantageResponseCache(@Value("${alphavantage.cache.quote.ttl.seconds:60}") long quoteTtlSeconds,
+                                     @Value("${alphavantage.cache.overview.ttl.seconds:86400}") long overviewTtlSeconds,
+                                     @Value("${alphavantage.cache.max.entries:5000}") int maxEntries) {
+        this.quotes = new TtlCache<>("alphavantage-quotes", maxEntries, Duration.ofSeconds(quoteTtlSeconds));
+        this.overviews = new TtlCache<>("alphavantage-overviews", maxEntries, Duration.ofSeconds(overviewTtlSeconds));
+    }
+
+    /**
+     * @return cache for the given Alpha Vantage function, or null if its responses should not be cached
+     */
+    public TtlCache<String, byte[]> cacheFor(String function) {
+        if (function == null) return null;
+        if (QUOTE_FUNCTIONS.contains(function)) return quotes;
+        if (REFERENCE_FUNCTIONS.contains(function)) return overviews;
+        return null;
+    }
+
+    public List<CacheStatsDto> stats() {
+        return List.of(quotes.stats(), overviews.stats());
+    }
+}
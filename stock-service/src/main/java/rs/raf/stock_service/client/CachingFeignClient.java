@@ -0,0 +1,75 @@
+package rs.raf.stock_service.client;
+
+import feign.Client;
+import feign.Request;
+import feign.Response;
+import feign.Util;
+import rs.raf.stock_service.utils.TtlCache;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Feign client that serves repeated Alpha Vantage GET requests from {@link AlphavantageResponseCache}.
+ * Only successful responses are cached; rate limit notes and error messages always go back to the caller uncached.
+ */
+public class CachingFeignClient implements Client {
+
+    private static final Pattern FUNCTION = Pattern.compile("[?&]function=([^&]+)");
+    private static final Pattern API_KEY = Pattern.compile("([?&])apikey=[^&]*&?");
+
+    private final Client delegate;
+    private final AlphavantageResponseCache responseCache;
+
+    public CachingFeignClient(Client delegate, AlphavantageResponseCache responseCache) {
+        this.delegate = delegate;
+        this.responseCache = responseCache;
+    }
+
+    @Override
+    public Response execute(Request request, Request.Options options) throws IOException {
+        TtlCache<String, byte[]> cache = request.httpMethod() == Request.HttpMethod.GET
+                ? responseCache.cacheFor(function(request.url()))
+                : null;
+        if (cache == null) return delegate.execute(request, options);
+
+        String key = API_KEY.matcher(request.url()).replaceAll("$1");
+        byte[] cached = cache.get(key);
+        if (cached != null) return toResponse(request, cached);
+
+        Response response = delegate.execute(request, options);
+        if (response.status() != 200 || response.body() == null) return response;
+
+        byte[] body;
+        try (response) {
+            body = Util.toByteArray(response.body().asInputStream());
+        }
+        if (isCacheable(body)) cache.put(key, body);
+
+        return response.toBuilder().body(body).build();
+    }
+
+    private Response toResponse(Request request, byte[] body) {
+        return Response.builder()
+                .status(200)
+                .reason("OK")
+                .request(request)
+                .headers(Map.of("content-type", List.of("application/json")))
+                .body(body)
+                .build();
+    }
+
+    private static String function(String url) {
+        Matcher matcher = FUNCTION.matcher(url);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    private static boolean isCacheable(byte[] body) {
+        String text = new String(body, StandardCharsets.UTF_8);
+        return !text.contains("\"Note\"") && !text.contains("\"Information\"") && !text.contains("\"Error Message\"");
+    }
+}
@@ -0,0 +1,53 @@
+package rs.raf.stock_service.client;
+
+import feign.Client;
+import feign.Request;
+import feign.Response;
+import feign.Util;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Feign client that lets concurrent identical GET requests share one outgoing call through the
+ * {@link InFlightRequestRegistry}. Only calls that overlap in time are coalesced; nothing is cached.
+ */
+public class CoalescingFeignClient implements Client {
+
+    private final Client delegate;
+    private final InFlightRequestRegistry registry;
+
+    public CoalescingFeignClient(Client delegate, InFlightRequestRegistry registry) {
+        this.delegate = delegate;
+        this.registry = registry;
+    }
+
+    @Override
+    public Response execute(Request request, Request.Options options) throws IOException {
+        if (request.httpMethod() != Request.HttpMethod.GET) return delegate.execute(request, options);
+
+        // pratilac ne ceka duze nego sto bi vodeci poziv smeo da traje
+        long timeoutMillis = options.connectTimeoutMillis() + options.readTimeoutMillis();
+        try {
+            return registry.requests()
+                    .execute(request.url(), timeoutMillis, TimeUnit.MILLISECONDS,
+                            () -> buffer(delegate.execute(request, options)))
+                    .toResponse(request);
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (TimeoutException e) {
+            throw new SocketTimeoutException("Coalesced request timed out waiting for " + request.url());
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+    private InFlightRequestRegistry.BufferedResponse buffer(Response response) throws IOException {
+        try (response) {
+            byte[] body = response.body() == null ? null : Util.toByteArray(response.body().asInputStream());
+            return new InFlightRequestRegistry.BufferedResponse(response.status(), response.reason(), response.headers(), body);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package rs.raf.stock_service.client;
+
+import feign.Request;
+import feign.Response;
+import org.springframework.stereotype.Component;
+import rs.raf.stock_service.domain.dto.RequestCoalescingStatsDto;
+import rs.raf.stock_service.utils.SingleFlight;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Outstanding market data provider requests, shared by all {@link CoalescingFeignClient}s.
+ * Requests are keyed by their full URL, which already identifies the provider, symbol, interval and output size.
+ */
+@Component
+public class InFlightRequestRegistry {
+
+    private final SingleFlight<String, BufferedResponse> requests = new SingleFlight<>();
+
+    public SingleFlight<String, BufferedResponse> requests() {
+        return requests;
+    }
+
+    public RequestCoalescingStatsDto stats() {
+        return new RequestCoalescingStatsDto(requests.getExecuted(), requests.getCoalesced(), requests.inFlight());
+    }
+
+    /**
+     * Fully read response that can be handed to every coalesced caller.
+     */
+    public record BufferedResponse(int status, String reason, Map<String, Collection<String>> headers, byte[] body) {
+
+        public Response toResponse(Request request) {
+            return Response.builder()
+                    .status(status)
+                    .reason(reason)
+                    .headers(headers)
+                    .request(request)
+                    .body(body)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package rs.raf.stock_service.client;
+
+import feign.Client;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Chooses the bottom-most feign client of every market data provider, below rate limiting, coalescing and caching.
+ * {@code market-data.mode} is {@code live} (the network), {@code record} (the network, saving responses) or
+ * {@code replay} (recorded responses from {@code market-data.replay.dir}, no network access).
+ */
+@Component
+public class MarketDataTransport {
+
+    private final String mode;
+    private final Path directory;
+    private final Set<String> wildcardParams;
+    private final long latencyMillis;
+    private final long jitterMillis;
+    private final double errorRate;
+    private final double rateLimitRate;
+
+    public MarketDataTransport(@Value("${market-data.mode:live}") String mode,
+                               @Value("${market-data.replay.dir:market-data-replay}") String directory,
+                               @Value("${market-data.replay.wildcard-params:symbol,from_symbol,to_symbol,keywords}") String wildcardParams,
+                               @Value("${market-data.replay.latency.ms:0}") long latencyMillis,
+                               @Value("${market-data.replay.jitter.ms:0}") long jitterMillis,
+                               @Value("${market-data.replay.error-rate:0}") double errorRate,
+                               @Value("${market-data.replay.rate-limit-rate:0}") double rateLimitRate) {
+        this.mode = mode;
+        this.directory = Path.of(directory);
+        this.wildcardParams = Arrays.stream(wildcardParams.split(","))
+                .map(String::trim)
+                .filter(param -> !param.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+        this.latencyMillis = latencyMillis;
+        this.jitterMillis = jitterMillis;
+        this.errorRate = errorRate;
+        this.rateLimitRate = rateLimitRate;
+    }
+
+    public Client forProvider(String provider) {
+        Path providerDirectory = directory.resolve(provider);
+        return switch (mode) {
+            case "live" -> new Client.Default(null, null);
+            case "record" -> new RecordingFeignClient(new Client.Default(null, null), providerDirectory);
+            case "replay" -> new ReplayFeignClient(providerDirectory, wildcardParams, latencyMillis, jitterMillis,
+                    errorRate, rateLimitRate);
+            default -> throw new IllegalStateException("Unknown market-data.mode: " + mode);
+        };
+    }
+}
@@ -0,0 +1,34 @@
+package rs.raf.stock_service.client;
+
+import java.util.function.Supplier;
+
+/**
+ * Priority of market data provider calls made by the current thread. Calls are interactive unless a
+ * background job (data refresh, bootstrap) marks its work as {@link #BACKGROUND}.
+ */
+public enum ProviderCallPriority {
+    INTERACTIVE, BACKGROUND;
+
+    private static final ThreadLocal<ProviderCallPriority> CURRENT = ThreadLocal.withInitial(() -> INTERACTIVE);
+
+    public static ProviderCallPriority current() {
+        return CURRENT.get();
+    }
+
+    public static void runAs(ProviderCallPriority priority, Runnable task) {
+        callAs(priority, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    public static <T> T callAs(ProviderCallPriority priority, Supplier<T> task) {
+        ProviderCallPriority previous = CURRENT.get();
+        CURRENT.set(priority);
+        try {
+            return task.get();
+        } finally {
+            CURRENT.set(previous);
+        }
+    }
+}
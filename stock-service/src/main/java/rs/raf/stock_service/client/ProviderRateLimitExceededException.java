@@ -0,0 +1,14 @@
+package rs.raf.stock_service.client;
+
+import java.io.IOException;
+
+/**
+ * Thrown when an interactive call could not get a {@link ProviderRateLimiter} permit within the allowed wait.
+ * The call is not sent, so the provider quota is never exceeded.
+ */
+public class ProviderRateLimitExceededException extends IOException {
+
+    public ProviderRateLimitExceededException(String provider) {
+        super("Rate limit for " + provider + " exhausted, call not sent");
+    }
+}
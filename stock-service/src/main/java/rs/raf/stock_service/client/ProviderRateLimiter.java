@@ -0,0 +1,132 @@
+package rs.raf.stock_service.client;
+
+import feign.Client;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import rs.raf.stock_service.domain.dto.ProviderRateLimitStatsDto;
+import rs.raf.stock_service.utils.TokenBucket;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-provider token buckets shared by all {@link RateLimitedFeignClient}s. Background calls leave a share of
+ * every bucket to interactive calls, so user requests are not starved by the refresh job. Interactive calls
+ * wait at most {@code market-data.rate-limit.max-wait.ms} and then fail with {@link ProviderRateLimitExceededException}
+ * instead of going out without a permit.
+ */
+@Component
+public class ProviderRateLimiter {
+
+    private static final long MAX_SLEEP_NANOS = TimeUnit.MILLISECONDS.toNanos(250);
+
+    private final Environment environment;
+    private final double interactiveShare;
+    private final long maxInteractiveWaitNanos;
+    private final int maxRetries;
+    private final Duration initialBackoff;
+    private final Map<String, Provider> providers = new ConcurrentHashMap<>();
+
+    public ProviderRateLimiter(Environment environment,
+                               @Value("${market-data.rate-limit.interactive-share:0.2}") double interactiveShare,
+                               @Value("${market-data.rate-limit.max-wait.ms:10000}") long maxInteractiveWaitMillis,
+                               @Value("${market-data.rate-limit.max-retries:3}") int maxRetries,
+                               @Value("${market-data.rate-limit.backoff.ms:2000}") long initialBackoffMillis) {
+        this.environment = environment;
+        this.interactiveShare = interactiveShare;
+        this.maxInteractiveWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxInteractiveWaitMillis);
+        this.maxRetries = maxRetries;
+        this.initialBackoff = Duration.ofMillis(initialBackoffMillis);
+    }
+
+    /**
+     * Wraps a feign client so its calls to the given provider are rate limited and retried on throttling.
+     */
+    public Client limit(Client delegate, String provider) {
+        return new RateLimitedFeignClient(delegate, this, provider, maxRetries, initialBackoff);
+    }
+
+    public void acquire(String provider) throws InterruptedException, ProviderRateLimitExceededException {
+        Provider limits = provider(provider);
+        boolean background = ProviderCallPriority.current() == ProviderCallPriority.BACKGROUND;
+        double reserve = background ? limits.permitsPerMinute * interactiveShare : 0;
+        long start = System.nanoTime();
+
+        try {
+            long wait;
+            while ((wait = limits.bucket.tryAcquire(reserve)) > 0) {
+                if (!background && System.nanoTime() - start >= maxInteractiveWaitNanos) {
+                    limits.rejected.incrementAndGet();
+                    throw new ProviderRateLimitExceededException(provider);
+                }
+                TimeUnit.NANOSECONDS.sleep(Math.min(wait, MAX_SLEEP_NANOS));
+            }
+            limits.calls.incrementAndGet();
+        } finally {
+            limits.waitedNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Whether the provider has a permit to spare beyond the share kept for interactive calls, checked without
+     * taking it. Optional extra calls such as hedges check this first, so they never spend the budget regular calls
+     * need; the call itself still takes its permit through {@link #acquire}.
+     */
+    public boolean hasSpareCapacity(String provider) {
+        Provider limits = provider(provider);
+        return limits.bucket.available() >= 1 + limits.permitsPerMinute * interactiveShare;
+    }
+
+    /**
+     * Called when the provider answered with a rate limit response; holds back all calls to it for the backoff.
+     */
+    public void onRateLimited(String provider, Duration backoff) {
+        Provider limits = provider(provider);
+        limits.rateLimited.incrementAndGet();
+        limits.bucket.pause(backoff);
+    }
+
+    public void onRetry(String provider) {
+        provider(provider).retries.incrementAndGet();
+    }
+
+    public List<ProviderRateLimitStatsDto> stats() {
+        return providers.entrySet().stream()
+                .map(entry -> new ProviderRateLimitStatsDto(
+                        entry.getKey(),
+                        entry.getValue().permitsPerMinute,
+                        entry.getValue().bucket.available(),
+                        entry.getValue().calls.get(),
+                        TimeUnit.NANOSECONDS.toMillis(entry.getValue().waitedNanos.get()),
+                        entry.getValue().rateLimited.get(),
+                        entry.getValue().retries.get(),
+                        entry.getValue().rejected.get()))
+                .toList();
+    }
+
+    private Provider provider(String name) {
+        return providers.computeIfAbsent(name, key -> new Provider(
+                environment.getProperty("market-data.rate-limit." + key + ".per-minute", Integer.class, 60)));
+    }
+
+    private static class Provider {
+
+        private final int permitsPerMinute;
+        private final TokenBucket bucket;
+        private final AtomicLong calls = new AtomicLong();
+        private final AtomicLong waitedNanos = new AtomicLong();
+        private final AtomicLong rateLimited = new AtomicLong();
+        private final AtomicLong retries = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+
+        Provider(int permitsPerMinute) {
+            this.permitsPerMinute = permitsPerMinute;
+            this.bucket = new TokenBucket(permitsPerMinute, Duration.ofMinutes(1), System::nanoTime);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package rs.raf.stock_service.client;
+
+import feign.Client;
+import feign.Request;
+import feign.Response;
+import feign.Util;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+/**
+ * Feign client that takes a permit from the {@link ProviderRateLimiter} before every call. When the provider
+ * still answers with a rate limit response (HTTP 429, or the "Note", rate limit "Information" and "code":429 bodies that
+ * Alpha Vantage and Twelve Data send with status 200), the provider is paused and the call retried with
+ * exponential backoff.
+ */
+public class RateLimitedFeignClient implements Client {
+
+    private final Client delegate;
+    private final ProviderRateLimiter rateLimiter;
+    private final String provider;
+    private final int maxRetries;
+    private final Duration initialBackoff;
+
+    public RateLimitedFeignClient(Client delegate, ProviderRateLimiter rateLimiter, String provider,
+                                  int maxRetries, Duration initialBackoff) {
+        this.delegate = delegate;
+        this.rateLimiter = rateLimiter;
+        this.provider = provider;
+        this.maxRetries = maxRetries;
+        this.initialBackoff = initialBackoff;
+    }
+
+    @Override
+    public Response execute(Request request, Request.Options options) throws IOException {
+        Duration backoff = initialBackoff;
+
+        for (int attempt = 0; ; attempt++) {
+            try {
+                rateLimiter.acquire(provider);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for " + provider + " rate limit");
+            }
+
+            Response response = delegate.execute(request, options);
+            if (response.status() >= 400 && response.status() != 429) return response;
+
+            byte[] body;
+            try (response) {
+                body = response.body() == null ? null : Util.toByteArray(response.body().asInputStream());
+            }
+            Response buffered = response.toBuilder().body(body).build();
+            if (!isRateLimited(response.status(), body)) return buffered;
+
+            rateLimiter.onRateLimited(provider, backoff);
+            if (attempt >= maxRetries) return buffered;
+
+            rateLimiter.onRetry(provider);
+            backoff = backoff.multipliedBy(2);
+        }
+    }
+
+    static boolean isRateLimited(int status, byte[] body) {
+        if (status == 429) return true;
+        if (body == null) return false;
+
+        String text = new String(body, StandardCharsets.UTF_8);
+        return text.contains("\"Note\"")
+                || (text.contains("\"Information\"") && text.contains("rate limit"))
+                || text.replace(" ", "").contains("\"code\":429");
+    }
+}
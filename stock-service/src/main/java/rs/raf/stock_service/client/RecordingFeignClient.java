@@ -0,0 +1,49 @@
+package rs.raf.stock_service.client;
+
+import feign.Client;
+import feign.Request;
+import feign.Response;
+import feign.Util;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+
+/**
+ * Feign client that saves every successful live response where {@link ReplayFeignClient} will look it up,
+ * so recordings for a replay run can be captured from a normal one.
+ */
+@Slf4j
+public class RecordingFeignClient implements Client {
+
+    private final Client delegate;
+    private final Path directory;
+
+    public RecordingFeignClient(Client delegate, Path directory) {
+        this.delegate = delegate;
+        this.directory = directory;
+    }
+
+    @Override
+    public Response execute(Request request, Request.Options options) throws IOException {
+        Response response = delegate.execute(request, options);
+        if (response.status() != 200 || response.body() == null) return response;
+
+        byte[] body;
+        try (response) {
+            body = Util.toByteArray(response.body().asInputStream());
+        }
+
+        Path file = directory.resolve(ReplayFeignClient.key(URI.create(request.url()), Set.of()));
+        try {
+            Files.createDirectories(directory);
+            Files.write(file, body);
+        } catch (IOException e) {
+            log.warn("Could not record market data response to {}", file, e);
+        }
+        return response.toBuilder().body(body).build();
+    }
+}
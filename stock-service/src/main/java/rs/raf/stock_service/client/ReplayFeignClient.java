@@ -0,0 +1,118 @@
+package rs.raf.stock_service.client;
+
+import feign.Client;
+import feign.Request;
+import feign.Response;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Feign client that answers market data calls from recorded responses on disk instead of the network.
+ * A request is looked up as {@code <dir>/<provider>/<key>.json}, where the key is the request path and its sorted
+ * query parameters without the api key. When there is no exact recording, the same key without the
+ * {@code wildcardParams} (e.g. {@code symbol}) is tried, so one recording can stand in for every ticker.
+ * Latency, failures and provider rate limit notes can be injected to exercise the callers under load.
+ */
+public class ReplayFeignClient implements Client {
+
+    private static final byte[] MISSING = new byte[0];
+
+    private final Path directory;
+    private final Set<String> wildcardParams;
+    private final long latencyMillis;
+    private final long jitterMillis;
+    private final double errorRate;
+    private final double rateLimitRate;
+    private final Map<String, byte[]> recordings = new ConcurrentHashMap<>();
+
+    public ReplayFeignClient(Path directory, Set<String> wildcardParams, long latencyMillis, long jitterMillis,
+                             double errorRate, double rateLimitRate) {
+        this.directory = directory;
+        this.wildcardParams = wildcardParams;
+        this.latencyMillis = latencyMillis;
+        this.jitterMillis = jitterMillis;
+        this.errorRate = errorRate;
+        this.rateLimitRate = rateLimitRate;
+    }
+
+    @Override
+    public Response execute(Request request, Request.Options options) throws IOException {
+        simulateLatency();
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (random.nextDouble() < errorRate)
+            return response(request, 503, "{\"Error Message\": \"Injected replay failure\"}".getBytes(StandardCharsets.UTF_8));
+        if (random.nextDouble() < rateLimitRate)
+            return response(request, 200, "{\"Note\": \"Injected replay rate limit\"}".getBytes(StandardCharsets.UTF_8));
+
+        URI uri = URI.create(request.url());
+        byte[] body = recording(key(uri, Set.of()));
+        if (body == MISSING && !wildcardParams.isEmpty())
+            body = recording(key(uri, wildcardParams));
+        if (body == MISSING)
+            return response(request, 404, ("{\"Error Message\": \"No replay recording for " + key(uri, Set.of()) + "\"}")
+                    .getBytes(StandardCharsets.UTF_8));
+
+        return response(request, 200, body);
+    }
+
+    /**
+     * File a response to the given url is recorded under, relative to the provider directory.
+     */
+    public static String key(URI uri, Set<String> skippedParams) {
+        TreeMap<String, String> params = new TreeMap<>();
+        if (uri.getRawQuery() != null) {
+            for (String pair : uri.getRawQuery().split("&")) {
+                int eq = pair.indexOf('=');
+                String name = eq < 0 ? pair : pair.substring(0, eq);
+                if (name.equals("apikey") || skippedParams.contains(name)) continue;
+                params.put(name, eq < 0 ? "" : pair.substring(eq + 1));
+            }
+        }
+
+        StringBuilder key = new StringBuilder(uri.getRawPath() == null ? "" : uri.getRawPath());
+        params.forEach((name, value) -> key.append('_').append(name).append('=').append(value));
+        String sanitized = key.toString().replaceAll("[^A-Za-z0-9=._-]+", "_").replaceAll("^_+", "");
+        return (sanitized.isEmpty() ? "root" : sanitized) + ".json";
+    }
+
+    private byte[] recording(String key) {
+        return recordings.computeIfAbsent(key, k -> {
+            Path file = directory.resolve(k);
+            try {
+                return Files.isRegularFile(file) ? Files.readAllBytes(file) : MISSING;
+            } catch (IOException e) {
+                return MISSING;
+            }
+        });
+    }
+
+    private void simulateLatency() throws InterruptedIOException {
+        long delay = latencyMillis + (jitterMillis > 0 ? ThreadLocalRandom.current().nextLong(jitterMillis + 1) : 0);
+        if (delay <= 0) return;
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted during replay latency");
+        }
+    }
+
+    private static Response response(Request request, int status, byte[] body) {
+        return Response.builder()
+                .status(status)
+                .reason(status == 200 ? "OK" : "Replay")
+                .request(request)
+                .headers(Map.of("content-type", List.of("application/json")))
+                .body(body)
+                .build();
+    }
+}
@@ -23,4 +23,8 @@ public interface TwelveDataClient {
             @RequestParam("interval") String interval,
             @RequestParam(value = "outputsize", required = false, defaultValue = "30") String outputSize
     );
+
+    // Trenutna cena, rezervni izvor kada Alpha Vantage ne odgovori
+    @GetMapping("/quote")
+    String getQuote(@RequestParam("symbol") String symbol);
 }
@@ -1,8 +1,15 @@
 package rs.raf.stock_service.configuration;
 
+import feign.Client;
 import feign.RequestInterceptor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
+import rs.raf.stock_service.client.AlphavantageResponseCache;
+import rs.raf.stock_service.client.CachingFeignClient;
+import rs.raf.stock_service.client.CoalescingFeignClient;
+import rs.raf.stock_service.client.InFlightRequestRegistry;
+import rs.raf.stock_service.client.MarketDataTransport;
+import rs.raf.stock_service.client.ProviderRateLimiter;
 
 public class AlphavantageConfig {
     @Value("${alphavantage.api.key}")
@@ -14,4 +21,12 @@ public class AlphavantageConfig {
             requestTemplate.query("apikey", apiKey);
         };
     }
+
+    // samo za alphavantage feign kontekst, ostali klijenti koriste podrazumevani Client
+    @Bean
+    public Client alphavantageFeignClient(AlphavantageResponseCache responseCache, InFlightRequestRegistry registry,
+                                          ProviderRateLimiter rateLimiter, MarketDataTransport transport) {
+        Client limited = rateLimiter.limit(transport.forProvider("alphavantage"), "alphavantage");
+        return new CachingFeignClient(new CoalescingFeignClient(limited, registry), responseCache);
+    }
 }
@@ -1,8 +1,13 @@
 package rs.raf.stock_service.configuration;
 
+import feign.Client;
 import feign.RequestInterceptor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
+import rs.raf.stock_service.client.CoalescingFeignClient;
+import rs.raf.stock_service.client.InFlightRequestRegistry;
+import rs.raf.stock_service.client.MarketDataTransport;
+import rs.raf.stock_service.client.ProviderRateLimiter;
 
 public class ExchangeRateApiConfig {
     @Value("${alphavantage.api.key}")
@@ -14,4 +19,10 @@ public class ExchangeRateApiConfig {
             requestTemplate.query("apikey", apiKey);
         };
     }
+
+    @Bean
+    public Client exchangeRateFeignClient(InFlightRequestRegistry registry, ProviderRateLimiter rateLimiter,
+                                          MarketDataTransport transport) {
+        return new CoalescingFeignClient(rateLimiter.limit(transport.forProvider("exchangerate"), "exchangerate"), registry);
+    }
 }
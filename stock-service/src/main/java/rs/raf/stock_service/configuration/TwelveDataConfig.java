@@ -1,8 +1,13 @@
 package rs.raf.stock_service.configuration;
 
+import feign.Client;
 import feign.RequestInterceptor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
+import rs.raf.stock_service.client.CoalescingFeignClient;
+import rs.raf.stock_service.client.InFlightRequestRegistry;
+import rs.raf.stock_service.client.MarketDataTransport;
+import rs.raf.stock_service.client.ProviderRateLimiter;
 
 public class TwelveDataConfig {
     @Value("${twelvedata.api.key}")
@@ -14,4 +19,10 @@ public class TwelveDataConfig {
             requestTemplate.query("apikey", apiKey);
         };
     }
+
+    @Bean
+    public Client twelveDataFeignClient(InFlightRequestRegistry registry, ProviderRateLimiter rateLimiter,
+                                        MarketDataTransport transport) {
+        return new CoalescingFeignClient(rateLimiter.limit(transport.forProvider("twelvedata"), "twelvedata"), registry);
+    }
 }
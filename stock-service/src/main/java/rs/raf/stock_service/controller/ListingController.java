@@ -15,6 +15,7 @@ import rs.raf.stock_service.utils.JwtTokenUtil;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -76,13 +77,19 @@ public class ListingController {
     }
 
     @GetMapping("/{id}")
-    @Operation(summary = "Get details of a security", description = "Returns detailed information about a specific stock, future, or forex pair.")
+    @Operation(summary = "Get details of a security", description = "Returns detailed information about a specific stock, future, or forex pair, " +
+            "with the newest price history bars in [from, to). Pass priceHistoryNextCursor as 'to' to page back through older bars.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Security details retrieved successfully"),
             @ApiResponse(responseCode = "404", description = "Security not found")
     })
-    public ResponseEntity<ListingDetailsDto> getListingDetails(@PathVariable Long id) {
-        return ResponseEntity.ok(listingService.getListingDetails(id));
+    public ResponseEntity<ListingDetailsDto> getListingDetails(
+            @PathVariable Long id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Integer limit
+    ) {
+        return ResponseEntity.ok(listingService.getListingDetails(id, from, to, limit));
     }
 
     @PreAuthorize("hasRole('SUPERVISOR')")
@@ -0,0 +1,76 @@
+package rs.raf.stock_service.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import lombok.AllArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import rs.raf.stock_service.client.AlphavantageResponseCache;
+import rs.raf.stock_service.client.InFlightRequestRegistry;
+import rs.raf.stock_service.client.ProviderRateLimiter;
+import rs.raf.stock_service.domain.dto.CacheStatsDto;
+import rs.raf.stock_service.domain.dto.FanOutStatsDto;
+import rs.raf.stock_service.domain.dto.ProviderRateLimitStatsDto;
+import rs.raf.stock_service.domain.dto.RequestCoalescingStatsDto;
+import rs.raf.stock_service.service.FanOutExecutor;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/market-data")
+@AllArgsConstructor
+public class MarketDataController {
+
+    private final AlphavantageResponseCache alphavantageResponseCache;
+    private final InFlightRequestRegistry inFlightRequestRegistry;
+    private final ProviderRateLimiter providerRateLimiter;
+    private final FanOutExecutor fanOutExecutor;
+
+    @Operation(summary = "Get market data cache statistics", description = "Returns size, hits, misses and evictions of the external API response caches.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Cache statistics retrieved successfully"),
+            @ApiResponse(responseCode = "403", description = "Access denied")
+    })
+    @PreAuthorize("hasRole('SUPERVISOR') or hasRole('ADMIN')")
+    @GetMapping("/cache")
+    public ResponseEntity<List<CacheStatsDto>> getCacheStats() {
+        return ResponseEntity.ok(alphavantageResponseCache.stats());
+    }
+
+    @Operation(summary = "Get provider request coalescing statistics", description = "Returns how many provider calls were executed and how many concurrent identical calls shared them.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Coalescing statistics retrieved successfully"),
+            @ApiResponse(responseCode = "403", description = "Access denied")
+    })
+    @PreAuthorize("hasRole('SUPERVISOR') or hasRole('ADMIN')")
+    @GetMapping("/coalescing")
+    public ResponseEntity<RequestCoalescingStatsDto> getCoalescingStats() {
+        return ResponseEntity.ok(inFlightRequestRegistry.stats());
+    }
+
+    @Operation(summary = "Get provider rate limit statistics", description = "Returns configured permits, waiting time and throttling responses per market data provider.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Rate limit statistics retrieved successfully"),
+            @ApiResponse(responseCode = "403", description = "Access denied")
+    })
+    @PreAuthorize("hasRole('SUPERVISOR') or hasRole('ADMIN')")
+    @GetMapping("/rate-limits")
+    public ResponseEntity<List<ProviderRateLimitStatsDto>> getRateLimitStats() {
+        return ResponseEntity.ok(providerRateLimiter.stats());
+    }
+
+    @Operation(summary = "Get refresh fan-out statistics", description = "Returns queue depth, active threads and task latency of the shared refresh and bootstrap executor.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Fan-out statistics retrieved successfully"),
+            @ApiResponse(responseCode = "403", description = "Access denied")
+    })
+    @PreAuthorize("hasRole('SUPERVISOR') or hasRole('ADMIN')")
+    @GetMapping("/fan-out")
+    public ResponseEntity<FanOutStatsDto> getFanOutStats() {
+        return ResponseEntity.ok(fanOutExecutor.stats());
+    }
+}
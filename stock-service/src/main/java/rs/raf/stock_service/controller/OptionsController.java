@@ -5,15 +5,15 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.AllArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
-import org.springframework.web.bind.annotation.GetMapping;
-import org.springframework.web.bind.annotation.PathVariable;
-import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.bind.annotation.*;
+import rs.raf.stock_service.domain.dto.OptionChainEntryDto;
 import rs.raf.stock_service.domain.dto.OptionDto;
 import rs.raf.stock_service.domain.enums.OptionType;
 import rs.raf.stock_service.service.OptionService;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @Tag(name = "Options API", description = "Operations for generating options based on underlying stock price")
@@ -63,4 +63,15 @@ public class OptionsController {
         }
     }
 
+    @Operation(summary = "Get priced option chain", description = "Returns the options of a stock, optionally for one settlement date, " +
+            "with Black-Scholes theoretical prices and Greeks computed from each option's implied volatility")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved option chain"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/chain/{stockId}")
+    public ResponseEntity<List<OptionChainEntryDto>> getOptionChain(@PathVariable Long stockId,
+                                                                    @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate settlementDate) {
+        return ResponseEntity.ok(optionService.getOptionChain(stockId, settlementDate));
+    }
 }
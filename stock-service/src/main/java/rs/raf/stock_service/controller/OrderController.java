@@ -11,10 +11,12 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import rs.raf.stock_service.domain.dto.CreateOrderDto;
+import rs.raf.stock_service.domain.dto.ExecutionLaneStatsDto;
 import rs.raf.stock_service.domain.dto.OrderDto;
 import rs.raf.stock_service.domain.enums.OrderStatus;
 import rs.raf.stock_service.exceptions.*;
 import rs.raf.stock_service.repository.OrderRepository;
+import rs.raf.stock_service.service.ListingExecutionLanes;
 import rs.raf.stock_service.service.OrderService;
 
 import javax.validation.Valid;
@@ -30,6 +32,7 @@ public class OrderController {
 
     private final OrderService orderService;
     private final OrderRepository orderRepository;
+    private final ListingExecutionLanes executionLanes;
 
 
     @Operation(
@@ -50,6 +53,20 @@ public class OrderController {
         return ResponseEntity.ok(orderService.getOrdersByStatus(status, pageable));
     }
 
+    @Operation(
+            summary = "Get order execution lane statistics",
+            description = "Returns throughput statistics for every per-listing order execution lane."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved lane statistics"),
+            @ApiResponse(responseCode = "403", description = "Access denied")
+    })
+    @PreAuthorize("hasRole('SUPERVISOR') or hasRole('ADMIN')")
+    @GetMapping("/execution-lanes")
+    public ResponseEntity<List<ExecutionLaneStatsDto>> getExecutionLaneStats() {
+        return ResponseEntity.ok(executionLanes.getStats());
+    }
+
     @Operation(
             summary = "Get orders made by user.",
             description = "Returns a list of orders made by a specific user."
@@ -0,0 +1,18 @@
+package rs.raf.stock_service.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ExecutionLaneStatsDto {
+    private int lane;
+    private long submitted;
+    private long completed;
+    private long failed;
+    private int queued;
+    private long busyMillis;
+    private double completedPerSecond;
+}
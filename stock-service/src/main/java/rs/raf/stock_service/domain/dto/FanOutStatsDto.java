@@ -0,0 +1,22 @@
+package rs.raf.stock_service.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class FanOutStatsDto {
+    private int poolSize;
+    private int activeThreads;
+    private int queued;
+    private long submitted;
+    private long completed;
+    private long failed;
+    private long cancelled;
+    private long deadlinesMissed;
+    private double averageWaitMillis;
+    private double averageLatencyMillis;
+    private double maxLatencyMillis;
+}
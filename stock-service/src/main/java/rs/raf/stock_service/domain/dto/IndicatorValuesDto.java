@@ -0,0 +1,23 @@
+package rs.raf.stock_service.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Indicator values as of one 5 minute bar. A value is {@code null} until the listing has enough bars for it.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class IndicatorValuesDto {
+    private LocalDateTime datetime;
+    private Double sma;
+    private Double ema;
+    private Double vwap;
+    private Double rsi;
+}
@@ -6,6 +6,7 @@ import rs.raf.stock_service.domain.enums.ListingType;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Getter
@@ -18,9 +19,12 @@ public class ListingDetailsDto {
     private BigDecimal currentPrice;
     private String exchangeMic;
     private List<PriceHistoryDto> priceHistory;
+    private LocalDateTime priceHistoryNextCursor;
     private Integer contractSize;
     private String contractUnit;
     private List<LocalDate> optionSettlementDates;
+    private IndicatorValuesDto indicators;
+    private List<IndicatorValuesDto> indicatorSeries;
 
     public ListingDetailsDto() {}
 
@@ -0,0 +1,31 @@
+package rs.raf.stock_service.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import rs.raf.stock_service.domain.enums.OptionType;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OptionChainEntryDto {
+    private Long listingId;
+    private String ticker;
+    private OptionType optionType;
+    private BigDecimal strikePrice;
+    private LocalDate settlementDate;
+    private BigDecimal impliedVolatility;
+    private BigDecimal price;
+    private BigDecimal theoreticalPrice;
+    private double delta;
+    private double gamma;
+    private double vega; // po procentnom poenu volatilnosti
+    private double theta; // po kalendarskom danu
+    private double rho; // po procentnom poenu kamatne stope
+    private boolean onSale;
+}
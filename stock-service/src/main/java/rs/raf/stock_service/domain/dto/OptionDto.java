@@ -21,6 +21,7 @@ public class OptionDto {
     private LocalDate settlementDate;
     private BigDecimal maintenanceMargin;
     private BigDecimal price;
+    private BigDecimal impliedVolatility;
     private String ticker;
     private boolean onSale;
 }
@@ -0,0 +1,16 @@
+package rs.raf.stock_service.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PriceHistoryPageDto {
+    private List<PriceHistoryDto> bars;
+    private LocalDateTime nextCursor;
+}
@@ -0,0 +1,19 @@
+package rs.raf.stock_service.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProviderRateLimitStatsDto {
+    private String provider;
+    private int permitsPerMinute;
+    private double availablePermits;
+    private long calls;
+    private long waitedMillis;
+    private long rateLimited;
+    private long retries;
+    private long rejected;
+}
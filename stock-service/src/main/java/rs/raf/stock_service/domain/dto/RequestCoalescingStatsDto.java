@@ -0,0 +1,14 @@
+package rs.raf.stock_service.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class RequestCoalescingStatsDto {
+    private long executed;
+    private long coalesced;
+    private int inFlight;
+}
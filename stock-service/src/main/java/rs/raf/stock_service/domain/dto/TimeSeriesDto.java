@@ -10,6 +10,8 @@ public class TimeSeriesDto {
     private MetaDto meta;
     private List<TimeSeriesValueDto> values;
     private String status;
+    private IndicatorValuesDto indicators;
+    private List<IndicatorValuesDto> indicatorSeries;
 
     @Data
     public static class MetaDto {
@@ -25,6 +25,7 @@ public class Exchange {
     private Country polity;
     private String currencyCode;
     private Long timeZone;
+    private String zoneId; // npr. America/New_York, timeZone je samo trenutni pomeraj od UTC-a
 
     private boolean testMode = false;
 }
\ No newline at end of file
@@ -0,0 +1,36 @@
+package rs.raf.stock_service.domain.entity;
+
+import lombok.*;
+
+import javax.persistence.*;
+import java.time.LocalDate;
+
+/**
+ * Indicator values of one listing for one day, one point per price bar, stored as a compressed columnar blob
+ * (see {@link rs.raf.stock_service.utils.IndicatorSeriesCodec}).
+ */
+@Entity
+@Table(name = "indicator_chunk", uniqueConstraints = @UniqueConstraint(columnNames = {"listing_id", "day"}))
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class IndicatorChunk {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "listing_id", nullable = false, updatable = false)
+    private Long listingId;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDate day;
+
+    @Column(nullable = false)
+    private int pointCount;
+
+    @Column(nullable = false, columnDefinition = "bytea")
+    private byte[] data;
+}
@@ -0,0 +1,35 @@
+package rs.raf.stock_service.domain.entity;
+
+import lombok.*;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Latest indicator values of a listing together with the rolling state they were computed from
+ * (see {@link rs.raf.stock_service.utils.IndicatorState}), so ingestion continues where it stopped after a restart.
+ */
+@Entity
+@Table(name = "indicator_snapshot")
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class IndicatorSnapshot {
+
+    @Id
+    @Column(name = "listing_id")
+    private Long listingId;
+
+    @Column(nullable = false)
+    private LocalDateTime lastBar;
+
+    private Double sma;
+    private Double ema;
+    private Double vwap;
+    private Double rsi;
+
+    @Column(nullable = false, columnDefinition = "bytea")
+    private byte[] state;
+}
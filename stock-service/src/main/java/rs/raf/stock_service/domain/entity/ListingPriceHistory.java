@@ -14,6 +14,7 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
+@Table(uniqueConstraints = @UniqueConstraint(columnNames = {"listing_id", "date"}))
 public class ListingPriceHistory {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
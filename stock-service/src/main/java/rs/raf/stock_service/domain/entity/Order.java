@@ -95,6 +95,10 @@ public class Order {
 
     private String role;
 
+    // primerci naloga zive i u knjizi i indeksu okidaca, pa zastareo primerak ne sme da pregazi novije stanje
+    @Version
+    private Long version;
+
     public Order(Long userId, Listing listing, OrderType orderType, Integer quantity, Integer contractSize, BigDecimal pricePerUnit,
                  OrderDirection direction, boolean afterHours, String accountNumber, BigDecimal stopPrice, boolean allOrNone,
                  String role) {
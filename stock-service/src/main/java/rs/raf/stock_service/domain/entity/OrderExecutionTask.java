@@ -0,0 +1,59 @@
+package rs.raf.stock_service.domain.entity;
+
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+import rs.raf.stock_service.domain.enums.OrderExecutionTaskStatus;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Persisted unit of order execution work. Workers claim tasks with a time-limited lease, so a task
+ * whose worker died is picked up again once the lease expires (at-least-once execution).
+ */
+@Entity
+@Table(name = "order_execution_task", indexes = {
+        @Index(name = "idx_order_execution_task_status_available", columnList = "status, available_at"),
+        @Index(name = "idx_order_execution_task_order", columnList = "order_id")
+})
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderExecutionTask {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "order_id", nullable = false, updatable = false)
+    private Long orderId;
+
+    @Column(name = "listing_id", nullable = false, updatable = false)
+    private Long listingId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private OrderExecutionTaskStatus status;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(name = "available_at", nullable = false)
+    private LocalDateTime availableAt;
+
+    @Column(name = "locked_until")
+    private LocalDateTime lockedUntil;
+
+    private String lockedBy;
+
+    @Column(length = 1000)
+    private String lastError;
+
+    @CreationTimestamp
+    private LocalDateTime createdAt;
+
+    @Version
+    private Long version;
+}
@@ -0,0 +1,45 @@
+package rs.raf.stock_service.domain.entity;
+
+import lombok.*;
+import rs.raf.stock_service.domain.enums.CandleInterval;
+
+import javax.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * OHLCV candle of one listing, rolled up from the ingested 5 minute bars by
+ * {@link rs.raf.stock_service.service.CandleRollupService}.
+ */
+@Entity
+@Table(name = "price_candle", uniqueConstraints = @UniqueConstraint(columnNames = {"listing_id", "candle_interval", "bucket_start"}))
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PriceCandle {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "listing_id", nullable = false, updatable = false)
+    private Long listingId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "candle_interval", nullable = false, updatable = false)
+    private CandleInterval interval;
+
+    @Column(name = "bucket_start", nullable = false, updatable = false)
+    private LocalDateTime bucketStart;
+
+    private BigDecimal open;
+    private BigDecimal high;
+    private BigDecimal low;
+    private BigDecimal close;
+    private Long volume;
+
+    @Column(nullable = false)
+    private int barCount;
+}
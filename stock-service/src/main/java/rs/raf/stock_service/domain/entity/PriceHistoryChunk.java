@@ -0,0 +1,43 @@
+package rs.raf.stock_service.domain.entity;
+
+import lombok.*;
+
+import javax.persistence.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * All price bars of one listing for one day, stored as a compressed columnar blob
+ * (see {@link rs.raf.stock_service.utils.OhlcvChunkCodec}).
+ */
+@Entity
+@Table(name = "price_history_chunk", uniqueConstraints = @UniqueConstraint(columnNames = {"listing_id", "day"}))
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PriceHistoryChunk {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "listing_id", nullable = false, updatable = false)
+    private Long listingId;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDate day;
+
+    @Column(nullable = false)
+    private int barCount;
+
+    @Column(nullable = false)
+    private LocalDateTime firstBar;
+
+    @Column(nullable = false)
+    private LocalDateTime lastBar;
+
+    @Column(nullable = false, columnDefinition = "bytea")
+    private byte[] data;
+}
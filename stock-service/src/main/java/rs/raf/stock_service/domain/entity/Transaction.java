@@ -34,6 +34,9 @@ public class Transaction {
     @JoinColumn(name = "order_id", nullable = false)
     private Order order;
 
+    // fill se upisuje pre naplate u banci; false posle pada znaci da naplata nije potvrdjena
+    private boolean settled;
+
     public Transaction(Integer quantity, BigDecimal pricePerUnit, BigDecimal totalPrice, Order order) {
         this.quantity = quantity;
         this.pricePerUnit = pricePerUnit;
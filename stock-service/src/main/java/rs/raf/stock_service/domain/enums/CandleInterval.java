@@ -0,0 +1,39 @@
+package rs.raf.stock_service.domain.enums;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Candle sizes rolled up locally from 5 minute bars. Codes match the TwelveData interval names.
+ */
+public enum CandleInterval {
+    ONE_HOUR("1h"),
+    ONE_DAY("1day"),
+    ONE_WEEK("1week");
+
+    private final String code;
+
+    CandleInterval(String code) {
+        this.code = code;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public LocalDateTime bucketStart(LocalDateTime time) {
+        return switch (this) {
+            case ONE_HOUR -> time.truncatedTo(ChronoUnit.HOURS);
+            case ONE_DAY -> time.truncatedTo(ChronoUnit.DAYS);
+            case ONE_WEEK -> time.truncatedTo(ChronoUnit.DAYS).with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        };
+    }
+
+    public static Optional<CandleInterval> fromCode(String code) {
+        return Arrays.stream(values()).filter(interval -> interval.code.equals(code)).findFirst();
+    }
+}
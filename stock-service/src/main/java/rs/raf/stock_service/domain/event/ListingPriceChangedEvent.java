@@ -0,0 +1,26 @@
+package rs.raf.stock_service.domain.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import rs.raf.stock_service.domain.entity.Listing;
+
+import java.math.BigDecimal;
+
+/**
+ * Published whenever the price or ask of a listing changes, carrying the listing with the new prices.
+ */
+@Getter
+@AllArgsConstructor
+public class ListingPriceChangedEvent {
+
+    private final Listing listing;
+
+    /**
+     * Whether a price moved from {@code before} to {@code after}, ignoring scale ({@code 150.0} equals {@code 150.00}).
+     * Publishers use it so that refreshes which only touch volume or other fields do not wake up order triggers.
+     */
+    public static boolean isChange(BigDecimal before, BigDecimal after) {
+        if (before == null || after == null) return before != after;
+        return before.compareTo(after) != 0;
+    }
+}
@@ -0,0 +1,137 @@
+package rs.raf.stock_service.domain.mapper;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+import rs.raf.stock_service.domain.dto.TimeSeriesDto;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Token based decoder for Alpha Vantage time series responses ({@code "Time Series (5min)"},
+ * {@code "Time Series FX (5min)"}). Bars are read straight from the parser without building a
+ * {@code JsonNode} tree, and bars not newer than {@code after} are skipped without being decoded.
+ */
+@Component
+public class AlphaVantageTimeSeriesParser {
+
+    private final JsonFactory jsonFactory;
+
+    public AlphaVantageTimeSeriesParser(ObjectMapper objectMapper) {
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    public static class ParsedTimeSeries {
+        private final Map<String, String> metaData = new HashMap<>();
+        private final List<TimeSeriesDto.TimeSeriesValueDto> values = new ArrayList<>();
+        private boolean seriesFound;
+
+        public Map<String, String> getMetaData() {
+            return metaData;
+        }
+
+        public List<TimeSeriesDto.TimeSeriesValueDto> getValues() {
+            return values;
+        }
+
+        public boolean isSeriesFound() {
+            return seriesFound;
+        }
+    }
+
+    /**
+     * Parses the series whose key starts with {@code seriesKeyPrefix}. Only bars with a datetime after
+     * {@code after} ({@code yyyy-MM-dd HH:mm:ss}, {@code null} for all) are returned.
+     *
+     * @throws IllegalArgumentException if the response carries an Alpha Vantage error message
+     */
+    public ParsedTimeSeries parse(String json, String seriesKeyPrefix, String after) throws IOException {
+        ParsedTimeSeries result = new ParsedTimeSeries();
+
+        try (JsonParser parser = jsonFactory.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT)
+                throw new IOException("Expected JSON object");
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+
+                if ("Error Message".equals(field)) {
+                    throw new IllegalArgumentException("API Error: " + parser.getText());
+                } else if ("Meta Data".equals(field) && value == JsonToken.START_OBJECT) {
+                    readMetaData(parser, result.metaData);
+                } else if (field.startsWith(seriesKeyPrefix) && value == JsonToken.START_OBJECT) {
+                    result.seriesFound = true;
+                    readSeries(parser, after, result.values);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return result;
+    }
+
+    private void readMetaData(JsonParser parser, Map<String, String> metaData) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String key = parser.getCurrentName();
+            if (parser.nextToken().isScalarValue()) metaData.put(key, parser.getText());
+            else parser.skipChildren();
+        }
+    }
+
+    private void readSeries(JsonParser parser, String after, List<TimeSeriesDto.TimeSeriesValueDto> values) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String datetime = parser.getCurrentName();
+            parser.nextToken();
+
+            // datetime je u fiksnom formatu pa leksikografsko poredjenje odgovara hronoloskom
+            if (after != null && datetime.compareTo(after) <= 0) {
+                parser.skipChildren();
+                continue;
+            }
+
+            TimeSeriesDto.TimeSeriesValueDto bar = new TimeSeriesDto.TimeSeriesValueDto();
+            bar.setDatetime(datetime);
+            bar.setVolume(0L);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String key = parser.getCurrentName();
+                parser.nextToken();
+                switch (key) {
+                    case "1. open" -> bar.setOpen(decimal(parser));
+                    case "2. high" -> bar.setHigh(decimal(parser));
+                    case "3. low" -> bar.setLow(decimal(parser));
+                    case "4. close" -> bar.setClose(decimal(parser));
+                    case "5. volume" -> bar.setVolume(integer(parser));
+                    default -> parser.skipChildren();
+                }
+            }
+            values.add(bar);
+        }
+    }
+
+    // Alpha Vantage vraca brojeve kao stringove; citaju se direktno iz bafera parsera bez pravljenja String-a
+    private BigDecimal decimal(JsonParser parser) throws IOException {
+        if (parser.currentToken().isNumeric()) return parser.getDecimalValue();
+        return new BigDecimal(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+    }
+
+    private long integer(JsonParser parser) throws IOException {
+        if (parser.currentToken().isNumeric()) return parser.getLongValue();
+        char[] chars = parser.getTextCharacters();
+        int offset = parser.getTextOffset();
+        long value = 0;
+        for (int i = 0; i < parser.getTextLength(); i++) {
+            char c = chars[offset + i];
+            if (c < '0' || c > '9') return Long.parseLong(parser.getText().trim());
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
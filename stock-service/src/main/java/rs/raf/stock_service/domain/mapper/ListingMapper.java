@@ -8,7 +8,6 @@ import rs.raf.stock_service.domain.entity.*;
 import rs.raf.stock_service.domain.enums.ListingType;
 
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Component
 public class ListingMapper {
@@ -40,7 +39,7 @@ public class ListingMapper {
         );
     }
 
-    public ListingDetailsDto toDetailsDto(Listing listing, List<ListingPriceHistory> priceHistory) {
+    public ListingDetailsDto toDetailsDto(Listing listing, List<PriceHistoryDto> priceHistory) {
         Integer contractSize = null;
         String contractUnit = null;
 
@@ -50,18 +49,6 @@ public class ListingMapper {
             contractUnit = futures.getContractUnit();
         }
 
-        // Mapiranje ListingPriceHistory u PriceHistoryDto sa novim poljima
-        List<PriceHistoryDto> priceHistoryDtos = priceHistory.stream()
-                .map(info -> new PriceHistoryDto(
-                        info.getDate(),
-                        info.getOpen(),
-                        info.getHigh(),
-                        info.getLow(),
-                        info.getClose(),
-                        info.getVolume()
-                ))
-                .collect(Collectors.toList());
-
         // Vraćanje prilagođenog ListingDetailsDto sa novim podacima
         return new ListingDetailsDto(
                 listing.getId(),
@@ -70,7 +57,7 @@ public class ListingMapper {
                 listing.getName(),
                 listing.getPrice(),
                 listing.getExchange().getMic(),
-                priceHistoryDtos,
+                priceHistory,
                 contractSize,
                 contractUnit,
                 null
@@ -8,6 +8,7 @@ import rs.raf.stock_service.domain.entity.Exchange;
 import rs.raf.stock_service.domain.entity.Listing;
 import rs.raf.stock_service.domain.entity.Order;
 import rs.raf.stock_service.domain.enums.OrderDirection;
+import rs.raf.stock_service.utils.TradingCalendar;
 
 import java.math.BigDecimal;
 import java.time.LocalTime;
@@ -86,8 +87,7 @@ public class OrderMapper {
     }
 
     private static boolean afterHours(Exchange exchange) {
-        // Pretpostavka: exchange.getTimeZone() vraća npr. "America/New_York" ili "Europe/Belgrade"
-        ZoneId zoneId = ZoneId.of(String.valueOf(exchange.getTimeZone()));
+        ZoneId zoneId = TradingCalendar.zoneOf(exchange);
         ZonedDateTime now = ZonedDateTime.now(zoneId);
 
         // Dobijanje vremena zatvaranja berze (npr. 17:00)
@@ -1,58 +1,72 @@
 package rs.raf.stock_service.domain.mapper;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Component;
 import rs.raf.stock_service.domain.dto.TimeSeriesDto;
 import rs.raf.stock_service.domain.entity.ForexPair;
 import rs.raf.stock_service.domain.entity.Listing;
+import rs.raf.stock_service.domain.entity.PriceCandle;
+import rs.raf.stock_service.domain.enums.CandleInterval;
 
-import java.math.BigDecimal;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 @Component
 @AllArgsConstructor
 public class TimeSeriesMapper {
 
+    private static final DateTimeFormatter INTRADAY_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final DateTimeFormatter DAILY_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+    private final AlphaVantageTimeSeriesParser timeSeriesParser;
     private final ObjectMapper objectMapper;
 
-    public TimeSeriesDto mapJsonToCustomTimeSeries(String jsonResponse, Listing listing) {
+    /**
+     * Maps a Twelve Data {@code /time_series} response. Its shape already matches {@link TimeSeriesDto}, so only the
+     * status is normalized; an error response ({@code "status": "error"}) is rejected.
+     */
+    public TimeSeriesDto fromTwelveData(String jsonResponse, Listing listing) {
         try {
-            JsonNode rootNode = objectMapper.readTree(jsonResponse);
-
-            // Provera da li je JSON prazan ili sadrži grešku
-            if (rootNode.has("Error Message")) {
-                throw new IllegalArgumentException("API Error: " + rootNode.get("Error Message").asText());
+            TimeSeriesDto timeSeriesDto = objectMapper.readerFor(TimeSeriesDto.class)
+                    .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                    .readValue(jsonResponse);
+            if (timeSeriesDto.getValues() == null || "error".equals(timeSeriesDto.getStatus())) {
+                throw new IllegalArgumentException("Time Series data not found in API response.");
             }
 
-            // Dohvatanje time series podataka (prva ključna vrednost)
-            String timeSeriesKey = getTimeSeriesKey(rootNode);
-            JsonNode timeSeriesData = rootNode.get(timeSeriesKey);
-
-            List<TimeSeriesDto.TimeSeriesValueDto> values = new ArrayList<>();
-            for (String datetime : getDateKeys(timeSeriesData)) {
-                JsonNode data = timeSeriesData.get(datetime);
+            if (timeSeriesDto.getMeta() == null) timeSeriesDto.setMeta(new TimeSeriesDto.MetaDto());
+            if (timeSeriesDto.getMeta().getSymbol() == null) timeSeriesDto.getMeta().setSymbol(listing.getTicker());
+            timeSeriesDto.setStatus("success");
+            return timeSeriesDto;
+        } catch (Exception e) {
+            throw new RuntimeException("Error mapping JSON to Time Series DTO: " + e.getMessage(), e);
+        }
+    }
 
-                TimeSeriesDto.TimeSeriesValueDto valueDto = new TimeSeriesDto.TimeSeriesValueDto();
-                valueDto.setDatetime(datetime);
-                valueDto.setOpen(new BigDecimal(data.get("1. open").asText()));
-                valueDto.setHigh(new BigDecimal(data.get("2. high").asText()));
-                valueDto.setLow(new BigDecimal(data.get("3. low").asText()));
-                valueDto.setClose(new BigDecimal(data.get("4. close").asText()));
-                valueDto.setVolume(data.has("5. volume") ? data.get("5. volume").asLong() : 0L);
+    public TimeSeriesDto mapJsonToCustomTimeSeries(String jsonResponse, Listing listing) {
+        return mapJsonToCustomTimeSeries(jsonResponse, listing, null);
+    }
 
-                values.add(valueDto);
+    /**
+     * Maps an Alpha Vantage FX time series, keeping only bars newer than {@code after} ({@code null} for all).
+     */
+    public TimeSeriesDto mapJsonToCustomTimeSeries(String jsonResponse, Listing listing, String after) {
+        try {
+            AlphaVantageTimeSeriesParser.ParsedTimeSeries parsed = timeSeriesParser.parse(jsonResponse, "Time Series FX", after);
+            if (!parsed.isSeriesFound()) {
+                throw new IllegalArgumentException("Time Series data not found in API response.");
             }
 
             TimeSeriesDto timeSeriesDto = new TimeSeriesDto();
-            timeSeriesDto.setValues(values);
+            timeSeriesDto.setValues(parsed.getValues());
             timeSeriesDto.setStatus("success");
 
             // Dodavanje meta podataka
-            timeSeriesDto.setMeta(createMetaData(rootNode, listing));
+            timeSeriesDto.setMeta(createMetaData(parsed.getMetaData(), listing));
 
             return timeSeriesDto;
         } catch (Exception e) {
@@ -61,14 +75,13 @@ public class TimeSeriesMapper {
     }
 
     // Kreiranje meta podataka na osnovu odgovora iz API-ja
-    private TimeSeriesDto.MetaDto createMetaData(JsonNode rootNode, Listing listing) {
+    private TimeSeriesDto.MetaDto createMetaData(Map<String, String> metaData, Listing listing) {
         TimeSeriesDto.MetaDto metaDto = new TimeSeriesDto.MetaDto();
-        JsonNode metaNode = rootNode.path("Meta Data");
 
-        if (!metaNode.isMissingNode()) {
-            metaDto.setSymbol(metaNode.path("2. From Symbol").asText() + "/" + metaNode.path("3. To Symbol").asText());
-            metaDto.setInterval(metaNode.path("4. Interval").asText());
-            metaDto.setCurrency(metaNode.path("5. Output Size").asText());
+        if (!metaData.isEmpty()) {
+            metaDto.setSymbol(metaData.getOrDefault("2. From Symbol", "") + "/" + metaData.getOrDefault("3. To Symbol", ""));
+            metaDto.setInterval(metaData.getOrDefault("4. Interval", ""));
+            metaDto.setCurrency(metaData.getOrDefault("5. Output Size", ""));
             metaDto.setType("Forex");
             metaDto.setExchange("Forex Exchange");
 
@@ -80,21 +93,35 @@ public class TimeSeriesMapper {
         return metaDto;
     }
 
-    // Vraća ključ za time series podatke (npr. "Time Series FX (5min)")
-    private String getTimeSeriesKey(JsonNode rootNode) {
-        for (Iterator<String> it = rootNode.fieldNames(); it.hasNext(); ) {
-            String key = it.next();
-            if (key.startsWith("Time Series FX")) {
-                return key;
-            }
+    // Lokalno agregirane svece u istom obliku kao odgovor provajdera, najnovija prva
+    public TimeSeriesDto fromCandles(List<PriceCandle> candles, Listing listing, CandleInterval interval) {
+        DateTimeFormatter format = interval == CandleInterval.ONE_HOUR ? INTRADAY_FORMAT : DAILY_FORMAT;
+
+        List<TimeSeriesDto.TimeSeriesValueDto> values = new ArrayList<>(candles.size());
+        for (PriceCandle candle : candles) {
+            TimeSeriesDto.TimeSeriesValueDto valueDto = new TimeSeriesDto.TimeSeriesValueDto();
+            valueDto.setDatetime(candle.getBucketStart().format(format));
+            valueDto.setOpen(candle.getOpen());
+            valueDto.setHigh(candle.getHigh());
+            valueDto.setLow(candle.getLow());
+            valueDto.setClose(candle.getClose());
+            valueDto.setVolume(candle.getVolume());
+            values.add(valueDto);
+        }
+
+        TimeSeriesDto.MetaDto metaDto = new TimeSeriesDto.MetaDto();
+        metaDto.setSymbol(listing.getTicker());
+        metaDto.setInterval(interval.getCode());
+        if (listing.getExchange() != null) metaDto.setExchange(listing.getExchange().getMic());
+        if (listing instanceof ForexPair forexPair) {
+            metaDto.setCurrency_base(forexPair.getBaseCurrency());
+            metaDto.setCurrency_quote(forexPair.getQuoteCurrency());
         }
-        throw new IllegalArgumentException("Time Series data not found in API response.");
-    }
 
-    // Dobijanje ključeva koji predstavljaju datume (timestampove) u JSON-u
-    private List<String> getDateKeys(JsonNode timeSeriesData) {
-        List<String> dateKeys = new ArrayList<>();
-        timeSeriesData.fieldNames().forEachRemaining(dateKeys::add);
-        return dateKeys;
+        TimeSeriesDto timeSeriesDto = new TimeSeriesDto();
+        timeSeriesDto.setMeta(metaDto);
+        timeSeriesDto.setValues(values);
+        timeSeriesDto.setStatus("success");
+        return timeSeriesDto;
     }
 }
@@ -1,11 +1,17 @@
 package rs.raf.stock_service.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 import rs.raf.stock_service.domain.entity.Exchange;
 
+import java.util.List;
+
 @Repository
 public interface ExchangeRepository extends JpaRepository<Exchange, Long> {
 
     Exchange findByMic(String mic);
+
+    @Query("SELECT DISTINCT e FROM Exchange e JOIN FETCH e.polity p LEFT JOIN FETCH p.holidays")
+    List<Exchange> findAllWithHolidays();
 }
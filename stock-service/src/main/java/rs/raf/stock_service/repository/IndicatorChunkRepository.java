@@ -0,0 +1,16 @@
+package rs.raf.stock_service.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import rs.raf.stock_service.domain.entity.IndicatorChunk;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+public interface IndicatorChunkRepository extends JpaRepository<IndicatorChunk, Long> {
+
+    List<IndicatorChunk> findAllByListingIdAndDayIn(Long listingId, Collection<LocalDate> days);
+
+    List<IndicatorChunk> findAllByListingIdAndDayBetweenOrderByDayDesc(Long listingId, LocalDate from, LocalDate to, Pageable pageable);
+}
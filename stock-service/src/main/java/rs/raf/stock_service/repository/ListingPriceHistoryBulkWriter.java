@@ -0,0 +1,58 @@
+package rs.raf.stock_service.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import rs.raf.stock_service.domain.entity.ListingPriceHistory;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * Bulk insert of price history bars over a JDBC batch. {@link ListingPriceHistory} uses IDENTITY ids which
+ * disable Hibernate insert batching, so history ingestion goes through here instead of {@code saveAll}.
+ * Bars that already exist for the same listing and date are skipped by the database.
+ */
+@Repository
+public class ListingPriceHistoryBulkWriter {
+
+    private static final String INSERT_SQL = "INSERT INTO listing_price_history " +
+            "(listing_id, date, open, high, low, close, change, volume) VALUES (?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (listing_id, date) DO NOTHING";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+
+    public ListingPriceHistoryBulkWriter(JdbcTemplate jdbcTemplate,
+                                         @Value("${price-history.insert.batch.size:1000}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Inserts the given bars, ignoring ones already stored. Returns the number of newly inserted rows.
+     */
+    public int insertIgnoringDuplicates(List<ListingPriceHistory> bars) {
+        if (bars.isEmpty()) return 0;
+
+        int[][] counts = jdbcTemplate.batchUpdate(INSERT_SQL, bars, batchSize, (ps, bar) -> {
+            ps.setLong(1, bar.getListing().getId());
+            ps.setTimestamp(2, Timestamp.valueOf(bar.getDate()));
+            ps.setBigDecimal(3, bar.getOpen());
+            ps.setBigDecimal(4, bar.getHigh());
+            ps.setBigDecimal(5, bar.getLow());
+            ps.setBigDecimal(6, bar.getClose());
+            ps.setBigDecimal(7, bar.getChange());
+            if (bar.getVolume() != null) ps.setLong(8, bar.getVolume());
+            else ps.setNull(8, Types.BIGINT);
+        });
+
+        int inserted = 0;
+        for (int[] batch : counts)
+            for (int count : batch)
+                // driver moze da vrati SUCCESS_NO_INFO (-2) kada ne zna broj redova
+                if (count > 0) inserted += count;
+        return inserted;
+    }
+}
@@ -1,24 +1,40 @@
 package rs.raf.stock_service.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import rs.raf.stock_service.domain.entity.Listing;
 import rs.raf.stock_service.domain.entity.ListingPriceHistory;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
-import java.util.Set;
+import java.util.Optional;
 
 @Repository
 public interface ListingPriceHistoryRepository extends JpaRepository<ListingPriceHistory, Long> {
     ListingPriceHistory findTopByListingOrderByDateDesc(Listing listing);
 
-    List<ListingPriceHistory> findAllByListingOrderByDateDesc(Listing listing);
     boolean existsByListingAndDate(Listing listing, LocalDateTime date);
 
-    @Query("SELECT l.date FROM ListingPriceHistory l WHERE l.listing.id = :listingId")
-    Set<LocalDateTime> findDatesByListingId(@Param("listingId") Long listingId);
+    @Query("SELECT MAX(l.date) FROM ListingPriceHistory l WHERE l.listing.id = :listingId")
+    Optional<LocalDateTime> findLatestDateByListingId(@Param("listingId") Long listingId);
+
+    @Query(value = "SELECT DISTINCT ON (listing_id) * FROM listing_price_history " +
+            "WHERE listing_id IN (:listingIds) ORDER BY listing_id, date DESC", nativeQuery = true)
+    List<ListingPriceHistory> findLatestByListingIds(@Param("listingIds") Collection<Long> listingIds);
+
+    /**
+     * Deletes rows older than {@code before}, except the newest row of each listing, which still serves as its
+     * latest price and ingest watermark.
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM ListingPriceHistory l WHERE l.date < :before AND l.date < " +
+            "(SELECT MAX(h.date) FROM ListingPriceHistory h WHERE h.listing = l.listing)")
+    int deleteOlderThanKeepingLatest(@Param("before") LocalDateTime before);
 
 }
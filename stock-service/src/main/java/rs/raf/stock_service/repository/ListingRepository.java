@@ -2,13 +2,34 @@ package rs.raf.stock_service.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import rs.raf.stock_service.domain.entity.Listing;
 
+import java.math.BigDecimal;
 import java.util.Optional;
 
 @Repository
 public interface ListingRepository extends JpaRepository<Listing, Long>, JpaSpecificationExecutor<Listing> {
     Optional<Listing> findByTicker(String ticker);
 
+    /**
+     * Updates only the price columns of a stock, leaving every other column as it is in the database.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Stock s SET s.price = :price, s.ask = :ask, s.change = :change WHERE s.id = :id")
+    int updateStockPrice(@Param("id") Long id, @Param("price") BigDecimal price, @Param("ask") BigDecimal ask,
+                         @Param("change") BigDecimal change);
+
+    /**
+     * Updates only the price columns of a forex pair; the exchange rate follows the price.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE ForexPair f SET f.price = :price, f.ask = :ask, f.exchangeRate = :price WHERE f.id = :id")
+    int updateForexPrice(@Param("id") Long id, @Param("price") BigDecimal price, @Param("ask") BigDecimal ask);
 }
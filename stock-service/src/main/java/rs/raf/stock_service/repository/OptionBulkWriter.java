@@ -0,0 +1,40 @@
+package rs.raf.stock_service.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Bulk re-pricing of option contracts over a JDBC batch, one statement per changed contract instead of
+ * a managed entity per contract. Options share the {@code listing} table with the other listing types.
+ */
+@Repository
+public class OptionBulkWriter {
+
+    private static final String UPDATE_SQL = "UPDATE listing SET price = ?, maintenance_margin = ? WHERE id = ?";
+
+    public record PriceUpdate(long id, BigDecimal price, BigDecimal maintenanceMargin) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+
+    public OptionBulkWriter(JdbcTemplate jdbcTemplate,
+                            @Value("${options.update.batch.size:1000}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+    }
+
+    public void updatePrices(List<PriceUpdate> updates) {
+        if (updates.isEmpty()) return;
+
+        jdbcTemplate.batchUpdate(UPDATE_SQL, updates, batchSize, (ps, update) -> {
+            ps.setBigDecimal(1, update.price());
+            ps.setBigDecimal(2, update.maintenanceMargin());
+            ps.setLong(3, update.id());
+        });
+    }
+}
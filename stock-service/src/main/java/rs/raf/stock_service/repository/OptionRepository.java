@@ -10,6 +10,7 @@ import rs.raf.stock_service.domain.entity.Option;
 import rs.raf.stock_service.domain.entity.Stock;
 import rs.raf.stock_service.domain.enums.OptionType;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
@@ -19,6 +20,8 @@ import java.util.Set;
 public interface OptionRepository extends JpaRepository<Option, Long> {
     List<Option> findByUnderlyingStockIdAndSettlementDate(Long stockId, LocalDate settlementDate);
 
+    List<Option> findAllByUnderlyingStockIdOrderBySettlementDateAscStrikePriceAsc(Long stockId);
+
     List<Option>findAllByUnderlyingStock(Stock stock);
 
     @Query("SELECT o FROM Option o")
@@ -36,4 +39,29 @@ public interface OptionRepository extends JpaRepository<Option, Long> {
     @Query("SELECT o.ticker FROM Option o")
     Set<String> findAllTickers();
 
+    /**
+     * Columns of an option needed to maintain its chain, without loading the entity.
+     */
+    interface OptionContract {
+        Long getId();
+        String getTicker();
+        Long getStockId();
+        OptionType getOptionType();
+        BigDecimal getStrikePrice();
+        LocalDate getSettlementDate();
+        BigDecimal getImpliedVolatility();
+        BigDecimal getPrice();
+        BigDecimal getMaintenanceMargin();
+        Boolean getOnSale();
+    }
+
+    @Query("SELECT o.id AS id, o.ticker AS ticker, o.underlyingStock.id AS stockId, o.optionType AS optionType, " +
+            "o.strikePrice AS strikePrice, o.settlementDate AS settlementDate, o.impliedVolatility AS impliedVolatility, " +
+            "o.price AS price, o.maintenanceMargin AS maintenanceMargin, o.onSale AS onSale FROM Option o")
+    List<OptionContract> findAllContracts();
+
+    @Modifying
+    @Query("UPDATE Option o SET o.onSale = false WHERE o.id IN :ids")
+    void takeOffSaleByIdIn(@Param("ids") List<Long> ids);
+
 }
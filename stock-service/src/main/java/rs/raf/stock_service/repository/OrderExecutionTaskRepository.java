@@ -0,0 +1,22 @@
+package rs.raf.stock_service.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import rs.raf.stock_service.domain.entity.OrderExecutionTask;
+import rs.raf.stock_service.domain.enums.OrderExecutionTaskStatus;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface OrderExecutionTaskRepository extends JpaRepository<OrderExecutionTask, Long> {
+
+    boolean existsByOrderIdAndStatusIn(Long orderId, Collection<OrderExecutionTaskStatus> statuses);
+
+    // SKIP LOCKED da vise instanci servisa moze paralelno da uzima taskove bez cekanja jedna na drugu
+    @Query(value = "SELECT * FROM order_execution_task " +
+            "WHERE (status = 'QUEUED' AND available_at <= :now) OR (status = 'RUNNING' AND locked_until < :now) " +
+            "ORDER BY available_at LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<OrderExecutionTask> findClaimable(@Param("now") LocalDateTime now, @Param("limit") int limit);
+}
@@ -16,6 +16,7 @@ import java.util.List;
 public interface OrderRepository extends JpaRepository<Order, Long> {
     Page<Order> findByStatus(OrderStatus status, Pageable pageable);
     List<Order> findByIsDoneAndStatusAndOrderType(boolean isDone, OrderStatus orderStatus, OrderType orderType);
+    List<Order> findByIsDoneAndStatus(boolean isDone, OrderStatus orderStatus);
     List<Order> findAllByUserId(Long userId);
     List<Order> findAllByDirection(OrderDirection orderDirection);
 
@@ -29,4 +29,7 @@ public interface PortfolioEntryRepository extends JpaRepository<PortfolioEntry,
 
     @Query("SELECT e.listing.ticker FROM PortfolioEntry e WHERE e.type = 'OPTION'")
     Set<String> findAllOptionTickersInUse();
+
+    @Query("SELECT DISTINCT e.listing.id FROM PortfolioEntry e WHERE e.amount > 0")
+    Set<Long> findAllHeldListingIds();
 }
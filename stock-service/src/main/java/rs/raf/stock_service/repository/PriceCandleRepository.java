@@ -0,0 +1,17 @@
+package rs.raf.stock_service.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import rs.raf.stock_service.domain.entity.PriceCandle;
+import rs.raf.stock_service.domain.enums.CandleInterval;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface PriceCandleRepository extends JpaRepository<PriceCandle, Long> {
+
+    List<PriceCandle> findAllByListingIdAndIntervalAndBucketStartBetweenOrderByBucketStartAsc(
+            Long listingId, CandleInterval interval, LocalDateTime from, LocalDateTime to);
+
+    List<PriceCandle> findAllByListingIdAndIntervalOrderByBucketStartDesc(Long listingId, CandleInterval interval, Pageable pageable);
+}
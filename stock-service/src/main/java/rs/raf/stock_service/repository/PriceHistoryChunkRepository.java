@@ -0,0 +1,39 @@
+package rs.raf.stock_service.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import rs.raf.stock_service.domain.entity.PriceHistoryChunk;
+
+import javax.persistence.LockModeType;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface PriceHistoryChunkRepository extends JpaRepository<PriceHistoryChunk, Long> {
+
+    Optional<PriceHistoryChunk> findByListingIdAndDay(Long listingId, LocalDate day);
+
+    /**
+     * Creates an empty chunk for the day unless one already exists, so the day row can be locked before merging.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO price_history_chunk (listing_id, day, bar_count, first_bar, last_bar, data) " +
+            "VALUES (:listingId, :day, 0, :dayStart, :dayStart, '') ON CONFLICT (listing_id, day) DO NOTHING",
+            nativeQuery = true)
+    int insertEmptyIfAbsent(@Param("listingId") Long listingId, @Param("day") LocalDate day,
+                            @Param("dayStart") LocalDateTime dayStart);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM PriceHistoryChunk c WHERE c.listingId = :listingId AND c.day IN :days")
+    List<PriceHistoryChunk> findAllForUpdate(@Param("listingId") Long listingId, @Param("days") Collection<LocalDate> days);
+
+    List<PriceHistoryChunk> findAllByListingIdAndDayBetweenOrderByDayAsc(Long listingId, LocalDate from, LocalDate to);
+
+    List<PriceHistoryChunk> findAllByListingIdAndDayBetweenOrderByDayDesc(Long listingId, LocalDate from, LocalDate to, Pageable pageable);
+}
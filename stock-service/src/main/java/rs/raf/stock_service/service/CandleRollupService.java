@@ -0,0 +1,135 @@
+package rs.raf.stock_service.service;
+
+import lombok.AllArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import rs.raf.stock_service.domain.entity.ListingPriceHistory;
+import rs.raf.stock_service.domain.entity.PriceCandle;
+import rs.raf.stock_service.domain.enums.CandleInterval;
+import rs.raf.stock_service.repository.PriceCandleRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Maintains hourly, daily and weekly candles from the 5 minute bars in {@link PriceHistoryStore}.
+ * Only the days touched by newly ingested bars are recomputed: 5min → 1h for the day, 1h → 1d, and
+ * 1d → 1w for the week containing it, so re-ingesting the same bars never double counts.
+ */
+@Service
+@AllArgsConstructor
+public class CandleRollupService {
+
+    private final PriceHistoryStore priceHistoryStore;
+    private final PriceCandleRepository candleRepository;
+
+    /**
+     * Recomputes the candles covering the given, already stored, bars.
+     */
+    public void roll(List<ListingPriceHistory> bars) {
+        Map<Long, Set<LocalDate>> daysByListing = bars.stream()
+                .collect(Collectors.groupingBy(bar -> bar.getListing().getId(),
+                        Collectors.mapping(bar -> bar.getDate().toLocalDate(), Collectors.toCollection(TreeSet::new))));
+
+        daysByListing.forEach((listingId, days) -> {
+            Set<LocalDateTime> weeks = new TreeSet<>();
+            for (LocalDate day : days) {
+                rollDay(listingId, day);
+                weeks.add(CandleInterval.ONE_WEEK.bucketStart(day.atStartOfDay()));
+            }
+            weeks.forEach(week -> rollWeek(listingId, week));
+        });
+    }
+
+    /**
+     * Latest {@code count} candles of the listing, newest first.
+     */
+    public List<PriceCandle> getCandles(Long listingId, CandleInterval interval, int count) {
+        return candleRepository.findAllByListingIdAndIntervalOrderByBucketStartDesc(listingId, interval, PageRequest.of(0, count));
+    }
+
+    private void rollDay(Long listingId, LocalDate day) {
+        LocalDateTime dayStart = day.atStartOfDay();
+        LocalDateTime dayEnd = dayStart.plusDays(1).minusNanos(1);
+
+        Map<LocalDateTime, Accumulator> hours = new TreeMap<>();
+        priceHistoryStore.scan(listingId, dayStart, dayEnd, (columns, i) -> {
+            LocalDateTime time = LocalDateTime.ofEpochSecond(columns.epochSeconds[i], 0, ZoneOffset.UTC);
+            Long volume = columns.volumeAt(i);
+            hours.computeIfAbsent(CandleInterval.ONE_HOUR.bucketStart(time), h -> new Accumulator())
+                    .add(columns.price(columns.open[i]), columns.price(columns.high[i]), columns.price(columns.low[i]),
+                            columns.price(columns.close[i]), volume != null ? volume : 0, 1);
+        });
+        if (hours.isEmpty()) return;
+
+        Accumulator dayTotal = new Accumulator();
+        hours.values().forEach(dayTotal::add);
+
+        upsert(listingId, CandleInterval.ONE_HOUR, dayStart, dayEnd, hours);
+        upsert(listingId, CandleInterval.ONE_DAY, dayStart, dayStart, Map.of(dayStart, dayTotal));
+    }
+
+    private void rollWeek(Long listingId, LocalDateTime weekStart) {
+        List<PriceCandle> days = candleRepository.findAllByListingIdAndIntervalAndBucketStartBetweenOrderByBucketStartAsc(
+                listingId, CandleInterval.ONE_DAY, weekStart, weekStart.plusDays(6));
+        if (days.isEmpty()) return;
+
+        Accumulator weekTotal = new Accumulator();
+        for (PriceCandle day : days)
+            weekTotal.add(day.getOpen(), day.getHigh(), day.getLow(), day.getClose(), day.getVolume(), day.getBarCount());
+
+        upsert(listingId, CandleInterval.ONE_WEEK, weekStart, weekStart, Map.of(weekStart, weekTotal));
+    }
+
+    private void upsert(Long listingId, CandleInterval interval, LocalDateTime from, LocalDateTime to,
+                        Map<LocalDateTime, Accumulator> buckets) {
+        Map<LocalDateTime, PriceCandle> existing = candleRepository
+                .findAllByListingIdAndIntervalAndBucketStartBetweenOrderByBucketStartAsc(listingId, interval, from, to).stream()
+                .collect(Collectors.toMap(PriceCandle::getBucketStart, Function.identity()));
+
+        List<PriceCandle> toSave = new ArrayList<>(buckets.size());
+        buckets.forEach((bucketStart, total) -> {
+            PriceCandle candle = existing.get(bucketStart);
+            if (candle == null)
+                candle = PriceCandle.builder().listingId(listingId).interval(interval).bucketStart(bucketStart).build();
+            candle.setOpen(total.open);
+            candle.setHigh(total.high);
+            candle.setLow(total.low);
+            candle.setClose(total.close);
+            candle.setVolume(total.volume);
+            candle.setBarCount(total.barCount);
+            toSave.add(candle);
+        });
+        candleRepository.saveAll(toSave);
+    }
+
+    /**
+     * Running OHLCV aggregate. Inputs must be added in chronological order.
+     */
+    private static class Accumulator {
+        private BigDecimal open;
+        private BigDecimal high;
+        private BigDecimal low;
+        private BigDecimal close;
+        private long volume;
+        private int barCount;
+
+        private void add(BigDecimal open, BigDecimal high, BigDecimal low, BigDecimal close, long volume, int barCount) {
+            if (this.open == null) this.open = open;
+            if (this.high == null || high.compareTo(this.high) > 0) this.high = high;
+            if (this.low == null || low.compareTo(this.low) < 0) this.low = low;
+            this.close = close;
+            this.volume += volume;
+            this.barCount += barCount;
+        }
+
+        private void add(Accumulator other) {
+            add(other.open, other.high, other.low, other.close, other.volume, other.barCount);
+        }
+    }
+}
@@ -3,24 +3,24 @@ package rs.raf.stock_service.service;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import rs.raf.stock_service.client.ProviderCallPriority;
 import rs.raf.stock_service.domain.dto.*;
 import rs.raf.stock_service.domain.entity.*;
 import rs.raf.stock_service.domain.enums.ListingType;
+import rs.raf.stock_service.domain.event.ListingPriceChangedEvent;
 import rs.raf.stock_service.repository.*;
 
-import javax.persistence.EntityManager;
 import javax.transaction.Transactional;
-import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.concurrent.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
-import java.util.function.Function;
-import java.util.stream.Collectors;
 
 @Slf4j
 @Component
@@ -28,92 +28,128 @@ public class DataRefreshService {
 
     @Autowired private ListingRepository listingRepository;
     @Autowired private ListingPriceHistoryRepository priceHistoryRepository;
-    @Autowired private PortfolioEntryRepository portfolioEntryRepository;
-    @Autowired private OptionRepository optionRepository;
-    @Autowired private OptionService optionService;
+    @Autowired private ListingPriceHistoryBulkWriter priceHistoryWriter;
+    @Autowired private PriceHistoryStore priceHistoryStore;
+    @Autowired private CandleRollupService candleRollupService;
+    @Autowired private IndicatorService indicatorService;
+    @Autowired private OptionChainMaintainer optionChainMaintainer;
     @Autowired private StocksService stocksService;
     @Autowired private ForexService forexService;
     @Autowired private ListingService listingService;
-    @Autowired private EntityManager entityManager;
-    @Autowired private OrderService orderService;
+    @Autowired private ApplicationEventPublisher eventPublisher;
+    @Autowired private LatestPriceCache latestPriceCache;
+    @Autowired private FanOutExecutor fanOutExecutor;
+    @Autowired private RefreshPlanner refreshPlanner;
 
-    @Value("${refresh.thread.pool.size:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}")
-    private int threadPoolSize;
+    @Value("${refresh.deadline.ms:600000}")
+    private long refreshDeadlineMillis;
+
+    @Value("${market-simulator.enabled:false}")
+    private boolean simulatorEnabled;
 
     private final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
-    @Scheduled(initialDelay = 150000, fixedRate = 300000) // 2.5min delay zbog bootstrap data, 5min interval
+    @Scheduled(initialDelay = 150000, fixedRateString = "${refresh.tick.ms:60000}") // 2.5min delay zbog bootstrap data
     @Transactional
     public void refreshListings() {
+        // u rezimu simulatora cene pomera MarketSimulator, provajderi se ne zovu
+        if (simulatorEnabled) return;
+
         log.info("---- Starting scheduled listing refresh ----");
 
-        List<Listing> listings = listingRepository.findAll();
+        // planer bira listinge po potraznji i stanju berze, u okviru budzeta poziva po minutu
+        List<Listing> listings = refreshPlanner.due(listingRepository.findAll(), Instant.now());
         List<Stock> stocks = listings.stream().filter(s -> s instanceof Stock).map(s -> (Stock) s).toList();
         List<ForexPair> forexPairs = listings.stream().filter(f -> f instanceof ForexPair).map(f -> (ForexPair) f).toList();
 
-        refreshInParallel(stocks, this::refreshStock);
-        refreshInParallel(forexPairs, this::refreshForex);
+        Set<Long> pulled = ConcurrentHashMap.newKeySet();
+        refreshInParallel(stocks, stock -> {
+            if (refreshStock(stock)) pulled.add(stock.getId());
+        });
+        refreshInParallel(forexPairs, forex -> {
+            if (refreshForex(forex)) pulled.add(forex.getId());
+        });
+
+        // neuspeli i otkazani pozivi se ne racunaju kao osvezeni, planer ih bira vec sledeci put
+        List<Long> failed = listings.stream().map(Listing::getId)
+                .filter(id -> id != null && !pulled.contains(id)).toList();
+        if (!failed.isEmpty()) refreshPlanner.refreshFailed(failed);
+
+        List<Long> refreshedIds = new ArrayList<>();
+        stocks.forEach(stock -> refreshedIds.add(stock.getId()));
+        forexPairs.forEach(forex -> refreshedIds.add(forex.getId()));
+        latestPriceCache.refresh(refreshedIds);
         refreshOptions(stocks);
 
         log.info("---- Finished scheduled listing refresh ----");
-
-        log.info("---- Checking stop and limit orders ----");
-
-        orderService.checkOrders();
-
-        log.info("---- Finished checking stop and limit orders ----");
     }
 
-    private void refreshStock(Stock stock) {
+    private boolean refreshStock(Stock stock) {
         try {
             StockDto dto = stocksService.getStockData(stock.getTicker());
-            if (dto != null && (!dto.getPrice().equals(stock.getPrice()) || dto.getVolume() != stock.getVolume())) {
+            boolean priceChanged = dto != null && ListingPriceChangedEvent.isChange(stock.getPrice(), dto.getPrice());
+            if (dto != null && (priceChanged || dto.getVolume() != stock.getVolume())) {
                 stock.setPrice(dto.getPrice());
                 stock.setVolume(dto.getVolume());
                 stock.setChange(dto.getChange());
                 listingRepository.save(stock);
+                // promena samo volumena ne moze da okine naloge
+                if (priceChanged)
+                    eventPublisher.publishEvent(new ListingPriceChangedEvent(stock));
             }
 
-            TimeSeriesDto series = listingService.getPriceHistoryFromAlphaVantage(stock.getTicker(), "5min", "compact");
-            Set<LocalDateTime> existing = priceHistoryRepository.findDatesByListingId(stock.getId());
-            List<ListingPriceHistory> history = createNewHistory(stock, series, existing);
-            saveInBatches(history, 100, priceHistoryRepository::saveAllAndFlush);
+            LocalDateTime watermark = priceHistoryRepository.findLatestDateByListingId(stock.getId()).orElse(null);
+            TimeSeriesDto series = listingService.getPriceHistoryFromAlphaVantage(stock.getTicker(), "5min", "compact", watermark);
+            List<ListingPriceHistory> history = createNewHistory(stock, series);
+            priceHistoryWriter.insertIgnoringDuplicates(history);
+            priceHistoryStore.append(history);
+            candleRollupService.roll(history);
+            indicatorService.update(history);
+            return true;
 
         } catch (Exception e) {
             log.error("Failed to refresh stock {}", stock.getTicker(), e);
+            return false;
         }
     }
 
-    private void refreshForex(ForexPair forex) {
+    private boolean refreshForex(ForexPair forex) {
         try {
+            // nevalidan tiker se nikad ne moze povuci, pa se racuna kao obradjen
             if (forex.getTicker() == null || !forex.getTicker().contains("/")) {
                 log.warn("Skipping invalid forex ticker: {}", forex.getTicker());
-                return;
+                return true;
             }
 
             String[] parts = forex.getTicker().split("/");
             System.out.println(Arrays.toString(parts));
             if (parts.length != 2) {
                 log.warn("Skipping malformed forex ticker: {}", forex.getTicker());
-                return;
+                return true;
             }
 
             ForexPairDto dto = forexService.getForexPair(parts[0], parts[1]);
-            if (dto != null && !dto.getPrice().equals(forex.getPrice())) {
+            if (dto != null && ListingPriceChangedEvent.isChange(forex.getPrice(), dto.getPrice())) {
                 forex.setPrice(dto.getPrice());
                 forex.setLiquidity(dto.getLiquidity());
                 forex.setExchangeRate(dto.getExchangeRate());
                 forex.setLastRefresh(dto.getLastRefresh());
                 listingRepository.save(forex);
+                eventPublisher.publishEvent(new ListingPriceChangedEvent(forex));
             }
 
-            TimeSeriesDto series = listingService.getForexPriceHistory(forex.getId(), "5min");
-            Set<LocalDateTime> existing = priceHistoryRepository.findDatesByListingId(forex.getId());
-            List<ListingPriceHistory> history = createNewHistory(forex, series, existing);
-            saveInBatches(history, 100, priceHistoryRepository::saveAllAndFlush);
+            LocalDateTime watermark = priceHistoryRepository.findLatestDateByListingId(forex.getId()).orElse(null);
+            TimeSeriesDto series = listingService.getForexPriceHistory(forex.getId(), "5min", watermark);
+            List<ListingPriceHistory> history = createNewHistory(forex, series);
+            priceHistoryWriter.insertIgnoringDuplicates(history);
+            priceHistoryStore.append(history);
+            candleRollupService.roll(history);
+            indicatorService.update(history);
+            return true;
 
         } catch (Exception e) {
             log.error("Failed to refresh forex {}", forex.getTicker(), e);
+            return false;
         }
     }
 
@@ -121,82 +157,16 @@ public class DataRefreshService {
         log.info("Refreshing options...");
 
         try {
-            Set<String> usedOptionTickers = portfolioEntryRepository.findAllOptionTickersInUse();
-
-            List<Option> allOptions = optionRepository.findAll();
-
-            List<Option> usedOptions = allOptions.stream()
-                    .filter(opt -> usedOptionTickers.contains(opt.getTicker()))
-                    .toList();
-
-            usedOptions.forEach(option -> option.setOnSale(false));
-            optionRepository.saveAllAndFlush(usedOptions);
-
-            List<Option> toDelete = allOptions.stream()
-                    .filter(opt -> !usedOptionTickers.contains(opt.getTicker()))
-                    .toList();
-
-            if (!toDelete.isEmpty()) {
-                optionRepository.deleteByIdInBatch(toDelete.stream().map(Option::getId).toList());
-                log.info("Deleted {} unused options (by IDs).", toDelete.size());
-            }
-
-            Set<String> tickersToRegenerate = toDelete.stream()
-                    .map(opt -> opt.getUnderlyingStock().getTicker())
-                    .collect(Collectors.toSet());
-
-            log.info("Tickers needing regeneration: {}", tickersToRegenerate);
-
-            List<Stock> stocksToRegenerate = stocks.stream()
-                    .filter(s -> tickersToRegenerate.contains(s.getTicker()))
-                    .toList();
-
-            log.info("Found {} stocks to regenerate options for.", stocksToRegenerate.size());
-
-            Set<String> existingTickers = optionRepository.findAllTickers();
-
-            List<Option> newOptions = refreshInParallel(stocksToRegenerate, stock -> {
-                try {
-                    List<OptionDto> dtos = optionService.generateOptions(stock.getTicker(), stock.getPrice());
-
-                    return dtos.stream()
-                            .filter(dto -> !existingTickers.contains(dto.getTicker()))
-                            .map(dto -> {
-                                Option o = new Option();
-                                o.setUnderlyingStock(stock);
-                                o.setOptionType(dto.getOptionType());
-                                o.setStrikePrice(dto.getStrikePrice());
-                                o.setContractSize(dto.getContractSize());
-                                o.setSettlementDate(dto.getSettlementDate());
-                                o.setMaintenanceMargin(dto.getMaintenanceMargin());
-                                o.setPrice(dto.getPrice());
-                                o.setTicker(dto.getTicker());
-                                o.setImpliedVolatility(BigDecimal.ONE);
-                                o.setOpenInterest(new Random().nextInt(500) + 100);
-                                o.setOnSale(true);
-                                return o;
-                            }).toList();
-
-                } catch (Exception e) {
-                    log.error("Failed to generate options for stock {}", stock.getTicker(), e);
-                    return List.of();
-                }
-            });
-
-            saveInBatches(newOptions, 100, optionRepository::saveAllAndFlush);
-            log.info("Inserted {} new options.", newOptions.size());
-
+            optionChainMaintainer.refresh(stocks);
         } catch (Exception e) {
             log.error("Failed refreshing options", e);
         }
     }
 
-
-    private List<ListingPriceHistory> createNewHistory(Listing listing, TimeSeriesDto dto, Set<LocalDateTime> existingDates) {
+    private List<ListingPriceHistory> createNewHistory(Listing listing, TimeSeriesDto dto) {
         return dto.getValues().stream()
                 .map(value -> {
                     LocalDateTime date = LocalDateTime.parse(value.getDatetime(), formatter);
-                    if (existingDates.contains(date)) return null;
                     return ListingPriceHistory.builder()
                             .listing(listing)
                             .date(date)
@@ -207,54 +177,12 @@ public class DataRefreshService {
                             .volume(value.getVolume())
                             .change(value.getClose().subtract(value.getOpen()))
                             .build();
-                }).filter(Objects::nonNull).toList();
-    }
-
-    private <T> void saveInBatches(List<T> items, int batchSize, Consumer<List<T>> saver) {
-        for (int i = 0; i < items.size(); i += batchSize) {
-            int end = Math.min(i + batchSize, items.size());
-            saver.accept(items.subList(i, end));
-            entityManager.clear();
-        }
+                }).toList();
     }
 
     private <T> void refreshInParallel(List<T> items, Consumer<T> task) {
-        ExecutorService executor = Executors.newFixedThreadPool(threadPoolSize);
-        for (T item : items) {
-            executor.submit(() -> {
-                try {
-                    task.accept(item);
-                } catch (Exception e) {
-                    log.error("Parallel task error", e);
-                }
-            });
-        }
-        executor.shutdown();
-        try {
-            executor.awaitTermination(10, TimeUnit.MINUTES);
-        } catch (InterruptedException e) {
-            log.error("Parallel task timeout", e);
-        }
-    }
-
-    private <T, R> List<R> refreshInParallel(List<T> items, Function<T, List<R>> task) {
-        ExecutorService executor = Executors.newFixedThreadPool(threadPoolSize);
-        List<Future<List<R>>> futures = new ArrayList<>();
-
-        for (T item : items) {
-            futures.add(executor.submit(() -> task.apply(item)));
-        }
-
-        List<R> result = new ArrayList<>();
-        for (Future<List<R>> future : futures) {
-            try {
-                result.addAll(future.get());
-            } catch (Exception e) {
-                log.error("Parallel fetch failed", e);
-            }
-        }
-
-        executor.shutdown();
-        return result;
+        fanOutExecutor.forEach(items,
+                item -> ProviderCallPriority.runAs(ProviderCallPriority.BACKGROUND, () -> task.accept(item)),
+                Duration.ofMillis(refreshDeadlineMillis));
     }
 }
@@ -1,33 +1,36 @@
 package rs.raf.stock_service.service;
 
 
-import lombok.AllArgsConstructor;
+import lombok.RequiredArgsConstructor;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Service;
 import rs.raf.stock_service.domain.dto.ExchangeDto;
-import rs.raf.stock_service.domain.entity.Country;
 import rs.raf.stock_service.domain.entity.Exchange;
 import rs.raf.stock_service.domain.mapper.ExchangeMapper;
 import rs.raf.stock_service.exceptions.ExchangesNotLoadedException;
 import rs.raf.stock_service.repository.CountryRepository;
 import rs.raf.stock_service.repository.ExchangeRepository;
+import rs.raf.stock_service.utils.TradingCalendar;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.time.*;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Service
-@AllArgsConstructor
+@RequiredArgsConstructor
 public class ExchangeService {
 
     private final ExchangeRepository exchangeRepository;
     private final CountryRepository countryRepository;
     private final ExchangeMapper exchangeMapper;
 
+    // gradi se pri prvom upitu, a posle uvoza berzi i promene test moda se odbacuje
+    private volatile TradingCalendar tradingCalendar;
+
     public void importExchanges() {
         BufferedReader bufferedReader;
         String line;
@@ -50,45 +53,40 @@ public class ExchangeService {
                     }
                     exchange.setCurrencyCode(attributes[4]);
                     exchange.setTimeZone(getUtcOffset(attributes[5]));
+                    exchange.setZoneId(attributes[5]);
 
                     exchangeRepository.save(exchange);
                 }
             } catch (IOException e) {
                 throw new RuntimeException(e);
             }
+            tradingCalendar = null;
         }
     }
 
 
     public List<Exchange> getAvailableExchanges() {
-        List<Exchange> allExchanges = exchangeRepository.findAll();
-        if (allExchanges.isEmpty()) {
-            throw new ExchangesNotLoadedException();
-        }
-        List<Exchange> availableExchanges = new ArrayList<>();
-
-        for (Exchange exchange : allExchanges) {
-            if (exchange.isTestMode()) {
-                availableExchanges.add(exchange);
-                continue;
-            }
-
-            Country country = exchange.getPolity();
-            long offset = exchange.getTimeZone();
-
-            ZonedDateTime nowUtc = ZonedDateTime.now(ZoneOffset.UTC);
-            LocalDate today = nowUtc.toLocalDate();
-            LocalTime currentTime = nowUtc.toLocalTime().plusHours(offset);
+        return getTradingCalendar().openExchanges(Instant.now());
+    }
 
-            if (country.getHolidays().contains(today)) {
-                continue;
-            }
+    /**
+     * The exchange with the given MIC if it is open right now.
+     */
+    public Optional<Exchange> getAvailableExchange(String mic) {
+        TradingCalendar calendar = getTradingCalendar();
+        return calendar.isOpen(mic, Instant.now()) ? calendar.exchange(mic) : Optional.empty();
+    }
 
-            if (currentTime.isAfter(country.getOpenTime()) && currentTime.isBefore(country.getCloseTime())) {
-                availableExchanges.add(exchange);
+    public TradingCalendar getTradingCalendar() {
+        TradingCalendar calendar = tradingCalendar;
+        if (calendar == null) {
+            calendar = TradingCalendar.of(exchangeRepository.findAllWithHolidays());
+            if (calendar.isEmpty()) {
+                throw new ExchangesNotLoadedException();
             }
+            tradingCalendar = calendar;
         }
-        return availableExchanges;
+        return calendar;
     }
 
     public List<ExchangeDto> getAvailableExchangesDto() {
@@ -105,6 +103,7 @@ public class ExchangeService {
             exchange.setTestMode(!exchange.isTestMode());
             exchangeRepository.save(exchange);
         }
+        tradingCalendar = null;
     }
 
 
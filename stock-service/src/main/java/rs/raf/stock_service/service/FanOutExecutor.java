@@ -0,0 +1,162 @@
+package rs.raf.stock_service.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import rs.raf.stock_service.domain.dto.FanOutStatsDto;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Shared pool for fanning out per-listing work (data refresh, bootstrap imports). Threads are created once and
+ * reused between runs. Every fan-out has an overall deadline; tasks still queued or running when it passes, or when
+ * the calling thread is interrupted, are cancelled.
+ */
+@Slf4j
+@Component
+public class FanOutExecutor {
+
+    private final ThreadPoolExecutor executor;
+    private final Duration defaultDeadline;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+    private final LongAdder deadlinesMissed = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAdder latencyNanos = new LongAdder();
+    private final LongAccumulator maxLatencyNanos = new LongAccumulator(Math::max, 0);
+
+    public FanOutExecutor(@Value("${fan-out.pool.size:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}") int poolSize,
+                          @Value("${fan-out.deadline.ms:900000}") long deadlineMillis) {
+        AtomicInteger threadCount = new AtomicInteger();
+        int threads = Math.max(1, poolSize);
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "fan-out-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.defaultDeadline = Duration.ofMillis(deadlineMillis);
+    }
+
+    public <T> void forEach(List<T> items, Consumer<T> task) {
+        forEach(items, task, defaultDeadline);
+    }
+
+    public <T> void forEach(List<T> items, Consumer<T> task, Duration deadline) {
+        flatMap(items, item -> {
+            task.accept(item);
+            return List.of();
+        }, deadline);
+    }
+
+    public <T, R> List<R> flatMap(List<T> items, Function<T, List<R>> task) {
+        return flatMap(items, task, defaultDeadline);
+    }
+
+    /**
+     * Runs the task for every item and concatenates the results in item order. Failed tasks are logged and
+     * contribute nothing; once the deadline passes the remaining tasks are cancelled and the partial result returned.
+     */
+    public <T, R> List<R> flatMap(List<T> items, Function<T, List<R>> task, Duration deadline) {
+        long deadlineAt = System.nanoTime() + deadline.toNanos();
+        List<Future<List<R>>> futures = new ArrayList<>(items.size());
+        for (T item : items) {
+            futures.add(submit(() -> task.apply(item)));
+        }
+
+        List<R> result = new ArrayList<>();
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                List<R> part = futures.get(i).get(Math.max(0, deadlineAt - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (part != null) result.addAll(part);
+            } catch (ExecutionException e) {
+                log.error("Parallel task failed", e.getCause());
+            } catch (CancellationException e) {
+                log.warn("Parallel task was cancelled");
+            } catch (TimeoutException e) {
+                deadlinesMissed.increment();
+                int count = cancel(futures.subList(i, futures.size()));
+                log.warn("Fan-out deadline of {} exceeded, cancelled {} of {} tasks", deadline, count, futures.size());
+                break;
+            } catch (InterruptedException e) {
+                int count = cancel(futures.subList(i, futures.size()));
+                log.warn("Fan-out interrupted, cancelled {} of {} tasks", count, futures.size());
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return result;
+    }
+
+    public FanOutStatsDto stats() {
+        long done = completed.sum() + failed.sum();
+        return new FanOutStatsDto(
+                executor.getMaximumPoolSize(),
+                executor.getActiveCount(),
+                executor.getQueue().size(),
+                submitted.sum(),
+                completed.sum(),
+                failed.sum(),
+                cancelled.sum(),
+                deadlinesMissed.sum(),
+                done == 0 ? 0 : waitNanos.sum() / 1e6 / done,
+                done == 0 ? 0 : latencyNanos.sum() / 1e6 / done,
+                maxLatencyNanos.get() / 1e6);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS))
+                executor.shutdownNow();
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private <R> Future<R> submit(Callable<R> task) {
+        long queuedAt = System.nanoTime();
+        submitted.increment();
+        return executor.submit(() -> {
+            long start = System.nanoTime();
+            waitNanos.add(start - queuedAt);
+            try {
+                R result = task.call();
+                completed.increment();
+                return result;
+            } catch (Exception e) {
+                failed.increment();
+                throw e;
+            } finally {
+                long latency = System.nanoTime() - queuedAt;
+                latencyNanos.add(latency);
+                maxLatencyNanos.accumulate(latency);
+            }
+        });
+    }
+
+    private int cancel(List<? extends Future<?>> futures) {
+        int count = 0;
+        for (Future<?> future : futures) {
+            if (future.cancel(true)) count++;
+        }
+        cancelled.add(count);
+        // cancelled tasks would otherwise stay in the queue until a worker reaches them
+        executor.purge();
+        return count;
+    }
+}
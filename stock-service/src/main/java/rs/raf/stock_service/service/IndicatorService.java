@@ -0,0 +1,224 @@
+package rs.raf.stock_service.service;
+
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import rs.raf.stock_service.domain.dto.IndicatorValuesDto;
+import rs.raf.stock_service.domain.entity.IndicatorChunk;
+import rs.raf.stock_service.domain.entity.IndicatorSnapshot;
+import rs.raf.stock_service.domain.entity.ListingPriceHistory;
+import rs.raf.stock_service.repository.IndicatorChunkRepository;
+import rs.raf.stock_service.repository.IndicatorSnapshotRepository;
+import rs.raf.stock_service.utils.IndicatorSeriesCodec;
+import rs.raf.stock_service.utils.IndicatorState;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Maintains SMA, EMA, VWAP and RSI of every listing from the ingested 5 minute bars. Each listing keeps an
+ * {@link IndicatorState} in memory that new bars are fed into, so ingestion costs O(1) per bar instead of a
+ * recomputation over the history. The latest values and state are stored in {@link IndicatorSnapshot}, the values
+ * at every bar in one {@link IndicatorChunk} per listing and day.
+ * <p>
+ * A listing without state is warmed up from the last {@value #WARM_UP_DAYS} days in {@link PriceHistoryStore}.
+ * Bars older than the last one fed in (late backfills) do not change the indicators.
+ */
+@Slf4j
+@Service
+@AllArgsConstructor
+public class IndicatorService {
+
+    private static final int WARM_UP_DAYS = 5;
+    private static final int CHUNK_PAGE_SIZE = 8;
+    private static final long SECONDS_PER_DAY = 86400;
+    private static final LocalDate MIN_DAY = LocalDate.of(1970, 1, 1);
+    private static final LocalDate MAX_DAY = LocalDate.of(9999, 12, 31);
+
+    private final PriceHistoryStore priceHistoryStore;
+    private final IndicatorSnapshotRepository snapshotRepository;
+    private final IndicatorChunkRepository chunkRepository;
+    private final Map<Long, IndicatorState> states = new ConcurrentHashMap<>();
+
+    /**
+     * Feeds the given bars, already stored in {@link PriceHistoryStore}, into the indicators of their listings.
+     */
+    public void update(List<ListingPriceHistory> bars) {
+        Map<Long, List<ListingPriceHistory>> byListing = bars.stream()
+                .filter(bar -> bar.getListing() != null && bar.getDate() != null && bar.getClose() != null)
+                .collect(Collectors.groupingBy(bar -> bar.getListing().getId()));
+
+        byListing.forEach((listingId, listingBars) -> {
+            try {
+                update(listingId, listingBars);
+            } catch (Exception e) {
+                log.error("Failed to update indicators for listing {}", listingId, e);
+            }
+        });
+    }
+
+    /**
+     * Indicator values as of the newest bar of the listing, or {@code null} if none were computed yet.
+     */
+    public IndicatorValuesDto getLatest(Long listingId) {
+        IndicatorState state = states.get(listingId);
+        if (state != null) {
+            synchronized (state) {
+                if (!state.isEmpty())
+                    return new IndicatorValuesDto(toDateTime(state.lastEpochSecond()),
+                            value(state.sma()), value(state.ema()), value(state.vwap()), value(state.rsi()));
+            }
+        }
+        return snapshotRepository.findById(listingId)
+                .map(snapshot -> new IndicatorValuesDto(snapshot.getLastBar(), snapshot.getSma(), snapshot.getEma(),
+                        snapshot.getVwap(), snapshot.getRsi()))
+                .orElse(null);
+    }
+
+    /**
+     * Indicator values at the bars of the listing between {@code from} and {@code to} (both inclusive, {@code null}
+     * for unbounded), newest first and at most {@code limit} of them.
+     */
+    public List<IndicatorValuesDto> getSeries(Long listingId, LocalDateTime from, LocalDateTime to, int limit) {
+        LocalDate fromDay = from != null ? from.toLocalDate() : MIN_DAY;
+        LocalDate toDay = to != null ? to.toLocalDate() : MAX_DAY;
+        long fromSecond = from != null ? toEpochSecond(from) : Long.MIN_VALUE;
+        long beforeSecond = to != null ? toEpochSecond(to) + 1 : Long.MAX_VALUE;
+
+        List<IndicatorValuesDto> points = new ArrayList<>(Math.min(limit, 1024));
+        for (int page = 0; points.size() < limit; page++) {
+            List<IndicatorChunk> chunks = chunkRepository.findAllByListingIdAndDayBetweenOrderByDayDesc(
+                    listingId, fromDay, toDay, PageRequest.of(page, CHUNK_PAGE_SIZE));
+
+            for (IndicatorChunk chunk : chunks) {
+                IndicatorSeriesCodec.Columns columns = IndicatorSeriesCodec.decode(chunk.getData());
+                int first = columns.lowerBound(fromSecond);
+                for (int i = columns.lowerBound(beforeSecond) - 1; i >= first && points.size() < limit; i--)
+                    points.add(toDto(columns, i));
+                if (points.size() == limit) break;
+            }
+            if (chunks.size() < CHUNK_PAGE_SIZE) break;
+        }
+        return points;
+    }
+
+    private void update(Long listingId, List<ListingPriceHistory> bars) {
+        IndicatorState state = states.computeIfAbsent(listingId, this::loadState);
+
+        synchronized (state) {
+            IndicatorSeriesCodec.Columns points = new IndicatorSeriesCodec.Columns(bars.size());
+            if (state.isEmpty()) {
+                // bez stanja se indikatori zagrevaju iz sacuvane istorije, koja vec sadrzi i nove barove
+                LocalDateTime first = bars.stream().map(ListingPriceHistory::getDate).min(Comparator.naturalOrder()).get();
+                priceHistoryStore.scan(listingId, first.toLocalDate().minusDays(WARM_UP_DAYS).atStartOfDay(), null,
+                        (columns, i) -> add(state, points, columns.epochSeconds[i], columns.doublePrice(columns.high[i]),
+                                columns.doublePrice(columns.low[i]), columns.doublePrice(columns.close[i]),
+                                columns.volume[i]));
+            }
+
+            List<ListingPriceHistory> sorted = new ArrayList<>(bars);
+            sorted.sort(Comparator.comparing(ListingPriceHistory::getDate));
+            for (ListingPriceHistory bar : sorted) {
+                double close = bar.getClose().doubleValue();
+                add(state, points, toEpochSecond(bar.getDate()), orElse(bar.getHigh(), close),
+                        orElse(bar.getLow(), close), close, bar.getVolume() != null ? bar.getVolume() : -1);
+            }
+            if (points.size == 0) return;
+
+            snapshotRepository.save(IndicatorSnapshot.builder()
+                    .listingId(listingId)
+                    .lastBar(toDateTime(state.lastEpochSecond()))
+                    .sma(value(state.sma()))
+                    .ema(value(state.ema()))
+                    .vwap(value(state.vwap()))
+                    .rsi(value(state.rsi()))
+                    .state(state.toBytes())
+                    .build());
+            saveSeries(listingId, points);
+        }
+    }
+
+    private void add(IndicatorState state, IndicatorSeriesCodec.Columns points, long epochSecond, double high,
+                     double low, double close, long volume) {
+        if (state.add(epochSecond, high, low, close, volume))
+            points.add(epochSecond, state.sma(), state.ema(), state.vwap(), state.rsi());
+    }
+
+    /**
+     * Appends the new points to their day chunks. Stored points from the first new point of a day on are replaced.
+     */
+    private void saveSeries(Long listingId, IndicatorSeriesCodec.Columns points) {
+        Map<LocalDate, int[]> ranges = new LinkedHashMap<>();
+        for (int i = 0; i < points.size; i++) {
+            int index = i;
+            ranges.computeIfAbsent(toDay(points.epochSeconds[i]), day -> new int[]{index, index})[1] = i + 1;
+        }
+
+        Map<LocalDate, IndicatorChunk> existing = new HashMap<>();
+        for (IndicatorChunk chunk : chunkRepository.findAllByListingIdAndDayIn(listingId, ranges.keySet()))
+            existing.put(chunk.getDay(), chunk);
+
+        List<IndicatorChunk> toSave = new ArrayList<>(ranges.size());
+        ranges.forEach((day, range) -> {
+            IndicatorChunk chunk = existing.get(day);
+            IndicatorSeriesCodec.Columns merged;
+            if (chunk == null) {
+                chunk = IndicatorChunk.builder().listingId(listingId).day(day).build();
+                merged = new IndicatorSeriesCodec.Columns(range[1] - range[0]);
+            } else {
+                IndicatorSeriesCodec.Columns old = IndicatorSeriesCodec.decode(chunk.getData());
+                int keep = old.lowerBound(points.epochSeconds[range[0]]);
+                merged = new IndicatorSeriesCodec.Columns(keep + range[1] - range[0]);
+                for (int i = 0; i < keep; i++) merged.add(old, i);
+            }
+            for (int i = range[0]; i < range[1]; i++) merged.add(points, i);
+
+            chunk.setData(IndicatorSeriesCodec.encode(merged));
+            chunk.setPointCount(merged.size);
+            toSave.add(chunk);
+        });
+        chunkRepository.saveAll(toSave);
+    }
+
+    private IndicatorState loadState(Long listingId) {
+        try {
+            return snapshotRepository.findById(listingId)
+                    .map(snapshot -> IndicatorState.fromBytes(snapshot.getState()))
+                    .orElseGet(IndicatorState::new);
+        } catch (IllegalArgumentException e) {
+            log.warn("Discarding unreadable indicator state of listing {}", listingId, e);
+            return new IndicatorState();
+        }
+    }
+
+    private static IndicatorValuesDto toDto(IndicatorSeriesCodec.Columns columns, int i) {
+        return new IndicatorValuesDto(toDateTime(columns.epochSeconds[i]), value(columns.sma[i]),
+                value(columns.ema[i]), value(columns.vwap[i]), value(columns.rsi[i]));
+    }
+
+    private static Double value(double value) {
+        return Double.isNaN(value) ? null : value;
+    }
+
+    private static double orElse(BigDecimal price, double fallback) {
+        return price != null ? price.doubleValue() : fallback;
+    }
+
+    private static LocalDate toDay(long epochSecond) {
+        return LocalDate.ofEpochDay(Math.floorDiv(epochSecond, SECONDS_PER_DAY));
+    }
+
+    private static long toEpochSecond(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static LocalDateTime toDateTime(long epochSecond) {
+        return LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+    }
+}
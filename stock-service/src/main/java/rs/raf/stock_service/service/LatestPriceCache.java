@@ -0,0 +1,63 @@
+package rs.raf.stock_service.service;
+
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Component;
+import rs.raf.stock_service.domain.entity.Listing;
+import rs.raf.stock_service.domain.entity.ListingPriceHistory;
+import rs.raf.stock_service.repository.ListingPriceHistoryRepository;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Latest price history bar per listing. Misses are loaded with a single bulk query per call,
+ * and {@link DataRefreshService} reloads the cached bars after every refresh.
+ */
+@Component
+@AllArgsConstructor
+public class LatestPriceCache {
+
+    private static final int QUERY_CHUNK_SIZE = 1000;
+
+    private final ListingPriceHistoryRepository priceHistoryRepository;
+    private final Map<Long, ListingPriceHistory> latest = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the latest bar for every given listing that has any price history, keyed by listing id.
+     */
+    public Map<Long, ListingPriceHistory> getLatest(Collection<? extends Listing> listings) {
+        Map<Long, ListingPriceHistory> result = new HashMap<>();
+        Set<Long> missing = new HashSet<>();
+
+        for (Listing listing : listings) {
+            if (listing == null || listing.getId() == null) continue;
+            ListingPriceHistory bar = latest.get(listing.getId());
+            if (bar != null) result.put(listing.getId(), bar);
+            else missing.add(listing.getId());
+        }
+
+        if (!missing.isEmpty()) {
+            load(missing).forEach((listingId, bar) -> {
+                latest.put(listingId, bar);
+                result.put(listingId, bar);
+            });
+        }
+        return result;
+    }
+
+    public void refresh(Collection<Long> listingIds) {
+        latest.putAll(load(listingIds));
+    }
+
+    private Map<Long, ListingPriceHistory> load(Collection<Long> listingIds) {
+        Map<Long, ListingPriceHistory> loaded = new HashMap<>();
+        List<Long> ids = new ArrayList<>(listingIds);
+
+        for (int i = 0; i < ids.size(); i += QUERY_CHUNK_SIZE) {
+            List<Long> chunk = ids.subList(i, Math.min(i + QUERY_CHUNK_SIZE, ids.size()));
+            for (ListingPriceHistory bar : priceHistoryRepository.findLatestByListingIds(chunk))
+                loaded.put(bar.getListing().getId(), bar);
+        }
+        return loaded;
+    }
+}
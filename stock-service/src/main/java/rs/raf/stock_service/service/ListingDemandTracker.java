@@ -0,0 +1,37 @@
+package rs.raf.stock_service.service;
+
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers when the details of each listing were last opened, so {@link RefreshPlanner} can keep the listings
+ * users are looking at fresher than the rest.
+ */
+@Component
+public class ListingDemandTracker {
+
+    private final Map<Long, Instant> lastViews = new ConcurrentHashMap<>();
+
+    public void recordView(Long listingId) {
+        recordView(listingId, Instant.now());
+    }
+
+    public void recordView(Long listingId, Instant at) {
+        if (listingId == null) return;
+        lastViews.merge(listingId, at, (previous, current) -> current.isAfter(previous) ? current : previous);
+    }
+
+    /**
+     * Returns the listings viewed at or after {@code since}. Older views are dropped, so the map only holds listings
+     * that were viewed within the last window.
+     */
+    public Set<Long> viewedSince(Instant since) {
+        lastViews.values().removeIf(at -> at.isBefore(since));
+        return new HashSet<>(lastViews.keySet());
+    }
+}
@@ -0,0 +1,129 @@
+package rs.raf.stock_service.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import rs.raf.stock_service.domain.dto.ExecutionLaneStatsDto;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs order executions on N single-threaded lanes, chosen by listing id. All work for one listing goes
+ * through the same lane and is executed in submission order, while different listings run in parallel.
+ * <p>
+ * Every mutation of a listing's orders (placement, trigger checks, matching, settlement and cancellation)
+ * is submitted here, which is what serializes the fills of one listing. A lane task must never wait for
+ * another task, since the lane it waits on may be its own.
+ */
+@Slf4j
+@Component
+public class ListingExecutionLanes {
+
+    private final List<Lane> lanes = new ArrayList<>();
+    private final long startedAt = System.nanoTime();
+
+    public ListingExecutionLanes(@Value("${order.execution.lanes:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}") int laneCount) {
+        for (int i = 0; i < Math.max(1, laneCount); i++) {
+            lanes.add(new Lane(i));
+        }
+    }
+
+    /**
+     * Queues the task on the listing's lane. The returned future completes when the task has run, exceptionally
+     * if it threw.
+     */
+    public CompletableFuture<Void> submit(Long listingId, Runnable task) {
+        return lanes.get(laneOf(listingId)).submit(task);
+    }
+
+    public int laneOf(Long listingId) {
+        return Math.floorMod(Long.hashCode(listingId), lanes.size());
+    }
+
+    public int size() {
+        return lanes.size();
+    }
+
+    /**
+     * Number of submitted tasks that have not finished yet, across all lanes.
+     */
+    public int inFlight() {
+        long inFlight = 0;
+        for (Lane lane : lanes) {
+            inFlight += lane.submitted.get() - lane.completed.get() - lane.failed.get();
+        }
+        return (int) inFlight;
+    }
+
+    public List<ExecutionLaneStatsDto> getStats() {
+        double uptimeSeconds = Math.max(1e-9, (System.nanoTime() - startedAt) / 1e9);
+        return lanes.stream()
+                .map(lane -> new ExecutionLaneStatsDto(
+                        lane.index,
+                        lane.submitted.get(),
+                        lane.completed.get(),
+                        lane.failed.get(),
+                        lane.executor.getQueue().size(),
+                        TimeUnit.NANOSECONDS.toMillis(lane.busyNanos.get()),
+                        lane.completed.get() / uptimeSeconds))
+                .toList();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        lanes.forEach(lane -> lane.executor.shutdown());
+        for (Lane lane : lanes) {
+            try {
+                if (!lane.executor.awaitTermination(30, TimeUnit.SECONDS))
+                    lane.executor.shutdownNow();
+            } catch (InterruptedException e) {
+                lane.executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static class Lane {
+
+        private final int index;
+        private final ThreadPoolExecutor executor;
+        private final AtomicLong submitted = new AtomicLong();
+        private final AtomicLong completed = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong busyNanos = new AtomicLong();
+
+        Lane(int index) {
+            this.index = index;
+            this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "execution-lane-" + index);
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+        }
+
+        CompletableFuture<Void> submit(Runnable task) {
+            submitted.incrementAndGet();
+            CompletableFuture<Void> result = new CompletableFuture<>();
+            executor.execute(() -> {
+                long start = System.nanoTime();
+                try {
+                    task.run();
+                    completed.incrementAndGet();
+                    result.complete(null);
+                } catch (RuntimeException e) {
+                    failed.incrementAndGet();
+                    log.error("Execution lane {} task failed", index, e);
+                    result.completeExceptionally(e);
+                } finally {
+                    busyNanos.addAndGet(System.nanoTime() - start);
+                }
+            });
+            return result;
+        }
+    }
+}
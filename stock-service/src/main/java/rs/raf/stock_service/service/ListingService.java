@@ -1,14 +1,17 @@
 package rs.raf.stock_service.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import rs.raf.stock_service.client.AlphavantageClient;
 import rs.raf.stock_service.client.TwelveDataClient;
 import rs.raf.stock_service.domain.dto.*;
 import rs.raf.stock_service.domain.entity.*;
+import rs.raf.stock_service.domain.enums.CandleInterval;
+import rs.raf.stock_service.domain.event.ListingPriceChangedEvent;
+import rs.raf.stock_service.domain.mapper.AlphaVantageTimeSeriesParser;
 import rs.raf.stock_service.domain.mapper.ListingMapper;
 import rs.raf.stock_service.domain.mapper.TimeSeriesMapper;
 import rs.raf.stock_service.exceptions.ListingNotFoundException;
@@ -24,13 +27,23 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
+@Slf4j
 @Service
 @AllArgsConstructor
 public class ListingService {
+    private static final int PRICE_HISTORY_SIZE = 30;
+    private static final int DEFAULT_HISTORY_LIMIT = 500;
+    private static final int MAX_HISTORY_LIMIT = 5000;
+    private static final String INDICATOR_INTERVAL = "5min";
+    private static final DateTimeFormatter TIME_SERIES_DATETIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    // Twelve Data intervali koje Alpha Vantage moze da posluzi, sa njegovim nazivima
+    private static final Map<String, String> ALPHA_VANTAGE_INTERVALS = Map.of(
+            "1min", "1min", "5min", "5min", "15min", "15min", "30min", "30min", "1h", "60min", "1day", "Daily");
+
     @Autowired
     private ListingRepository listingRepository;
     @Autowired
@@ -42,6 +55,9 @@ public class ListingService {
     @Autowired
     private TimeSeriesMapper timeSeriesMapper;
 
+    @Autowired
+    private AlphaVantageTimeSeriesParser timeSeriesParser;
+
     @Autowired
     private ListingMapper listingMapper;
     @Autowired
@@ -50,20 +66,58 @@ public class ListingService {
     @Autowired
     private OptionRepository optionRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private LatestPriceCache latestPriceCache;
+
+    @Autowired
+    private PriceHistoryStore priceHistoryStore;
+
+    @Autowired
+    private CandleRollupService candleRollupService;
+
+    @Autowired
+    private ListingDemandTracker demandTracker;
+
+    @Autowired
+    private MarketDataHedger marketDataHedger;
+
+    @Autowired
+    private IndicatorService indicatorService;
+
     public List<ListingDto> getListings(ListingFilterDto filter, String role) {
         var spec = ListingSpecification.buildSpecification(filter, role);
-        return listingRepository.findAll(spec).stream()
-                .map(listing -> listingMapper.toDto(listing, dailyPriceInfoRepository.findTopByListingOrderByDateDesc(listing)))
+        List<Listing> listings = listingRepository.findAll(spec);
+        Map<Long, ListingPriceHistory> latest = latestPriceCache.getLatest(listings);
+
+        return listings.stream()
+                .map(listing -> listingMapper.toDto(listing, latest.get(listing.getId())))
                 .collect(Collectors.toList());
     }
 
-    public ListingDetailsDto getListingDetails(Long id) {
+    /**
+     * Listing details with a window of its price history, newest bar first. {@code from} is inclusive and {@code to}
+     * exclusive; the returned cursor is passed back as {@code to} to fetch older bars.
+     */
+    public ListingDetailsDto getListingDetails(Long id, LocalDateTime from, LocalDateTime to, Integer limit) {
         Listing listing = listingRepository.findById(id)
                 .orElseThrow(() -> new ListingNotFoundException(id));
+        demandTracker.recordView(listing.getId());
+
+        int historyLimit = limit == null || limit <= 0 ? DEFAULT_HISTORY_LIMIT : Math.min(limit, MAX_HISTORY_LIMIT);
+        PriceHistoryPageDto page = priceHistoryStore.getPage(listing.getId(), from, to, historyLimit);
 
-        List<ListingPriceHistory> priceHistory = dailyPriceInfoRepository.findAllByListingOrderByDateDesc(listing);
+        ListingDetailsDto dto = listingMapper.toDetailsDto(listing, page.getBars());
+        dto.setPriceHistoryNextCursor(page.getNextCursor());
 
-        ListingDetailsDto dto = listingMapper.toDetailsDto(listing, priceHistory);
+        // indikatori za iste barove kao u istoriji, najnoviji prvi
+        List<PriceHistoryDto> bars = page.getBars();
+        dto.setIndicators(indicatorService.getLatest(listing.getId()));
+        if (bars != null && !bars.isEmpty())
+            dto.setIndicatorSeries(indicatorService.getSeries(listing.getId(), bars.get(bars.size() - 1).getDatetime(),
+                    bars.get(0).getDatetime(), bars.size()));
 
         if (listing instanceof Stock) {
             List<LocalDate> optionDates = optionRepository.findAllByUnderlyingStock((Stock) listing).stream()
@@ -88,11 +142,17 @@ public class ListingService {
         Listing listing = listingRepository.findById(id)
                 .orElseThrow(() -> new ListingNotFoundException(id));
 
+        BigDecimal oldPrice = listing.getPrice();
+        BigDecimal oldAsk = listing.getAsk();
         if (updateDto.getPrice() != null) listing.setPrice(updateDto.getPrice());
         if (updateDto.getAsk() != null) listing.setAsk(updateDto.getAsk());
 
         listingRepository.save(listing);
 
+        if (ListingPriceChangedEvent.isChange(oldPrice, listing.getPrice())
+                || ListingPriceChangedEvent.isChange(oldAsk, listing.getAsk()))
+            eventPublisher.publishEvent(new ListingPriceChangedEvent(listing));
+
         return listingMapper.toDto(listing, dailyPriceInfoRepository.findTopByListingOrderByDateDesc(listing));
     }
 
@@ -104,48 +164,102 @@ public class ListingService {
             interval = "1day";
         }
 
-        String response = twelveDataClient.getTimeSeries(listing.getTicker(), interval, "30");
+        TimeSeriesDto timeSeries = fetchPriceHistory(listing, interval);
+
+        // indikatori se racunaju na 5min barovima, pa se serija vraca samo uz 5min istoriju
+        timeSeries.setIndicators(indicatorService.getLatest(listing.getId()));
+        if (INDICATOR_INTERVAL.equals(interval))
+            timeSeries.setIndicatorSeries(indicatorService.getSeries(listing.getId(), null, null, PRICE_HISTORY_SIZE));
+        return timeSeries;
+    }
+
+    private TimeSeriesDto fetchPriceHistory(Listing listing, String interval) {
+        // 1h/1day/1week se citaju iz lokalnih agregata, provajder se zove samo ako ih nema dovoljno
+        CandleInterval candleInterval = CandleInterval.fromCode(interval).orElse(null);
+        List<PriceCandle> candles = candleInterval != null
+                ? candleRollupService.getCandles(listing.getId(), candleInterval, PRICE_HISTORY_SIZE)
+                : List.of();
+        if (candles.size() >= PRICE_HISTORY_SIZE)
+            return timeSeriesMapper.fromCandles(candles, listing, candleInterval);
+
+        try {
+            return fetchPriceHistoryFromProviders(listing, interval);
+        } catch (RuntimeException e) {
+            // kraca lokalna istorija je bolja od greske
+            if (candles.isEmpty()) throw e;
+            log.warn("Serving {} local {} candles for {}: {}", candles.size(), interval, listing.getTicker(), e.getMessage());
+            return timeSeriesMapper.fromCandles(candles, listing, candleInterval);
+        }
+    }
+
+    private TimeSeriesDto fetchPriceHistoryFromProviders(Listing listing, String interval) {
+        String alphaVantageInterval = ALPHA_VANTAGE_INTERVALS.get(interval);
+        return marketDataHedger.call("time_series",
+                new MarketDataHedger.ProviderCall<>("twelvedata", () -> timeSeriesMapper.fromTwelveData(
+                        twelveDataClient.getTimeSeries(listing.getTicker(), interval, String.valueOf(PRICE_HISTORY_SIZE)),
+                        listing)),
+                alphaVantageInterval == null ? null : new MarketDataHedger.ProviderCall<>("alphavantage",
+                        () -> getPriceHistoryFromAlphaVantage(listing, interval, alphaVantageInterval)));
+    }
 
-        return timeSeriesMapper.mapJsonToCustomTimeSeries(response, listing);
+    /**
+     * Alpha Vantage series of the listing normalized to the Twelve Data shape: the requested interval in the meta and
+     * only the newest {@link #PRICE_HISTORY_SIZE} bars.
+     */
+    private TimeSeriesDto getPriceHistoryFromAlphaVantage(Listing listing, String interval, String alphaVantageInterval) {
+        boolean daily = "Daily".equals(alphaVantageInterval);
+        TimeSeriesDto timeSeriesDto;
+
+        if (listing instanceof ForexPair forexPair) {
+            String from = forexPair.getBaseCurrency();
+            String to = forexPair.getQuoteCurrency();
+            String response = daily
+                    ? alphavantageClient.getForexDailyPriceHistory(from, to, "compact")
+                    : alphavantageClient.getForexPriceHistory(from, to, alphaVantageInterval, "compact");
+            timeSeriesDto = timeSeriesMapper.mapJsonToCustomTimeSeries(response, forexPair, null);
+        } else {
+            String response = daily
+                    ? alphavantageClient.getDailyData(listing.getTicker(), "compact")
+                    : alphavantageClient.getIntradayData(listing.getTicker(), alphaVantageInterval, "compact", "json");
+            timeSeriesDto = mapAlphaVantageResponseToDto(response, listing.getTicker(), alphaVantageInterval, null);
+        }
+
+        timeSeriesDto.getMeta().setSymbol(listing.getTicker());
+        timeSeriesDto.getMeta().setInterval(interval);
+        if (listing.getExchange() != null) timeSeriesDto.getMeta().setExchange(listing.getExchange().getMic());
+        List<TimeSeriesDto.TimeSeriesValueDto> values = timeSeriesDto.getValues();
+        if (values.size() > PRICE_HISTORY_SIZE)
+            timeSeriesDto.setValues(new ArrayList<>(values.subList(0, PRICE_HISTORY_SIZE)));
+        return timeSeriesDto;
     }
 
     public TimeSeriesDto getPriceHistoryFromAlphaVantage(String symbol, String interval, String outputsize) {
+        return getPriceHistoryFromAlphaVantage(symbol, interval, outputsize, null);
+    }
+
+    /**
+     * Intraday bars of the symbol newer than {@code after} ({@code null} for all). Older bars in the response are
+     * skipped while parsing.
+     */
+    public TimeSeriesDto getPriceHistoryFromAlphaVantage(String symbol, String interval, String outputsize, LocalDateTime after) {
 
         // Call the API
         String response = alphavantageClient.getIntradayData(symbol, interval, outputsize, "json");
 
         // Map response to TimeSeriesDto
-        return mapAlphaVantageResponseToDto(response, symbol, interval);
+        return mapAlphaVantageResponseToDto(response, symbol, interval, after);
     }
 
     // Helper method to map Alpha Vantage response to TimeSeriesDto
-    private TimeSeriesDto mapAlphaVantageResponseToDto(String response, String symbol, String interval) {
+    private TimeSeriesDto mapAlphaVantageResponseToDto(String response, String symbol, String interval, LocalDateTime after) {
         try {
-            ObjectMapper objectMapper = new ObjectMapper();
-            JsonNode rootNode = objectMapper.readTree(response);
-
             // Get time series data (e.g., "Time Series (5min)" or other interval)
-            JsonNode timeSeriesNode = rootNode.get("Time Series (" + interval + ")");
-            if (timeSeriesNode == null) {
+            AlphaVantageTimeSeriesParser.ParsedTimeSeries parsed =
+                    timeSeriesParser.parse(response, "Time Series (" + interval + ")", formatWatermark(after));
+            if (!parsed.isSeriesFound()) {
                 throw new RuntimeException("Invalid response format from Alpha Vantage");
             }
 
-            List<TimeSeriesDto.TimeSeriesValueDto> values = new ArrayList<>();
-            for (Iterator<String> it = timeSeriesNode.fieldNames(); it.hasNext(); ) {
-                String datetime = it.next();
-                JsonNode data = timeSeriesNode.get(datetime);
-
-                TimeSeriesDto.TimeSeriesValueDto dto = new TimeSeriesDto.TimeSeriesValueDto();
-                dto.setDatetime(datetime);
-                dto.setOpen(new BigDecimal(data.get("1. open").asText()));
-                dto.setHigh(new BigDecimal(data.get("2. high").asText()));
-                dto.setLow(new BigDecimal(data.get("3. low").asText()));
-                dto.setClose(new BigDecimal(data.get("4. close").asText()));
-                dto.setVolume(data.get("5. volume").asLong());
-
-                values.add(dto);
-            }
-
             // Create and return TimeSeriesDto
             TimeSeriesDto timeSeriesDto = new TimeSeriesDto();
             TimeSeriesDto.MetaDto metaDto = new TimeSeriesDto.MetaDto();
@@ -154,7 +268,7 @@ public class ListingService {
             metaDto.setType("Equity");
 
             timeSeriesDto.setMeta(metaDto);
-            timeSeriesDto.setValues(values);
+            timeSeriesDto.setValues(parsed.getValues());
             timeSeriesDto.setStatus("success");
 
             return timeSeriesDto;
@@ -165,6 +279,10 @@ public class ListingService {
 
 
     public TimeSeriesDto getForexPriceHistory(Long id, String interval) {
+        return getForexPriceHistory(id, interval, null);
+    }
+
+    public TimeSeriesDto getForexPriceHistory(Long id, String interval, LocalDateTime after) {
         ForexPair forexPair = (ForexPair) listingRepository.findById(id)
                 .orElseThrow(() -> new ListingNotFoundException(1L));
 
@@ -173,7 +291,11 @@ public class ListingService {
 
         String response = alphavantageClient.getForexPriceHistory(fromSymbol, toSymbol, interval, "compact");
 
-        return timeSeriesMapper.mapJsonToCustomTimeSeries(response, forexPair);
+        return timeSeriesMapper.mapJsonToCustomTimeSeries(response, forexPair, formatWatermark(after));
+    }
+
+    private String formatWatermark(LocalDateTime after) {
+        return after != null ? after.format(TIME_SERIES_DATETIME) : null;
     }
 
 }
@@ -0,0 +1,198 @@
+package rs.raf.stock_service.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import rs.raf.stock_service.client.ProviderCallPriority;
+import rs.raf.stock_service.client.ProviderRateLimiter;
+
+import javax.annotation.PreDestroy;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs a market data request against a primary provider with an alternate provider as backup. A failed primary
+ * call fails over to the alternate. An interactive call that is still running after the primary's recent latency
+ * percentile for that operation gets a hedged request to the alternate, and whichever answers first wins, so one
+ * slow or throttled provider does not set the tail latency. Background calls (data refresh, bootstrap) only fail
+ * over, they are never hedged, since a hedge spends a second provider call. For the same reason a call is only
+ * hedged while the {@link ProviderRateLimiter} has spare permits for the alternate provider.
+ * <p>
+ * The losing call is cancelled, but a blocking HTTP call is not interrupted by that: it still runs to the end and
+ * still counts against the provider's quota.
+ */
+@Slf4j
+@Component
+public class MarketDataHedger {
+
+    public record ProviderCall<T>(String provider, Supplier<T> request) {
+    }
+
+    private static final int LATENCY_SAMPLES = 128;
+    private static final int MIN_SAMPLES = 20;
+
+    private final ExecutorService executor;
+    private final ProviderRateLimiter rateLimiter;
+    private final boolean hedgingEnabled;
+    private final double percentile;
+    private final long minDelayMillis;
+    private final long maxDelayMillis;
+    private final Map<String, LatencyWindow> latencies = new ConcurrentHashMap<>();
+
+    public MarketDataHedger(ProviderRateLimiter rateLimiter,
+                            @Value("${market-data.hedge.enabled:true}") boolean hedgingEnabled,
+                            @Value("${market-data.hedge.percentile:95}") double percentile,
+                            @Value("${market-data.hedge.min-delay.ms:200}") long minDelayMillis,
+                            @Value("${market-data.hedge.max-delay.ms:3000}") long maxDelayMillis,
+                            @Value("${market-data.hedge.pool.size:16}") int poolSize) {
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, poolSize), runnable -> {
+            Thread thread = new Thread(runnable, "market-data-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.rateLimiter = rateLimiter;
+        this.hedgingEnabled = hedgingEnabled;
+        this.percentile = percentile;
+        this.minDelayMillis = minDelayMillis;
+        this.maxDelayMillis = Math.max(minDelayMillis, maxDelayMillis);
+    }
+
+    /**
+     * Returns the result of the primary call, or of the alternate ({@code null} if there is none) when the primary
+     * fails or is outrun by the hedge. If both fail the primary's exception is thrown, with the alternate's attached
+     * as suppressed.
+     */
+    public <T> T call(String operation, ProviderCall<T> primary, ProviderCall<T> alternate) {
+        if (alternate == null) return timed(operation, primary);
+
+        if (!hedgingEnabled || ProviderCallPriority.current() == ProviderCallPriority.BACKGROUND)
+            return withFailover(operation, primary, alternate);
+        return hedged(operation, primary, alternate);
+    }
+
+    private <T> T withFailover(String operation, ProviderCall<T> primary, ProviderCall<T> alternate) {
+        try {
+            return timed(operation, primary);
+        } catch (RuntimeException e) {
+            log.warn("{} from {} failed, failing over to {}: {}", operation, primary.provider(), alternate.provider(),
+                    e.getMessage());
+            try {
+                return timed(operation, alternate);
+            } catch (RuntimeException alternateFailure) {
+                e.addSuppressed(alternateFailure);
+                throw e;
+            }
+        }
+    }
+
+    private <T> T hedged(String operation, ProviderCall<T> primary, ProviderCall<T> alternate) {
+        CompletionService<T> completion = new ExecutorCompletionService<>(executor);
+        Future<T> primaryFuture = submit(completion, operation, primary);
+        Future<T> alternateFuture = null;
+        RuntimeException primaryFailure = null;
+        RuntimeException alternateFailure = null;
+
+        try {
+            int pending = 1;
+            Future<T> done = completion.poll(hedgeDelayMillis(operation, primary.provider()), TimeUnit.MILLISECONDS);
+            if (done == null && !rateLimiter.hasSpareCapacity(alternate.provider())) {
+                // hedge bi trosio kvotu koja treba redovnim pozivima, pa se ceka primarni
+                log.debug("{} from {} is slow, but {} has no spare permits to hedge", operation, primary.provider(),
+                        alternate.provider());
+                done = completion.take();
+            }
+            if (done == null) {
+                log.debug("{} from {} is slow, hedging with {}", operation, primary.provider(), alternate.provider());
+                pending++;
+            } else {
+                try {
+                    return done.get();
+                } catch (ExecutionException e) {
+                    primaryFailure = unwrap(e);
+                    log.warn("{} from {} failed, failing over to {}: {}", operation, primary.provider(),
+                            alternate.provider(), primaryFailure.getMessage());
+                }
+            }
+            alternateFuture = submit(completion, operation, alternate);
+
+            // prvi uspesan odgovor pobedjuje, drugi poziv se prekida u finally
+            for (; pending > 0; pending--) {
+                Future<T> next = completion.take();
+                try {
+                    return next.get();
+                } catch (ExecutionException e) {
+                    if (next == primaryFuture) primaryFailure = unwrap(e);
+                    else alternateFailure = unwrap(e);
+                }
+            }
+            primaryFailure.addSuppressed(alternateFailure);
+            throw primaryFailure;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for " + operation, e);
+        } finally {
+            primaryFuture.cancel(true);
+            if (alternateFuture != null) alternateFuture.cancel(true);
+        }
+    }
+
+    private <T> Future<T> submit(CompletionService<T> completion, String operation, ProviderCall<T> call) {
+        ProviderCallPriority priority = ProviderCallPriority.current();
+        return completion.submit(() -> ProviderCallPriority.callAs(priority, () -> timed(operation, call)));
+    }
+
+    private <T> T timed(String operation, ProviderCall<T> call) {
+        long start = System.nanoTime();
+        T result = call.request().get();
+        // pamte se samo uspesni pozivi, brze greske bi spustile prag za hedge
+        latencies.computeIfAbsent(key(operation, call.provider()), key -> new LatencyWindow())
+                .add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return result;
+    }
+
+    private long hedgeDelayMillis(String operation, String provider) {
+        LatencyWindow window = latencies.get(key(operation, provider));
+        long delay = window == null ? maxDelayMillis : window.percentile(percentile, maxDelayMillis);
+        return Math.min(maxDelayMillis, Math.max(minDelayMillis, delay));
+    }
+
+    private RuntimeException unwrap(ExecutionException e) {
+        return e.getCause() instanceof RuntimeException runtime ? runtime : new IllegalStateException(e.getCause());
+    }
+
+    private String key(String operation, String provider) {
+        return operation + ":" + provider;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Latencies of the last {@link #LATENCY_SAMPLES} successful calls in a ring buffer of primitives.
+     */
+    private static final class LatencyWindow {
+        private final long[] samples = new long[LATENCY_SAMPLES];
+        private int count;
+        private int next;
+
+        synchronized void add(long millis) {
+            samples[next] = millis;
+            next = (next + 1) % samples.length;
+            if (count < samples.length) count++;
+        }
+
+        synchronized long percentile(double percentile, long fallback) {
+            if (count < MIN_SAMPLES) return fallback;
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percentile / 100 * count) - 1;
+            return sorted[Math.min(count - 1, Math.max(0, index))];
+        }
+    }
+}
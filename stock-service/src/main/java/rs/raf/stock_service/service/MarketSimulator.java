@@ -0,0 +1,232 @@
+package rs.raf.stock_service.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import rs.raf.stock_service.domain.entity.ForexPair;
+import rs.raf.stock_service.domain.entity.Listing;
+import rs.raf.stock_service.domain.entity.Stock;
+import rs.raf.stock_service.domain.event.ListingPriceChangedEvent;
+import rs.raf.stock_service.repository.ListingRepository;
+
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Market simulator mode ({@code market-simulator.enabled}). Drives stock and forex prices with a geometric Brownian
+ * motion or an arithmetic random walk at {@code market-simulator.ticks-per-second} ticks in total, round robin over
+ * the simulated listings, and applies every tick the same way {@link DataRefreshService} applies a refreshed quote:
+ * the price columns are updated and a {@link ListingPriceChangedEvent} is published. Only the price, ask and
+ * change/exchange rate columns are written, so concurrent edits of other listing columns are not reverted.
+ * <p>
+ * The simulated price is kept unrounded between ticks, so small moves still accumulate. A tick is only written and
+ * published once the rounded price changes, though; with a small time scale most ticks move the price by less than
+ * a cent, so the logged price tick rate can stay well below {@code ticks-per-second}. The event is published on the
+ * simulator thread, so listeners must hand heavy work off (order triggers go through the listing execution lanes).
+ * <p>
+ * Model, drift and volatility (both annualized) can be set per ticker with
+ * {@code market-simulator.tickers.<TICKER>.model|drift|volatility}. {@code market-simulator.time-scale} is the number
+ * of simulated seconds per real second, so realistic volatilities still move prices visibly at high tick rates.
+ */
+@Slf4j
+@Component
+public class MarketSimulator {
+
+    public enum Model { GBM, RANDOM_WALK }
+
+    private static final double SECONDS_PER_YEAR = 365.0 * 24 * 3600;
+    private static final long STATS_INTERVAL_SECONDS = 10;
+
+    private final ListingRepository listingRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Environment environment;
+
+    private final boolean enabled;
+    private final int ticksPerSecond;
+    private final Model defaultModel;
+    private final double defaultDrift;
+    private final double defaultVolatility;
+    private final double timeScale;
+    private final Set<String> tickers;
+    private final Random random;
+
+    private final List<SimulatedListing> simulated = new ArrayList<>();
+    private final LongAdder ticks = new LongAdder();
+    private final LongAdder simulatedTicks = new LongAdder();
+    private long ticksAtLastStats;
+    private long simulatedTicksAtLastStats;
+    private int next;
+    private ScheduledExecutorService scheduler;
+
+    public MarketSimulator(ListingRepository listingRepository, ApplicationEventPublisher eventPublisher,
+                           Environment environment,
+                           @Value("${market-simulator.enabled:false}") boolean enabled,
+                           @Value("${market-simulator.ticks-per-second:100}") int ticksPerSecond,
+                           @Value("${market-simulator.model:GBM}") Model defaultModel,
+                           @Value("${market-simulator.drift:0.05}") double defaultDrift,
+                           @Value("${market-simulator.volatility:0.3}") double defaultVolatility,
+                           @Value("${market-simulator.time-scale:1}") double timeScale,
+                           @Value("${market-simulator.tickers:}") String tickers,
+                           @Value("${market-simulator.seed:0}") long seed) {
+        this.listingRepository = listingRepository;
+        this.eventPublisher = eventPublisher;
+        this.environment = environment;
+        this.enabled = enabled;
+        this.ticksPerSecond = Math.max(1, ticksPerSecond);
+        this.defaultModel = defaultModel;
+        this.defaultDrift = defaultDrift;
+        this.defaultVolatility = defaultVolatility;
+        this.timeScale = timeScale;
+        this.tickers = new HashSet<>();
+        for (String ticker : tickers.split(","))
+            if (!ticker.isBlank()) this.tickers.add(ticker.trim());
+        this.random = seed == 0 ? new Random() : new Random(seed);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Number of ticks that changed a rounded price and were written and published.
+     */
+    public long getTickCount() {
+        return ticks.sum();
+    }
+
+    public long getSimulatedTickCount() {
+        return simulatedTicks.sum();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (!enabled || scheduler != null) return;
+
+        // tikovi se salju u grupama, najvise 1000 puta u sekundi
+        long periodMicros = Math.max(1000, 1_000_000L / ticksPerSecond);
+        int ticksPerRun = (int) Math.max(1, Math.round(ticksPerSecond * periodMicros / 1_000_000.0));
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "market-simulator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(() -> {
+            try {
+                tick(ticksPerRun);
+            } catch (Exception e) {
+                log.error("Market simulator tick failed", e);
+            }
+        }, 0, periodMicros, TimeUnit.MICROSECONDS);
+        scheduler.scheduleAtFixedRate(this::logStats, STATS_INTERVAL_SECONDS, STATS_INTERVAL_SECONDS, TimeUnit.SECONDS);
+
+        log.info("Market simulator started: {} ticks/s, model {}, time scale {}", ticksPerSecond, defaultModel, timeScale);
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (scheduler == null) return;
+        scheduler.shutdownNow();
+        scheduler = null;
+    }
+
+    /**
+     * Advances the next {@code count} simulated listings by the time elapsed since their previous tick.
+     */
+    public void tick(int count) {
+        if (simulated.isEmpty()) load();
+        if (simulated.isEmpty()) return;
+
+        for (int i = 0; i < count; i++) {
+            next = (next + 1) % simulated.size();
+            apply(simulated.get(next), System.nanoTime());
+        }
+    }
+
+    private void load() {
+        for (Listing listing : listingRepository.findAll()) {
+            if (!(listing instanceof Stock) && !(listing instanceof ForexPair)) continue;
+            if (listing.getPrice() == null || listing.getPrice().signum() <= 0) continue;
+            if (!tickers.isEmpty() && !tickers.contains(listing.getTicker())) continue;
+            simulated.add(new SimulatedListing(listing, System.nanoTime()));
+        }
+        if (!simulated.isEmpty()) log.info("Market simulator drives {} listings", simulated.size());
+    }
+
+    private void apply(SimulatedListing state, long now) {
+        double dt = (now - state.lastTickNanos) / 1e9 * timeScale / SECONDS_PER_YEAR;
+        state.lastTickNanos = now;
+        if (dt <= 0) return;
+        simulatedTicks.increment();
+
+        double shock = random.nextGaussian() * Math.sqrt(dt);
+        if (state.model == Model.GBM)
+            state.price *= Math.exp((state.drift - state.volatility * state.volatility / 2) * dt + state.volatility * shock);
+        else
+            state.price = Math.max(0.01, state.price + state.initialPrice * (state.drift * dt + state.volatility * shock));
+
+        Listing listing = state.listing;
+        BigDecimal price = BigDecimal.valueOf(state.price).setScale(Math.max(2, listing.getPrice().scale()), RoundingMode.HALF_UP);
+        if (price.compareTo(listing.getPrice()) == 0) return;
+
+        // ask zadrzava isti relativni spread u odnosu na cenu
+        if (listing.getAsk() != null && listing.getPrice().signum() > 0)
+            listing.setAsk(listing.getAsk().multiply(price).divide(listing.getPrice(), price.scale(), RoundingMode.HALF_UP));
+        listing.setPrice(price);
+
+        // azuriraju se samo kolone cene, ne ceo (odvojeni) entitet
+        int updated = 0;
+        if (listing instanceof Stock stock) {
+            stock.setChange(price.subtract(BigDecimal.valueOf(state.initialPrice)).setScale(price.scale(), RoundingMode.HALF_UP));
+            updated = listingRepository.updateStockPrice(stock.getId(), price, stock.getAsk(), stock.getChange());
+        } else if (listing instanceof ForexPair forex) {
+            forex.setExchangeRate(price);
+            updated = listingRepository.updateForexPrice(forex.getId(), price, forex.getAsk());
+        }
+        if (updated == 0) return;
+
+        eventPublisher.publishEvent(new ListingPriceChangedEvent(listing));
+        ticks.increment();
+    }
+
+    private void logStats() {
+        long total = ticks.sum();
+        long simulatedTotal = simulatedTicks.sum();
+        log.info("Market simulator: {} ticks/s simulated (target {}), {} price ticks/s",
+                (simulatedTotal - simulatedTicksAtLastStats) / STATS_INTERVAL_SECONDS, ticksPerSecond,
+                (total - ticksAtLastStats) / STATS_INTERVAL_SECONDS);
+        ticksAtLastStats = total;
+        simulatedTicksAtLastStats = simulatedTotal;
+    }
+
+    private class SimulatedListing {
+        private final Listing listing;
+        private final Model model;
+        private final double drift;
+        private final double volatility;
+        private final double initialPrice;
+        private double price;
+        private long lastTickNanos;
+
+        private SimulatedListing(Listing listing, long now) {
+            String prefix = "market-simulator.tickers." + listing.getTicker() + ".";
+            this.listing = listing;
+            this.model = environment.getProperty(prefix + "model", Model.class, defaultModel);
+            this.drift = environment.getProperty(prefix + "drift", Double.class, defaultDrift);
+            this.volatility = environment.getProperty(prefix + "volatility", Double.class, defaultVolatility);
+            this.initialPrice = listing.getPrice().doubleValue();
+            this.price = initialPrice;
+            this.lastTickNanos = now;
+        }
+    }
+}
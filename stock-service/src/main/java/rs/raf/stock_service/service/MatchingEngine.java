@@ -0,0 +1,53 @@
+package rs.raf.stock_service.service;
+
+import org.springframework.stereotype.Component;
+import rs.raf.stock_service.domain.entity.Order;
+import rs.raf.stock_service.domain.enums.OrderType;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps one in-memory {@link OrderBook} per listing. Only approved, non all-or-none limit orders
+ * (and stop-limit orders whose stop was hit) rest in a book; everything else is matched on arrival
+ * and the remainder is filled against the quoted listing price.
+ * <p>
+ * The books are per-instance memory rebuilt from the database on startup, which is why order execution
+ * runs on a single stock-service instance (see {@link OrderExecutionQueue}).
+ */
+@Component
+public class MatchingEngine {
+
+    private final Map<Long, OrderBook> books = new ConcurrentHashMap<>();
+
+    public boolean canRest(Order order) {
+        if (order.isAllOrNone() || order.getIsDone()) return false;
+        return order.getOrderType() == OrderType.LIMIT
+                || (order.getOrderType() == OrderType.STOP_LIMIT && order.isStopFulfilled());
+    }
+
+    public void rest(Order order) {
+        if (canRest(order) && order.getRemainingPortions() > 0)
+            getBook(order.getListing().getId()).add(order);
+    }
+
+    /**
+     * Removes the order from its book and returns the resting instance, which carries the latest fill state.
+     */
+    public Order remove(Order order) {
+        if (order.getListing() == null) return null;
+        OrderBook book = books.get(order.getListing().getId());
+        return book == null ? null : book.remove(order.getId());
+    }
+
+    public int match(Order incoming, BigDecimal limit, OrderBook.FillHandler handler) {
+        if (incoming.isAllOrNone()) return 0;
+        return getBook(incoming.getListing().getId())
+                .match(incoming, incoming.getRemainingPortions(), limit, handler);
+    }
+
+    public OrderBook getBook(Long listingId) {
+        return books.computeIfAbsent(listingId, id -> new OrderBook());
+    }
+}
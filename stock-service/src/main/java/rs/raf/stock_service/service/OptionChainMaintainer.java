@@ -0,0 +1,144 @@
+package rs.raf.stock_service.service;
+
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import rs.raf.stock_service.domain.dto.OptionDto;
+import rs.raf.stock_service.domain.entity.Option;
+import rs.raf.stock_service.domain.entity.Stock;
+import rs.raf.stock_service.domain.enums.OptionType;
+import rs.raf.stock_service.repository.OptionBulkWriter;
+import rs.raf.stock_service.repository.OptionRepository;
+import rs.raf.stock_service.repository.OptionRepository.OptionContract;
+import rs.raf.stock_service.repository.PortfolioEntryRepository;
+import rs.raf.stock_service.utils.OptionPricing;
+
+import javax.persistence.EntityManager;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+/**
+ * Keeps the stored option chains in line with the underlying stocks without regenerating them. Existing contracts
+ * keep their ids and are only re-priced (bulk update of the changed ones), strikes and expiries the generator asks
+ * for that do not exist yet are inserted, and expired contracts are deleted unless they are held in a portfolio.
+ * Contracts held in a portfolio are taken off sale.
+ */
+@Slf4j
+@Component
+@AllArgsConstructor
+public class OptionChainMaintainer {
+
+    private static final int QUERY_CHUNK_SIZE = 1000;
+    private static final int INSERT_BATCH_SIZE = 100;
+
+    private final OptionRepository optionRepository;
+    private final OptionBulkWriter optionWriter;
+    private final PortfolioEntryRepository portfolioEntryRepository;
+    private final OptionService optionService;
+    private final EntityManager entityManager;
+
+    @Transactional
+    public void refresh(List<Stock> stocks) {
+        LocalDate today = LocalDate.now();
+        Set<String> usedTickers = portfolioEntryRepository.findAllOptionTickersInUse();
+
+        Map<Long, List<OptionContract>> liveByStock = new HashMap<>();
+        Set<String> existingTickers = new HashSet<>();
+        List<Long> expired = new ArrayList<>();
+        List<Long> takenOffSale = new ArrayList<>();
+
+        for (OptionContract contract : optionRepository.findAllContracts()) {
+            boolean used = usedTickers.contains(contract.getTicker());
+            if (used && Boolean.TRUE.equals(contract.getOnSale())) takenOffSale.add(contract.getId());
+
+            if (contract.getSettlementDate().isBefore(today)) {
+                if (used) existingTickers.add(contract.getTicker());
+                else expired.add(contract.getId());
+                continue;
+            }
+            existingTickers.add(contract.getTicker());
+            liveByStock.computeIfAbsent(contract.getStockId(), id -> new ArrayList<>()).add(contract);
+        }
+
+        inChunks(expired, optionRepository::deleteByIdInBatch);
+        inChunks(takenOffSale, optionRepository::takeOffSaleByIdIn);
+
+        List<OptionBulkWriter.PriceUpdate> updates = new ArrayList<>();
+        List<Option> created = new ArrayList<>();
+        for (Stock stock : stocks) {
+            if (stock.getPrice() == null) continue;
+            try {
+                reprice(stock, liveByStock.getOrDefault(stock.getId(), List.of()), today, updates);
+                addMissing(stock, existingTickers, created);
+            } catch (Exception e) {
+                log.error("Failed to refresh option chain for stock {}", stock.getTicker(), e);
+            }
+        }
+
+        optionWriter.updatePrices(updates);
+        for (int i = 0; i < created.size(); i += INSERT_BATCH_SIZE) {
+            optionRepository.saveAllAndFlush(created.subList(i, Math.min(i + INSERT_BATCH_SIZE, created.size())));
+            entityManager.clear();
+        }
+
+        log.info("Option chains refreshed: {} re-priced, {} added, {} expired, {} taken off sale.",
+                updates.size(), created.size(), expired.size(), takenOffSale.size());
+    }
+
+    private void reprice(Stock stock, List<OptionContract> contracts, LocalDate today,
+                         List<OptionBulkWriter.PriceUpdate> updates) {
+        if (contracts.isEmpty()) return;
+
+        OptionPricing.Chain chain = new OptionPricing.Chain(contracts.size());
+        for (int i = 0; i < contracts.size(); i++) {
+            OptionContract contract = contracts.get(i);
+            chain.strike[i] = contract.getStrikePrice().doubleValue();
+            chain.years[i] = OptionService.yearsUntil(today, contract.getSettlementDate());
+            chain.volatility[i] = OptionService.volatility(contract.getImpliedVolatility());
+            chain.call[i] = contract.getOptionType() == OptionType.CALL;
+        }
+        OptionPricing.price(chain, stock.getPrice().doubleValue(), OptionService.RISK_FREE_RATE);
+
+        BigDecimal margin = OptionService.maintenanceMargin(stock.getPrice());
+        for (int i = 0; i < contracts.size(); i++) {
+            OptionContract contract = contracts.get(i);
+            BigDecimal price = OptionService.toPrice(chain.price[i]);
+            // upisuju se samo ugovori cija se cena ili margina zaista promenila
+            if (sameValue(price, contract.getPrice()) && sameValue(margin, contract.getMaintenanceMargin())) continue;
+            updates.add(new OptionBulkWriter.PriceUpdate(contract.getId(), price, margin));
+        }
+    }
+
+    private void addMissing(Stock stock, Set<String> existingTickers, List<Option> created) {
+        for (OptionDto dto : optionService.generateOptions(stock.getTicker(), stock.getPrice())) {
+            if (!existingTickers.add(dto.getTicker())) continue;
+
+            Option option = new Option();
+            option.setUnderlyingStock(stock);
+            option.setOptionType(dto.getOptionType());
+            option.setStrikePrice(dto.getStrikePrice());
+            option.setContractSize(dto.getContractSize());
+            option.setSettlementDate(dto.getSettlementDate());
+            option.setMaintenanceMargin(dto.getMaintenanceMargin());
+            option.setPrice(dto.getPrice());
+            option.setTicker(dto.getTicker());
+            option.setImpliedVolatility(dto.getImpliedVolatility());
+            option.setOpenInterest(ThreadLocalRandom.current().nextInt(500) + 100);
+            option.setOnSale(true);
+            created.add(option);
+        }
+    }
+
+    private boolean sameValue(BigDecimal a, BigDecimal b) {
+        return a == null ? b == null : b != null && a.compareTo(b) == 0;
+    }
+
+    private void inChunks(List<Long> ids, Consumer<List<Long>> action) {
+        for (int i = 0; i < ids.size(); i += QUERY_CHUNK_SIZE)
+            action.accept(ids.subList(i, Math.min(i + QUERY_CHUNK_SIZE, ids.size())));
+    }
+}
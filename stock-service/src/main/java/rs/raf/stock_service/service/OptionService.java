@@ -3,14 +3,20 @@ package rs.raf.stock_service.service;
 import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import rs.raf.stock_service.domain.dto.OptionChainEntryDto;
 import rs.raf.stock_service.domain.dto.OptionDto;
 import rs.raf.stock_service.domain.entity.Option;
 import rs.raf.stock_service.domain.enums.OptionType;
 import rs.raf.stock_service.repository.OptionRepository;
+import rs.raf.stock_service.utils.OptionPricing;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.DayOfWeek;
 import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -19,87 +25,172 @@ import java.util.stream.Collectors;
 @AllArgsConstructor
 public class OptionService {
 
+    // kamatna stopa bez rizika i volatilnost kojom se cene novi ugovori, dok nemaju svoju implied volatility
+    public static final double RISK_FREE_RATE = 0.05;
+    public static final double DEFAULT_IMPLIED_VOLATILITY = 0.25;
+
+    private static final BigDecimal CONTRACT_SIZE = BigDecimal.valueOf(100);
+    private static final BigDecimal MIN_PRICE = BigDecimal.valueOf(0.01);
+    private static final int WEEKLY_EXPIRIES = 6;
+    private static final int MONTHLY_EXPIRIES = 6;
+
     private OptionRepository optionRepository;
 
-    @Transactional
     public List<OptionDto> generateOptions(String stockListing, BigDecimal currentPrice) {
-        List<OptionDto> options = new ArrayList<>();
         int roundedPrice = currentPrice.setScale(0, RoundingMode.HALF_UP).intValue();
         int lowerBound = roundedPrice - 5;
         int upperBound = roundedPrice + 5;
+        int strikes = upperBound - lowerBound + 1;
 
-        LocalDate firstExpiry = LocalDate.now().plusDays(6);
-        List<LocalDate> expiryDates = new ArrayList<>();
+        LocalDate today = LocalDate.now();
+        List<LocalDate> expiryDates = expiryDates(today);
 
-        LocalDate expiry = firstExpiry;
-        while (!expiry.isAfter(firstExpiry.plusDays(30))) {
-            expiryDates.add(expiry);
-            expiry = expiry.plusDays(6);
-        }
-
-        for (int i = 1; i <= 6; i++) {
-            expiryDates.add(expiry.plusDays((long) (i - 1) * 30));
+        // ceo lanac se cene u jednom prolazu kroz nizove, redom call pa put za svaki strike
+        OptionPricing.Chain chain = new OptionPricing.Chain(expiryDates.size() * strikes * 2);
+        int i = 0;
+        for (LocalDate exp : expiryDates) {
+            double years = yearsUntil(today, exp);
+            for (int strike = lowerBound; strike <= upperBound; strike++) {
+                for (int side = 0; side < 2; side++, i++) {
+                    chain.strike[i] = strike;
+                    chain.years[i] = years;
+                    chain.volatility[i] = DEFAULT_IMPLIED_VOLATILITY;
+                    chain.call[i] = side == 0;
+                }
+            }
         }
+        OptionPricing.price(chain, currentPrice.doubleValue(), RISK_FREE_RATE);
 
-        BigDecimal margin = currentPrice.multiply(new BigDecimal("50"));
+        BigDecimal margin = maintenanceMargin(currentPrice);
+        BigDecimal impliedVolatility = BigDecimal.valueOf(DEFAULT_IMPLIED_VOLATILITY);
 
+        List<OptionDto> options = new ArrayList<>(chain.size);
+        i = 0;
         for (LocalDate exp : expiryDates) {
             for (int strike = lowerBound; strike <= upperBound; strike++) {
-                BigDecimal strikePrice = BigDecimal.valueOf(strike);
-                long daysUntilExpiry = LocalDate.now().until(exp).getDays();
-
-                OptionDto callOption = createOption(stockListing, OptionType.CALL, currentPrice, strikePrice, exp, margin, daysUntilExpiry);
-                options.add(callOption);
-
-                OptionDto putOption = createOption(stockListing, OptionType.PUT, currentPrice, strikePrice, exp, margin, daysUntilExpiry);
-                options.add(putOption);
+                for (int side = 0; side < 2; side++, i++) {
+                    OptionDto option = new OptionDto();
+                    option.setStockListing(stockListing);
+                    option.setOptionType(chain.call[i] ? OptionType.CALL : OptionType.PUT);
+                    option.setStrikePrice(BigDecimal.valueOf(strike));
+                    option.setContractSize(CONTRACT_SIZE);
+                    option.setSettlementDate(exp);
+                    option.setMaintenanceMargin(margin);
+                    option.setPrice(toPrice(chain.price[i]));
+                    option.setImpliedVolatility(impliedVolatility);
+                    option.setTicker(ticker(stockListing, exp, chain.call[i], strike));
+                    options.add(option);
+                }
             }
         }
         return options;
     }
 
-    private OptionDto createOption(String stockListing, OptionType type, BigDecimal currentPrice,
-                                   BigDecimal strikePrice, LocalDate expiry, BigDecimal margin, long daysUntilExpiry) {
-        OptionDto option = new OptionDto();
-        option.setStockListing(stockListing);
-        option.setOptionType(type);
-        option.setStrikePrice(strikePrice);
-        option.setContractSize(BigDecimal.valueOf(100));
-        option.setSettlementDate(expiry);
-        option.setMaintenanceMargin(margin);
-        option.setPrice(calculateOptionPrice(type, currentPrice, strikePrice, daysUntilExpiry));
-
-        String ticker = stockListing + expiry.getYear() % 100 +
-                String.format("%02d", expiry.getMonthValue()) +
-                String.format("%02d", expiry.getDayOfMonth()) +
-                (type == OptionType.CALL ? "C" : "P") +
-                String.format("%08d", strikePrice.multiply(BigDecimal.valueOf(100)).intValue());
-        option.setTicker(ticker);
-
-        return option;
+    /**
+     * Prices the stored chain of a stock (optionally a single expiry) from each contract's implied volatility
+     * and the current price of the underlying.
+     */
+    @Transactional(readOnly = true)
+    public List<OptionChainEntryDto> getOptionChain(Long stockId, LocalDate settlementDate) {
+        List<Option> options = settlementDate == null
+                ? optionRepository.findAllByUnderlyingStockIdOrderBySettlementDateAscStrikePriceAsc(stockId)
+                : optionRepository.findByUnderlyingStockIdAndSettlementDate(stockId, settlementDate);
+        if (options.isEmpty()) return List.of();
+
+        LocalDate today = LocalDate.now();
+        OptionPricing.Chain chain = new OptionPricing.Chain(options.size());
+        for (int i = 0; i < options.size(); i++) {
+            Option option = options.get(i);
+            chain.strike[i] = option.getStrikePrice().doubleValue();
+            chain.years[i] = yearsUntil(today, option.getSettlementDate());
+            chain.volatility[i] = volatility(option.getImpliedVolatility());
+            chain.call[i] = option.getOptionType() == OptionType.CALL;
+        }
+        OptionPricing.price(chain, options.get(0).getUnderlyingStock().getPrice().doubleValue(), RISK_FREE_RATE);
+
+        List<OptionChainEntryDto> entries = new ArrayList<>(chain.size);
+        for (int i = 0; i < options.size(); i++) {
+            Option option = options.get(i);
+            entries.add(OptionChainEntryDto.builder()
+                    .listingId(option.getId())
+                    .ticker(option.getTicker())
+                    .optionType(option.getOptionType())
+                    .strikePrice(option.getStrikePrice())
+                    .settlementDate(option.getSettlementDate())
+                    .impliedVolatility(option.getImpliedVolatility())
+                    .price(option.getPrice())
+                    .theoreticalPrice(toPrice(chain.price[i]))
+                    .delta(chain.delta[i])
+                    .gamma(chain.gamma[i])
+                    .vega(chain.vega[i])
+                    .theta(chain.theta[i])
+                    .rho(chain.rho[i])
+                    .onSale(option.isOnSale())
+                    .build());
+        }
+        return entries;
     }
 
-    private BigDecimal calculateOptionPrice(OptionType type, BigDecimal currentPrice, BigDecimal strikePrice, long daysUntilExpiry) {
-        BigDecimal timeValue = currentPrice.multiply(BigDecimal.valueOf(0.05))
-                .multiply(BigDecimal.valueOf(Math.sqrt((double) daysUntilExpiry / 365)));
-
-        BigDecimal optionPrice;
-        if (type == OptionType.CALL) {
-            BigDecimal intrinsicValue = currentPrice.subtract(strikePrice).max(BigDecimal.ZERO);
-            optionPrice = intrinsicValue.add(timeValue);
-        } else if (type == OptionType.PUT) {
-            BigDecimal intrinsicValue = strikePrice.subtract(currentPrice).max(BigDecimal.ZERO);
-            optionPrice = intrinsicValue.add(timeValue);
-        } else {
-            return BigDecimal.ZERO;
+    /**
+     * Expiries on a fixed calendar: the next {@link #WEEKLY_EXPIRIES} Fridays, then the monthly third Fridays after
+     * them. The dates only change when a Friday passes, so daily chain refreshes add contracts at the same rate
+     * old ones expire instead of a new set of expiries every day.
+     */
+    private List<LocalDate> expiryDates(LocalDate today) {
+        List<LocalDate> expiryDates = new ArrayList<>(WEEKLY_EXPIRIES + MONTHLY_EXPIRIES);
+
+        LocalDate expiry = today.with(TemporalAdjusters.next(DayOfWeek.FRIDAY));
+        for (int i = 0; i < WEEKLY_EXPIRIES; i++, expiry = expiry.plusWeeks(1))
+            expiryDates.add(expiry);
+
+        LocalDate lastWeekly = expiryDates.get(expiryDates.size() - 1);
+        YearMonth month = YearMonth.from(lastWeekly);
+        while (expiryDates.size() < WEEKLY_EXPIRIES + MONTHLY_EXPIRIES) {
+            LocalDate thirdFriday = month.atDay(1).with(TemporalAdjusters.dayOfWeekInMonth(3, DayOfWeek.FRIDAY));
+            if (thirdFriday.isAfter(lastWeekly)) expiryDates.add(thirdFriday);
+            month = month.plusMonths(1);
         }
+        return expiryDates;
+    }
+
+    static double yearsUntil(LocalDate today, LocalDate expiry) {
+        return ChronoUnit.DAYS.between(today, expiry) / 365.0;
+    }
 
+    static double volatility(BigDecimal impliedVolatility) {
+        return impliedVolatility == null ? DEFAULT_IMPLIED_VOLATILITY : impliedVolatility.doubleValue();
+    }
+
+    static BigDecimal maintenanceMargin(BigDecimal stockPrice) {
+        return stockPrice.multiply(new BigDecimal("50"));
+    }
+
+    static BigDecimal toPrice(double price) {
         // Ovo je fallback da ne bi imali 0.00 za svaki slucaj zbog ovih kalkulacija
-        if (optionPrice.compareTo(BigDecimal.valueOf(0.01)) < 0) {
-            return BigDecimal.valueOf(0.01);
-        }
+        BigDecimal rounded = BigDecimal.valueOf(price).setScale(2, RoundingMode.HALF_UP);
+        return rounded.compareTo(MIN_PRICE) < 0 ? MIN_PRICE : rounded;
+    }
 
-        return optionPrice.setScale(2, RoundingMode.HALF_UP);
+    // npr. AAPL260101C00015000: simbol, datum isteka yyMMdd, C/P i strike u centima na 8 cifara
+    private static String ticker(String stockListing, LocalDate expiry, boolean call, int strike) {
+        StringBuilder ticker = new StringBuilder(stockListing.length() + 15).append(stockListing);
+        ticker.append(expiry.getYear() % 100);
+        appendPadded(ticker, expiry.getMonthValue(), 2);
+        appendPadded(ticker, expiry.getDayOfMonth(), 2);
+        ticker.append(call ? 'C' : 'P');
+        appendPadded(ticker, strike * 100L, 8);
+        return ticker.toString();
+    }
+
+    // isto sto i String.format("%0<width>d", value), bez parsiranja formata
+    private static void appendPadded(StringBuilder builder, long value, int width) {
+        String digits = Long.toString(Math.abs(value));
+        if (value < 0) {
+            builder.append('-');
+            width--;
+        }
+        for (int pad = width - digits.length(); pad > 0; pad--) builder.append('0');
+        builder.append(digits);
     }
 
     public OptionDto getOptionByTicker(String ticker) {
@@ -0,0 +1,145 @@
+package rs.raf.stock_service.service;
+
+import rs.raf.stock_service.domain.entity.Order;
+import rs.raf.stock_service.domain.enums.OrderDirection;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * Order book for a single listing. Resting orders wait in FIFO queues per price level,
+ * bids sorted from the highest price and asks from the lowest (price-time priority).
+ */
+public class OrderBook {
+
+    /**
+     * Called for every match, outside the book lock. The handler settles the fill and reduces the resting order's
+     * remainingPortions; returning false stops matching. A handler that cannot settle a resting order removes it
+     * from the book and returns true, so matching continues with the next one.
+     */
+    @FunctionalInterface
+    public interface FillHandler {
+        boolean onFill(Order resting, int quantity, BigDecimal price);
+    }
+
+    private final NavigableMap<BigDecimal, Deque<Order>> bids = new TreeMap<>(Comparator.reverseOrder());
+    private final NavigableMap<BigDecimal, Deque<Order>> asks = new TreeMap<>();
+    private final Map<Long, Order> ordersById = new HashMap<>();
+    // level price is kept separately because pricePerUnit may be improved once a resting order is triggered
+    private final Map<Long, BigDecimal> levelById = new HashMap<>();
+
+    public synchronized void add(Order order) {
+        if (ordersById.putIfAbsent(order.getId(), order) != null) return;
+        levelById.put(order.getId(), order.getPricePerUnit());
+        side(order.getDirection())
+                .computeIfAbsent(order.getPricePerUnit(), price -> new ArrayDeque<>())
+                .addLast(order);
+    }
+
+    public synchronized Order remove(Long orderId) {
+        Order order = ordersById.remove(orderId);
+        if (order == null) return null;
+
+        BigDecimal levelPrice = levelById.remove(orderId);
+        NavigableMap<BigDecimal, Deque<Order>> side = side(order.getDirection());
+        Deque<Order> level = side.get(levelPrice);
+        if (level != null) {
+            level.removeIf(o -> Objects.equals(o.getId(), orderId));
+            if (level.isEmpty()) side.remove(levelPrice);
+        }
+        return order;
+    }
+
+    /**
+     * Matches the incoming order against the opposite side up to the given quantity, as long as the level price
+     * is not worse than the limit. Fills happen at the resting order's price; orders of the same user are skipped.
+     * <p>
+     * The fills are collected under the book lock and handed to the handler after it is released, so settlement
+     * (database writes, bank calls) never blocks other readers of the book. Callers must not modify the same book
+     * concurrently; {@link ListingExecutionLanes} runs all order work of a listing on one thread.
+     *
+     * @return matched quantity
+     */
+    public int match(Order incoming, int quantity, BigDecimal limit, FillHandler handler) {
+        int matched = 0;
+        boolean skipped = true;
+        // fill-ovi se skupljaju samo do trazene kolicine; ako je neki preskocen, skupljaju se ponovo sa dubljih nivoa
+        while (skipped && matched < quantity) {
+            skipped = false;
+            for (Fill fill : collectFills(incoming, quantity - matched, limit)) {
+                Order resting = fill.resting();
+                // nalog je mogao biti uklonjen iz knjige posle skupljanja fill-ova
+                if (!contains(resting.getId())) {
+                    skipped = true;
+                    continue;
+                }
+                int fillQuantity = Math.min(fill.quantity(), resting.getRemainingPortions());
+                if (fillQuantity <= 0) continue;
+
+                int before = resting.getRemainingPortions();
+                if (!handler.onFill(resting, fillQuantity, fill.price())) return matched;
+                int filled = before - resting.getRemainingPortions();
+                matched += filled;
+
+                if (resting.getRemainingPortions() <= 0)
+                    remove(resting.getId());
+                else if (filled < fillQuantity) {
+                    // handler nije izmirio nalog; ako ga je izbacio iz knjige nastavlja se, inace nema napretka
+                    if (contains(resting.getId())) return matched;
+                    skipped = true;
+                }
+            }
+        }
+        return matched;
+    }
+
+    private synchronized List<Fill> collectFills(Order incoming, int quantity, BigDecimal limit) {
+        NavigableMap<BigDecimal, Deque<Order>> opposite = incoming.getDirection() == OrderDirection.BUY ? asks : bids;
+        List<Fill> fills = new ArrayList<>();
+        int collected = 0;
+
+        for (Map.Entry<BigDecimal, Deque<Order>> level : opposite.entrySet()) {
+            if (collected >= quantity || !crosses(incoming.getDirection(), level.getKey(), limit)) break;
+
+            for (Order resting : level.getValue()) {
+                if (collected >= quantity) break;
+                if (Objects.equals(resting.getUserId(), incoming.getUserId())) continue;
+
+                int fill = Math.min(quantity - collected, resting.getRemainingPortions());
+                fills.add(new Fill(resting, fill, level.getKey()));
+                collected += fill;
+            }
+        }
+        return fills;
+    }
+
+    public synchronized boolean contains(Long orderId) {
+        return ordersById.containsKey(orderId);
+    }
+
+    public synchronized BigDecimal bestBid() {
+        return bids.isEmpty() ? null : bids.firstKey();
+    }
+
+    public synchronized BigDecimal bestAsk() {
+        return asks.isEmpty() ? null : asks.firstKey();
+    }
+
+    public synchronized int size() {
+        return ordersById.size();
+    }
+
+    private NavigableMap<BigDecimal, Deque<Order>> side(OrderDirection direction) {
+        return direction == OrderDirection.BUY ? bids : asks;
+    }
+
+    private boolean crosses(OrderDirection direction, BigDecimal levelPrice, BigDecimal limit) {
+        if (limit == null) return true;
+        return direction == OrderDirection.BUY
+                ? levelPrice.compareTo(limit) <= 0
+                : levelPrice.compareTo(limit) >= 0;
+    }
+
+    private record Fill(Order resting, int quantity, BigDecimal price) {
+    }
+}
@@ -0,0 +1,105 @@
+package rs.raf.stock_service.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import rs.raf.stock_service.domain.entity.Order;
+import rs.raf.stock_service.domain.entity.OrderExecutionTask;
+import rs.raf.stock_service.domain.enums.OrderExecutionTaskStatus;
+import rs.raf.stock_service.repository.OrderExecutionTaskRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Database backed queue of order executions. Orders are enqueued once they should execute and are
+ * consumed by {@link OrderExecutionWorker}s. Tasks survive restarts and are delivered at least once.
+ * <p>
+ * Only the queue is shared through the database. The order books ({@link MatchingEngine}) and the trigger
+ * index ({@link OrderTriggerIndex}) live in the memory of one instance, so stock-service has to run as a
+ * single instance; a second one would match and trigger the same orders.
+ */
+@Slf4j
+@Service
+public class OrderExecutionQueue {
+
+    private static final List<OrderExecutionTaskStatus> OPEN_STATUSES =
+            List.of(OrderExecutionTaskStatus.QUEUED, OrderExecutionTaskStatus.RUNNING);
+
+    private final OrderExecutionTaskRepository taskRepository;
+    private final long leaseSeconds;
+    private final int maxAttempts;
+    private final long afterHoursDelaySeconds;
+
+    public OrderExecutionQueue(OrderExecutionTaskRepository taskRepository,
+                               @Value("${order.execution.lease.seconds:300}") long leaseSeconds,
+                               @Value("${order.execution.max.attempts:5}") int maxAttempts,
+                               @Value("${order.execution.after.hours.delay.seconds:300}") long afterHoursDelaySeconds) {
+        this.taskRepository = taskRepository;
+        this.leaseSeconds = leaseSeconds;
+        this.maxAttempts = maxAttempts;
+        this.afterHoursDelaySeconds = afterHoursDelaySeconds;
+    }
+
+    /**
+     * Enqueues the order unless it already has a queued or running task. After-hours orders become available later.
+     */
+    public void enqueue(Order order) {
+        if (taskRepository.existsByOrderIdAndStatusIn(order.getId(), OPEN_STATUSES)) return;
+
+        LocalDateTime availableAt = LocalDateTime.now();
+        if (Boolean.TRUE.equals(order.getAfterHours()))
+            availableAt = availableAt.plusSeconds(afterHoursDelaySeconds);
+
+        taskRepository.save(OrderExecutionTask.builder()
+                .orderId(order.getId())
+                .listingId(order.getListing().getId())
+                .status(OrderExecutionTaskStatus.QUEUED)
+                .attempts(0)
+                .availableAt(availableAt)
+                .build());
+    }
+
+    /**
+     * Claims up to {@code limit} available tasks, including running tasks whose lease has expired.
+     */
+    @Transactional
+    public List<OrderExecutionTask> claim(String workerId, int limit) {
+        if (limit <= 0) return List.of();
+
+        LocalDateTime now = LocalDateTime.now();
+        List<OrderExecutionTask> tasks = taskRepository.findClaimable(now, limit);
+        for (OrderExecutionTask task : tasks) {
+            task.setStatus(OrderExecutionTaskStatus.RUNNING);
+            task.setLockedBy(workerId);
+            task.setLockedUntil(now.plusSeconds(leaseSeconds));
+            task.setAttempts(task.getAttempts() + 1);
+        }
+        return taskRepository.saveAll(tasks);
+    }
+
+    public void complete(OrderExecutionTask task) {
+        task.setStatus(OrderExecutionTaskStatus.DONE);
+        task.setLockedUntil(null);
+        taskRepository.save(task);
+    }
+
+    /**
+     * Puts the task back with a linear backoff, or marks it failed after the maximum number of attempts.
+     */
+    public void fail(OrderExecutionTask task, Exception e) {
+        task.setLastError(e.getMessage() == null ? e.getClass().getSimpleName()
+                : e.getMessage().substring(0, Math.min(e.getMessage().length(), 1000)));
+        task.setLockedUntil(null);
+
+        if (task.getAttempts() >= maxAttempts) {
+            task.setStatus(OrderExecutionTaskStatus.FAILED);
+            log.error("Order {} execution failed after {} attempts", task.getOrderId(), task.getAttempts(), e);
+        } else {
+            task.setStatus(OrderExecutionTaskStatus.QUEUED);
+            task.setAvailableAt(LocalDateTime.now().plusSeconds(5L * task.getAttempts()));
+        }
+        taskRepository.save(task);
+    }
+}
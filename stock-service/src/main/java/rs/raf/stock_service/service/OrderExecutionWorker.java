@@ -0,0 +1,64 @@
+package rs.raf.stock_service.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import rs.raf.stock_service.domain.entity.Order;
+import rs.raf.stock_service.domain.entity.OrderExecutionTask;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Polls the {@link OrderExecutionQueue} and executes claimed orders on the {@link ListingExecutionLanes},
+ * so orders of the same listing are executed one at a time and in claim order.
+ * At most {@code batchSize} claimed tasks are in flight at once, so work never piles up in memory.
+ */
+@Slf4j
+@Component
+public class OrderExecutionWorker {
+
+    private final OrderExecutionQueue orderExecutionQueue;
+    private final OrderService orderService;
+    private final ListingExecutionLanes executionLanes;
+    private final int batchSize;
+    private final String workerId = UUID.randomUUID().toString();
+
+    public OrderExecutionWorker(OrderExecutionQueue orderExecutionQueue, OrderService orderService,
+                                ListingExecutionLanes executionLanes,
+                                @Value("${order.execution.batch.size:20}") int batchSize) {
+        this.orderExecutionQueue = orderExecutionQueue;
+        this.orderService = orderService;
+        this.executionLanes = executionLanes;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${order.execution.poll.interval.ms:500}")
+    public void poll() {
+        List<OrderExecutionTask> tasks = orderExecutionQueue.claim(workerId, batchSize - executionLanes.inFlight());
+
+        for (OrderExecutionTask task : tasks) {
+            executionLanes.submit(task.getListingId(), () -> run(task));
+        }
+    }
+
+    void run(OrderExecutionTask task) {
+        try {
+            orderService.executeOrder(task.getOrderId());
+            orderExecutionQueue.complete(task);
+        } catch (ObjectOptimisticLockingFailureException e) {
+            if (Order.class.getName().equals(e.getPersistentClassName())) {
+                // nalog je izmenjen u medjuvremenu; fill-ovi su sacuvani, pa ponovni pokusaj krece od svezeg stanja
+                orderExecutionQueue.fail(task, e);
+                return;
+            }
+            log.warn("Task {} for order {} was reclaimed by another worker", task.getId(), task.getOrderId());
+        } catch (RuntimeException e) {
+            // the lane counts and logs the failure
+            orderExecutionQueue.fail(task, e);
+            throw e;
+        }
+    }
+}
@@ -1,9 +1,11 @@
 package rs.raf.stock_service.service;
 
 import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import rs.raf.stock_service.client.BankClient;
@@ -14,6 +16,7 @@ import rs.raf.stock_service.domain.enums.OrderDirection;
 import rs.raf.stock_service.domain.enums.OrderStatus;
 import rs.raf.stock_service.domain.enums.OrderType;
 import rs.raf.stock_service.domain.enums.TaxStatus;
+import rs.raf.stock_service.domain.event.ListingPriceChangedEvent;
 import rs.raf.stock_service.domain.mapper.ListingMapper;
 import rs.raf.stock_service.domain.mapper.OrderMapper;
 import rs.raf.stock_service.exceptions.*;
@@ -27,9 +30,12 @@ import rs.raf.stock_service.utils.JwtTokenUtil;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.Random;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
 
+@Slf4j
 @Service
 @AllArgsConstructor
 public class OrderService {
@@ -44,15 +50,22 @@ public class OrderService {
     private TransactionRepository transactionRepository;
     private final PortfolioService portfolioService;
     private PortfolioEntryRepository portfolioEntryRepository;
+    private final MatchingEngine matchingEngine;
+    private final OrderTriggerIndex orderTriggerIndex;
+    private final OrderExecutionQueue orderExecutionQueue;
+    private final LatestPriceCache latestPriceCache;
+    private final ListingExecutionLanes executionLanes;
 
     public Page<OrderDto> getOrdersByStatus(OrderStatus status, Pageable pageable) {
         Page<Order> ordersPage = (status == null)
                 ? orderRepository.findAll(pageable)
                 : orderRepository.findByStatus(status, pageable);
 
+        Map<Long, ListingPriceHistory> latest = latestPriceCache.getLatest(
+                ordersPage.getContent().stream().map(Order::getListing).toList());
+
         return ordersPage.map(order -> {
-            ListingDto listingDto = listingMapper.toDto(order.getListing(),
-                    listingPriceHistoryRepository.findTopByListingOrderByDateDesc(order.getListing()));
+            ListingDto listingDto = toListingDto(order.getListing(), latest);
             String clientName = getClientName(order);
             return OrderMapper.toDto(order, listingDto, clientName, order.getAccountNumber());
         });
@@ -69,9 +82,11 @@ public class OrderService {
             throw new UnauthorizedException("Unauthorized attempt at getting user's orders.");
         }
 
+        Map<Long, ListingPriceHistory> latest = latestPriceCache.getLatest(
+                ordersList.stream().map(Order::getListing).toList());
+
         return ordersList.stream().map(order -> {
-            ListingDto listingDto = listingMapper.toDto(order.getListing(),
-                    listingPriceHistoryRepository.findTopByListingOrderByDateDesc(order.getListing()));
+            ListingDto listingDto = toListingDto(order.getListing(), latest);
             String clientName = getClientName(order);
             return OrderMapper.toDto(order, listingDto, clientName, order.getAccountNumber());
         }).toList();
@@ -80,13 +95,19 @@ public class OrderService {
     public List<OrderDto> getAllOrders() {
         List<Order> orders = orderRepository.findAllByDirection(OrderDirection.SELL);
 
+        Map<Long, ListingPriceHistory> latest = latestPriceCache.getLatest(
+                orders.stream().map(Order::getListing).toList());
+
         return orders.stream().map(order -> {
-            ListingDto listingDto = listingMapper.toDto(order.getListing(),
-                    listingPriceHistoryRepository.findTopByListingOrderByDateDesc(order.getListing()));
+            ListingDto listingDto = toListingDto(order.getListing(), latest);
             return OrderMapper.toDto(order, listingDto, "", order.getAccountNumber());
         }).collect(Collectors.toList());
     }
 
+    private ListingDto toListingDto(Listing listing, Map<Long, ListingPriceHistory> latest) {
+        return listingMapper.toDto(listing, listing == null ? null : latest.get(listing.getId()));
+    }
+
     private String getClientName(Order order) {
         try {
             ClientDto client = userClient.getClientById(order.getUserId());
@@ -113,11 +134,9 @@ public class OrderService {
                 .orElseThrow(() -> new OrderNotFoundException(id));
 
         if (order.getUserId().equals(userId) || role.equalsIgnoreCase("SUPERVISOR") || role.equalsIgnoreCase("ADMIN")) {
-            if (!order.getIsDone() && (order.getStatus().equals(OrderStatus.PENDING) || order.getStatus().equals(OrderStatus.APPROVED))) {
-                order.setStatus(OrderStatus.CANCELLED);
-                order.setLastModification(LocalDateTime.now());
-
-                orderRepository.save(order);
+            if (isCancellable(order)) {
+                // otkazivanje ide kroz traku listinga, da se ne preplete sa fill-om istog naloga
+                await(executionLanes.submit(order.getListing().getId(), () -> cancel(id)));
             } else {
                 throw new CantCancelOrderInCurrentOrderState(id);
             }
@@ -126,6 +145,25 @@ public class OrderService {
         }
     }
 
+    private void cancel(Long id) {
+        Order order = orderRepository.findById(id)
+                .orElseThrow(() -> new OrderNotFoundException(id));
+        // nalog je mozda izvrsen dok je otkazivanje cekalo na traci
+        if (!isCancellable(order))
+            throw new CantCancelOrderInCurrentOrderState(id);
+
+        matchingEngine.remove(order);
+        orderTriggerIndex.remove(order);
+        order.setStatus(OrderStatus.CANCELLED);
+        order.setLastModification(LocalDateTime.now());
+
+        save(order);
+    }
+
+    private boolean isCancellable(Order order) {
+        return !order.getIsDone() && (order.getStatus().equals(OrderStatus.PENDING) || order.getStatus().equals(OrderStatus.APPROVED));
+    }
+
     public void approveOrder(Long id, String authHeader) {
         Order order = orderRepository.findById(id)
                 .orElseThrow(() -> new OrderNotFoundException(id));
@@ -143,10 +181,10 @@ public class OrderService {
         order.setApprovedBy(userId);
         order.setLastModification(LocalDateTime.now());
 
-        orderRepository.save(order);
+        save(order);
 
-        if(order.getOrderType() == OrderType.MARKET)
-            executeOrder(order);
+        if (order.getStatus() == OrderStatus.APPROVED)
+            activateOrder(order);
     }
 
     public void declineOrder(Long id, String authHeader) {
@@ -158,7 +196,7 @@ public class OrderService {
         order.setStatus(OrderStatus.DECLINED);
         order.setApprovedBy(jwtTokenUtil.getUserIdFromAuthHeader(authHeader));
         order.setLastModification(LocalDateTime.now());
-        orderRepository.save(order);
+        save(order);
     }
 
     public OrderDto createOrder(CreateOrderDto createOrderDto, String authHeader) {
@@ -239,10 +277,10 @@ public class OrderService {
         }
 
 
-        orderRepository.save(order);
+        save(order);
 
-        if (order.getOrderType() == OrderType.MARKET && order.getStatus() == OrderStatus.APPROVED)
-            executeOrder(order);
+        if (order.getStatus() == OrderStatus.APPROVED)
+            activateOrder(order);
 
         ListingDto listingDto = listingMapper.toDto(listing,
                 listingPriceHistoryRepository.findTopByListingOrderByDateDesc(listing));
@@ -252,6 +290,30 @@ public class OrderService {
         return OrderMapper.toDto(order, listingDto, clientName, order.getAccountNumber());
     }
 
+    private void activateOrder(Order order) {
+        if (order.getOrderType() == OrderType.MARKET) {
+            orderExecutionQueue.enqueue(order);
+            return;
+        }
+
+        // postavljanje u knjigu moze odmah da upari nalog, pa i ono ide kroz traku listinga;
+        // ceka se da bi odgovor vec sadrzao te fill-ove
+        await(executionLanes.submit(order.getListing().getId(), () -> {
+            if (order.getOrderType() == OrderType.LIMIT)
+                placeLimitOrder(order);
+            orderTriggerIndex.add(order);
+        }));
+    }
+
+    private static void await(CompletableFuture<Void> task) {
+        try {
+            task.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) throw runtime;
+            throw e;
+        }
+    }
+
     private boolean updateAvailableBalance(Order order, BigDecimal amount) {
         if(order.getDirection() == OrderDirection.SELL)
             return true;
@@ -281,71 +343,160 @@ public class OrderService {
         return amount.add(amount.multiply(commissionPercentage).min(commissionMax));
     }
 
-    @Async
+    public void executeOrder(Long orderId) {
+        Order order = orderRepository.findById(orderId)
+                .orElseThrow(() -> new OrderNotFoundException(orderId));
+        executeOrder(order);
+    }
+
     public void executeOrder(Order order) {
-        if (order.getIsDone() || order.getStatus() != OrderStatus.APPROVED) return; //better safe than sorry
-        order.setStatus(OrderStatus.PROCESSING);
-        orderRepository.save(order);
+        // nalog izlazi iz knjige; svaki fill se cuva odmah, pa je primerak ucitan iz baze azuran
+        matchingEngine.remove(order);
 
-        long volume = 1000000;
-        if(order.getListing() instanceof Stock){
-            volume = Math.max(200000, ((Stock) order.getListing()).getVolume());
+        //better safe than sorry; PROCESSING znaci da je prethodni pokusaj prekinut pa nastavljamo od remainingPortions
+        if (order.getIsDone() || (order.getStatus() != OrderStatus.APPROVED && order.getStatus() != OrderStatus.PROCESSING))
+            return;
+        order.setStatus(OrderStatus.PROCESSING);
+        save(order);
+
+        // fill koji nije potvrdjen je prekinut izmedju upisa i odgovora banke; ne naplacuje se ponovo
+        long unsettled = order.getTransactions() == null ? 0
+                : order.getTransactions().stream().filter(transaction -> !transaction.isSettled()).count();
+        if (unsettled > 0)
+            log.warn("Order {} resumed with {} fill(s) whose bank charge was not confirmed, leaving them for reconciliation",
+                    order.getId(), unsettled);
+
+        // trzisni i stop nalog se izvrsavaju po trenutnoj ceni listinga, ne po ceni kotiranoj pri kreiranju
+        if (order.getOrderType() == OrderType.MARKET || order.getOrderType() == OrderType.STOP) {
+            BigDecimal currentPrice = currentPrice(order);
+            if (currentPrice != null && currentPrice.compareTo(order.getPricePerUnit()) != 0) {
+                order.setPricePerUnit(currentPrice);
+                save(order);
+            }
         }
 
-        BigDecimal spentAmount = BigDecimal.ZERO;
-        if (order.isAllOrNone()){
-            spentAmount = spentAmount.add(executeTransaction(order, order.getRemainingPortions(), volume));
-        } else {
-            Random random = new Random();
+        // prvo uparujemo sa nalozima iz knjige po ceni koja nije losija od kotirane, ostatak ide po kotiranoj ceni
+        matchingEngine.match(order, order.getPricePerUnit(),
+                (restingOrder, quantity, price) -> settleMatch(order, restingOrder, quantity, price));
 
-            while (order.getRemainingPortions() > 0) {
-                spentAmount = spentAmount.add(executeTransaction(order,
-                        random.nextInt(1, order.getRemainingPortions() + 1), volume));
-                orderRepository.save(order);
-            }
-        }
+        if (order.getRemainingPortions() > 0)
+            recordFill(order, order.getRemainingPortions(), order.getPricePerUnit());
 
         //Extreme edge case PARTIAL: account nije u dolarima, a exhange rate se promenio i
         // stime trosak ispada vise od rezervisanog pa se obustavlja
-        order.setStatus(order.getRemainingPortions() == 0? OrderStatus.DONE : OrderStatus.PARTIAL);
-        order.setIsDone(true);
-        orderRepository.save(order);
+        finishOrder(order);
+    }
 
-        //finalna azuriranja sredstava
-        if(order.getDirection() == OrderDirection.BUY){
-            BigDecimal priceWithCommission = order.getRole().equals("CLIENT") ?
-                    priceWithCommission(order.getOrderType(), spentAmount) : spentAmount;
+    private void placeLimitOrder(Order order) {
+        matchingEngine.match(order, order.getPricePerUnit(),
+                (restingOrder, quantity, price) -> settleMatch(order, restingOrder, quantity, price));
 
-            updateBalance(order, priceWithCommission.subtract(spentAmount));
-            updateAvailableBalance(order, priceWithCommission.subtract(order.getReservedAmount()));
+        if (order.getRemainingPortions() == 0) {
+            finishOrder(order);
+            return;
         }
 
-        portfolioService.updateHoldingsOnOrderExecution(order);
+        matchingEngine.rest(order);
     }
 
-    private BigDecimal executeTransaction(Order order, int batchSize, long volume){
-        Long extraTime = order.getAfterHours() ? 300000L : 0L;
-        Random random = new Random();
+    private boolean settleMatch(Order incoming, Order resting, int quantity, BigDecimal price) {
+        Order buyer = incoming.getDirection() == OrderDirection.BUY ? incoming : resting;
+        Order seller = buyer == incoming ? resting : incoming;
 
-        try {
-            Double randomTime = random.nextDouble(0, 1440.0 * order.getRemainingPortions() / volume) * 1000;
-            Thread.sleep(randomTime.longValue() + extraTime);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
+        // samo neuspeh dolaznog naloga prekida uparivanje; nalog iz knjige koji banka odbije izlazi iz knjige
+        if (buyer == incoming) {
+            if (!recordFill(buyer, quantity, price)) return false;
+        } else if (!chargeResting(buyer, quantity, price)) {
+            return true;
         }
+        recordFill(seller, quantity, price);
+
+        if (resting.getRemainingPortions() == 0)
+            finishOrder(resting);
+
+        return true;
+    }
 
-        BigDecimal totalPrice = BigDecimal.valueOf(batchSize).multiply(order.getPricePerUnit()).multiply(BigDecimal.valueOf(order.getContractSize()));
+    private boolean chargeResting(Order resting, int quantity, BigDecimal price) {
+        try {
+            if (recordFill(resting, quantity, price)) return true;
+            log.warn("Resting order {} could not be charged, removing it from the book", resting.getId());
+        } catch (RuntimeException e) {
+            log.warn("Charging resting order {} failed, removing it from the book", resting.getId(), e);
+        }
+        // ostaje u indeksu okidaca, pa se izvrsava po kotiranoj ceni kada je cena ponovo ukrsti
+        matchingEngine.remove(resting);
+        return false;
+    }
 
-        if(order.getDirection() == OrderDirection.BUY && !updateBalance(order, totalPrice)) return BigDecimal.ZERO;
+    private BigDecimal currentPrice(Order order) {
+        Listing listing = order.getListing();
+        if (order.getDirection() == OrderDirection.BUY && listing.getAsk() != null)
+            return listing.getAsk();
+        return listing.getPrice();
+    }
 
-        Transaction transaction = new Transaction(batchSize, order.getPricePerUnit(), totalPrice, order);
+    /**
+     * Records a fill and, for a buy, charges the account. The fill and the reduced remainingPortions are saved before
+     * the bank is called, so a redelivered execution task never fills (and charges) the same portion twice. If the
+     * bank refuses or fails, the fill is taken back.
+     */
+    private boolean recordFill(Order order, int quantity, BigDecimal pricePerUnit) {
+        BigDecimal totalPrice = BigDecimal.valueOf(quantity).multiply(pricePerUnit).multiply(BigDecimal.valueOf(order.getContractSize()));
+        boolean charge = order.getDirection() == OrderDirection.BUY;
+
+        Transaction transaction = new Transaction(quantity, pricePerUnit, totalPrice, order);
+        transaction.setSettled(!charge);
         transactionRepository.save(transaction);
 
         order.getTransactions().add(transaction);
         order.setLastModification(LocalDateTime.now());
-        order.setRemainingPortions(order.getRemainingPortions() - batchSize);
+        order.setRemainingPortions(order.getRemainingPortions() - quantity);
+        save(order);
+
+        if (!charge) return true;
+
+        try {
+            if (!updateBalance(order, totalPrice)) {
+                revertFill(order, transaction);
+                return false;
+            }
+        } catch (RuntimeException e) {
+            revertFill(order, transaction);
+            throw e;
+        }
 
-        return totalPrice;
+        transaction.setSettled(true);
+        save(order);
+        return true;
+    }
+
+    private void revertFill(Order order, Transaction transaction) {
+        order.getTransactions().remove(transaction);
+        order.setRemainingPortions(order.getRemainingPortions() + transaction.getQuantity());
+        save(order);
+        transactionRepository.delete(transaction);
+    }
+
+    private void finishOrder(Order order) {
+        order.setStatus(order.getRemainingPortions() == 0 ? OrderStatus.DONE : OrderStatus.PARTIAL);
+        order.setIsDone(true);
+        save(order);
+        orderTriggerIndex.remove(order);
+
+        //finalna azuriranja sredstava
+        if (order.getDirection() == OrderDirection.BUY) {
+            BigDecimal spentAmount = order.getTransactions().stream()
+                    .map(Transaction::getTotalPrice)
+                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+            BigDecimal priceWithCommission = order.getRole().equals("CLIENT") ?
+                    priceWithCommission(order.getOrderType(), spentAmount) : spentAmount;
+
+            updateBalance(order, priceWithCommission.subtract(spentAmount));
+            updateAvailableBalance(order, priceWithCommission.subtract(order.getReservedAmount()));
+        }
+
+        portfolioService.updateHoldingsOnOrderExecution(order);
     }
 
     private boolean updateBalance(Order order, BigDecimal amount){
@@ -361,74 +512,119 @@ public class OrderService {
         return true;
     }
 
-    public void checkOrders() {
-        checkStopOrders();
-        checkStopLimitOrders();
-        checkLimitOrders();
-    }
+    @EventListener(ApplicationReadyEvent.class)
+    public void restoreOpenOrders() {
+        for (OrderType orderType : List.of(OrderType.STOP, OrderType.STOP_LIMIT, OrderType.LIMIT)) {
+            orderRepository.findByIsDoneAndStatusAndOrderType(false, OrderStatus.APPROVED, orderType)
+                    .forEach(order -> {
+                        // okinut stop ceka u redu izvrsavanja, ne vraca se u indeks
+                        if (order.getOrderType() == OrderType.STOP && order.isStopFulfilled()) {
+                            orderExecutionQueue.enqueue(order);
+                            return;
+                        }
+                        // radnik vec moze da izvrsava naloge istog listinga
+                        executionLanes.submit(order.getListing().getId(), () -> {
+                            matchingEngine.rest(order);
+                            orderTriggerIndex.add(order);
+                        });
+                    });
+        }
 
-    private void checkStopOrders(){
-        List<Order> orders = orderRepository.findByIsDoneAndStatusAndOrderType(false, OrderStatus.APPROVED, OrderType.STOP);
+        // nalozi koji su ostali u obradi ili nisu stigli do reda pre gasenja servisa
+        orderRepository.findByIsDoneAndStatus(false, OrderStatus.PROCESSING).forEach(orderExecutionQueue::enqueue);
+        orderRepository.findByIsDoneAndStatusAndOrderType(false, OrderStatus.APPROVED, OrderType.MARKET)
+                .forEach(orderExecutionQueue::enqueue);
+    }
 
-        for (Order order : orders) {
-            checkStopOrder(order);
-        }
+    public void checkOrders() {
+        listingRepository.findAllById(orderTriggerIndex.listingIds()).forEach(this::checkOrders);
     }
 
-    private void checkStopLimitOrders(){
-        List<Order> orders = orderRepository.findByIsDoneAndStatusAndOrderType(false, OrderStatus.APPROVED, OrderType.STOP_LIMIT);
+    /**
+     * Hands the trigger check off to the listing's execution lane, so the publishing thread (refresh fan-out,
+     * simulator, HTTP) never does order or bank work.
+     */
+    @EventListener
+    public void onListingPriceChanged(ListingPriceChangedEvent event) {
+        checkOrders(event.getListing());
+    }
 
-        for (Order order : orders) {
-            if (!order.isStopFulfilled()){
-               checkStopOrder(order);
-            } else {
-               checkLimitOrder(order);
-            }
-        }
+    public void checkOrders(Listing listing) {
+        // cene se citaju odmah, listing moze da se menja dok provera ceka na traci
+        BigDecimal price = listing.getPrice();
+        BigDecimal askPrice = listing.getAsk() == null ? price : listing.getAsk();
+        executionLanes.submit(listing.getId(), () -> checkTriggers(listing, price, askPrice));
     }
 
-    private void checkLimitOrders(){
-        List<Order> orders = orderRepository.findByIsDoneAndStatusAndOrderType(false, OrderStatus.APPROVED, OrderType.LIMIT);
+    private void checkTriggers(Listing listing, BigDecimal price, BigDecimal askPrice) {
+        for (Order candidate : orderTriggerIndex.crossed(listing.getId(), price, askPrice)) {
+            // indeks drzi snimak naloga iz trenutka ucitavanja; menja se svez nalog iz baze,
+            // da se ne bi pregazili fill-ovi i status koje je u medjuvremenu upisao izvrsilac
+            Order order = orderRepository.findById(candidate.getId()).orElse(null);
+            if (order == null || order.getIsDone() || order.getStatus() != OrderStatus.APPROVED) {
+                orderTriggerIndex.remove(candidate);
+                continue;
+            }
 
-        for (Order order : orders) {
-           checkLimitOrder(order);
+            if (order.getOrderType() == OrderType.STOP || (order.getOrderType() == OrderType.STOP_LIMIT && !order.isStopFulfilled()))
+                checkStopOrder(order, price, askPrice);
+            else if (order.getOrderType() == OrderType.LIMIT || order.getOrderType() == OrderType.STOP_LIMIT)
+                checkLimitOrder(order, price, askPrice);
         }
     }
 
-    private void checkStopOrder(Order order){
+    private void checkStopOrder(Order order, BigDecimal price, BigDecimal askPrice){
         boolean conditionFulfilled = false;
 
         if (order.getDirection() == OrderDirection.BUY){
-            BigDecimal askPrice = order.getListing().getAsk() == null ? order.getListing().getPrice() : order.getListing().getAsk();
             if (askPrice.compareTo(order.getStopPrice()) > 0)
                 conditionFulfilled = true;
-        } else if (order.getListing().getPrice().compareTo(order.getStopPrice()) < 0) {
+        } else if (price.compareTo(order.getStopPrice()) < 0) {
             conditionFulfilled = true;
         }
 
         if (conditionFulfilled){
             order.setStopFulfilled(true);
-            if (order.getOrderType() == OrderType.STOP)
-                executeOrder(order);
-            else
-                orderRepository.save(order);
+            if (order.getOrderType() == OrderType.STOP) {
+                save(order);
+                // indeks ne brise ukrstene naloge sam, a izvrseni stop ne sme ponovo da se okine
+                orderTriggerIndex.remove(order);
+                orderExecutionQueue.enqueue(order);
+            } else {
+                save(order);
+                placeLimitOrder(order);
+                orderTriggerIndex.add(order);
+            }
         }
     }
 
-    private void checkLimitOrder(Order order){
+    private void checkLimitOrder(Order order, BigDecimal price, BigDecimal askPrice){
         if (order.getDirection() == OrderDirection.BUY){
-            BigDecimal askPrice = order.getListing().getAsk() == null ? order.getListing().getPrice() : order.getListing().getAsk();
-
             if(askPrice.compareTo(order.getPricePerUnit()) <= 0) {
                 order.setPricePerUnit(order.getPricePerUnit().min(askPrice));
-                executeOrder(order);
+                save(order);
+                // primerak u knjizi je sada zastareo, nalog se dalje izvrsava iz reda
+                matchingEngine.remove(order);
+                orderTriggerIndex.remove(order);
+                orderExecutionQueue.enqueue(order);
             }
-        } else if (order.getListing().getPrice().compareTo(order.getPricePerUnit()) >= 0) {
-            order.setPricePerUnit(order.getPricePerUnit().max(order.getListing().getPrice()));
-            executeOrder(order);
+        } else if (price.compareTo(order.getPricePerUnit()) >= 0) {
+            order.setPricePerUnit(order.getPricePerUnit().max(price));
+            save(order);
+            matchingEngine.remove(order);
+            orderTriggerIndex.remove(order);
+            orderExecutionQueue.enqueue(order);
         }
     }
 
+    /**
+     * Saves the order and copies the new version back onto the same instance. The instance may also be held by the
+     * order book or the trigger index, and its next save has to carry the version it wrote itself.
+     */
+    private void save(Order order) {
+        order.setVersion(orderRepository.save(order).getVersion());
+    }
+
     public BigDecimal getCommissionProfit() {
         return orderRepository.getBankProfitFromOrders();
     }
@@ -0,0 +1,128 @@
+package rs.raf.stock_service.service;
+
+import org.springframework.stereotype.Component;
+import rs.raf.stock_service.domain.entity.Order;
+import rs.raf.stock_service.domain.enums.OrderDirection;
+import rs.raf.stock_service.domain.enums.OrderType;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Price-sorted index of open STOP, STOP_LIMIT and LIMIT orders per listing, so a price update only
+ * has to look at orders whose threshold was actually crossed instead of scanning every open order.
+ * <p>
+ * Pending stops are keyed by stop price, limits (and stop-limits whose stop was hit) by limit price:
+ * <ul>
+ *     <li>buy stop triggers when ask &gt; stop, sell stop when price &lt; stop</li>
+ *     <li>buy limit triggers when ask &le; limit, sell limit when price &ge; limit</li>
+ * </ul>
+ */
+@Component
+public class OrderTriggerIndex {
+
+    private final Map<Long, ListingTriggers> triggers = new ConcurrentHashMap<>();
+
+    /**
+     * Adds the order under its current threshold, replacing any previous entry for the same order.
+     * Done and market orders, as well as orders without a listing, are ignored.
+     */
+    public void add(Order order) {
+        if (order.getListing() == null || order.getOrderType() == null || order.getOrderType() == OrderType.MARKET
+                || Boolean.TRUE.equals(order.getIsDone())) return;
+        // dodavanje i brisanje idu kroz compute, da remove ne izbaci listing dok se u njega dodaje nalog
+        triggers.compute(order.getListing().getId(), (id, listingTriggers) -> {
+            ListingTriggers target = listingTriggers == null ? new ListingTriggers() : listingTriggers;
+            target.add(order);
+            return target;
+        });
+    }
+
+    /**
+     * Removes the order; a listing left without orders is dropped, so it no longer counts as having open triggers.
+     */
+    public void remove(Order order) {
+        if (order.getListing() == null) return;
+        triggers.computeIfPresent(order.getListing().getId(), (id, listingTriggers) -> {
+            listingTriggers.remove(order.getId());
+            return listingTriggers.size() == 0 ? null : listingTriggers;
+        });
+    }
+
+    /**
+     * Returns the orders of the listing whose threshold is crossed by the given prices. Entries are not removed;
+     * the caller removes or re-adds them once the order is executed or moved from its stop to its limit.
+     */
+    public List<Order> crossed(Long listingId, BigDecimal price, BigDecimal ask) {
+        ListingTriggers listingTriggers = triggers.get(listingId);
+        return listingTriggers == null ? List.of() : listingTriggers.crossed(price, ask);
+    }
+
+    public Set<Long> listingIds() {
+        return Collections.unmodifiableSet(triggers.keySet());
+    }
+
+    public int size(Long listingId) {
+        ListingTriggers listingTriggers = triggers.get(listingId);
+        return listingTriggers == null ? 0 : listingTriggers.size();
+    }
+
+    private static class ListingTriggers {
+
+        private final NavigableMap<BigDecimal, Map<Long, Order>> buyStops = new TreeMap<>();
+        private final NavigableMap<BigDecimal, Map<Long, Order>> sellStops = new TreeMap<>();
+        private final NavigableMap<BigDecimal, Map<Long, Order>> buyLimits = new TreeMap<>();
+        private final NavigableMap<BigDecimal, Map<Long, Order>> sellLimits = new TreeMap<>();
+
+        // remember where each order was filed, pricePerUnit changes when a limit order executes
+        private final Map<Long, Slot> slots = new HashMap<>();
+
+        synchronized void add(Order order) {
+            remove(order.getId());
+
+            boolean buy = order.getDirection() == OrderDirection.BUY;
+            boolean pendingStop = order.getOrderType() == OrderType.STOP
+                    || (order.getOrderType() == OrderType.STOP_LIMIT && !order.isStopFulfilled());
+
+            NavigableMap<BigDecimal, Map<Long, Order>> side = pendingStop
+                    ? (buy ? buyStops : sellStops)
+                    : (buy ? buyLimits : sellLimits);
+            BigDecimal threshold = pendingStop ? order.getStopPrice() : order.getPricePerUnit();
+            if (threshold == null) return;
+
+            side.computeIfAbsent(threshold, price -> new LinkedHashMap<>()).put(order.getId(), order);
+            slots.put(order.getId(), new Slot(side, threshold));
+        }
+
+        synchronized void remove(Long orderId) {
+            Slot slot = slots.remove(orderId);
+            if (slot == null) return;
+
+            Map<Long, Order> level = slot.side().get(slot.threshold());
+            if (level == null) return;
+            level.remove(orderId);
+            if (level.isEmpty()) slot.side().remove(slot.threshold());
+        }
+
+        synchronized List<Order> crossed(BigDecimal price, BigDecimal ask) {
+            List<Order> result = new ArrayList<>();
+            if (ask != null) {
+                buyStops.headMap(ask, false).values().forEach(level -> result.addAll(level.values()));
+                buyLimits.tailMap(ask, true).values().forEach(level -> result.addAll(level.values()));
+            }
+            if (price != null) {
+                sellStops.tailMap(price, false).values().forEach(level -> result.addAll(level.values()));
+                sellLimits.headMap(price, true).values().forEach(level -> result.addAll(level.values()));
+            }
+            return result;
+        }
+
+        synchronized int size() {
+            return slots.size();
+        }
+    }
+
+    private record Slot(NavigableMap<BigDecimal, Map<Long, Order>> side, BigDecimal threshold) {
+    }
+}
@@ -0,0 +1,217 @@
+package rs.raf.stock_service.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import rs.raf.stock_service.domain.dto.PriceHistoryDto;
+import rs.raf.stock_service.domain.dto.PriceHistoryPageDto;
+import rs.raf.stock_service.domain.entity.ListingPriceHistory;
+import rs.raf.stock_service.domain.entity.PriceHistoryChunk;
+import rs.raf.stock_service.repository.ListingPriceHistoryRepository;
+import rs.raf.stock_service.repository.PriceHistoryChunkRepository;
+import rs.raf.stock_service.utils.OhlcvChunkCodec;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Long term price history, kept as one compressed columnar chunk per listing and day. Ingested bars are
+ * appended here as well as to {@link ListingPriceHistory}; the row table only keeps the last
+ * {@code price-history.row-retention.days} days plus the newest row of every listing, while reads of full
+ * history go through the chunks.
+ */
+@Slf4j
+@Service
+public class PriceHistoryStore {
+
+    private static final LocalDate MIN_DAY = LocalDate.of(1970, 1, 1);
+    private static final LocalDate MAX_DAY = LocalDate.of(9999, 12, 31);
+    private static final int CHUNK_PAGE_SIZE = 8;
+
+    private final PriceHistoryChunkRepository chunkRepository;
+    private final ListingPriceHistoryRepository priceHistoryRepository;
+    private final int rowRetentionDays;
+
+    public PriceHistoryStore(PriceHistoryChunkRepository chunkRepository,
+                             ListingPriceHistoryRepository priceHistoryRepository,
+                             @Value("${price-history.row-retention.days:7}") int rowRetentionDays) {
+        this.chunkRepository = chunkRepository;
+        this.priceHistoryRepository = priceHistoryRepository;
+        this.rowRetentionDays = rowRetentionDays;
+    }
+
+    /**
+     * Visits a single bar of a decoded chunk. Prices are read through {@link OhlcvChunkCodec.Columns#price(long)}.
+     */
+    @FunctionalInterface
+    public interface BarVisitor {
+        void visit(OhlcvChunkCodec.Columns columns, int index);
+    }
+
+    /**
+     * Merges the bars into their day chunks. Bars already stored for the same time are kept as they are.
+     * Day rows are created if missing and locked before merging, so concurrent appends to the same day
+     * are applied one after another instead of failing on the unique (listing_id, day) constraint.
+     */
+    @Transactional
+    public void append(List<ListingPriceHistory> bars) {
+        Map<Long, Map<LocalDate, List<ListingPriceHistory>>> byListing = bars.stream()
+                .collect(Collectors.groupingBy(bar -> bar.getListing().getId(),
+                        Collectors.groupingBy(bar -> bar.getDate().toLocalDate())));
+
+        byListing.forEach((listingId, byDay) -> {
+            for (LocalDate day : byDay.keySet())
+                chunkRepository.insertEmptyIfAbsent(listingId, day, day.atStartOfDay());
+
+            Map<LocalDate, PriceHistoryChunk> existing = new HashMap<>();
+            for (PriceHistoryChunk chunk : chunkRepository.findAllForUpdate(listingId, byDay.keySet()))
+                existing.put(chunk.getDay(), chunk);
+
+            List<PriceHistoryChunk> toSave = new ArrayList<>();
+            byDay.forEach((day, dayBars) -> {
+                PriceHistoryChunk chunk = existing.get(day);
+                if (chunk == null)
+                    chunk = PriceHistoryChunk.builder().listingId(listingId).day(day).build();
+                if (merge(chunk, dayBars)) toSave.add(chunk);
+            });
+            chunkRepository.saveAll(toSave);
+        });
+    }
+
+    /**
+     * Visits every bar of the listing between {@code from} and {@code to} (both inclusive, {@code null} for
+     * unbounded) in chronological order.
+     */
+    public void scan(Long listingId, LocalDateTime from, LocalDateTime to, BarVisitor visitor) {
+        LocalDate fromDay = from != null ? from.toLocalDate() : MIN_DAY;
+        LocalDate toDay = to != null ? to.toLocalDate() : MAX_DAY;
+        long fromSecond = from != null ? toEpochSecond(from) : Long.MIN_VALUE;
+        long toSecond = to != null ? toEpochSecond(to) : Long.MAX_VALUE;
+
+        for (PriceHistoryChunk chunk : chunkRepository.findAllByListingIdAndDayBetweenOrderByDayAsc(listingId, fromDay, toDay)) {
+            OhlcvChunkCodec.Columns columns = OhlcvChunkCodec.decode(chunk.getData());
+            for (int i = columns.lowerBound(fromSecond); i < columns.size && columns.epochSeconds[i] <= toSecond; i++)
+                visitor.visit(columns, i);
+        }
+    }
+
+    public List<PriceHistoryDto> getBars(Long listingId, LocalDateTime from, LocalDateTime to, boolean newestFirst) {
+        List<PriceHistoryDto> bars = new ArrayList<>();
+        scan(listingId, from, to, (columns, i) -> bars.add(toDto(columns, i)));
+        if (newestFirst) Collections.reverse(bars);
+        return bars;
+    }
+
+    /**
+     * Newest bars of the listing at or after {@code from} and strictly before {@code before} (both optional), at most
+     * {@code limit} of them, newest first. When older bars remain, the returned cursor is the time of the oldest bar
+     * returned; passing it as {@code before} fetches the next page.
+     */
+    public PriceHistoryPageDto getPage(Long listingId, LocalDateTime from, LocalDateTime before, int limit) {
+        LocalDate fromDay = from != null ? from.toLocalDate() : MIN_DAY;
+        LocalDate toDay = before != null ? before.minusNanos(1).toLocalDate() : MAX_DAY;
+        long fromSecond = from != null ? toEpochSecond(from) : Long.MIN_VALUE;
+        long beforeSecond = before != null ? toEpochSecond(before.minusNanos(1)) + 1 : Long.MAX_VALUE;
+
+        List<PriceHistoryDto> bars = new ArrayList<>(Math.min(limit, 1024));
+        boolean hasMore = false;
+        // dani se citaju unazad u stranicama, sve dok se ne skupi limit + 1 bar
+        for (int page = 0; !hasMore && !fromDay.isAfter(toDay); page++) {
+            List<PriceHistoryChunk> chunks = chunkRepository.findAllByListingIdAndDayBetweenOrderByDayDesc(
+                    listingId, fromDay, toDay, PageRequest.of(page, CHUNK_PAGE_SIZE));
+
+            for (PriceHistoryChunk chunk : chunks) {
+                OhlcvChunkCodec.Columns columns = OhlcvChunkCodec.decode(chunk.getData());
+                int first = columns.lowerBound(fromSecond);
+                for (int i = columns.lowerBound(beforeSecond) - 1; i >= first; i--) {
+                    if (bars.size() == limit) {
+                        hasMore = true;
+                        break;
+                    }
+                    bars.add(toDto(columns, i));
+                }
+                if (hasMore) break;
+            }
+            if (chunks.size() < CHUNK_PAGE_SIZE) break;
+        }
+
+        LocalDateTime nextCursor = hasMore ? bars.get(bars.size() - 1).getDatetime() : null;
+        return new PriceHistoryPageDto(bars, nextCursor);
+    }
+
+    @Scheduled(cron = "${price-history.row-retention.cron:0 15 3 * * *}")
+    public void pruneRows() {
+        // najnoviji red svakog listinga ostaje, iz njega se citaju poslednja cena i watermark
+        int deleted = priceHistoryRepository.deleteOlderThanKeepingLatest(LocalDate.now().minusDays(rowRetentionDays).atStartOfDay());
+        log.info("Pruned {} price history rows older than {} days", deleted, rowRetentionDays);
+    }
+
+    private boolean merge(PriceHistoryChunk chunk, List<ListingPriceHistory> dayBars) {
+        TreeMap<Long, Bar> merged = new TreeMap<>();
+        // tek umetnut dan jos nema barove
+        if (chunk.getData() != null && chunk.getBarCount() > 0) {
+            OhlcvChunkCodec.Columns old = OhlcvChunkCodec.decode(chunk.getData());
+            for (int i = 0; i < old.size; i++)
+                merged.put(old.epochSeconds[i], new Bar(old.price(old.open[i]), old.price(old.high[i]),
+                        old.price(old.low[i]), old.price(old.close[i]), old.volumeAt(i)));
+        }
+
+        int before = merged.size();
+        for (ListingPriceHistory bar : dayBars)
+            merged.putIfAbsent(toEpochSecond(bar.getDate()),
+                    new Bar(bar.getOpen(), bar.getHigh(), bar.getLow(), bar.getClose(), bar.getVolume()));
+        if (merged.size() == before) return false;
+
+        int scale = 0;
+        for (Bar bar : merged.values())
+            scale = Math.max(scale, OhlcvChunkCodec.scaleFor(bar.open(), bar.high(), bar.low(), bar.close()));
+
+        OhlcvChunkCodec.Columns columns = new OhlcvChunkCodec.Columns(merged.size(), scale);
+        int i = 0;
+        for (Map.Entry<Long, Bar> entry : merged.entrySet()) {
+            Bar bar = entry.getValue();
+            columns.epochSeconds[i] = entry.getKey();
+            columns.open[i] = OhlcvChunkCodec.unscaled(bar.open(), scale);
+            columns.high[i] = OhlcvChunkCodec.unscaled(bar.high(), scale);
+            columns.low[i] = OhlcvChunkCodec.unscaled(bar.low(), scale);
+            columns.close[i] = OhlcvChunkCodec.unscaled(bar.close(), scale);
+            columns.volume[i] = bar.volume() != null ? bar.volume() : -1;
+            i++;
+        }
+
+        chunk.setData(OhlcvChunkCodec.encode(columns));
+        chunk.setBarCount(columns.size);
+        chunk.setFirstBar(toDateTime(merged.firstKey()));
+        chunk.setLastBar(toDateTime(merged.lastKey()));
+        return true;
+    }
+
+    private static PriceHistoryDto toDto(OhlcvChunkCodec.Columns columns, int i) {
+        return new PriceHistoryDto(
+                toDateTime(columns.epochSeconds[i]),
+                columns.price(columns.open[i]),
+                columns.price(columns.high[i]),
+                columns.price(columns.low[i]),
+                columns.price(columns.close[i]),
+                columns.volumeAt(i)
+        );
+    }
+
+    private static long toEpochSecond(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static LocalDateTime toDateTime(long epochSecond) {
+        return LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+    }
+
+    private record Bar(BigDecimal open, BigDecimal high, BigDecimal low, BigDecimal close, Long volume) {
+    }
+}
@@ -0,0 +1,184 @@
+package rs.raf.stock_service.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import rs.raf.stock_service.domain.entity.ForexPair;
+import rs.raf.stock_service.domain.entity.Listing;
+import rs.raf.stock_service.domain.entity.Stock;
+import rs.raf.stock_service.exceptions.ExchangesNotLoadedException;
+import rs.raf.stock_service.repository.PortfolioEntryRepository;
+import rs.raf.stock_service.utils.TradingCalendar;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decides which listings the scheduled refresh pulls from the providers. Every listing has a target interval set by
+ * its demand: listings with open stop/limit orders are hot, listings held in a portfolio or opened recently are warm
+ * and everything else is cold. Each run picks the overdue listings, most overdue (relative to their interval) first,
+ * until the per-minute budget is spent, so hot listings are fresher while the total number of provider calls stays
+ * flat and cold listings still get their turn.
+ * <p>
+ * While the market is closed a listing gets one more pull right after the close (the closing bars) and is then only
+ * pulled every {@code refresh.closed.interval.ms} ({@code 0} skips it until the open). The first run after the open
+ * pulls it again, and the history watermark makes that pull catch up on everything since the last one.
+ */
+@Slf4j
+@Component
+public class RefreshPlanner {
+
+    enum Demand { HOT, WARM, COLD }
+
+    private record LastRefresh(Instant at, boolean marketOpen) {
+    }
+
+    private record Candidate<T>(T listing, Demand demand, boolean marketOpen, double overdue) {
+    }
+
+    private static final Duration MINUTE = Duration.ofMinutes(1);
+
+    private final ExchangeService exchangeService;
+    private final OrderTriggerIndex orderTriggerIndex;
+    private final PortfolioEntryRepository portfolioEntryRepository;
+    private final ListingDemandTracker demandTracker;
+    private final Duration closedInterval;
+    private final Map<Demand, Duration> intervals = new EnumMap<>(Demand.class);
+    private final Duration viewWindow;
+    private final int budgetPerMinute;
+
+    private final Map<Long, LastRefresh> lastRefreshes = new ConcurrentHashMap<>();
+    // prethodno osvezavanje listinga iz poslednjeg plana, vraca se ako njihov poziv ne uspe
+    private final Map<Long, LastRefresh> planned = new HashMap<>();
+    // token bucket: dopunjava se budgetPerMinute puta u minuti, najvise do budzeta za jedan minut
+    private double tokens;
+    private Instant lastPlan;
+
+    public RefreshPlanner(ExchangeService exchangeService,
+                          OrderTriggerIndex orderTriggerIndex,
+                          PortfolioEntryRepository portfolioEntryRepository,
+                          ListingDemandTracker demandTracker,
+                          @Value("${refresh.closed.interval.ms:3600000}") long closedIntervalMillis,
+                          @Value("${refresh.interval.hot.ms:60000}") long hotIntervalMillis,
+                          @Value("${refresh.interval.warm.ms:300000}") long warmIntervalMillis,
+                          @Value("${refresh.interval.cold.ms:1800000}") long coldIntervalMillis,
+                          @Value("${refresh.view.window.ms:900000}") long viewWindowMillis,
+                          @Value("${refresh.budget.per-minute:30}") int budgetPerMinute) {
+        this.exchangeService = exchangeService;
+        this.orderTriggerIndex = orderTriggerIndex;
+        this.portfolioEntryRepository = portfolioEntryRepository;
+        this.demandTracker = demandTracker;
+        this.closedInterval = Duration.ofMillis(closedIntervalMillis);
+        this.intervals.put(Demand.HOT, Duration.ofMillis(hotIntervalMillis));
+        this.intervals.put(Demand.WARM, Duration.ofMillis(warmIntervalMillis));
+        this.intervals.put(Demand.COLD, Duration.ofMillis(coldIntervalMillis));
+        this.viewWindow = Duration.ofMillis(viewWindowMillis);
+        this.budgetPerMinute = budgetPerMinute;
+        this.tokens = budgetPerMinute;
+    }
+
+    /**
+     * Returns the listings due for a refresh at {@code now}, most overdue first and at most as many as the budget
+     * allows, and records them as refreshed. Listings left out by the budget stay overdue and move up the next run.
+     * Listings whose pull then fails are reported back with {@link #refreshFailed(Collection)}.
+     */
+    public synchronized <T extends Listing> List<T> due(List<T> listings, Instant now) {
+        planned.clear();
+        TradingCalendar calendar = tradingCalendar();
+        Set<Long> withOpenOrders = orderTriggerIndex.listingIds();
+        Set<Long> held = portfolioEntryRepository.findAllHeldListingIds();
+        Set<Long> viewed = demandTracker.viewedSince(now.minus(viewWindow));
+
+        List<Candidate<T>> candidates = new ArrayList<>();
+        for (T listing : listings) {
+            Long id = listing.getId();
+            Demand demand = id == null ? Demand.COLD
+                    : withOpenOrders.contains(id) ? Demand.HOT
+                    : held.contains(id) || viewed.contains(id) ? Demand.WARM
+                    : Demand.COLD;
+            boolean marketOpen = isMarketOpen(listing, calendar, now);
+            double overdue = overdue(id == null ? null : lastRefreshes.get(id), demand, marketOpen, now);
+            if (overdue >= 1) candidates.add(new Candidate<>(listing, demand, marketOpen, overdue));
+        }
+
+        candidates.sort(Comparator.comparingDouble((Candidate<T> candidate) -> -candidate.overdue())
+                .thenComparing(Candidate::demand));
+
+        int budget = takeBudget(now, candidates.size());
+        List<T> due = new ArrayList<>(budget);
+        for (Candidate<T> candidate : candidates.subList(0, budget)) {
+            due.add(candidate.listing());
+            Long id = candidate.listing().getId();
+            if (id != null) planned.put(id, lastRefreshes.put(id, new LastRefresh(now, candidate.marketOpen())));
+        }
+
+        log.info("Refresh plan: {} of {} listings due, {} refreshed now, {} deferred by the budget",
+                candidates.size(), listings.size(), due.size(), candidates.size() - due.size());
+        return due;
+    }
+
+    /**
+     * Takes back the refresh recorded by the last {@link #due} for listings whose pull failed or was cancelled, so
+     * they stay overdue and are picked again by the next run instead of waiting a whole interval. The budget token
+     * each of them took is given back.
+     */
+    public synchronized void refreshFailed(Collection<Long> listingIds) {
+        for (Long id : listingIds) {
+            if (!planned.containsKey(id)) continue;
+            LastRefresh previous = planned.remove(id);
+            if (previous == null) lastRefreshes.remove(id);
+            else lastRefreshes.put(id, previous);
+            // neuspelo povlacenje ne trosi budzet, token se vraca
+            if (budgetPerMinute > 0) tokens = Math.min(budgetPerMinute, tokens + 1);
+        }
+    }
+
+    /**
+     * How many of its intervals the listing is late, {@code >= 1} meaning it is due. Listings never refreshed and
+     * the first pull after the close are due immediately, ahead of everything else.
+     */
+    private double overdue(LastRefresh last, Demand demand, boolean marketOpen, Instant now) {
+        if (last == null || (!marketOpen && last.marketOpen())) return Double.MAX_VALUE;
+
+        Duration interval = intervals.get(demand);
+        if (!marketOpen) {
+            if (closedInterval.isZero()) return 0;
+            if (closedInterval.compareTo(interval) > 0) interval = closedInterval;
+        }
+        if (interval.isZero()) return Double.MAX_VALUE;
+        return (double) Duration.between(last.at(), now).toMillis() / interval.toMillis();
+    }
+
+    private int takeBudget(Instant now, int wanted) {
+        if (budgetPerMinute <= 0) return wanted;
+
+        if (lastPlan != null && now.isAfter(lastPlan)) {
+            double refill = budgetPerMinute * (double) Duration.between(lastPlan, now).toMillis() / MINUTE.toMillis();
+            tokens = Math.min(budgetPerMinute, tokens + refill);
+        }
+        lastPlan = now;
+
+        int budget = (int) Math.min(wanted, Math.floor(tokens));
+        tokens -= budget;
+        return budget;
+    }
+
+    private boolean isMarketOpen(Listing listing, TradingCalendar calendar, Instant now) {
+        if (listing instanceof ForexPair) return TradingCalendar.isForexMarketOpen(now);
+
+        // bez kalendara ili poznate berze ne znamo da je zatvoreno, pa se listing osvezava
+        if (!(listing instanceof Stock) || calendar == null || listing.getExchange() == null) return true;
+        String mic = listing.getExchange().getMic();
+        return calendar.exchange(mic).isEmpty() || calendar.isOpen(mic, now);
+    }
+
+    private TradingCalendar tradingCalendar() {
+        try {
+            return exchangeService.getTradingCalendar();
+        } catch (ExchangesNotLoadedException e) {
+            return null;
+        }
+    }
+}
@@ -29,6 +29,7 @@ public class StocksService {
     private final AlphavantageClient alphavantageClient;
     private final TwelveDataClient twelveDataClient;
     private final ExchangeService exchangeService;
+    private final MarketDataHedger marketDataHedger;
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     public List<StockSearchDto> searchByTicker(String keyword) {
@@ -53,11 +54,25 @@ public class StocksService {
         }
     }
 
+    /**
+     * Current data of the stock from Alpha Vantage, with Twelve Data as the failover and hedge target. Twelve Data
+     * quotes carry no fundamentals, so outstanding shares, dividend yield and market cap are zero when it answers.
+     */
     @Transactional
     public StockDto getStockData(String symbol) {
+        return marketDataHedger.call("quote",
+                new MarketDataHedger.ProviderCall<>("alphavantage", () -> getStockDataFromAlphaVantage(symbol)),
+                new MarketDataHedger.ProviderCall<>("twelvedata", () -> getStockDataFromTwelveData(symbol)));
+    }
+
+    public StockDto getStockDataFromAlphaVantage(String symbol) {
         try {
             String quoteResponse = alphavantageClient.getGlobalQuote(symbol);
             JsonNode quoteRoot = objectMapper.readTree(quoteResponse);
+            // poruka o limitu ili gresci umesto kotacije, da bi se preslo na drugog provajdera
+            if (quoteRoot.has("Note") || quoteRoot.has("Information") || quoteRoot.has("Error Message")) {
+                throw new IllegalStateException("API error or rate limit reached: " + quoteRoot);
+            }
             JsonNode globalQuote = quoteRoot.path("Global Quote");
 
             String priceStr = globalQuote.path("05. price").asText();
@@ -83,11 +98,7 @@ public class StocksService {
             String name = overviewRoot.path("Name").asText();
 
             String micCode = overviewRoot.path("Exchange").asText();
-            Exchange exchange = exchangeService.getAvailableExchanges()
-                    .stream()
-                    .filter(e -> e.getMic().equalsIgnoreCase(micCode))
-                    .findFirst()
-                    .orElse(null);
+            Exchange exchange = exchangeService.getAvailableExchange(micCode).orElse(null);
 
 
             BigDecimal marketCap = BigDecimal.valueOf(outstandingShares).multiply(price);
@@ -113,6 +124,36 @@ public class StocksService {
         }
     }
 
+    public StockDto getStockDataFromTwelveData(String symbol) {
+        try {
+            JsonNode quote = objectMapper.readTree(twelveDataClient.getQuote(symbol));
+            if ("error".equals(quote.path("status").asText()) || !quote.hasNonNull("close")) {
+                throw new IllegalStateException(quote.path("message").asText("Invalid response from Twelve Data"));
+            }
+
+            BigDecimal price = new BigDecimal(quote.path("close").asText());
+            String changeStr = quote.path("change").asText();
+            String highStr = quote.path("high").asText();
+
+            Stock stock = new Stock();
+            stock.setTicker(symbol);
+            stock.setName(quote.path("name").asText(symbol));
+            stock.setPrice(price);
+            stock.setChange(changeStr.isEmpty() ? BigDecimal.ZERO : new BigDecimal(changeStr));
+            stock.setVolume(quote.path("volume").asLong());
+            stock.setOutstandingShares(0L);
+            stock.setDividendYield(BigDecimal.ZERO);
+            stock.setMarketCap(BigDecimal.ZERO);
+            stock.setMaintenanceMargin(price.multiply(BigDecimal.valueOf(0.5)));
+            stock.setExchange(exchangeService.getAvailableExchange(quote.path("mic_code").asText()).orElse(null));
+            stock.setAsk(highStr.isEmpty() ? price : new BigDecimal(highStr));
+
+            return mapToDto(stock);
+        } catch (Exception e) {
+            throw new StockNotFoundException("Stock data not found for symbol '" + symbol + "': " + e.getMessage());
+        }
+    }
+
     @Transactional
     public List<StockDto> getRealtimeBulkStockData(List<String> symbols) {
         try {
@@ -145,11 +186,7 @@ public class StocksService {
                     BigDecimal dividendYield = dividendYieldStr.equals("None") ? BigDecimal.ZERO : new BigDecimal(dividendYieldStr);
                     String micCode = overviewRoot.path("Exchange").asText("");
 
-                    Exchange exchange = exchangeService.getAvailableExchanges()
-                            .stream()
-                            .filter(e -> e.getMic().equalsIgnoreCase(micCode))
-                            .findFirst()
-                            .orElse(null);
+                    Exchange exchange = exchangeService.getAvailableExchange(micCode).orElse(null);
 
                     BigDecimal marketCap = BigDecimal.valueOf(outstandingShares).multiply(price);
                     BigDecimal maintenanceMargin = price.multiply(BigDecimal.valueOf(0.5));
@@ -0,0 +1,133 @@
+package rs.raf.stock_service.utils;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Binary encoding of a run of indicator values, one point per price bar. Timestamps are stored as deltas from the
+ * previous point and the indicator columns as floats ({@code NaN} where the indicator was not available yet), which
+ * is plenty for charting. The result is deflated.
+ */
+public final class IndicatorSeriesCodec {
+
+    private static final byte VERSION = 1;
+
+    private IndicatorSeriesCodec() {
+    }
+
+    /**
+     * Points in column form, in chronological order. Grows as points are added.
+     */
+    public static final class Columns {
+        public int size;
+        public long[] epochSeconds;
+        public float[] sma;
+        public float[] ema;
+        public float[] vwap;
+        public float[] rsi;
+
+        public Columns(int capacity) {
+            int length = Math.max(1, capacity);
+            this.epochSeconds = new long[length];
+            this.sma = new float[length];
+            this.ema = new float[length];
+            this.vwap = new float[length];
+            this.rsi = new float[length];
+        }
+
+        public void add(long epochSecond, double sma, double ema, double vwap, double rsi) {
+            if (size == epochSeconds.length) grow();
+            this.epochSeconds[size] = epochSecond;
+            this.sma[size] = (float) sma;
+            this.ema[size] = (float) ema;
+            this.vwap[size] = (float) vwap;
+            this.rsi[size] = (float) rsi;
+            size++;
+        }
+
+        /**
+         * Copies point {@code index} of {@code other} to the end of these columns.
+         */
+        public void add(Columns other, int index) {
+            add(other.epochSeconds[index], other.sma[index], other.ema[index], other.vwap[index], other.rsi[index]);
+        }
+
+        /**
+         * Index of the first point at or after the given time, or {@code size} if there is none.
+         */
+        public int lowerBound(long epochSecond) {
+            int lo = 0, hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (epochSeconds[mid] < epochSecond) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+
+        private void grow() {
+            int length = epochSeconds.length * 2;
+            epochSeconds = Arrays.copyOf(epochSeconds, length);
+            sma = Arrays.copyOf(sma, length);
+            ema = Arrays.copyOf(ema, length);
+            vwap = Arrays.copyOf(vwap, length);
+            rsi = Arrays.copyOf(rsi, length);
+        }
+    }
+
+    public static byte[] encode(Columns columns) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + columns.size * 20);
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes))) {
+            out.writeByte(VERSION);
+            out.writeInt(columns.size);
+            long previous = 0;
+            for (int i = 0; i < columns.size; i++) {
+                out.writeLong(columns.epochSeconds[i] - previous);
+                previous = columns.epochSeconds[i];
+            }
+            writeColumn(out, columns.sma, columns.size);
+            writeColumn(out, columns.ema, columns.size);
+            writeColumn(out, columns.vwap, columns.size);
+            writeColumn(out, columns.rsi, columns.size);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static Columns decode(byte[] data) {
+        try (DataInputStream in = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(data)))) {
+            byte version = in.readByte();
+            if (version != VERSION)
+                throw new IllegalArgumentException("Unsupported indicator chunk version " + version);
+
+            int size = in.readInt();
+            Columns columns = new Columns(size);
+            columns.size = size;
+            long previous = 0;
+            for (int i = 0; i < size; i++) {
+                previous += in.readLong();
+                columns.epochSeconds[i] = previous;
+            }
+            readColumn(in, columns.sma, size);
+            readColumn(in, columns.ema, size);
+            readColumn(in, columns.vwap, size);
+            readColumn(in, columns.rsi, size);
+            return columns;
+        } catch (EOFException e) {
+            throw new IllegalArgumentException("Truncated indicator chunk", e);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Corrupt indicator chunk", e);
+        }
+    }
+
+    private static void writeColumn(DataOutputStream out, float[] values, int size) throws IOException {
+        for (int i = 0; i < size; i++) out.writeFloat(values[i]);
+    }
+
+    private static void readColumn(DataInputStream in, float[] values, int size) throws IOException {
+        for (int i = 0; i < size; i++) values[i] = in.readFloat();
+    }
+}
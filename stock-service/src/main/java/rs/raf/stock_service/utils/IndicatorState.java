@@ -0,0 +1,170 @@
+package rs.raf.stock_service.utils;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Rolling state of the technical indicators of one listing, fed one bar at a time in chronological order. Every
+ * indicator is updated in O(1) per bar from primitive fields and a ring buffer of the last closes:
+ * <ul>
+ *     <li>SMA and EMA of the close over {@value #SMA_PERIOD} bars, the EMA seeded with the first SMA</li>
+ *     <li>RSI over {@value #RSI_PERIOD} bars with Wilder's smoothing</li>
+ *     <li>VWAP of the typical price ({@code (high + low + close) / 3}), reset at the start of every UTC day</li>
+ * </ul>
+ * Values are {@link Double#NaN} until the indicator has seen enough bars (VWAP also while no volume is known).
+ */
+public final class IndicatorState {
+
+    public static final int SMA_PERIOD = 20;
+    public static final int RSI_PERIOD = 14;
+
+    private static final byte VERSION = 1;
+    private static final double EMA_ALPHA = 2.0 / (SMA_PERIOD + 1);
+    private static final long SECONDS_PER_DAY = 86400;
+
+    private final double[] closes = new double[SMA_PERIOD];
+    private int closeCount;
+    private int nextClose;
+    private double closeSum;
+
+    private double ema = Double.NaN;
+
+    private double previousClose = Double.NaN;
+    private int changeCount;
+    // zbir dobitaka/gubitaka dok se ne skupi RSI_PERIOD promena, posle toga Wilder prosek
+    private double averageGain;
+    private double averageLoss;
+
+    private long vwapDay = Long.MIN_VALUE;
+    private double priceVolume;
+    private double volume;
+
+    private long lastEpochSecond = Long.MIN_VALUE;
+
+    /**
+     * Adds a bar. Bars not newer than the last one added are ignored, so re-ingesting bars is harmless.
+     *
+     * @param volume volume of the bar, negative if unknown
+     * @return whether the bar was added
+     */
+    public boolean add(long epochSecond, double high, double low, double close, long volume) {
+        if (epochSecond <= lastEpochSecond) return false;
+        lastEpochSecond = epochSecond;
+
+        addClose(close);
+        addChange(close);
+        addVolume(epochSecond, (high + low + close) / 3, volume);
+        return true;
+    }
+
+    public long lastEpochSecond() {
+        return lastEpochSecond;
+    }
+
+    public boolean isEmpty() {
+        return lastEpochSecond == Long.MIN_VALUE;
+    }
+
+    public double sma() {
+        return closeCount < SMA_PERIOD ? Double.NaN : closeSum / SMA_PERIOD;
+    }
+
+    public double ema() {
+        return ema;
+    }
+
+    public double rsi() {
+        if (changeCount < RSI_PERIOD) return Double.NaN;
+        if (averageLoss == 0) return averageGain == 0 ? 50 : 100;
+        return 100 - 100 / (1 + averageGain / averageLoss);
+    }
+
+    public double vwap() {
+        return volume > 0 ? priceVolume / volume : Double.NaN;
+    }
+
+    private void addClose(double close) {
+        if (closeCount == SMA_PERIOD) closeSum -= closes[nextClose];
+        else closeCount++;
+        closes[nextClose] = close;
+        closeSum += close;
+        nextClose = (nextClose + 1) % SMA_PERIOD;
+
+        // zbir se ponovo sabira na svakom krugu bafera da se greska zaokruzivanja ne bi gomilala
+        if (nextClose == 0 && closeCount == SMA_PERIOD) {
+            closeSum = 0;
+            for (double value : closes) closeSum += value;
+        }
+
+        if (!Double.isNaN(ema)) ema += EMA_ALPHA * (close - ema);
+        else if (closeCount == SMA_PERIOD) ema = closeSum / SMA_PERIOD;
+    }
+
+    private void addChange(double close) {
+        if (!Double.isNaN(previousClose)) {
+            double change = close - previousClose;
+            double gain = Math.max(change, 0);
+            double loss = Math.max(-change, 0);
+
+            if (changeCount < RSI_PERIOD) {
+                averageGain += gain;
+                averageLoss += loss;
+                if (++changeCount == RSI_PERIOD) {
+                    averageGain /= RSI_PERIOD;
+                    averageLoss /= RSI_PERIOD;
+                }
+            } else {
+                averageGain = (averageGain * (RSI_PERIOD - 1) + gain) / RSI_PERIOD;
+                averageLoss = (averageLoss * (RSI_PERIOD - 1) + loss) / RSI_PERIOD;
+            }
+        }
+        previousClose = close;
+    }
+
+    private void addVolume(long epochSecond, double typicalPrice, long barVolume) {
+        long day = Math.floorDiv(epochSecond, SECONDS_PER_DAY);
+        if (day != vwapDay) {
+            vwapDay = day;
+            priceVolume = 0;
+            volume = 0;
+        }
+        if (barVolume > 0) {
+            priceVolume += typicalPrice * barVolume;
+            volume += barVolume;
+        }
+    }
+
+    public byte[] toBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 8 * SMA_PERIOD + 4 * 3 + 8 * 9);
+        buffer.put(VERSION);
+        for (double close : closes) buffer.putDouble(close);
+        buffer.putInt(closeCount).putInt(nextClose).putInt(changeCount);
+        buffer.putDouble(closeSum).putDouble(ema).putDouble(previousClose)
+                .putDouble(averageGain).putDouble(averageLoss)
+                .putLong(vwapDay).putDouble(priceVolume).putDouble(volume)
+                .putLong(lastEpochSecond);
+        return buffer.array();
+    }
+
+    public static IndicatorState fromBytes(byte[] data) {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        byte version = buffer.get();
+        if (version != VERSION)
+            throw new IllegalArgumentException("Unsupported indicator state version " + version);
+
+        IndicatorState state = new IndicatorState();
+        for (int i = 0; i < SMA_PERIOD; i++) state.closes[i] = buffer.getDouble();
+        state.closeCount = buffer.getInt();
+        state.nextClose = buffer.getInt();
+        state.changeCount = buffer.getInt();
+        state.closeSum = buffer.getDouble();
+        state.ema = buffer.getDouble();
+        state.previousClose = buffer.getDouble();
+        state.averageGain = buffer.getDouble();
+        state.averageLoss = buffer.getDouble();
+        state.vwapDay = buffer.getLong();
+        state.priceVolume = buffer.getDouble();
+        state.volume = buffer.getDouble();
+        state.lastEpochSecond = buffer.getLong();
+        return state;
+    }
+}
@@ -0,0 +1,204 @@
+package rs.raf.stock_service.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compact binary encoding of a run of OHLCV bars. Each column is stored separately: timestamps and prices
+ * as zigzag varint deltas from the previous bar, prices as longs scaled to a per-chunk number of decimals,
+ * volumes as plain varints. The result is deflated.
+ */
+public final class OhlcvChunkCodec {
+
+    private static final byte VERSION = 1;
+    private static final int MAX_SCALE = 8;
+
+    private OhlcvChunkCodec() {
+    }
+
+    /**
+     * Bars in column form. Prices are unscaled longs, {@code price = open[i] / 10^scale}.
+     * A volume of {@code -1} means the volume is unknown.
+     */
+    public static final class Columns {
+        public final int size;
+        public final int scale;
+        public final long[] epochSeconds;
+        public final long[] open;
+        public final long[] high;
+        public final long[] low;
+        public final long[] close;
+        public final long[] volume;
+        private final double divisor;
+
+        public Columns(int size, int scale) {
+            this.size = size;
+            this.scale = scale;
+            this.divisor = Math.pow(10, scale);
+            this.epochSeconds = new long[size];
+            this.open = new long[size];
+            this.high = new long[size];
+            this.low = new long[size];
+            this.close = new long[size];
+            this.volume = new long[size];
+        }
+
+        public BigDecimal price(long unscaled) {
+            return BigDecimal.valueOf(unscaled, scale);
+        }
+
+        /**
+         * The price as a double, for numeric work over many bars without a {@code BigDecimal} per bar.
+         */
+        public double doublePrice(long unscaled) {
+            return unscaled / divisor;
+        }
+
+        public Long volumeAt(int index) {
+            return volume[index] < 0 ? null : volume[index];
+        }
+
+        /**
+         * Index of the first bar at or after the given time, or {@code size} if there is none.
+         */
+        public int lowerBound(long epochSecond) {
+            int lo = 0, hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (epochSeconds[mid] < epochSecond) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+    }
+
+    /**
+     * Smallest scale that represents every given price exactly, capped at {@value MAX_SCALE} decimals.
+     */
+    public static int scaleFor(BigDecimal... prices) {
+        int scale = 0;
+        for (BigDecimal price : prices)
+            if (price != null) scale = Math.max(scale, price.stripTrailingZeros().scale());
+        return Math.min(scale, MAX_SCALE);
+    }
+
+    public static long unscaled(BigDecimal price, int scale) {
+        if (price == null) return 0;
+        return price.setScale(scale, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public static byte[] encode(Columns columns) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 + columns.size * 12);
+        out.write(VERSION);
+        writeVarLong(out, columns.size);
+        writeVarLong(out, columns.scale);
+        writeDeltas(out, columns.epochSeconds, columns.size);
+        writeDeltas(out, columns.open, columns.size);
+        writeDeltas(out, columns.high, columns.size);
+        writeDeltas(out, columns.low, columns.size);
+        writeDeltas(out, columns.close, columns.size);
+        for (int i = 0; i < columns.size; i++)
+            writeVarLong(out, columns.volume[i] + 1);
+        return deflate(out.toByteArray());
+    }
+
+    public static Columns decode(byte[] data) {
+        Reader in = new Reader(inflate(data));
+        byte version = in.bytes[in.pos++];
+        if (version != VERSION)
+            throw new IllegalArgumentException("Unsupported OHLCV chunk version " + version);
+
+        Columns columns = new Columns((int) in.readVarLong(), (int) in.readVarLong());
+        in.readDeltas(columns.epochSeconds);
+        in.readDeltas(columns.open);
+        in.readDeltas(columns.high);
+        in.readDeltas(columns.low);
+        in.readDeltas(columns.close);
+        for (int i = 0; i < columns.size; i++)
+            columns.volume[i] = in.readVarLong() - 1;
+        return columns;
+    }
+
+    private static void writeDeltas(ByteArrayOutputStream out, long[] values, int size) {
+        long previous = 0;
+        for (int i = 0; i < size; i++) {
+            long delta = values[i] - previous;
+            writeVarLong(out, (delta << 1) ^ (delta >> 63));
+            previous = values[i];
+        }
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 2 + 16);
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished())
+                out.write(buffer, 0, deflater.deflate(buffer));
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] compressed) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(compressed.length * 3);
+            byte[] buffer = new byte[4096];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                    throw new IllegalArgumentException("Truncated OHLCV chunk");
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Corrupt OHLCV chunk", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static final class Reader {
+        private final byte[] bytes;
+        private int pos;
+
+        private Reader(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        private long readVarLong() {
+            long value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = bytes[pos++];
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return value;
+            }
+        }
+
+        private void readDeltas(long[] values) {
+            long previous = 0;
+            for (int i = 0; i < values.length; i++) {
+                long zigzag = readVarLong();
+                previous += (zigzag >>> 1) ^ -(zigzag & 1);
+                values[i] = previous;
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package rs.raf.stock_service.utils;
+
+/**
+ * Black-Scholes pricing of European options over whole chains. Contracts are stored column-wise in primitive
+ * arrays and priced in a single pass, so a chain of hundreds of contracts costs microseconds instead of
+ * a {@code BigDecimal} computation per contract.
+ */
+public final class OptionPricing {
+
+    private static final double INV_SQRT_2PI = 1 / Math.sqrt(2 * Math.PI);
+    private static final double DAYS_PER_YEAR = 365;
+
+    private OptionPricing() {
+    }
+
+    /**
+     * Chain in column form. Inputs are {@code strike}, {@code years} to expiry, annualized {@code volatility}
+     * and {@code call}; {@link #price} fills the outputs. {@code vega} and {@code rho} are per one percentage point
+     * of volatility/rate, {@code theta} is per calendar day.
+     */
+    public static final class Chain {
+        public final int size;
+        public final double[] strike;
+        public final double[] years;
+        public final double[] volatility;
+        public final boolean[] call;
+
+        public final double[] price;
+        public final double[] delta;
+        public final double[] gamma;
+        public final double[] vega;
+        public final double[] theta;
+        public final double[] rho;
+
+        public Chain(int size) {
+            this.size = size;
+            this.strike = new double[size];
+            this.years = new double[size];
+            this.volatility = new double[size];
+            this.call = new boolean[size];
+            this.price = new double[size];
+            this.delta = new double[size];
+            this.gamma = new double[size];
+            this.vega = new double[size];
+            this.theta = new double[size];
+            this.rho = new double[size];
+        }
+    }
+
+    /**
+     * Prices every contract of the chain for the given spot price and continuously compounded risk free rate.
+     */
+    public static void price(Chain chain, double spot, double rate) {
+        for (int i = 0; i < chain.size; i++) {
+            double strike = chain.strike[i];
+            double years = chain.years[i];
+            double sigma = chain.volatility[i];
+            double discount = Math.exp(-rate * Math.max(years, 0));
+
+            // istekli ili degenerisani ugovori vrede koliko i diskontovana unutrasnja vrednost
+            if (strike <= 0 || years <= 0 || sigma <= 0 || spot <= 0) {
+                double forwardIntrinsic = chain.call[i] ? spot - strike * discount : strike * discount - spot;
+                boolean inTheMoney = forwardIntrinsic > 0;
+                chain.price[i] = inTheMoney ? forwardIntrinsic : 0;
+                chain.delta[i] = inTheMoney ? (chain.call[i] ? 1 : -1) : 0;
+                chain.gamma[i] = 0;
+                chain.vega[i] = 0;
+                chain.theta[i] = 0;
+                chain.rho[i] = 0;
+                continue;
+            }
+
+            double sqrtYears = Math.sqrt(years);
+            double sigmaSqrtYears = sigma * sqrtYears;
+            double d1 = (Math.log(spot / strike) + (rate + sigma * sigma / 2) * years) / sigmaSqrtYears;
+            double d2 = d1 - sigmaSqrtYears;
+            double pdf = INV_SQRT_2PI * Math.exp(-d1 * d1 / 2);
+            double decay = -spot * pdf * sigma / (2 * sqrtYears);
+
+            chain.gamma[i] = pdf / (spot * sigmaSqrtYears);
+            chain.vega[i] = spot * pdf * sqrtYears / 100;
+
+            if (chain.call[i]) {
+                double nd1 = cdf(d1);
+                double nd2 = cdf(d2);
+                chain.price[i] = spot * nd1 - strike * discount * nd2;
+                chain.delta[i] = nd1;
+                chain.theta[i] = (decay - rate * strike * discount * nd2) / DAYS_PER_YEAR;
+                chain.rho[i] = strike * years * discount * nd2 / 100;
+            } else {
+                double nMinusD1 = cdf(-d1);
+                double nMinusD2 = cdf(-d2);
+                chain.price[i] = strike * discount * nMinusD2 - spot * nMinusD1;
+                chain.delta[i] = -nMinusD1;
+                chain.theta[i] = (decay + rate * strike * discount * nMinusD2) / DAYS_PER_YEAR;
+                chain.rho[i] = -strike * years * discount * nMinusD2 / 100;
+            }
+        }
+    }
+
+    /**
+     * Standard normal cumulative distribution, Abramowitz-Stegun 26.2.17 (absolute error below 7.5e-8).
+     */
+    static double cdf(double x) {
+        double t = 1 / (1 + 0.2316419 * Math.abs(x));
+        double poly = t * (0.319381530 + t * (-0.356563782 + t * (1.781477937 + t * (-1.821255978 + t * 1.330274429))));
+        double tail = INV_SQRT_2PI * Math.exp(-x * x / 2) * poly;
+        return x >= 0 ? 1 - tail : tail;
+    }
+}
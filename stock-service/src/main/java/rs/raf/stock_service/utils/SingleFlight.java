@@ -0,0 +1,60 @@
+package rs.raf.stock_service.utils;
+
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces concurrent calls with the same key: the first caller runs the call and every caller
+ * that arrives while it is still in flight waits for and shares the same result (or failure).
+ * Followers wait at most the given timeout, so a hung leader call cannot block them forever.
+ */
+public class SingleFlight<K, V> {
+
+    @FunctionalInterface
+    public interface Call<V> {
+        V run() throws Exception;
+    }
+
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong executed = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    public V execute(K key, long timeout, TimeUnit unit, Call<V> call) throws Exception {
+        CompletableFuture<V> created = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, created);
+
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            try {
+                return existing.get(timeout, unit);
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof Exception cause ? cause : e;
+            }
+        }
+
+        executed.incrementAndGet();
+        try {
+            V result = call.run();
+            created.complete(result);
+            return result;
+        } catch (Exception e) {
+            created.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, created);
+        }
+    }
+
+    public int inFlight() {
+        return inFlight.size();
+    }
+
+    public long getExecuted() {
+        return executed.get();
+    }
+
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+}
@@ -0,0 +1,69 @@
+package rs.raf.stock_service.utils;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket that refills continuously up to its capacity. Callers take one token per call and can ask
+ * to leave a number of tokens untouched, which lets lower priority callers back off before higher priority ones.
+ */
+public class TokenBucket {
+
+    private final double capacity;
+    private final double tokensPerNano;
+    private final LongSupplier nanoClock;
+
+    private double tokens;
+    private long lastRefill;
+    private long pausedUntil;
+
+    public TokenBucket(double capacity, Duration refillPeriod, LongSupplier nanoClock) {
+        this.capacity = capacity;
+        this.tokensPerNano = capacity / refillPeriod.toNanos();
+        this.nanoClock = nanoClock;
+        this.tokens = capacity;
+        this.lastRefill = nanoClock.getAsLong();
+        this.pausedUntil = lastRefill;
+    }
+
+    /**
+     * Takes a token if at least {@code reserve} tokens would remain afterwards.
+     *
+     * @return 0 if a token was taken, otherwise the estimated nanoseconds until one can be
+     */
+    public synchronized long tryAcquire(double reserve) {
+        long now = refill();
+        if (now < pausedUntil) return pausedUntil - now;
+
+        double needed = Math.min(reserve, capacity - 1) + 1;
+        if (tokens >= needed) {
+            tokens -= 1;
+            return 0;
+        }
+        return Math.max(1, (long) Math.ceil((needed - tokens) / tokensPerNano));
+    }
+
+    /**
+     * Empties the bucket and blocks all callers for the given time, used when the provider reports throttling.
+     */
+    public synchronized void pause(Duration duration) {
+        long now = refill();
+        tokens = 0;
+        pausedUntil = Math.max(pausedUntil, now + duration.toNanos());
+        lastRefill = pausedUntil;
+    }
+
+    public synchronized double available() {
+        refill();
+        return tokens;
+    }
+
+    private long refill() {
+        long now = nanoClock.getAsLong();
+        if (now > lastRefill) {
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+            lastRefill = now;
+        }
+        return now;
+    }
+}
@@ -0,0 +1,139 @@
+package rs.raf.stock_service.utils;
+
+import rs.raf.stock_service.domain.entity.Country;
+import rs.raf.stock_service.domain.entity.Exchange;
+import rs.raf.stock_service.domain.entity.Holiday;
+
+import java.time.*;
+import java.util.*;
+
+/**
+ * Immutable snapshot of the trading sessions of all exchanges, keyed by MIC. Session times are wall clock times
+ * of the exchange's zone, so DST changes do not shift them, weekends and the country's holidays are closed, and
+ * exchanges in test mode are always open. Holidays are kept as one bitset of days per year, so answering whether
+ * an exchange is open is a map lookup and a few field reads.
+ */
+public final class TradingCalendar {
+
+    // dovoljno da se preskoci bilo koja kombinacija vikenda i praznika
+    private static final int MAX_LOOKAHEAD_DAYS = 366;
+
+    // devizno trziste radi od nedelje 17h do petka 17h po njujorskom vremenu
+    private static final ZoneId FOREX_ZONE = ZoneId.of("America/New_York");
+    private static final LocalTime FOREX_ROLLOVER = LocalTime.of(17, 0);
+
+    private final Map<String, Session> sessions;
+    private final List<Exchange> exchanges;
+
+    private TradingCalendar(Map<String, Session> sessions, List<Exchange> exchanges) {
+        this.sessions = sessions;
+        this.exchanges = exchanges;
+    }
+
+    public static TradingCalendar of(List<Exchange> exchanges) {
+        Map<String, Session> sessions = new HashMap<>();
+        for (Exchange exchange : exchanges)
+            sessions.put(exchange.getMic().toUpperCase(), new Session(exchange));
+        return new TradingCalendar(sessions, List.copyOf(exchanges));
+    }
+
+    /**
+     * Zone of an exchange. Exchanges imported before zone ids were stored fall back to their fixed UTC offset.
+     */
+    public static ZoneId zoneOf(Exchange exchange) {
+        if (exchange.getZoneId() != null) return ZoneId.of(exchange.getZoneId());
+        return ZoneOffset.ofHours(exchange.getTimeZone() == null ? 0 : exchange.getTimeZone().intValue());
+    }
+
+    public static boolean isForexMarketOpen(Instant now) {
+        ZonedDateTime local = now.atZone(FOREX_ZONE);
+        LocalTime time = local.toLocalTime();
+        return switch (local.getDayOfWeek()) {
+            case SATURDAY -> false;
+            case FRIDAY -> time.isBefore(FOREX_ROLLOVER);
+            case SUNDAY -> !time.isBefore(FOREX_ROLLOVER);
+            default -> true;
+        };
+    }
+
+    public boolean isEmpty() {
+        return sessions.isEmpty();
+    }
+
+    public Optional<Exchange> exchange(String mic) {
+        Session session = mic == null ? null : sessions.get(mic.toUpperCase());
+        return session == null ? Optional.empty() : Optional.of(session.exchange);
+    }
+
+    public boolean isOpen(String mic, Instant now) {
+        Session session = mic == null ? null : sessions.get(mic.toUpperCase());
+        return session != null && session.isOpen(now);
+    }
+
+    public List<Exchange> openExchanges(Instant now) {
+        List<Exchange> open = new ArrayList<>();
+        for (Exchange exchange : exchanges)
+            if (sessions.get(exchange.getMic().toUpperCase()).isOpen(now)) open.add(exchange);
+        return open;
+    }
+
+    /**
+     * Start of the first session of the exchange that opens after {@code now}, or empty if the exchange is unknown,
+     * in test mode (always open) or has no session in the next year.
+     */
+    public Optional<ZonedDateTime> nextOpen(String mic, Instant now) {
+        Session session = mic == null ? null : sessions.get(mic.toUpperCase());
+        if (session == null || session.testMode || !session.open.isBefore(session.close)) return Optional.empty();
+
+        ZonedDateTime local = now.atZone(session.zone);
+        LocalDate day = local.toLocalDate();
+        if (!local.toLocalTime().isBefore(session.open)) day = day.plusDays(1);
+
+        for (int i = 0; i < MAX_LOOKAHEAD_DAYS; i++, day = day.plusDays(1)) {
+            if (session.isTradingDay(day)) return Optional.of(ZonedDateTime.of(day, session.open, session.zone));
+        }
+        return Optional.empty();
+    }
+
+    private static final class Session {
+        private final Exchange exchange;
+        private final ZoneId zone;
+        private final LocalTime open;
+        private final LocalTime close;
+        private final boolean testMode;
+        private final Map<Integer, BitSet> holidaysByYear = new HashMap<>();
+
+        private Session(Exchange exchange) {
+            Country country = exchange.getPolity();
+            this.exchange = exchange;
+            this.zone = zoneOf(exchange);
+            this.open = country == null || country.getOpenTime() == null ? LocalTime.MIDNIGHT : country.getOpenTime();
+            this.close = country == null || country.getCloseTime() == null ? LocalTime.MIDNIGHT : country.getCloseTime();
+            this.testMode = exchange.isTestMode();
+
+            if (country != null && country.getHolidays() != null) {
+                for (Holiday holiday : country.getHolidays()) {
+                    LocalDate date = holiday.getDate();
+                    if (date == null) continue;
+                    holidaysByYear.computeIfAbsent(date.getYear(), year -> new BitSet(367)).set(date.getDayOfYear());
+                }
+            }
+        }
+
+        private boolean isOpen(Instant now) {
+            if (testMode) return true;
+
+            ZonedDateTime local = now.atZone(zone);
+            LocalTime time = local.toLocalTime();
+            return !time.isBefore(open) && time.isBefore(close) && isTradingDay(local.toLocalDate());
+        }
+
+        private boolean isTradingDay(LocalDate day) {
+            DayOfWeek dayOfWeek = day.getDayOfWeek();
+            if (dayOfWeek == DayOfWeek.SATURDAY || dayOfWeek == DayOfWeek.SUNDAY) return false;
+
+            BitSet holidays = holidaysByYear.get(day.getYear());
+            return holidays == null || !holidays.get(day.getDayOfYear());
+        }
+    }
+}
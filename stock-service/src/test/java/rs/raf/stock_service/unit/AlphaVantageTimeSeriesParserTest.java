@@ -0,0 +1,72 @@
+package rs.raf.stock_service.unit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import rs.raf.stock_service.domain.dto.TimeSeriesDto;
+import rs.raf.stock_service.domain.mapper.AlphaVantageTimeSeriesParser;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AlphaVantageTimeSeriesParserTest {
+
+    private static final String INTRADAY = "{"
+            + "\"Meta Data\": {\"1. Information\": \"Intraday (5min)\", \"2. Symbol\": \"AAPL\", \"extra\": {\"a\": [1, 2]}},"
+            + "\"Time Series (5min)\": {"
+            + "  \"2024-01-01 10:10:00\": {\"1. open\": \"187.4500\", \"2. high\": \"188.0000\", \"3. low\": \"187.1000\", \"4. close\": \"187.9000\", \"5. volume\": \"12345\"},"
+            + "  \"2024-01-01 10:05:00\": {\"1. open\": \"187.0000\", \"2. high\": \"187.5000\", \"3. low\": \"186.9000\", \"4. close\": \"187.4500\", \"5. volume\": \"500\"},"
+            + "  \"2024-01-01 10:00:00\": {\"1. open\": \"186.5000\", \"2. high\": \"187.0000\", \"3. low\": \"186.5000\", \"4. close\": \"187.0000\", \"5. volume\": \"7\"}"
+            + "}}";
+
+    private final AlphaVantageTimeSeriesParser parser = new AlphaVantageTimeSeriesParser(new ObjectMapper());
+
+    @Test
+    void parsesBarsAndMetaData() throws Exception {
+        AlphaVantageTimeSeriesParser.ParsedTimeSeries parsed = parser.parse(INTRADAY, "Time Series (5min)", null);
+
+        assertTrue(parsed.isSeriesFound());
+        assertEquals("AAPL", parsed.getMetaData().get("2. Symbol"));
+        assertEquals(3, parsed.getValues().size());
+
+        TimeSeriesDto.TimeSeriesValueDto first = parsed.getValues().get(0);
+        assertEquals("2024-01-01 10:10:00", first.getDatetime());
+        assertEquals(new BigDecimal("187.4500"), first.getOpen());
+        assertEquals(new BigDecimal("188.0000"), first.getHigh());
+        assertEquals(new BigDecimal("187.1000"), first.getLow());
+        assertEquals(new BigDecimal("187.9000"), first.getClose());
+        assertEquals(12345L, first.getVolume());
+    }
+
+    @Test
+    void skipsBarsNotNewerThanAfter() throws Exception {
+        List<TimeSeriesDto.TimeSeriesValueDto> values =
+                parser.parse(INTRADAY, "Time Series (5min)", "2024-01-01 10:05:00").getValues();
+
+        assertEquals(1, values.size());
+        assertEquals("2024-01-01 10:10:00", values.get(0).getDatetime());
+    }
+
+    @Test
+    void forexBarsWithoutVolumeDefaultToZero() throws Exception {
+        String json = "{\"Time Series FX (5min)\": {\"2024-01-01 10:00:00\": "
+                + "{\"1. open\": \"1.0921\", \"2. high\": \"1.0925\", \"3. low\": \"1.0919\", \"4. close\": \"1.0923\"}}}";
+
+        AlphaVantageTimeSeriesParser.ParsedTimeSeries parsed = parser.parse(json, "Time Series FX", null);
+
+        assertEquals(new BigDecimal("1.0923"), parsed.getValues().get(0).getClose());
+        assertEquals(0L, parsed.getValues().get(0).getVolume());
+    }
+
+    @Test
+    void missingSeriesIsReported() throws Exception {
+        assertFalse(parser.parse("{\"Note\": \"rate limited\"}", "Time Series (5min)", null).isSeriesFound());
+    }
+
+    @Test
+    void errorMessageThrows() {
+        assertThrows(IllegalArgumentException.class,
+                () -> parser.parse("{\"Error Message\": \"Invalid API call\"}", "Time Series (5min)", null));
+    }
+}
@@ -0,0 +1,82 @@
+package rs.raf.stock_service.unit;
+
+import feign.Client;
+import feign.Request;
+import feign.Response;
+import feign.Util;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import rs.raf.stock_service.client.AlphavantageResponseCache;
+import rs.raf.stock_service.client.CachingFeignClient;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class CachingFeignClientTest {
+
+    private static final String QUOTE_URL = "https://www.alphavantage.co/query?function=GLOBAL_QUOTE&symbol=AAPL&apikey=demo";
+    private static final String INTRADAY_URL = "https://www.alphavantage.co/query?function=TIME_SERIES_INTRADAY&symbol=AAPL&apikey=demo";
+
+    private Client delegate;
+    private AlphavantageResponseCache responseCache;
+    private CachingFeignClient client;
+
+    @BeforeEach
+    void setUp() {
+        delegate = mock(Client.class);
+        responseCache = new AlphavantageResponseCache(60, 3600, 100);
+        client = new CachingFeignClient(delegate, responseCache);
+    }
+
+    @Test
+    void execute_ShouldServeRepeatedQuoteFromCache() throws IOException {
+        when(delegate.execute(any(), any())).thenAnswer(invocation ->
+                response(invocation.getArgument(0), "{\"Global Quote\":{\"05. price\":\"150.00\"}}"));
+
+        String first = body(client.execute(get(QUOTE_URL), null));
+        String second = body(client.execute(get(QUOTE_URL), null));
+
+        assertEquals(first, second);
+        verify(delegate, times(1)).execute(any(), any());
+        assertEquals(1, responseCache.stats().get(0).getHits());
+    }
+
+    @Test
+    void execute_ShouldNotCacheRateLimitNote() throws IOException {
+        when(delegate.execute(any(), any())).thenAnswer(invocation ->
+                response(invocation.getArgument(0), "{\"Note\":\"Thank you for using Alpha Vantage!\"}"));
+
+        client.execute(get(QUOTE_URL), null);
+        client.execute(get(QUOTE_URL), null);
+
+        verify(delegate, times(2)).execute(any(), any());
+    }
+
+    @Test
+    void execute_ShouldPassThroughUncachedFunctions() throws IOException {
+        when(delegate.execute(any(), any())).thenAnswer(invocation -> response(invocation.getArgument(0), "{}"));
+
+        client.execute(get(INTRADAY_URL), null);
+        client.execute(get(INTRADAY_URL), null);
+
+        verify(delegate, times(2)).execute(any(), any());
+    }
+
+    private Request get(String url) {
+        return Request.create(Request.HttpMethod.GET, url, Map.of(), null, StandardCharsets.UTF_8, null);
+    }
+
+    private Response response(Request request, String body) {
+        return Response.builder().status(200).request(request).headers(Map.of())
+                .body(body, StandardCharsets.UTF_8).build();
+    }
+
+    private String body(Response response) throws IOException {
+        return Util.toString(response.body().asReader(StandardCharsets.UTF_8));
+    }
+}
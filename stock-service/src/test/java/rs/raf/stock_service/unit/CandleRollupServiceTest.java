@@ -0,0 +1,131 @@
+package rs.raf.stock_service.unit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import rs.raf.stock_service.domain.entity.ListingPriceHistory;
+import rs.raf.stock_service.domain.entity.PriceCandle;
+import rs.raf.stock_service.domain.entity.Stock;
+import rs.raf.stock_service.domain.enums.CandleInterval;
+import rs.raf.stock_service.repository.PriceCandleRepository;
+import rs.raf.stock_service.service.CandleRollupService;
+import rs.raf.stock_service.service.PriceHistoryStore;
+import rs.raf.stock_service.utils.OhlcvChunkCodec;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class CandleRollupServiceTest {
+
+    @Mock
+    private PriceHistoryStore priceHistoryStore;
+
+    @Mock
+    private PriceCandleRepository candleRepository;
+
+    @InjectMocks
+    private CandleRollupService rollupService;
+
+    private final Map<CandleInterval, Map<LocalDateTime, PriceCandle>> saved = new EnumMap<>(CandleInterval.class);
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+
+        // repozitorijum pamti sacuvane svece kako bi nedeljni rollup video dnevne
+        when(candleRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            for (PriceCandle candle : (List<PriceCandle>) invocation.getArgument(0))
+                saved.computeIfAbsent(candle.getInterval(), i -> new TreeMap<>()).put(candle.getBucketStart(), candle);
+            return invocation.getArgument(0);
+        });
+        when(candleRepository.findAllByListingIdAndIntervalAndBucketStartBetweenOrderByBucketStartAsc(eq(1L), any(), any(), any()))
+                .thenAnswer(invocation -> {
+                    CandleInterval interval = invocation.getArgument(1);
+                    LocalDateTime from = invocation.getArgument(2);
+                    LocalDateTime to = invocation.getArgument(3);
+                    return new ArrayList<>(saved.getOrDefault(interval, new TreeMap<>()).values().stream()
+                            .filter(c -> !c.getBucketStart().isBefore(from) && !c.getBucketStart().isAfter(to))
+                            .toList());
+                });
+    }
+
+    @Test
+    void rollsBarsIntoHourDayAndWeekCandles() {
+        // ponedeljak 2024-01-01: dva bara u 10h i jedan u 11h
+        storeBars(bar(10, 0, 10, 12, 9, 11, 100),
+                bar(10, 5, 11, 15, 10, 14, 50),
+                bar(11, 0, 14, 14, 8, 9, 25));
+
+        Stock stock = new Stock();
+        stock.setId(1L);
+        rollupService.roll(List.of(ListingPriceHistory.builder().listing(stock).date(LocalDateTime.of(2024, 1, 1, 11, 0)).build()));
+
+        Map<LocalDateTime, PriceCandle> hours = saved.get(CandleInterval.ONE_HOUR);
+        assertEquals(2, hours.size());
+        PriceCandle ten = hours.get(LocalDateTime.of(2024, 1, 1, 10, 0));
+        assertEquals(new BigDecimal("10"), ten.getOpen());
+        assertEquals(new BigDecimal("15"), ten.getHigh());
+        assertEquals(new BigDecimal("9"), ten.getLow());
+        assertEquals(new BigDecimal("14"), ten.getClose());
+        assertEquals(150L, ten.getVolume());
+
+        PriceCandle day = saved.get(CandleInterval.ONE_DAY).get(LocalDateTime.of(2024, 1, 1, 0, 0));
+        assertEquals(new BigDecimal("10"), day.getOpen());
+        assertEquals(new BigDecimal("15"), day.getHigh());
+        assertEquals(new BigDecimal("8"), day.getLow());
+        assertEquals(new BigDecimal("9"), day.getClose());
+        assertEquals(175L, day.getVolume());
+        assertEquals(3, day.getBarCount());
+
+        PriceCandle week = saved.get(CandleInterval.ONE_WEEK).get(LocalDateTime.of(2024, 1, 1, 0, 0));
+        assertEquals(175L, week.getVolume());
+    }
+
+    @Test
+    void rollingTwiceUpdatesInsteadOfDuplicating() {
+        storeBars(bar(10, 0, 10, 12, 9, 11, 100));
+        Stock stock = new Stock();
+        stock.setId(1L);
+        List<ListingPriceHistory> ingested = List.of(ListingPriceHistory.builder().listing(stock).date(LocalDateTime.of(2024, 1, 1, 10, 0)).build());
+
+        rollupService.roll(ingested);
+        PriceCandle first = saved.get(CandleInterval.ONE_DAY).get(LocalDateTime.of(2024, 1, 1, 0, 0));
+        rollupService.roll(ingested);
+
+        assertSame(first, saved.get(CandleInterval.ONE_DAY).get(LocalDateTime.of(2024, 1, 1, 0, 0)));
+        assertEquals(100L, first.getVolume());
+    }
+
+    private void storeBars(long[]... bars) {
+        OhlcvChunkCodec.Columns columns = new OhlcvChunkCodec.Columns(bars.length, 0);
+        for (int i = 0; i < bars.length; i++) {
+            columns.epochSeconds[i] = bars[i][0];
+            columns.open[i] = bars[i][1];
+            columns.high[i] = bars[i][2];
+            columns.low[i] = bars[i][3];
+            columns.close[i] = bars[i][4];
+            columns.volume[i] = bars[i][5];
+        }
+        doAnswer(invocation -> {
+            PriceHistoryStore.BarVisitor visitor = invocation.getArgument(3);
+            for (int i = 0; i < columns.size; i++) visitor.visit(columns, i);
+            return null;
+        }).when(priceHistoryStore).scan(eq(1L), any(), any(), any());
+    }
+
+    private long[] bar(int hour, int minute, long open, long high, long low, long close, long volume) {
+        return new long[]{
+                LocalDateTime.of(2024, 1, 1, hour, minute).toEpochSecond(ZoneOffset.UTC),
+                open, high, low, close, volume
+        };
+    }
+}
@@ -3,16 +3,15 @@ package rs.raf.stock_service.unit;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.test.util.ReflectionTestUtils;
 import rs.raf.stock_service.domain.dto.*;
 import rs.raf.stock_service.domain.entity.*;
-import rs.raf.stock_service.domain.enums.OptionType;
+import rs.raf.stock_service.domain.event.ListingPriceChangedEvent;
 import rs.raf.stock_service.repository.*;
 import rs.raf.stock_service.service.*;
 
-import javax.persistence.EntityManager;
 import java.math.BigDecimal;
-import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.ExecutorService;
@@ -30,20 +29,25 @@ public class DataRefreshServiceTest {
 
     @Mock private ListingRepository listingRepository;
     @Mock private ListingPriceHistoryRepository priceHistoryRepository;
-    @Mock private PortfolioEntryRepository portfolioEntryRepository;
-    @Mock private OptionRepository optionRepository;
-    @Mock private OptionService optionService;
+    @Mock private ListingPriceHistoryBulkWriter priceHistoryWriter;
+    @Mock private PriceHistoryStore priceHistoryStore;
+    @Mock private CandleRollupService candleRollupService;
+    @Mock private IndicatorService indicatorService;
+    @Mock private OptionChainMaintainer optionChainMaintainer;
     @Mock private StocksService stocksService;
     @Mock private ForexService forexService;
     @Mock private ListingService listingService;
-    @Mock private EntityManager entityManager;
-    @Mock private OrderService orderService;
+    @Mock private ApplicationEventPublisher eventPublisher;
+    @Mock private LatestPriceCache latestPriceCache;
+    @Mock private RefreshPlanner refreshPlanner;
+    @Spy private FanOutExecutor fanOutExecutor = new FanOutExecutor(4, 60000);
 
     @BeforeEach
     public void setUp() {
         MockitoAnnotations.openMocks(this);
 
-        ReflectionTestUtils.setField(refreshService, "threadPoolSize", 4);
+        ReflectionTestUtils.setField(refreshService, "refreshDeadlineMillis", 60000L);
+        when(refreshPlanner.due(anyList(), any())).thenAnswer(invocation -> invocation.getArgument(0));
     }
 
     @Test
@@ -56,8 +60,6 @@ public class DataRefreshServiceTest {
         forex.setId(2L);
         forex.setTicker("USD/EUR");
 
-        doNothing().when(orderService).checkOrders();
-
         when(listingRepository.findAll()).thenReturn(List.of(stock, forex));
 
         when(stocksService.getStockData("AAPL")).thenReturn(
@@ -82,9 +84,9 @@ public class DataRefreshServiceTest {
         timeSeries.setValues(List.of(value));
         timeSeries.setStatus("ok");
 
-        when(listingService.getPriceHistoryFromAlphaVantage(eq("AAPL"), any(), any()))
+        when(listingService.getPriceHistoryFromAlphaVantage(eq("AAPL"), any(), any(), any()))
                 .thenReturn(timeSeries);
-        when(priceHistoryRepository.findDatesByListingId(1L)).thenReturn(Set.of());
+        when(priceHistoryRepository.findLatestDateByListingId(1L)).thenReturn(Optional.empty());
 
         // Forex deo
         when(forexService.getForexPair("USD", "EUR")).thenReturn(
@@ -99,35 +101,57 @@ public class DataRefreshServiceTest {
                         .build()
         );
 
-        when(listingService.getForexPriceHistory(2L, "5min"))
+        when(listingService.getForexPriceHistory(eq(2L), eq("5min"), any()))
                 .thenReturn(timeSeries);
-        when(priceHistoryRepository.findDatesByListingId(2L)).thenReturn(Set.of());
+        when(priceHistoryRepository.findLatestDateByListingId(2L)).thenReturn(Optional.empty());
 
-        when(portfolioEntryRepository.findAllOptionTickersInUse()).thenReturn(Set.of());
-        when(optionRepository.findAll()).thenReturn(List.of());
-        when(optionRepository.findAllTickers()).thenReturn(Set.of());
+        assertDoesNotThrow(() -> refreshService.refreshListings());
 
-        OptionDto optionDto = OptionDto.builder()
-                .ticker("AAPL-CALL-1")
-                .optionType(OptionType.CALL)
-                .strikePrice(new BigDecimal("100"))
-                .contractSize(new BigDecimal("100"))
-                .settlementDate(LocalDate.now().plusDays(30))
-                .maintenanceMargin(new BigDecimal("10"))
-                .price(new BigDecimal("5"))
-                .stockListing("AAPL")
-                .onSale(true)
-                .build();
+        verify(listingRepository, atLeastOnce()).findAll();
+        verify(listingRepository, atLeastOnce()).save(any());
+        verify(optionChainMaintainer).refresh(List.of(stock));
+        verify(eventPublisher, times(2)).publishEvent(any(ListingPriceChangedEvent.class));
+        verify(latestPriceCache).refresh(List.of(1L, 2L));
+        verify(priceHistoryWriter, times(2)).insertIgnoringDuplicates(anyList());
+    }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testRefreshStockRequestsOnlyBarsNewerThanWatermark() {
+        Stock stock = new Stock();
+        stock.setId(1L);
+        stock.setTicker("AAPL");
 
-        when(optionService.generateOptions("AAPL", new BigDecimal("100")))
-                .thenReturn(List.of(optionDto));
+        when(listingRepository.findAll()).thenReturn(List.of(stock));
+        LocalDateTime watermark = LocalDateTime.of(2024, 1, 1, 10, 5);
+        when(priceHistoryRepository.findLatestDateByListingId(1L)).thenReturn(Optional.of(watermark));
+        when(listingService.getPriceHistoryFromAlphaVantage("AAPL", "5min", "compact", watermark))
+                .thenReturn(timeSeries("2024-01-01 10:10:00"));
 
-        assertDoesNotThrow(() -> refreshService.refreshListings());
+        refreshService.refreshListings();
 
-        verify(listingRepository, atLeastOnce()).findAll();
-        verify(listingRepository, atLeastOnce()).save(any());
-        verify(optionRepository, atLeastOnce()).saveAllAndFlush(any());
+        ArgumentCaptor<List<ListingPriceHistory>> captor = ArgumentCaptor.forClass(List.class);
+        verify(priceHistoryWriter).insertIgnoringDuplicates(captor.capture());
+        assertEquals(1, captor.getValue().size());
+        assertEquals(LocalDateTime.of(2024, 1, 1, 10, 10), captor.getValue().get(0).getDate());
+    }
+
+    private TimeSeriesDto timeSeries(String... datetimes) {
+        List<TimeSeriesDto.TimeSeriesValueDto> values = new ArrayList<>();
+        for (String datetime : datetimes) {
+            TimeSeriesDto.TimeSeriesValueDto value = new TimeSeriesDto.TimeSeriesValueDto();
+            value.setDatetime(datetime);
+            value.setOpen(BigDecimal.TEN);
+            value.setHigh(BigDecimal.TEN);
+            value.setLow(BigDecimal.TEN);
+            value.setClose(BigDecimal.TEN);
+            value.setVolume(100L);
+            values.add(value);
+        }
+        TimeSeriesDto dto = new TimeSeriesDto();
+        dto.setValues(values);
+        dto.setStatus("ok");
+        return dto;
     }
 
     @Test
@@ -135,45 +159,69 @@ public class DataRefreshServiceTest {
         Stock stock = new Stock();
         stock.setId(1L);
         stock.setTicker("FAIL");
-        doNothing().when(orderService).checkOrders();
         doThrow(new RuntimeException("Boom")).when(stocksService).getStockData("FAIL");
 
         assertDoesNotThrow(() -> refreshService.refreshListings()); // test indirectly
     }
 
+    @Test
+    public void testRefreshListingsReportsFailedPullsToThePlanner() {
+        Stock ok = new Stock();
+        ok.setId(1L);
+        ok.setTicker("AAPL");
+        Stock failing = new Stock();
+        failing.setId(2L);
+        failing.setTicker("FAIL");
+
+        when(listingRepository.findAll()).thenReturn(List.of(ok, failing));
+        when(stocksService.getStockData("AAPL")).thenReturn(null);
+        when(listingService.getPriceHistoryFromAlphaVantage(eq("AAPL"), any(), any(), any())).thenReturn(timeSeries());
+        when(priceHistoryRepository.findLatestDateByListingId(1L)).thenReturn(Optional.empty());
+        doThrow(new RuntimeException("Boom")).when(stocksService).getStockData("FAIL");
+
+        refreshService.refreshListings();
+
+        verify(refreshPlanner).refreshFailed(List.of(2L));
+    }
+
     @Test
     public void testRefreshForexInvalidTickerSkipped() {
         ForexPair forex = new ForexPair();
         forex.setTicker("BADFORMAT");
 
-        doNothing().when(orderService).checkOrders();
-
         refreshService.refreshListings(); // indirectly, since method is private
         verify(forexService, never()).getForexPair(any(), any());
     }
 
     @Test
-    public void testRefreshOptionsHandlesOptionServiceFailureGracefully() {
+    public void testRefreshOptionsHandlesMaintainerFailureGracefully() {
         Stock stock = new Stock();
         stock.setId(1L);
         stock.setTicker("AAPL");
         stock.setPrice(new BigDecimal("100"));
 
-        Option oldOption = new Option();
-        oldOption.setId(10L);
-        oldOption.setTicker("OLD");
-        oldOption.setUnderlyingStock(stock);
-
-        doNothing().when(orderService).checkOrders();
-        when(portfolioEntryRepository.findAllOptionTickersInUse()).thenReturn(Set.of());
-        when(optionRepository.findAll()).thenReturn(List.of(oldOption));
-        when(optionRepository.findAllTickers()).thenReturn(Set.of("OLD"));
-        when(optionService.generateOptions("AAPL", new BigDecimal("100")))
-                .thenThrow(new RuntimeException("Simulated failure"));
+        when(listingRepository.findAll()).thenReturn(List.of(stock));
+        doThrow(new RuntimeException("Simulated failure")).when(optionChainMaintainer).refresh(anyList());
 
         assertDoesNotThrow(() -> refreshService.refreshListings());
     }
 
+    @Test
+    public void testRefreshListingsSkipsListingsThePlannerDefers() {
+        Stock stock = new Stock();
+        stock.setId(1L);
+        stock.setTicker("AAPL");
+
+        when(listingRepository.findAll()).thenReturn(List.of(stock));
+        when(refreshPlanner.due(anyList(), any())).thenReturn(List.of());
+
+        refreshService.refreshListings();
+
+        verify(stocksService, never()).getStockData(any());
+        verify(latestPriceCache).refresh(List.of());
+        verify(optionChainMaintainer).refresh(List.of());
+    }
+
     @Test
     public void testFakeSaveInBatches() {
         List<String> items = new ArrayList<>();
@@ -212,4 +260,22 @@ public class DataRefreshServiceTest {
         assertEquals(3, seen.size());
     }
 
-}
\ No newline at end of file
+    @Test
+    public void refreshListings_ShouldNotPublishPriceChangeWhenOnlyVolumeChanged() {
+        Stock stock = new Stock();
+        stock.setId(1L);
+        stock.setTicker("AAPL");
+        stock.setPrice(new BigDecimal("100.00"));
+        stock.setVolume(50L);
+
+        when(listingRepository.findAll()).thenReturn(List.of(stock));
+        when(stocksService.getStockData("AAPL")).thenReturn(
+                StockDto.builder().ticker("AAPL").price(new BigDecimal("100")).change(BigDecimal.ZERO).volume(100L).build());
+
+        refreshService.refreshListings();
+
+        verify(listingRepository).save(stock);
+        assertEquals(100L, stock.getVolume());
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+}
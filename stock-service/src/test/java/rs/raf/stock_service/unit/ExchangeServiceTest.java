@@ -44,11 +44,13 @@ class ExchangeServiceTest {
         country.setCloseTime(LocalTime.of(9, 0));
 
         exchange1 = new Exchange();
+        exchange1.setMic("XNYS");
         exchange1.setTestMode(false);
         exchange1.setPolity(country);
         exchange1.setTimeZone(0L);
 
         exchange2 = new Exchange();
+        exchange2.setMic("XNAS");
         exchange2.setTestMode(true);
         exchange2.setPolity(country);
         exchange2.setTimeZone(0L);
@@ -77,16 +79,31 @@ class ExchangeServiceTest {
 
     @Test
     void getAvailableExchanges_ShouldThrowException_WhenNoExchangesLoaded() {
-        when(exchangeRepository.findAll()).thenReturn(Collections.emptyList());
+        when(exchangeRepository.findAllWithHolidays()).thenReturn(Collections.emptyList());
         assertThrows(ExchangesNotLoadedException.class, () -> exchangeService.getAvailableExchanges());
     }
 
     @Test
     void getAvailableExchanges_ShouldReturnTestModeExchanges() {
-        when(exchangeRepository.findAll()).thenReturn(Arrays.asList(exchange1, exchange2));
+        when(exchangeRepository.findAllWithHolidays()).thenReturn(Arrays.asList(exchange1, exchange2));
         List<Exchange> result = exchangeService.getAvailableExchanges();
         assertTrue(result.contains(exchange2));
         assertFalse(result.contains(exchange1));
     }
 
+    @Test
+    void getAvailableExchanges_ShouldReuseCalendarUntilTestModeIsToggled() {
+        when(exchangeRepository.findAllWithHolidays()).thenReturn(Arrays.asList(exchange1, exchange2));
+        when(exchangeRepository.findAll()).thenReturn(Arrays.asList(exchange1, exchange2));
+
+        exchangeService.getAvailableExchanges();
+        assertTrue(exchangeService.getAvailableExchange("xnas").isPresent());
+        verify(exchangeRepository, times(1)).findAllWithHolidays();
+
+        exchangeService.toggleTestMode();
+        List<Exchange> result = exchangeService.getAvailableExchanges();
+
+        assertEquals(List.of(exchange1), result);
+        verify(exchangeRepository, times(2)).findAllWithHolidays();
+    }
 }
@@ -0,0 +1,71 @@
+package rs.raf.stock_service.unit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import rs.raf.stock_service.domain.dto.FanOutStatsDto;
+import rs.raf.stock_service.service.FanOutExecutor;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FanOutExecutorTest {
+
+    private final FanOutExecutor executor = new FanOutExecutor(2, 60000);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void flatMap_ShouldConcatenateResultsInItemOrderAndSkipFailures() {
+        List<Integer> result = executor.flatMap(List.of(1, 2, 3), item -> {
+            if (item == 2) throw new IllegalStateException("boom");
+            return List.of(item, item * 10);
+        });
+
+        assertEquals(List.of(1, 10, 3, 30), result);
+        FanOutStatsDto stats = executor.stats();
+        assertEquals(3, stats.getSubmitted());
+        assertEquals(2, stats.getCompleted());
+        assertEquals(1, stats.getFailed());
+    }
+
+    @Test
+    void forEach_ShouldReuseThreadsBetweenRuns() {
+        ConcurrentLinkedQueue<String> threads = new ConcurrentLinkedQueue<>();
+        for (int run = 0; run < 3; run++) {
+            executor.forEach(List.of(1, 2, 3, 4), item -> threads.add(Thread.currentThread().getName()));
+        }
+
+        assertEquals(12, threads.size());
+        assertTrue(threads.stream().distinct().count() <= 2);
+    }
+
+    @Test
+    void flatMap_ShouldCancelRemainingTasksAfterDeadline() throws InterruptedException {
+        CountDownLatch interrupted = new CountDownLatch(2);
+
+        List<Integer> result = executor.flatMap(List.of(1, 2, 3, 4), item -> {
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                Thread.currentThread().interrupt();
+            }
+            return List.of(item);
+        }, Duration.ofMillis(100));
+
+        assertTrue(result.isEmpty());
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        FanOutStatsDto stats = executor.stats();
+        assertEquals(1, stats.getDeadlinesMissed());
+        assertEquals(4, stats.getCancelled());
+        assertEquals(0, stats.getQueued());
+    }
+}
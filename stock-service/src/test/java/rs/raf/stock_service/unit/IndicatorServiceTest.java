@@ -0,0 +1,115 @@
+package rs.raf.stock_service.unit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import rs.raf.stock_service.domain.dto.IndicatorValuesDto;
+import rs.raf.stock_service.domain.entity.IndicatorChunk;
+import rs.raf.stock_service.domain.entity.IndicatorSnapshot;
+import rs.raf.stock_service.domain.entity.ListingPriceHistory;
+import rs.raf.stock_service.domain.entity.Stock;
+import rs.raf.stock_service.repository.IndicatorChunkRepository;
+import rs.raf.stock_service.repository.IndicatorSnapshotRepository;
+import rs.raf.stock_service.service.IndicatorService;
+import rs.raf.stock_service.service.PriceHistoryStore;
+import rs.raf.stock_service.utils.IndicatorSeriesCodec;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class IndicatorServiceTest {
+
+    @Mock
+    private PriceHistoryStore priceHistoryStore;
+
+    @Mock
+    private IndicatorSnapshotRepository snapshotRepository;
+
+    @Mock
+    private IndicatorChunkRepository chunkRepository;
+
+    @InjectMocks
+    private IndicatorService indicatorService;
+
+    private final Stock stock = new Stock();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        stock.setId(1L);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void update_ShouldStoreSnapshotAndDayChunk() {
+        LocalDateTime first = LocalDateTime.of(2024, 1, 2, 14, 30);
+
+        indicatorService.update(List.of(bar(first.plusMinutes(5), "11", 300L), bar(first, "10", 100L)));
+
+        ArgumentCaptor<IndicatorSnapshot> snapshot = ArgumentCaptor.forClass(IndicatorSnapshot.class);
+        verify(snapshotRepository).save(snapshot.capture());
+        assertEquals(first.plusMinutes(5), snapshot.getValue().getLastBar());
+        assertNull(snapshot.getValue().getSma());
+        assertEquals(10.75, snapshot.getValue().getVwap(), 1e-9);
+
+        ArgumentCaptor<List<IndicatorChunk>> chunks = ArgumentCaptor.forClass(List.class);
+        verify(chunkRepository).saveAll(chunks.capture());
+        assertEquals(1, chunks.getValue().size());
+        assertEquals(LocalDate.of(2024, 1, 2), chunks.getValue().get(0).getDay());
+        assertEquals(2, chunks.getValue().get(0).getPointCount());
+        // bez sacuvanog stanja indikatori se zagrevaju iz istorije
+        verify(priceHistoryStore).scan(eq(1L), eq(LocalDateTime.of(2023, 12, 28, 0, 0)), isNull(), any());
+
+        IndicatorValuesDto latest = indicatorService.getLatest(1L);
+        assertEquals(first.plusMinutes(5), latest.getDatetime());
+        assertEquals(10.75, latest.getVwap(), 1e-9);
+    }
+
+    @Test
+    void update_ShouldIgnoreBarsOlderThanLastOne() {
+        LocalDateTime time = LocalDateTime.of(2024, 1, 2, 14, 30);
+        indicatorService.update(List.of(bar(time, "10", 100L)));
+        clearInvocations(snapshotRepository, chunkRepository);
+
+        indicatorService.update(List.of(bar(time.minusMinutes(5), "9", 100L)));
+
+        verify(snapshotRepository, never()).save(any());
+        verify(chunkRepository, never()).saveAll(any());
+    }
+
+    @Test
+    void getSeries_ShouldReturnNewestPointsFirst() {
+        LocalDateTime time = LocalDateTime.of(2024, 1, 2, 14, 30);
+        IndicatorSeriesCodec.Columns columns = new IndicatorSeriesCodec.Columns(3);
+        for (int i = 0; i < 3; i++)
+            columns.add(time.plusMinutes(5L * i).toEpochSecond(ZoneOffset.UTC), 10 + i, Double.NaN, 10, 50);
+        IndicatorChunk chunk = IndicatorChunk.builder().listingId(1L).day(time.toLocalDate()).pointCount(3)
+                .data(IndicatorSeriesCodec.encode(columns)).build();
+        when(chunkRepository.findAllByListingIdAndDayBetweenOrderByDayDesc(eq(1L), any(), any(), any()))
+                .thenReturn(List.of(chunk));
+
+        List<IndicatorValuesDto> series = indicatorService.getSeries(1L, null, null, 2);
+
+        assertEquals(2, series.size());
+        assertEquals(time.plusMinutes(10), series.get(0).getDatetime());
+        assertEquals(12.0, series.get(0).getSma());
+        assertNull(series.get(0).getEma());
+        assertEquals(time.plusMinutes(5), series.get(1).getDatetime());
+    }
+
+    private ListingPriceHistory bar(LocalDateTime date, String close, Long volume) {
+        BigDecimal price = new BigDecimal(close);
+        return ListingPriceHistory.builder().listing(stock).date(date)
+                .open(price).high(price).low(price).close(price).volume(volume).build();
+    }
+}
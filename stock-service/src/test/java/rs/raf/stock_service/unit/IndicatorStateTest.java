@@ -0,0 +1,111 @@
+package rs.raf.stock_service.unit;
+
+import org.junit.jupiter.api.Test;
+import rs.raf.stock_service.utils.IndicatorSeriesCodec;
+import rs.raf.stock_service.utils.IndicatorState;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndicatorStateTest {
+
+    private static final long DAY_START = 1704067200L; // 2024-01-01T00:00Z
+    private static final long BAR = 300;
+
+    @Test
+    void smaAndEmaStartAfterPeriodAndRollForward() {
+        IndicatorState state = new IndicatorState();
+        for (int i = 1; i < IndicatorState.SMA_PERIOD; i++) add(state, i, i);
+        assertTrue(Double.isNaN(state.sma()));
+        assertTrue(Double.isNaN(state.ema()));
+
+        add(state, 20, 20);
+        assertEquals(10.5, state.sma(), 1e-9);
+        assertEquals(10.5, state.ema(), 1e-9);
+
+        add(state, 21, 21);
+        assertEquals(11.5, state.sma(), 1e-9);
+        // 10.5 + 2/21 * (21 - 10.5)
+        assertEquals(11.5, state.ema(), 1e-9);
+    }
+
+    @Test
+    void rsiUsesAverageGainsAndLosses() {
+        IndicatorState rising = new IndicatorState();
+        IndicatorState alternating = new IndicatorState();
+        for (int i = 0; i < IndicatorState.RSI_PERIOD; i++) {
+            add(rising, i, 100 + i);
+            add(alternating, i, 10 + i % 2);
+        }
+        assertTrue(Double.isNaN(rising.rsi()));
+
+        add(rising, IndicatorState.RSI_PERIOD, 100 + IndicatorState.RSI_PERIOD);
+        add(alternating, IndicatorState.RSI_PERIOD, 10);
+
+        assertEquals(100, rising.rsi(), 1e-9);
+        assertEquals(50, alternating.rsi(), 1e-9);
+    }
+
+    @Test
+    void vwapResetsEveryDay() {
+        IndicatorState state = new IndicatorState();
+        state.add(DAY_START, 12, 8, 10, 100);
+        state.add(DAY_START + BAR, 13, 11, 12, 300);
+        assertEquals(11.5, state.vwap(), 1e-9);
+
+        state.add(DAY_START + 86400, 21, 19, 20, -1);
+        assertTrue(Double.isNaN(state.vwap()));
+
+        state.add(DAY_START + 86400 + BAR, 21, 19, 20, 10);
+        assertEquals(20, state.vwap(), 1e-9);
+    }
+
+    @Test
+    void barsNotNewerThanLastAreIgnored() {
+        IndicatorState state = new IndicatorState();
+        assertTrue(state.isEmpty());
+        assertTrue(state.add(DAY_START + BAR, 10, 10, 10, 1));
+
+        assertFalse(state.add(DAY_START + BAR, 99, 99, 99, 1));
+        assertFalse(state.add(DAY_START, 99, 99, 99, 1));
+        assertEquals(DAY_START + BAR, state.lastEpochSecond());
+        assertEquals(10, state.vwap(), 1e-9);
+    }
+
+    @Test
+    void restoredStateContinuesLikeOriginal() {
+        IndicatorState state = new IndicatorState();
+        for (int i = 0; i < 25; i++) add(state, i, 100 + Math.sin(i) * 5);
+
+        IndicatorState restored = IndicatorState.fromBytes(state.toBytes());
+        add(state, 25, 97);
+        add(restored, 25, 97);
+
+        assertEquals(state.lastEpochSecond(), restored.lastEpochSecond());
+        assertEquals(state.sma(), restored.sma());
+        assertEquals(state.ema(), restored.ema());
+        assertEquals(state.rsi(), restored.rsi());
+        assertEquals(state.vwap(), restored.vwap());
+    }
+
+    @Test
+    void seriesCodecRoundTripKeepsMissingValues() {
+        IndicatorSeriesCodec.Columns columns = new IndicatorSeriesCodec.Columns(1);
+        columns.add(DAY_START, Double.NaN, Double.NaN, 10.25, Double.NaN);
+        columns.add(DAY_START + BAR, 11.5, 11.25, 10.5, 62.5);
+        columns.add(DAY_START + 3 * BAR, 12, 11.5, 10.75, 70);
+
+        IndicatorSeriesCodec.Columns decoded = IndicatorSeriesCodec.decode(IndicatorSeriesCodec.encode(columns));
+
+        assertEquals(3, decoded.size);
+        assertArrayEquals(new long[]{DAY_START, DAY_START + BAR, DAY_START + 3 * BAR}, decoded.epochSeconds);
+        assertTrue(Float.isNaN(decoded.sma[0]));
+        assertEquals(10.25f, decoded.vwap[0]);
+        assertEquals(11.25f, decoded.ema[1]);
+        assertEquals(70f, decoded.rsi[2]);
+        assertEquals(2, decoded.lowerBound(DAY_START + 2 * BAR));
+    }
+
+    private static void add(IndicatorState state, int bar, double close) {
+        state.add(DAY_START + bar * BAR, close, close, close, 1000);
+    }
+}
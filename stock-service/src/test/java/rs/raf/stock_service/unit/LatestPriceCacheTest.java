@@ -0,0 +1,70 @@
+package rs.raf.stock_service.unit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import rs.raf.stock_service.domain.entity.ListingPriceHistory;
+import rs.raf.stock_service.domain.entity.Stock;
+import rs.raf.stock_service.repository.ListingPriceHistoryRepository;
+import rs.raf.stock_service.service.LatestPriceCache;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class LatestPriceCacheTest {
+
+    @Mock
+    private ListingPriceHistoryRepository priceHistoryRepository;
+
+    @InjectMocks
+    private LatestPriceCache latestPriceCache;
+
+    private Stock apple;
+    private Stock msft;
+    private ListingPriceHistory appleBar;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+
+        apple = new Stock();
+        apple.setId(1L);
+        msft = new Stock();
+        msft.setId(2L);
+        appleBar = ListingPriceHistory.builder().listing(apple).close(new BigDecimal("150")).build();
+    }
+
+    @Test
+    void getLatest_ShouldLoadAllMissesWithOneQueryAndCacheThem() {
+        when(priceHistoryRepository.findLatestByListingIds(anyCollection())).thenReturn(List.of(appleBar));
+
+        Map<Long, ListingPriceHistory> first = latestPriceCache.getLatest(Arrays.asList(apple, msft, null));
+        Map<Long, ListingPriceHistory> second = latestPriceCache.getLatest(List.of(apple));
+
+        assertEquals(Map.of(1L, appleBar), first);
+        assertEquals(Map.of(1L, appleBar), second);
+        verify(priceHistoryRepository, times(1)).findLatestByListingIds(argThat(ids -> ids.size() == 2 && ids.containsAll(Set.of(1L, 2L))));
+        verifyNoMoreInteractions(priceHistoryRepository);
+    }
+
+    @Test
+    void refresh_ShouldReplaceCachedBars() {
+        ListingPriceHistory newerBar = ListingPriceHistory.builder().listing(apple).close(new BigDecimal("151")).build();
+        when(priceHistoryRepository.findLatestByListingIds(anyCollection()))
+                .thenReturn(List.of(appleBar))
+                .thenReturn(List.of(newerBar));
+
+        latestPriceCache.getLatest(List.of(apple));
+        latestPriceCache.refresh(List.of(1L));
+
+        assertSame(newerBar, latestPriceCache.getLatest(List.of(apple)).get(1L));
+    }
+}
@@ -121,17 +121,17 @@ class ListingControllerTest {
     void getListingDetails_ShouldReturnNotFoundWhenListingDoesNotExist() {
         Long nonExistentId = 2L;
 
-        when(listingService.getListingDetails(nonExistentId))
+        when(listingService.getListingDetails(nonExistentId, null, null, null))
                 .thenThrow(new ListingNotFoundException(nonExistentId));
 
         Exception exception = assertThrows(ListingNotFoundException.class, () -> {
-            listingController.getListingDetails(nonExistentId);
+            listingController.getListingDetails(nonExistentId, null, null, null);
         });
 
         assertEquals("Listing with ID 2 not found.", exception.getMessage());
 
         // Verifikacija poziva
-        verify(listingService, times(1)).getListingDetails(nonExistentId);
+        verify(listingService, times(1)).getListingDetails(nonExistentId, null, null, null);
     }
 
     @Test
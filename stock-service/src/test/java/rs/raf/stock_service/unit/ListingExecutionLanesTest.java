@@ -0,0 +1,93 @@
+package rs.raf.stock_service.unit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import rs.raf.stock_service.domain.dto.ExecutionLaneStatsDto;
+import rs.raf.stock_service.service.ListingExecutionLanes;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ListingExecutionLanesTest {
+
+    private ListingExecutionLanes lanes;
+
+    @BeforeEach
+    void setUp() {
+        lanes = new ListingExecutionLanes(4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        lanes.shutdown();
+    }
+
+    @Test
+    void submit_ShouldKeepSubmissionOrderPerListing() throws InterruptedException {
+        List<Integer> executed = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(100);
+
+        for (int i = 0; i < 100; i++) {
+            int sequence = i;
+            lanes.submit(42L, () -> {
+                executed.add(sequence);
+                done.countDown();
+            });
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        List<Integer> sorted = executed.stream().sorted().toList();
+        assertEquals(sorted, executed);
+    }
+
+    @Test
+    void laneOf_ShouldSpreadListingsAcrossLanes() {
+        assertEquals(lanes.laneOf(5L), lanes.laneOf(5L));
+        assertNotEquals(lanes.laneOf(1L), lanes.laneOf(2L));
+        assertTrue(lanes.laneOf(-3L) >= 0);
+    }
+
+    @Test
+    void getStats_ShouldCountCompletedAndFailedTasks() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        lanes.submit(1L, () -> {});
+        lanes.submit(1L, () -> {
+            throw new IllegalStateException("fill failed");
+        });
+        lanes.submit(1L, done::countDown);
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        lanes.shutdown();
+
+        ExecutionLaneStatsDto stats = lanes.getStats().get(lanes.laneOf(1L));
+        assertEquals(3, stats.getSubmitted());
+        assertEquals(2, stats.getCompleted());
+        assertEquals(1, stats.getFailed());
+        assertEquals(0, lanes.inFlight());
+        assertEquals(0L, lanes.getStats().stream()
+                .filter(s -> s.getLane() != lanes.laneOf(1L))
+                .mapToLong(ExecutionLaneStatsDto::getSubmitted).sum());
+    }
+
+    @Test
+    void submit_ShouldCompleteFutureWithTaskOutcome() {
+        IllegalStateException failure = new IllegalStateException("fill failed");
+
+        CompletableFuture<Void> ok = lanes.submit(7L, () -> {});
+        CompletableFuture<Void> failed = lanes.submit(7L, () -> {
+            throw failure;
+        });
+
+        assertNull(ok.orTimeout(5, TimeUnit.SECONDS).join());
+        CompletionException thrown = assertThrows(CompletionException.class,
+                () -> failed.orTimeout(5, TimeUnit.SECONDS).join());
+        assertSame(failure, thrown.getCause());
+    }
+}
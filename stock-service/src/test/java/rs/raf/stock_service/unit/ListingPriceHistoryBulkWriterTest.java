@@ -0,0 +1,67 @@
+package rs.raf.stock_service.unit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import rs.raf.stock_service.domain.entity.ListingPriceHistory;
+import rs.raf.stock_service.domain.entity.Stock;
+import rs.raf.stock_service.repository.ListingPriceHistoryBulkWriter;
+
+import java.math.BigDecimal;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ListingPriceHistoryBulkWriterTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private ListingPriceHistoryBulkWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        writer = new ListingPriceHistoryBulkWriter(jdbcTemplate, 2);
+    }
+
+    @Test
+    void emptyListDoesNotTouchDatabase() {
+        assertEquals(0, writer.insertIgnoringDuplicates(List.of()));
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void countsOnlyInsertedRows() {
+        List<ListingPriceHistory> bars = List.of(bar(10), bar(15), bar(20));
+        // drugi bar je vec postojao (0), treci je upisan ali driver nije vratio broj redova
+        when(jdbcTemplate.batchUpdate(contains("ON CONFLICT (listing_id, date) DO NOTHING"), eq(bars), eq(2),
+                any(ParameterizedPreparedStatementSetter.class)))
+                .thenReturn(new int[][]{{1, 0}, {Statement.SUCCESS_NO_INFO}});
+
+        assertEquals(1, writer.insertIgnoringDuplicates(bars));
+    }
+
+    private ListingPriceHistory bar(int minute) {
+        Stock stock = new Stock();
+        stock.setId(1L);
+        return ListingPriceHistory.builder()
+                .listing(stock)
+                .date(LocalDateTime.of(2024, 1, 1, 10, minute))
+                .open(BigDecimal.TEN)
+                .high(BigDecimal.TEN)
+                .low(BigDecimal.TEN)
+                .close(BigDecimal.TEN)
+                .change(BigDecimal.ZERO)
+                .volume(100L)
+                .build();
+    }
+}
@@ -1,17 +1,27 @@
 package rs.raf.stock_service.unit;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.mock.env.MockEnvironment;
+import rs.raf.stock_service.client.AlphavantageClient;
+import rs.raf.stock_service.client.ProviderRateLimiter;
 import rs.raf.stock_service.client.TwelveDataClient;
 import rs.raf.stock_service.domain.dto.*;
 import rs.raf.stock_service.domain.entity.Exchange;
 import rs.raf.stock_service.domain.entity.ListingPriceHistory;
+import rs.raf.stock_service.domain.entity.PriceCandle;
 import rs.raf.stock_service.domain.entity.Stock;
+import rs.raf.stock_service.domain.enums.CandleInterval;
 import rs.raf.stock_service.domain.enums.ListingType;
+import rs.raf.stock_service.domain.event.ListingPriceChangedEvent;
+import rs.raf.stock_service.domain.mapper.AlphaVantageTimeSeriesParser;
 import rs.raf.stock_service.domain.mapper.ListingMapper;
 import rs.raf.stock_service.domain.mapper.TimeSeriesMapper;
 import rs.raf.stock_service.exceptions.ListingNotFoundException;
@@ -19,17 +29,26 @@ import rs.raf.stock_service.exceptions.UnauthorizedException;
 import rs.raf.stock_service.repository.ListingPriceHistoryRepository;
 import rs.raf.stock_service.repository.ListingRepository;
 import rs.raf.stock_service.repository.OptionRepository;
+import rs.raf.stock_service.service.CandleRollupService;
+import rs.raf.stock_service.service.IndicatorService;
+import rs.raf.stock_service.service.LatestPriceCache;
+import rs.raf.stock_service.service.ListingDemandTracker;
 import rs.raf.stock_service.service.ListingService;
+import rs.raf.stock_service.service.MarketDataHedger;
+import rs.raf.stock_service.service.PriceHistoryStore;
 import rs.raf.stock_service.utils.JwtTokenUtil;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.*;
 
@@ -59,6 +78,34 @@ class ListingServiceTest {
     @Mock
     private OptionRepository optionRepository;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private LatestPriceCache latestPriceCache;
+
+    @Mock
+    private PriceHistoryStore priceHistoryStore;
+
+    @Mock
+    private CandleRollupService candleRollupService;
+
+    @Mock
+    private ListingDemandTracker demandTracker;
+
+    @Mock
+    private AlphavantageClient alphavantageClient;
+
+    @Spy
+    private AlphaVantageTimeSeriesParser timeSeriesParser = new AlphaVantageTimeSeriesParser(new ObjectMapper());
+
+    @Mock
+    private IndicatorService indicatorService;
+
+    @Spy
+    private MarketDataHedger marketDataHedger = new MarketDataHedger(
+            new ProviderRateLimiter(new MockEnvironment(), 0.2, 10000, 3, 2000), true, 95, 200, 3000, 2);
+
 
     @BeforeEach
     void setUp() {
@@ -89,7 +136,7 @@ class ListingServiceTest {
 
         // Mock ponašanje repozitorijuma
         when(listingRepository.findAll(any(Specification.class))).thenReturn(Collections.singletonList(stock));
-        when(priceHistoryRepository.findTopByListingOrderByDateDesc(stock)).thenReturn(dailyInfo);
+        when(latestPriceCache.getLatest(List.of(stock))).thenReturn(Map.of(stock.getId(), dailyInfo));
         when(listingMapper.toDto(stock, dailyInfo)).thenReturn(expectedDto);
 
         // Poziv metode
@@ -101,7 +148,8 @@ class ListingServiceTest {
 
         // Verifikacija poziva
         verify(listingRepository, times(1)).findAll(any(Specification.class));
-        verify(priceHistoryRepository, times(1)).findTopByListingOrderByDateDesc(stock);
+        verify(latestPriceCache, times(1)).getLatest(List.of(stock));
+        verify(priceHistoryRepository, never()).findTopByListingOrderByDateDesc(any());
         verify(listingMapper, times(1)).toDto(stock, dailyInfo);
     }
 
@@ -118,23 +166,24 @@ class ListingServiceTest {
         stock.setPrice(new BigDecimal("150.50"));
         stock.setExchange(exchange);
 
-        ListingPriceHistory dailyInfo1 = new ListingPriceHistory();
-        dailyInfo1.setDate(LocalDateTime.of(2024, 3, 1, 14, 30));
-        dailyInfo1.setOpen(new BigDecimal("149.00"));
-        dailyInfo1.setHigh(new BigDecimal("151.00"));
-        dailyInfo1.setLow(new BigDecimal("148.50"));
-        dailyInfo1.setClose(new BigDecimal("150.00"));
-        dailyInfo1.setVolume(1500L);
-
-        ListingPriceHistory dailyInfo2 = new ListingPriceHistory();
-        dailyInfo2.setDate(LocalDateTime.of(2024, 3, 2, 14, 30));
-        dailyInfo2.setOpen(new BigDecimal("151.00"));
-        dailyInfo2.setHigh(new BigDecimal("153.00"));
-        dailyInfo2.setLow(new BigDecimal("150.50"));
-        dailyInfo2.setClose(new BigDecimal("152.00"));
-        dailyInfo2.setVolume(2000L);
-
-        List<ListingPriceHistory> priceHistory = List.of(dailyInfo2, dailyInfo1);
+        List<PriceHistoryDto> priceHistory = List.of(
+                new PriceHistoryDto(
+                        LocalDateTime.of(2024, 3, 2, 14, 30),
+                        new BigDecimal("151.00"),
+                        new BigDecimal("153.00"),
+                        new BigDecimal("150.50"),
+                        new BigDecimal("152.00"),
+                        2000L
+                ),
+                new PriceHistoryDto(
+                        LocalDateTime.of(2024, 3, 1, 14, 30),
+                        new BigDecimal("149.00"),
+                        new BigDecimal("151.00"),
+                        new BigDecimal("148.50"),
+                        new BigDecimal("150.00"),
+                        1500L
+                )
+        );
 
         // Očekivani DTO sa novim podacima
         ListingDetailsDto expectedDto = new ListingDetailsDto(
@@ -144,24 +193,7 @@ class ListingServiceTest {
                 "Apple Inc.",
                 new BigDecimal("150.50"),
                 "XNAS",
-                List.of(
-                        new PriceHistoryDto(
-                                LocalDateTime.of(2024, 3, 2, 14, 30),
-                                new BigDecimal("151.00"),
-                                new BigDecimal("153.00"),
-                                new BigDecimal("150.50"),
-                                new BigDecimal("152.00"),
-                                2000L
-                        ),
-                        new PriceHistoryDto(
-                                LocalDateTime.of(2024, 3, 1, 14, 30),
-                                new BigDecimal("149.00"),
-                                new BigDecimal("151.00"),
-                                new BigDecimal("148.50"),
-                                new BigDecimal("150.00"),
-                                1500L
-                        )
-                ),
+                priceHistory,
                 null,
                 null,
                 List.of(LocalDate.of(2024, 3, 2))
@@ -169,13 +201,13 @@ class ListingServiceTest {
 
         // Mock ponašanje repozitorijuma
         when(listingRepository.findById(1L)).thenReturn(Optional.of(stock));
-        when(priceHistoryRepository.findAllByListingOrderByDateDesc(stock)).thenReturn(priceHistory);
+        when(priceHistoryStore.getPage(1L, null, null, 500)).thenReturn(new PriceHistoryPageDto(priceHistory, null));
         when(listingMapper.toDetailsDto(stock, priceHistory)).thenReturn(expectedDto);
         when(optionRepository.findAllByUnderlyingStock(stock)).thenReturn(List.of());
 
 
         // Poziv metode
-        ListingDetailsDto result = listingService.getListingDetails(1L);
+        ListingDetailsDto result = listingService.getListingDetails(1L, null, null, null);
 
         // Provera rezultata
         assertEquals(expectedDto.getId(), result.getId());
@@ -186,11 +218,35 @@ class ListingServiceTest {
 
         // Verifikacija poziva
         verify(listingRepository, times(1)).findById(1L);
-        verify(priceHistoryRepository, times(1)).findAllByListingOrderByDateDesc(stock);
+        verify(priceHistoryStore, times(1)).getPage(1L, null, null, 500);
+        verify(demandTracker, times(1)).recordView(1L);
         verify(listingMapper, times(1)).toDetailsDto(stock, priceHistory);
     }
 
 
+    @Test
+    void getListingDetails_ShouldCapHistoryLimitAndReturnCursor() {
+        Exchange exchange = new Exchange();
+        exchange.setMic("XNAS");
+        Stock stock = new Stock();
+        stock.setId(1L);
+        stock.setExchange(exchange);
+
+        LocalDateTime to = LocalDateTime.of(2024, 3, 2, 0, 0);
+        LocalDateTime cursor = LocalDateTime.of(2024, 3, 1, 9, 30);
+        List<PriceHistoryDto> bars = List.of(new PriceHistoryDto());
+
+        when(listingRepository.findById(1L)).thenReturn(Optional.of(stock));
+        when(priceHistoryStore.getPage(1L, null, to, 5000)).thenReturn(new PriceHistoryPageDto(bars, cursor));
+        when(listingMapper.toDetailsDto(stock, bars)).thenReturn(new ListingDetailsDto());
+        when(optionRepository.findAllByUnderlyingStock(stock)).thenReturn(List.of());
+
+        ListingDetailsDto result = listingService.getListingDetails(1L, null, to, 1_000_000);
+
+        assertEquals(cursor, result.getPriceHistoryNextCursor());
+        verify(priceHistoryStore).getPage(1L, null, to, 5000);
+    }
+
     @Test
     void getListingDetails_ShouldThrowListingNotFoundException() {
         // Mock ponašanje repozitorijuma - ne postoji listing sa tim ID-em
@@ -198,7 +254,7 @@ class ListingServiceTest {
 
         // Provera da li baca ListingNotFoundException
         Exception exception = assertThrows(ListingNotFoundException.class, () -> {
-            listingService.getListingDetails(2L);
+            listingService.getListingDetails(2L, null, null, null);
         });
 
         assertEquals("Listing with ID 2 not found.", exception.getMessage());
@@ -249,6 +305,7 @@ class ListingServiceTest {
         verify(listingRepository, times(1)).save(listing);
         verify(listingMapper, times(1)).toDto(listing, dailyInfo);
         verify(jwtTokenUtil, times(1)).getUserRoleFromAuthHeader(fakeToken); // ✅ Provera da je JWT validiran
+        verify(eventPublisher, times(1)).publishEvent(any(ListingPriceChangedEvent.class));
     }
 
     @Test
@@ -300,7 +357,7 @@ class ListingServiceTest {
         // Mock ponašanje
         when(listingRepository.findById(listingId)).thenReturn(Optional.of(stock));
         when(twelveDataClient.getTimeSeries("AAPL", interval, "30")).thenReturn(apiResponse);
-        when(timeSeriesMapper.mapJsonToCustomTimeSeries(apiResponse, stock)).thenReturn(mockDto);
+        when(timeSeriesMapper.fromTwelveData(apiResponse, stock)).thenReturn(mockDto);
 
         // Poziv metode
         TimeSeriesDto result = listingService.getPriceHistory(listingId, interval);
@@ -313,7 +370,68 @@ class ListingServiceTest {
         // Verifikacija poziva
         verify(listingRepository, times(1)).findById(listingId);
         verify(twelveDataClient, times(1)).getTimeSeries("AAPL", interval, "30");
-        verify(timeSeriesMapper, times(1)).mapJsonToCustomTimeSeries(apiResponse, stock);
+        verify(timeSeriesMapper, times(1)).fromTwelveData(apiResponse, stock);
+    }
+
+    @Test
+    void getPriceHistory_ShouldServeLocalCandles_WhenRolledUp() {
+        Stock stock = new Stock();
+        stock.setId(1L);
+        stock.setTicker("AAPL");
+
+        List<PriceCandle> candles = hourlyCandles(30);
+        TimeSeriesDto mockDto = new TimeSeriesDto();
+
+        when(listingRepository.findById(1L)).thenReturn(Optional.of(stock));
+        when(candleRollupService.getCandles(1L, CandleInterval.ONE_HOUR, 30)).thenReturn(candles);
+        when(timeSeriesMapper.fromCandles(candles, stock, CandleInterval.ONE_HOUR)).thenReturn(mockDto);
+
+        assertSame(mockDto, listingService.getPriceHistory(1L, "1h"));
+        verifyNoInteractions(twelveDataClient);
+    }
+
+    @Test
+    void getPriceHistory_ShouldAskProvider_WhenRollupIsShorterThanHistory() {
+        Stock stock = new Stock();
+        stock.setId(1L);
+        stock.setTicker("AAPL");
+        TimeSeriesDto providerDto = new TimeSeriesDto();
+
+        when(listingRepository.findById(1L)).thenReturn(Optional.of(stock));
+        when(candleRollupService.getCandles(1L, CandleInterval.ONE_HOUR, 30)).thenReturn(hourlyCandles(3));
+        when(twelveDataClient.getTimeSeries("AAPL", "1h", "30")).thenReturn("{}");
+        when(timeSeriesMapper.fromTwelveData("{}", stock)).thenReturn(providerDto);
+
+        assertSame(providerDto, listingService.getPriceHistory(1L, "1h"));
+        verify(timeSeriesMapper, never()).fromCandles(any(), any(), any());
+    }
+
+    @Test
+    void getPriceHistory_ShouldServeShortRollup_WhenProvidersFail() {
+        Stock stock = new Stock();
+        stock.setId(1L);
+        stock.setTicker("AAPL");
+        List<PriceCandle> candles = hourlyCandles(3);
+        TimeSeriesDto mockDto = new TimeSeriesDto();
+
+        when(listingRepository.findById(1L)).thenReturn(Optional.of(stock));
+        when(candleRollupService.getCandles(1L, CandleInterval.ONE_HOUR, 30)).thenReturn(candles);
+        when(twelveDataClient.getTimeSeries("AAPL", "1h", "30")).thenThrow(new RuntimeException("Rate limit reached"));
+        when(alphavantageClient.getIntradayData("AAPL", "60min", "compact", "json")).thenThrow(new RuntimeException("Rate limit reached"));
+        when(timeSeriesMapper.fromCandles(candles, stock, CandleInterval.ONE_HOUR)).thenReturn(mockDto);
+
+        assertSame(mockDto, listingService.getPriceHistory(1L, "1h"));
+    }
+
+    private List<PriceCandle> hourlyCandles(int count) {
+        List<PriceCandle> candles = new ArrayList<>();
+        for (int i = 0; i < count; i++)
+            candles.add(PriceCandle.builder()
+                    .listingId(1L)
+                    .interval(CandleInterval.ONE_HOUR)
+                    .bucketStart(LocalDateTime.of(2024, 3, 1, 14, 0).minusHours(i))
+                    .build());
+        return candles;
     }
 
     @Test
@@ -354,8 +472,9 @@ class ListingServiceTest {
         // Mock ponašanje - validan listing, ali neispravan JSON iz API-ja
         when(listingRepository.findById(listingId)).thenReturn(Optional.of(stock));
         when(twelveDataClient.getTimeSeries("AAPL", interval, "30")).thenReturn(invalidApiResponse);
-        when(timeSeriesMapper.mapJsonToCustomTimeSeries(invalidApiResponse, stock))
+        when(timeSeriesMapper.fromTwelveData(invalidApiResponse, stock))
                 .thenThrow(new RuntimeException("Error mapping JSON to Time Series DTO"));
+        when(alphavantageClient.getDailyData("AAPL", "compact")).thenThrow(new RuntimeException("Rate limit reached"));
 
         // Provera da li baca RuntimeException
         Exception exception = assertThrows(RuntimeException.class, () -> {
@@ -367,7 +486,34 @@ class ListingServiceTest {
         // Verifikacija poziva
         verify(listingRepository, times(1)).findById(listingId);
         verify(twelveDataClient, times(1)).getTimeSeries("AAPL", interval, "30");
-        verify(timeSeriesMapper, times(1)).mapJsonToCustomTimeSeries(invalidApiResponse, stock);
+        verify(timeSeriesMapper, times(1)).fromTwelveData(invalidApiResponse, stock);
+        verify(alphavantageClient, times(1)).getDailyData("AAPL", "compact");
+    }
+
+    @Test
+    void getPriceHistory_ShouldFailOverToAlphaVantage_WhenTwelveDataFails() {
+        Exchange exchange = new Exchange();
+        exchange.setMic("XNAS");
+
+        Stock stock = new Stock();
+        stock.setId(1L);
+        stock.setTicker("AAPL");
+        stock.setExchange(exchange);
+
+        String alphaVantageResponse = "{\"Meta Data\": {\"2. Symbol\": \"AAPL\"}, \"Time Series (5min)\": {"
+                + "\"2024-03-01 15:55:00\": {\"1. open\": \"180.00\", \"2. high\": \"181.00\", \"3. low\": \"179.50\", \"4. close\": \"180.50\", \"5. volume\": \"1200\"}}}";
+
+        when(listingRepository.findById(1L)).thenReturn(Optional.of(stock));
+        when(twelveDataClient.getTimeSeries("AAPL", "5min", "30")).thenThrow(new RuntimeException("Twelve Data unavailable"));
+        when(alphavantageClient.getIntradayData("AAPL", "5min", "compact", "json")).thenReturn(alphaVantageResponse);
+
+        TimeSeriesDto result = listingService.getPriceHistory(1L, "5min");
+
+        assertEquals("AAPL", result.getMeta().getSymbol());
+        assertEquals("5min", result.getMeta().getInterval());
+        assertEquals("XNAS", result.getMeta().getExchange());
+        assertEquals(1, result.getValues().size());
+        assertEquals(new BigDecimal("180.50"), result.getValues().get(0).getClose());
     }
 
 
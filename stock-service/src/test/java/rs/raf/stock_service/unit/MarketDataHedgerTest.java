@@ -0,0 +1,132 @@
+package rs.raf.stock_service.unit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import rs.raf.stock_service.client.ProviderCallPriority;
+import rs.raf.stock_service.client.ProviderRateLimiter;
+import rs.raf.stock_service.service.MarketDataHedger;
+import rs.raf.stock_service.service.MarketDataHedger.ProviderCall;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MarketDataHedgerTest {
+
+    // "scarce" ima jedan poziv u minuti, pa nikad nema slobodnih tokena za hedge
+    private final ProviderRateLimiter rateLimiter = new ProviderRateLimiter(
+            new MockEnvironment().withProperty("market-data.rate-limit.scarce.per-minute", "1"), 0.2, 10000, 0, 1);
+    private final MarketDataHedger hedger = new MarketDataHedger(rateLimiter, true, 95, 50, 50, 4);
+
+    @AfterEach
+    void tearDown() {
+        hedger.shutdown();
+    }
+
+    @Test
+    void call_ShouldReturnPrimaryWithoutCallingAlternate_WhenPrimaryIsFast() {
+        AtomicInteger alternateCalls = new AtomicInteger();
+
+        String result = hedger.call("quote",
+                new ProviderCall<>("primary", () -> "primary"),
+                new ProviderCall<>("alternate", () -> {
+                    alternateCalls.incrementAndGet();
+                    return "alternate";
+                }));
+
+        assertEquals("primary", result);
+        assertEquals(0, alternateCalls.get());
+    }
+
+    @Test
+    void call_ShouldFailOver_WhenPrimaryFails() {
+        String result = hedger.call("quote",
+                new ProviderCall<>("primary", () -> {
+                    throw new IllegalStateException("rate limited");
+                }),
+                new ProviderCall<>("alternate", () -> "alternate"));
+
+        assertEquals("alternate", result);
+    }
+
+    @Test
+    void call_ShouldHedgeAndCancelPrimary_WhenPrimaryIsSlow() throws InterruptedException {
+        CountDownLatch primaryInterrupted = new CountDownLatch(1);
+
+        String result = hedger.call("quote",
+                new ProviderCall<>("primary", () -> {
+                    try {
+                        Thread.sleep(10000);
+                    } catch (InterruptedException e) {
+                        primaryInterrupted.countDown();
+                    }
+                    return "primary";
+                }),
+                new ProviderCall<>("alternate", () -> "alternate"));
+
+        assertEquals("alternate", result);
+        assertTrue(primaryInterrupted.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void call_ShouldNotHedgeBackgroundCalls() {
+        AtomicInteger alternateCalls = new AtomicInteger();
+
+        String result = ProviderCallPriority.callAs(ProviderCallPriority.BACKGROUND, () -> hedger.call("quote",
+                new ProviderCall<>("primary", () -> {
+                    try {
+                        Thread.sleep(200);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return "primary";
+                }),
+                new ProviderCall<>("alternate", () -> {
+                    alternateCalls.incrementAndGet();
+                    return "alternate";
+                })));
+
+        assertEquals("primary", result);
+        assertEquals(0, alternateCalls.get());
+    }
+
+    @Test
+    void call_ShouldNotHedge_WhenAlternateHasNoSparePermits() {
+        AtomicInteger alternateCalls = new AtomicInteger();
+
+        String result = hedger.call("quote",
+                new ProviderCall<>("primary", () -> {
+                    try {
+                        Thread.sleep(200);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return "primary";
+                }),
+                new ProviderCall<>("scarce", () -> {
+                    alternateCalls.incrementAndGet();
+                    return "alternate";
+                }));
+
+        assertEquals("primary", result);
+        assertEquals(0, alternateCalls.get());
+    }
+
+    @Test
+    void call_ShouldThrowPrimaryFailureWithAlternateSuppressed_WhenBothFail() {
+        IllegalStateException failure = assertThrows(IllegalStateException.class, () -> hedger.call("quote",
+                new ProviderCall<String>("primary", () -> {
+                    throw new IllegalStateException("primary down");
+                }),
+                new ProviderCall<String>("alternate", () -> {
+                    throw new IllegalArgumentException("alternate down");
+                })));
+
+        assertEquals("primary down", failure.getMessage());
+        assertEquals(1, failure.getSuppressed().length);
+        assertEquals("alternate down", failure.getSuppressed()[0].getMessage());
+    }
+}
@@ -0,0 +1,124 @@
+package rs.raf.stock_service.unit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.mock.env.MockEnvironment;
+import rs.raf.stock_service.domain.entity.ForexPair;
+import rs.raf.stock_service.domain.entity.Option;
+import rs.raf.stock_service.domain.entity.Stock;
+import rs.raf.stock_service.domain.event.ListingPriceChangedEvent;
+import rs.raf.stock_service.repository.ListingRepository;
+import rs.raf.stock_service.service.MarketSimulator;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class MarketSimulatorTest {
+
+    // dovoljno veliko ubrzanje da se cena pomeri vec posle jednog tika
+    private static final double TIME_SCALE = 1e12;
+
+    private ListingRepository listingRepository;
+    private ApplicationEventPublisher eventPublisher;
+    private MockEnvironment environment;
+
+    private Stock stock;
+    private ForexPair forex;
+
+    @BeforeEach
+    void setUp() {
+        listingRepository = mock(ListingRepository.class);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        environment = new MockEnvironment();
+
+        stock = new Stock();
+        stock.setId(1L);
+        stock.setTicker("AAPL");
+        stock.setPrice(new BigDecimal("100.00"));
+        stock.setAsk(new BigDecimal("101.00"));
+
+        forex = new ForexPair();
+        forex.setId(2L);
+        forex.setTicker("EUR/USD");
+        forex.setPrice(new BigDecimal("1.10"));
+
+        Option option = new Option();
+        option.setId(3L);
+        option.setTicker("AAPL250101C00100000");
+        option.setPrice(new BigDecimal("5.00"));
+
+        when(listingRepository.findAll()).thenReturn(List.of(stock, forex, option));
+        when(listingRepository.updateStockPrice(any(), any(), any(), any())).thenReturn(1);
+        when(listingRepository.updateForexPrice(any(), any(), any())).thenReturn(1);
+    }
+
+    @Test
+    void tick_ShouldMovePriceThroughRefreshPath() throws InterruptedException {
+        MarketSimulator simulator = simulator("AAPL");
+
+        Thread.sleep(1);
+        simulator.tick(1);
+
+        assertNotEquals(0, stock.getPrice().compareTo(new BigDecimal("100.00")));
+        assertEquals(stock.getPrice().subtract(new BigDecimal("100.00")), stock.getChange());
+        assertEquals(stock.getPrice().multiply(new BigDecimal("1.01")).setScale(2, RoundingMode.HALF_UP), stock.getAsk());
+        verify(listingRepository).updateStockPrice(1L, stock.getPrice(), stock.getAsk(), stock.getChange());
+        verify(listingRepository, never()).save(any());
+        verify(eventPublisher).publishEvent(any(ListingPriceChangedEvent.class));
+        assertEquals(1, simulator.getTickCount());
+    }
+
+    @Test
+    void tick_ShouldOnlySimulateStocksAndForexPairs() throws InterruptedException {
+        MarketSimulator simulator = simulator("");
+
+        Thread.sleep(1);
+        simulator.tick(2);
+
+        verify(listingRepository).updateStockPrice(eq(1L), any(), any(), any());
+        verify(listingRepository).updateForexPrice(eq(2L), eq(forex.getPrice()), any());
+        assertEquals(forex.getPrice(), forex.getExchangeRate());
+        verify(listingRepository, never()).save(any());
+    }
+
+    @Test
+    void tick_ShouldUsePerTickerParameters() throws InterruptedException {
+        environment.setProperty("market-simulator.tickers.AAPL.model", "RANDOM_WALK");
+        environment.setProperty("market-simulator.tickers.AAPL.volatility", "0");
+        environment.setProperty("market-simulator.tickers.AAPL.drift", "0");
+        MarketSimulator simulator = simulator("AAPL");
+
+        Thread.sleep(1);
+        simulator.tick(5);
+
+        assertEquals(new BigDecimal("100.00"), stock.getPrice());
+        verify(listingRepository, never()).updateStockPrice(any(), any(), any(), any());
+        verify(eventPublisher, never()).publishEvent(any());
+        assertTrue(simulator.getSimulatedTickCount() > 0);
+        assertEquals(0, simulator.getTickCount());
+    }
+
+    @Test
+    void tick_ShouldNotPublishWhenListingIsGone() throws InterruptedException {
+        when(listingRepository.updateStockPrice(any(), any(), any(), any())).thenReturn(0);
+        MarketSimulator simulator = simulator("AAPL");
+
+        Thread.sleep(1);
+        simulator.tick(1);
+
+        verify(eventPublisher, never()).publishEvent(any());
+        assertEquals(0, simulator.getTickCount());
+    }
+
+    private MarketSimulator simulator(String tickers) {
+        return new MarketSimulator(listingRepository, eventPublisher, environment, true, 100,
+                MarketSimulator.Model.GBM, 0.05, 0.3, TIME_SCALE, tickers, 42);
+    }
+}
@@ -0,0 +1,62 @@
+package rs.raf.stock_service.unit;
+
+import org.junit.jupiter.api.Test;
+import rs.raf.stock_service.utils.OhlcvChunkCodec;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OhlcvChunkCodecTest {
+
+    @Test
+    void encodeDecodeRoundTrip() {
+        OhlcvChunkCodec.Columns columns = new OhlcvChunkCodec.Columns(3, 4);
+        for (int i = 0; i < 3; i++) {
+            columns.epochSeconds[i] = 1704103200L + i * 300L;
+            columns.open[i] = 1874500 + i * 10;
+            columns.high[i] = 1875000 - i * 300;
+            columns.low[i] = -5;
+            columns.close[i] = Long.MAX_VALUE / 4;
+            columns.volume[i] = i == 1 ? -1 : 1000L * i;
+        }
+
+        OhlcvChunkCodec.Columns decoded = OhlcvChunkCodec.decode(OhlcvChunkCodec.encode(columns));
+
+        assertEquals(3, decoded.size);
+        assertEquals(4, decoded.scale);
+        assertArrayEquals(columns.epochSeconds, decoded.epochSeconds);
+        assertArrayEquals(columns.open, decoded.open);
+        assertArrayEquals(columns.high, decoded.high);
+        assertArrayEquals(columns.low, decoded.low);
+        assertArrayEquals(columns.close, decoded.close);
+        assertEquals(new BigDecimal("187.4510"), decoded.price(decoded.open[1]));
+        assertNull(decoded.volumeAt(1));
+        assertEquals(2000L, decoded.volumeAt(2));
+    }
+
+    @Test
+    void lowerBoundFindsFirstBarAtOrAfterTime() {
+        OhlcvChunkCodec.Columns columns = new OhlcvChunkCodec.Columns(3, 0);
+        columns.epochSeconds[0] = 100;
+        columns.epochSeconds[1] = 200;
+        columns.epochSeconds[2] = 300;
+
+        assertEquals(0, columns.lowerBound(Long.MIN_VALUE));
+        assertEquals(1, columns.lowerBound(150));
+        assertEquals(1, columns.lowerBound(200));
+        assertEquals(3, columns.lowerBound(301));
+    }
+
+    @Test
+    void scaleForUsesSmallestExactScale() {
+        assertEquals(5, OhlcvChunkCodec.scaleFor(new BigDecimal("187.4500"), new BigDecimal("1.09231"), null));
+        assertEquals(0, OhlcvChunkCodec.scaleFor(new BigDecimal("100.00")));
+        assertEquals(123450L, OhlcvChunkCodec.unscaled(new BigDecimal("1.2345"), 5));
+    }
+
+    @Test
+    void decodeRejectsCorruptData() {
+        assertThrows(IllegalArgumentException.class, () -> OhlcvChunkCodec.decode(new byte[]{1, 2, 3}));
+    }
+}
@@ -0,0 +1,128 @@
+package rs.raf.stock_service.unit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import rs.raf.stock_service.domain.dto.OptionDto;
+import rs.raf.stock_service.domain.entity.Option;
+import rs.raf.stock_service.domain.entity.Stock;
+import rs.raf.stock_service.domain.enums.OptionType;
+import rs.raf.stock_service.repository.OptionBulkWriter;
+import rs.raf.stock_service.repository.OptionRepository;
+import rs.raf.stock_service.repository.PortfolioEntryRepository;
+import rs.raf.stock_service.service.OptionChainMaintainer;
+import rs.raf.stock_service.service.OptionService;
+
+import javax.persistence.EntityManager;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class OptionChainMaintainerTest {
+
+    private OptionRepository optionRepository;
+    private OptionBulkWriter optionWriter;
+    private PortfolioEntryRepository portfolioEntryRepository;
+    private OptionService optionService;
+    private OptionChainMaintainer maintainer;
+
+    private Stock stock;
+
+    @BeforeEach
+    void setUp() {
+        optionRepository = mock(OptionRepository.class);
+        optionWriter = mock(OptionBulkWriter.class);
+        portfolioEntryRepository = mock(PortfolioEntryRepository.class);
+        optionService = mock(OptionService.class);
+        maintainer = new OptionChainMaintainer(optionRepository, optionWriter, portfolioEntryRepository,
+                optionService, mock(EntityManager.class));
+
+        stock = new Stock();
+        stock.setId(1L);
+        stock.setTicker("AAPL");
+        stock.setPrice(new BigDecimal("100"));
+
+        when(portfolioEntryRepository.findAllOptionTickersInUse()).thenReturn(Set.of("HELD_EXPIRED", "HELD_LIVE"));
+        when(optionService.generateOptions("AAPL", new BigDecimal("100"))).thenReturn(List.of());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void refresh_ShouldRetireExpiredAndTakeHeldOffSale() {
+        LocalDate past = LocalDate.now().minusDays(1);
+        LocalDate future = LocalDate.now().plusDays(30);
+        List<OptionRepository.OptionContract> contracts = List.of(
+                contract(1L, "EXPIRED", past, null, true),
+                contract(2L, "HELD_EXPIRED", past, null, true),
+                contract(3L, "HELD_LIVE", future, null, true));
+        when(optionRepository.findAllContracts()).thenReturn(contracts);
+
+        maintainer.refresh(List.of(stock));
+
+        verify(optionRepository).deleteByIdInBatch(List.of(1L));
+        ArgumentCaptor<List<Long>> offSale = ArgumentCaptor.forClass(List.class);
+        verify(optionRepository).takeOffSaleByIdIn(offSale.capture());
+        assertEquals(Set.of(2L, 3L), Set.copyOf(offSale.getValue()));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void refresh_ShouldUpdateOnlyContractsWhosePriceChanged() {
+        LocalDate expiry = LocalDate.now().plusDays(365);
+        BigDecimal margin = new BigDecimal("5000");
+        // Black-Scholes cena ATM call-a sa godinu dana do isteka, 20% volatilnosti i 5% kamate je 10.45
+        OptionRepository.OptionContract fresh = contract(1L, "FRESH", expiry, new BigDecimal("10.45"), false);
+        when(fresh.getMaintenanceMargin()).thenReturn(margin);
+        OptionRepository.OptionContract stale = contract(2L, "STALE", expiry, new BigDecimal("1.00"), false);
+        when(optionRepository.findAllContracts()).thenReturn(List.of(fresh, stale));
+
+        maintainer.refresh(List.of(stock));
+
+        ArgumentCaptor<List<OptionBulkWriter.PriceUpdate>> captor = ArgumentCaptor.forClass(List.class);
+        verify(optionWriter).updatePrices(captor.capture());
+        assertEquals(1, captor.getValue().size());
+        assertEquals(2L, captor.getValue().get(0).id());
+        assertEquals(0, margin.compareTo(captor.getValue().get(0).maintenanceMargin()));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void refresh_ShouldInsertOnlyMissingContracts() {
+        LocalDate expiry = LocalDate.now().plusDays(30);
+        OptionRepository.OptionContract existing = contract(1L, "EXISTING", expiry, null, true);
+        when(optionRepository.findAllContracts()).thenReturn(List.of(existing));
+        when(optionService.generateOptions("AAPL", new BigDecimal("100"))).thenReturn(List.of(
+                OptionDto.builder().ticker("EXISTING").optionType(OptionType.CALL).build(),
+                OptionDto.builder().ticker("NEW").optionType(OptionType.PUT).strikePrice(new BigDecimal("101"))
+                        .settlementDate(expiry).price(new BigDecimal("2.50")).build()));
+
+        maintainer.refresh(List.of(stock));
+
+        ArgumentCaptor<List<Option>> captor = ArgumentCaptor.forClass(List.class);
+        verify(optionRepository).saveAllAndFlush(captor.capture());
+        assertEquals(1, captor.getValue().size());
+        assertEquals("NEW", captor.getValue().get(0).getTicker());
+        assertEquals(stock, captor.getValue().get(0).getUnderlyingStock());
+        verify(optionRepository, never()).deleteByIdInBatch(anyList());
+    }
+
+    private OptionRepository.OptionContract contract(Long id, String ticker, LocalDate expiry, BigDecimal price,
+                                                     boolean onSale) {
+        OptionRepository.OptionContract contract = mock(OptionRepository.OptionContract.class);
+        when(contract.getId()).thenReturn(id);
+        when(contract.getTicker()).thenReturn(ticker);
+        when(contract.getStockId()).thenReturn(1L);
+        when(contract.getOptionType()).thenReturn(OptionType.CALL);
+        when(contract.getStrikePrice()).thenReturn(new BigDecimal("100"));
+        when(contract.getSettlementDate()).thenReturn(expiry);
+        when(contract.getImpliedVolatility()).thenReturn(new BigDecimal("0.2"));
+        when(contract.getPrice()).thenReturn(price);
+        when(contract.getOnSale()).thenReturn(onSale);
+        return contract;
+    }
+}
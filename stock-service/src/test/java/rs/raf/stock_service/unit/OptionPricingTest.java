@@ -0,0 +1,68 @@
+package rs.raf.stock_service.unit;
+
+import org.junit.jupiter.api.Test;
+import rs.raf.stock_service.utils.OptionPricing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class OptionPricingTest {
+
+    private static final double EPSILON = 1e-4;
+
+    @Test
+    void price_ShouldMatchBlackScholesReferenceValues() {
+        OptionPricing.Chain chain = new OptionPricing.Chain(2);
+        for (int i = 0; i < 2; i++) {
+            chain.strike[i] = 100;
+            chain.years[i] = 1;
+            chain.volatility[i] = 0.2;
+        }
+        chain.call[0] = true;
+
+        OptionPricing.price(chain, 100, 0.05);
+
+        assertEquals(10.4506, chain.price[0], EPSILON);
+        assertEquals(0.6368, chain.delta[0], EPSILON);
+        assertEquals(0.0188, chain.gamma[0], EPSILON);
+        assertEquals(0.3752, chain.vega[0], EPSILON);
+        assertEquals(-0.0176, chain.theta[0], EPSILON);
+        assertEquals(0.5323, chain.rho[0], EPSILON);
+
+        assertEquals(5.5735, chain.price[1], EPSILON);
+        assertEquals(-0.3632, chain.delta[1], EPSILON);
+        assertEquals(chain.gamma[0], chain.gamma[1], EPSILON);
+        assertEquals(-0.4189, chain.rho[1], EPSILON);
+    }
+
+    @Test
+    void price_ShouldSatisfyPutCallParity() {
+        OptionPricing.Chain chain = new OptionPricing.Chain(2);
+        chain.strike[0] = chain.strike[1] = 110;
+        chain.years[0] = chain.years[1] = 0.25;
+        chain.volatility[0] = chain.volatility[1] = 0.35;
+        chain.call[0] = true;
+
+        OptionPricing.price(chain, 100, 0.05);
+
+        assertEquals(100 - 110 * Math.exp(-0.05 * 0.25), chain.price[0] - chain.price[1], EPSILON);
+    }
+
+    @Test
+    void price_ShouldFallBackToIntrinsicValueForDegenerateContracts() {
+        OptionPricing.Chain chain = new OptionPricing.Chain(2);
+        chain.strike[0] = 90;
+        chain.years[0] = 0;
+        chain.volatility[0] = 0.2;
+        chain.call[0] = true;
+        chain.strike[1] = -5;
+        chain.years[1] = 0.5;
+        chain.volatility[1] = 0.2;
+
+        OptionPricing.price(chain, 100, 0.05);
+
+        assertEquals(10, chain.price[0], EPSILON);
+        assertEquals(1, chain.delta[0], EPSILON);
+        assertEquals(0, chain.price[1], EPSILON);
+        assertEquals(0, chain.delta[1], EPSILON);
+    }
+}
@@ -2,6 +2,7 @@ package rs.raf.stock_service.unit;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import rs.raf.stock_service.domain.dto.OptionChainEntryDto;
 import rs.raf.stock_service.domain.dto.OptionDto;
 import rs.raf.stock_service.domain.entity.Option;
 import rs.raf.stock_service.domain.entity.Stock;
@@ -10,7 +11,9 @@ import rs.raf.stock_service.repository.OptionRepository;
 import rs.raf.stock_service.service.OptionService;
 
 import java.math.BigDecimal;
+import java.time.DayOfWeek;
 import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
@@ -46,6 +49,23 @@ class OptionServiceTest {
         assertEquals(new BigDecimal("50").multiply(currentPrice), first.getMaintenanceMargin());
     }
 
+    @Test
+    void testGenerateOptions_expiriesAreWeeklyThenThirdFridays() {
+        List<LocalDate> expiries = optionService.generateOptions("AAPL", new BigDecimal("100")).stream()
+                .map(OptionDto::getSettlementDate).distinct().toList();
+
+        assertEquals(12, expiries.size());
+        LocalDate nextFriday = LocalDate.now().with(TemporalAdjusters.next(DayOfWeek.FRIDAY));
+        for (int i = 0; i < 6; i++)
+            assertEquals(nextFriday.plusWeeks(i), expiries.get(i));
+        for (int i = 6; i < 12; i++) {
+            LocalDate expiry = expiries.get(i);
+            assertEquals(DayOfWeek.FRIDAY, expiry.getDayOfWeek());
+            assertTrue(expiry.getDayOfMonth() >= 15 && expiry.getDayOfMonth() <= 21);
+            assertTrue(expiry.isAfter(expiries.get(i - 1)));
+        }
+    }
+
     @Test
     void testGenerateOptions_withLowPrice_doesNotBreak() {
         BigDecimal lowPrice = new BigDecimal("0.50");
@@ -115,4 +135,65 @@ class OptionServiceTest {
         assertEquals(1, options.size());
         assertEquals(OptionType.CALL, options.get(0).getOptionType());
     }
+
+    @Test
+    void testGenerateOptions_tickersAndParityHold() {
+        List<OptionDto> options = optionService.generateOptions("AAPL", new BigDecimal("100"));
+
+        OptionDto call = options.get(0);
+        OptionDto put = options.get(1);
+        LocalDate expiry = LocalDate.now().with(TemporalAdjusters.next(DayOfWeek.FRIDAY));
+        String date = String.format("%d%02d%02d", expiry.getYear() % 100, expiry.getMonthValue(), expiry.getDayOfMonth());
+
+        assertEquals("AAPL" + date + "C00009500", call.getTicker());
+        assertEquals("AAPL" + date + "P00009500", put.getTicker());
+        assertEquals(OptionType.CALL, call.getOptionType());
+        assertEquals(OptionType.PUT, put.getOptionType());
+        // duboko u novcu call vredi bar koliko i unutrasnja vrednost, put van novca je skoro bezvredan
+        assertTrue(call.getPrice().compareTo(new BigDecimal("5")) >= 0);
+        assertTrue(put.getPrice().compareTo(new BigDecimal("0.10")) < 0);
+        assertEquals(BigDecimal.valueOf(OptionService.DEFAULT_IMPLIED_VOLATILITY), call.getImpliedVolatility());
+    }
+
+    @Test
+    void testGetOptionChain_pricesStoredOptionsWithGreeks() {
+        Stock stock = new Stock();
+        stock.setTicker("MSFT");
+        stock.setPrice(new BigDecimal("100"));
+
+        Option call = new Option();
+        call.setId(7L);
+        call.setUnderlyingStock(stock);
+        call.setOptionType(OptionType.CALL);
+        call.setStrikePrice(new BigDecimal("100"));
+        call.setImpliedVolatility(new BigDecimal("0.2"));
+        call.setSettlementDate(LocalDate.now().plusDays(365));
+
+        Option put = new Option();
+        put.setId(8L);
+        put.setUnderlyingStock(stock);
+        put.setOptionType(OptionType.PUT);
+        put.setStrikePrice(new BigDecimal("100"));
+        put.setImpliedVolatility(new BigDecimal("0.2"));
+        put.setSettlementDate(LocalDate.now().plusDays(365));
+
+        when(optionRepository.findAllByUnderlyingStockIdOrderBySettlementDateAscStrikePriceAsc(1L))
+                .thenReturn(List.of(call, put));
+
+        List<OptionChainEntryDto> chain = optionService.getOptionChain(1L, null);
+
+        assertEquals(2, chain.size());
+        assertEquals(7L, chain.get(0).getListingId());
+        assertEquals(new BigDecimal("10.45"), chain.get(0).getTheoreticalPrice());
+        assertEquals(new BigDecimal("5.57"), chain.get(1).getTheoreticalPrice());
+        assertEquals(0.6368, chain.get(0).getDelta(), 1e-4);
+        assertEquals(-0.3632, chain.get(1).getDelta(), 1e-4);
+    }
+
+    @Test
+    void testGetOptionChain_noOptions_returnsEmpty() {
+        when(optionRepository.findByUnderlyingStockIdAndSettlementDate(1L, LocalDate.now())).thenReturn(List.of());
+
+        assertTrue(optionService.getOptionChain(1L, LocalDate.now()).isEmpty());
+    }
 }
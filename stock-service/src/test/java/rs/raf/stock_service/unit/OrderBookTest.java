@@ -0,0 +1,150 @@
+package rs.raf.stock_service.unit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import rs.raf.stock_service.domain.entity.Order;
+import rs.raf.stock_service.domain.enums.OrderDirection;
+import rs.raf.stock_service.domain.enums.OrderStatus;
+import rs.raf.stock_service.domain.enums.OrderType;
+import rs.raf.stock_service.service.OrderBook;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderBookTest {
+
+    private OrderBook orderBook;
+    private List<Long> filledOrderIds;
+
+    private final OrderBook.FillHandler settleAll = (resting, quantity, price) -> {
+        resting.setRemainingPortions(resting.getRemainingPortions() - quantity);
+        filledOrderIds.add(resting.getId());
+        return true;
+    };
+
+    @BeforeEach
+    void setUp() {
+        orderBook = new OrderBook();
+        filledOrderIds = new ArrayList<>();
+    }
+
+    @Test
+    void match_ShouldFillBestPriceFirstThenOldestOrder() {
+        orderBook.add(order(1L, 10L, OrderDirection.SELL, "101", 5));
+        orderBook.add(order(2L, 11L, OrderDirection.SELL, "100", 5));
+        orderBook.add(order(3L, 12L, OrderDirection.SELL, "100", 5));
+
+        int matched = orderBook.match(order(4L, 20L, OrderDirection.BUY, "101", 12), 12, new BigDecimal("101"), settleAll);
+
+        assertEquals(12, matched);
+        assertEquals(List.of(2L, 3L, 1L), filledOrderIds);
+        assertEquals(1, orderBook.size());
+        assertEquals(0, new BigDecimal("101").compareTo(orderBook.bestAsk()));
+    }
+
+    @Test
+    void match_ShouldContinueToNextLevelWhenHandlerDropsRestingOrder() {
+        orderBook.add(order(1L, 10L, OrderDirection.BUY, "100", 5));
+        orderBook.add(order(2L, 11L, OrderDirection.BUY, "99", 5));
+
+        OrderBook.FillHandler dropFirst = (resting, quantity, price) -> {
+            if (resting.getId() == 1L) {
+                orderBook.remove(resting.getId());
+                return true;
+            }
+            return settleAll.onFill(resting, quantity, price);
+        };
+
+        int matched = orderBook.match(order(3L, 20L, OrderDirection.SELL, "99", 5), 5, new BigDecimal("99"), dropFirst);
+
+        assertEquals(5, matched);
+        assertEquals(List.of(2L), filledOrderIds);
+        assertEquals(0, orderBook.size());
+    }
+
+    @Test
+    void match_ShouldStopAtLimitPrice() {
+        orderBook.add(order(1L, 10L, OrderDirection.BUY, "99", 5));
+        orderBook.add(order(2L, 11L, OrderDirection.BUY, "98", 5));
+
+        int matched = orderBook.match(order(3L, 20L, OrderDirection.SELL, "99", 10), 10, new BigDecimal("99"), settleAll);
+
+        assertEquals(5, matched);
+        assertEquals(List.of(1L), filledOrderIds);
+        assertEquals(0, new BigDecimal("98").compareTo(orderBook.bestBid()));
+    }
+
+    @Test
+    void match_ShouldSkipOrdersOfSameUser() {
+        orderBook.add(order(1L, 20L, OrderDirection.SELL, "100", 5));
+        orderBook.add(order(2L, 10L, OrderDirection.SELL, "100", 5));
+
+        int matched = orderBook.match(order(3L, 20L, OrderDirection.BUY, "100", 10), 10, new BigDecimal("100"), settleAll);
+
+        assertEquals(5, matched);
+        assertEquals(List.of(2L), filledOrderIds);
+        assertEquals(1, orderBook.size());
+    }
+
+    @Test
+    void match_ShouldSettleFillsOutsideBookLock() {
+        orderBook.add(order(1L, 10L, OrderDirection.SELL, "100", 5));
+        List<Boolean> lockHeld = new ArrayList<>();
+
+        orderBook.match(order(2L, 20L, OrderDirection.BUY, "100", 5), 5, null, (resting, quantity, price) -> {
+            lockHeld.add(Thread.holdsLock(orderBook));
+            return settleAll.onFill(resting, quantity, price);
+        });
+
+        assertEquals(List.of(false), lockHeld);
+        assertEquals(0, orderBook.size());
+    }
+
+    @Test
+    void match_ShouldStopWhenFillIsRejected() {
+        orderBook.add(order(1L, 10L, OrderDirection.SELL, "100", 5));
+
+        int matched = orderBook.match(order(2L, 20L, OrderDirection.BUY, "100", 5), 5, null, (resting, quantity, price) -> false);
+
+        assertEquals(0, matched);
+        assertEquals(1, orderBook.size());
+    }
+
+    @Test
+    void remove_ShouldDropOrderAndEmptyLevel() {
+        orderBook.add(order(1L, 10L, OrderDirection.BUY, "50", 5));
+
+        assertNotNull(orderBook.remove(1L));
+        assertNull(orderBook.remove(1L));
+        assertNull(orderBook.bestBid());
+        assertEquals(0, orderBook.size());
+    }
+
+    @Test
+    void remove_ShouldFindLevelEvenIfOrderPriceChanged() {
+        Order buy = order(1L, 10L, OrderDirection.BUY, "50", 5);
+        orderBook.add(buy);
+        buy.setPricePerUnit(new BigDecimal("45"));
+
+        assertSame(buy, orderBook.remove(1L));
+        assertNull(orderBook.bestBid());
+    }
+
+    private Order order(Long id, Long userId, OrderDirection direction, String price, int quantity) {
+        return Order.builder()
+                .id(id)
+                .userId(userId)
+                .orderType(OrderType.LIMIT)
+                .direction(direction)
+                .pricePerUnit(new BigDecimal(price))
+                .quantity(quantity)
+                .remainingPortions(quantity)
+                .contractSize(1)
+                .status(OrderStatus.APPROVED)
+                .isDone(false)
+                .build();
+    }
+}
@@ -0,0 +1,100 @@
+package rs.raf.stock_service.unit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import rs.raf.stock_service.domain.entity.Order;
+import rs.raf.stock_service.domain.entity.OrderExecutionTask;
+import rs.raf.stock_service.domain.entity.Stock;
+import rs.raf.stock_service.domain.enums.OrderExecutionTaskStatus;
+import rs.raf.stock_service.repository.OrderExecutionTaskRepository;
+import rs.raf.stock_service.service.OrderExecutionQueue;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class OrderExecutionQueueTest {
+
+    @Mock
+    private OrderExecutionTaskRepository taskRepository;
+
+    private OrderExecutionQueue queue;
+    private Order order;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        queue = new OrderExecutionQueue(taskRepository, 300, 3, 300);
+
+        Stock stock = new Stock();
+        stock.setId(7L);
+        order = Order.builder().id(1L).listing(stock).afterHours(false).build();
+    }
+
+    @Test
+    void enqueue_ShouldSaveQueuedTask() {
+        queue.enqueue(order);
+
+        ArgumentCaptor<OrderExecutionTask> captor = ArgumentCaptor.forClass(OrderExecutionTask.class);
+        verify(taskRepository).save(captor.capture());
+        assertEquals(1L, captor.getValue().getOrderId());
+        assertEquals(7L, captor.getValue().getListingId());
+        assertEquals(OrderExecutionTaskStatus.QUEUED, captor.getValue().getStatus());
+        assertFalse(captor.getValue().getAvailableAt().isAfter(LocalDateTime.now()));
+    }
+
+    @Test
+    void enqueue_ShouldDelayAfterHoursOrders() {
+        order.setAfterHours(true);
+
+        queue.enqueue(order);
+
+        ArgumentCaptor<OrderExecutionTask> captor = ArgumentCaptor.forClass(OrderExecutionTask.class);
+        verify(taskRepository).save(captor.capture());
+        assertTrue(captor.getValue().getAvailableAt().isAfter(LocalDateTime.now().plusMinutes(4)));
+    }
+
+    @Test
+    void enqueue_ShouldSkipOrderWithOpenTask() {
+        when(taskRepository.existsByOrderIdAndStatusIn(eq(1L), anyCollection())).thenReturn(true);
+
+        queue.enqueue(order);
+
+        verify(taskRepository, never()).save(any());
+    }
+
+    @Test
+    void claim_ShouldLeaseTasks() {
+        OrderExecutionTask task = OrderExecutionTask.builder().orderId(1L).status(OrderExecutionTaskStatus.QUEUED).build();
+        when(taskRepository.findClaimable(any(), eq(5))).thenReturn(List.of(task));
+        when(taskRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        List<OrderExecutionTask> claimed = queue.claim("worker-1", 5);
+
+        assertEquals(1, claimed.size());
+        assertEquals(OrderExecutionTaskStatus.RUNNING, task.getStatus());
+        assertEquals("worker-1", task.getLockedBy());
+        assertEquals(1, task.getAttempts());
+        assertTrue(task.getLockedUntil().isAfter(LocalDateTime.now()));
+    }
+
+    @Test
+    void fail_ShouldRequeueUntilMaxAttempts() {
+        OrderExecutionTask task = OrderExecutionTask.builder().orderId(1L)
+                .status(OrderExecutionTaskStatus.RUNNING).attempts(1).build();
+
+        queue.fail(task, new RuntimeException("bank unavailable"));
+        assertEquals(OrderExecutionTaskStatus.QUEUED, task.getStatus());
+        assertEquals("bank unavailable", task.getLastError());
+
+        task.setAttempts(3);
+        queue.fail(task, new RuntimeException("bank unavailable"));
+        assertEquals(OrderExecutionTaskStatus.FAILED, task.getStatus());
+    }
+}
@@ -19,6 +19,7 @@ import rs.raf.stock_service.domain.entity.*;
 import rs.raf.stock_service.domain.enums.OrderDirection;
 import rs.raf.stock_service.domain.enums.OrderStatus;
 import rs.raf.stock_service.domain.enums.OrderType;
+import rs.raf.stock_service.domain.event.ListingPriceChangedEvent;
 import rs.raf.stock_service.domain.mapper.ListingMapper;
 import rs.raf.stock_service.domain.mapper.OrderMapper;
 import rs.raf.stock_service.exceptions.*;
@@ -35,6 +36,11 @@ import rs.raf.stock_service.exceptions.UnauthorizedException;
 import rs.raf.stock_service.repository.ListingPriceHistoryRepository;
 import rs.raf.stock_service.repository.ListingRepository;
 import rs.raf.stock_service.repository.OrderRepository;
+import rs.raf.stock_service.service.LatestPriceCache;
+import rs.raf.stock_service.service.ListingExecutionLanes;
+import rs.raf.stock_service.service.MatchingEngine;
+import rs.raf.stock_service.service.OrderExecutionQueue;
+import rs.raf.stock_service.service.OrderTriggerIndex;
 import rs.raf.stock_service.service.OrderService;
 import rs.raf.stock_service.service.PortfolioService;
 import rs.raf.stock_service.utils.JwtTokenUtil;
@@ -43,11 +49,13 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 import java.util.ArrayList;
@@ -86,6 +94,21 @@ public class OrderServiceTest {
     @Mock
     private PortfolioService portfolioService;
 
+    @Spy
+    private MatchingEngine matchingEngine = new MatchingEngine();
+
+    @Spy
+    private OrderTriggerIndex orderTriggerIndex = new OrderTriggerIndex();
+
+    @Mock
+    private OrderExecutionQueue orderExecutionQueue;
+
+    @Mock
+    private LatestPriceCache latestPriceCache;
+
+    @Mock
+    private ListingExecutionLanes executionLanes;
+
     @InjectMocks
     private OrderService orderService;
 
@@ -111,6 +134,20 @@ public class OrderServiceTest {
     void setUp() {
         MockitoAnnotations.openMocks(this);
 
+        // red izvrsavanja u testovima odmah izvrsava nalog, kao sto bi radnik uradio
+        doAnswer(invocation -> {
+            orderService.executeOrder(invocation.getArgument(0, Order.class));
+            return null;
+        }).when(orderExecutionQueue).enqueue(any(Order.class));
+
+        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // trake u testovima izvrsavaju posao odmah, na pozivajucoj niti
+        doAnswer(invocation -> {
+            invocation.getArgument(1, Runnable.class).run();
+            return CompletableFuture.completedFuture(null);
+        }).when(executionLanes).submit(any(), any());
+
         authHeader = "Bearer test-token";
         userId = 1L;
         orderId = 1L;
@@ -169,7 +206,7 @@ public class OrderServiceTest {
         List<Order> orderList = Arrays.asList(stopOrder, limitOrder);
         Page<Order> orderPage = new PageImpl<>(orderList);
 
-        when(listingPriceHistoryRepository.findTopByListingOrderByDateDesc(listing)).thenReturn(dailyPriceInfo);
+        when(latestPriceCache.getLatest(any())).thenReturn(Map.of(listing.getId(), dailyPriceInfo));
         when(orderRepository.findByStatus(OrderStatus.APPROVED, PageRequest.of(1, 10))).thenReturn(orderPage);
 
         Page<OrderDto> result = orderService.getOrdersByStatus(OrderStatus.APPROVED, PageRequest.of(1, 10));
@@ -451,6 +488,9 @@ public class OrderServiceTest {
     void executeStopOrder() {
         when(orderRepository.findByIsDoneAndStatusAndOrderType(false, OrderStatus.APPROVED, OrderType.STOP))
                 .thenReturn(Arrays.asList(stopOrder));
+        when(orderRepository.findById(stopOrder.getId())).thenReturn(Optional.of(stopOrder));
+        when(listingRepository.findAllById(any())).thenReturn(List.of(listing));
+        orderService.restoreOpenOrders();
 
         orderService.checkOrders();
 
@@ -485,6 +525,9 @@ public class OrderServiceTest {
     void executeLimitOrder() {
         when(orderRepository.findByIsDoneAndStatusAndOrderType(false, OrderStatus.APPROVED, OrderType.LIMIT))
                 .thenReturn(Arrays.asList(limitOrder));
+        when(orderRepository.findById(limitOrder.getId())).thenReturn(Optional.of(limitOrder));
+        when(listingRepository.findAllById(any())).thenReturn(List.of(listing));
+        orderService.restoreOpenOrders();
 
         orderService.checkOrders();
 
@@ -518,6 +561,9 @@ public class OrderServiceTest {
     void executeStopLimitOrder() {
         when(orderRepository.findByIsDoneAndStatusAndOrderType(false, OrderStatus.APPROVED, OrderType.STOP_LIMIT))
                 .thenReturn(Arrays.asList(stopLimitOrder));
+        when(orderRepository.findById(stopLimitOrder.getId())).thenReturn(Optional.of(stopLimitOrder));
+        when(listingRepository.findAllById(any())).thenReturn(List.of(listing));
+        orderService.restoreOpenOrders();
 
         orderService.checkOrders();
 
@@ -556,6 +602,200 @@ public class OrderServiceTest {
                 .multiply(BigDecimal.valueOf(stopLimitOrder.getContractSize())), totalPrice);
     }
 
+    @Test
+    void triggeredStopOrderIsNotTriggeredAgainOnLaterTicks() {
+        when(orderRepository.findByIsDoneAndStatusAndOrderType(false, OrderStatus.APPROVED, OrderType.STOP))
+                .thenReturn(Arrays.asList(stopOrder));
+        when(orderRepository.findById(stopOrder.getId())).thenReturn(Optional.of(stopOrder));
+        doNothing().when(orderExecutionQueue).enqueue(any(Order.class));
+        orderService.restoreOpenOrders();
+        BigDecimal pricePerUnit = stopOrder.getPricePerUnit();
+
+        listing.setPrice(new BigDecimal(250));
+        orderService.checkOrders(listing);
+        listing.setPrice(new BigDecimal(260));
+        orderService.checkOrders(listing);
+
+        verify(orderExecutionQueue, times(1)).enqueue(stopOrder);
+        assertEquals(0, orderTriggerIndex.size(listing.getId()));
+        assertEquals(pricePerUnit, stopOrder.getPricePerUnit());
+    }
+
+    @Test
+    void triggerSkipsOrderThatWasFinishedSinceItWasIndexed() {
+        when(orderRepository.findByIsDoneAndStatusAndOrderType(false, OrderStatus.APPROVED, OrderType.LIMIT))
+                .thenReturn(Arrays.asList(limitOrder));
+        orderService.restoreOpenOrders();
+
+        Order stored = OrderMapper.toOrder(createLimitOrderDto, userId, listing, "ADMIN");
+        stored.setId(limitOrder.getId());
+        stored.setStatus(OrderStatus.DONE);
+        stored.setIsDone(true);
+        stored.setRemainingPortions(0);
+        when(orderRepository.findById(limitOrder.getId())).thenReturn(Optional.of(stored));
+
+        listing.setPrice(new BigDecimal(50));
+        orderService.checkOrders(listing);
+
+        verify(orderRepository, never()).save(any(Order.class));
+        verify(orderExecutionQueue, never()).enqueue(any(Order.class));
+        assertEquals(0, orderTriggerIndex.size(listing.getId()));
+        assertEquals(0, new BigDecimal(100).compareTo(limitOrder.getPricePerUnit()));
+    }
+
+    @Test
+    void limitOrderExecutesOnListingPriceChangedEvent() {
+        when(orderRepository.findByIsDoneAndStatusAndOrderType(false, OrderStatus.APPROVED, OrderType.LIMIT))
+                .thenReturn(Arrays.asList(limitOrder));
+        when(orderRepository.findById(limitOrder.getId())).thenReturn(Optional.of(limitOrder));
+        orderService.restoreOpenOrders();
+
+        listing.setPrice(new BigDecimal(120));
+        orderService.onListingPriceChanged(new ListingPriceChangedEvent(listing));
+        assertEquals(false, limitOrder.getIsDone());
+
+        listing.setPrice(new BigDecimal(90));
+        orderService.onListingPriceChanged(new ListingPriceChangedEvent(listing));
+
+        assertEquals(OrderStatus.DONE, limitOrder.getStatus());
+        assertEquals(0, new BigDecimal(90).compareTo(limitOrder.getPricePerUnit()));
+        assertEquals(0, orderTriggerIndex.size(listing.getId()));
+        verify(listingRepository, never()).findAllById(any());
+        verify(executionLanes, times(2)).submit(eq(listing.getId()), any());
+    }
+
+    @Test
+    void executeOrderResumesProcessingOrderFromRemainingPortions() {
+        limitOrder.setStatus(OrderStatus.PROCESSING);
+        limitOrder.setRemainingPortions(30);
+        when(orderRepository.findById(limitOrder.getId())).thenReturn(Optional.of(limitOrder));
+
+        orderService.executeOrder(limitOrder.getId());
+
+        assertEquals(OrderStatus.DONE, limitOrder.getStatus());
+        assertEquals(0, limitOrder.getRemainingPortions());
+        assertEquals(1, limitOrder.getTransactions().size());
+        assertEquals(30, limitOrder.getTransactions().get(0).getQuantity());
+    }
+
+    @Test
+    void executeOrderTakesBackFillWhenBankChargeFails() {
+        limitOrder.setStatus(OrderStatus.PROCESSING);
+        when(orderRepository.findById(limitOrder.getId())).thenReturn(Optional.of(limitOrder));
+        doThrow(new RuntimeException("bank unavailable")).when(bankClient).updateBalance(any(), any());
+
+        assertThrows(RuntimeException.class, () -> orderService.executeOrder(limitOrder.getId()));
+
+        // fill je upisan pre poziva banke, pa povucen kad naplata nije uspela
+        InOrder inOrder = inOrder(transactionRepository, bankClient);
+        inOrder.verify(transactionRepository).save(any(Transaction.class));
+        inOrder.verify(bankClient).updateBalance(any(), any());
+        inOrder.verify(transactionRepository).delete(any(Transaction.class));
+        assertEquals(limitOrder.getQuantity(), limitOrder.getRemainingPortions());
+        assertTrue(limitOrder.getTransactions().isEmpty());
+        assertEquals(false, limitOrder.getIsDone());
+    }
+
+    @Test
+    void restoreOpenOrdersEnqueuesOrphanedOrders() {
+        stopOrder.setStatus(OrderStatus.PROCESSING);
+        when(orderRepository.findByIsDoneAndStatus(false, OrderStatus.PROCESSING)).thenReturn(List.of(stopOrder));
+        doNothing().when(orderExecutionQueue).enqueue(any(Order.class));
+
+        orderService.restoreOpenOrders();
+
+        verify(orderExecutionQueue).enqueue(stopOrder);
+    }
+
+    @Test
+    void marketOrderMatchesRestingLimitOrderBeforeQuote() {
+        CreateOrderDto restingSellDto = new CreateOrderDto(1L, OrderType.LIMIT, 40, 1, OrderDirection.SELL,
+                "456", false, new BigDecimal(140));
+        Order restingSell = OrderMapper.toOrder(restingSellDto, 2L, listing, "ADMIN");
+        restingSell.setId(10L);
+        restingSell.setStatus(OrderStatus.APPROVED);
+        matchingEngine.rest(restingSell);
+
+        when(jwtTokenUtil.getUserIdFromAuthHeader(authHeader)).thenReturn(userId);
+        when(listingRepository.findById(listingId)).thenReturn(Optional.of(listing));
+        when(jwtTokenUtil.getUserRoleFromAuthHeader(authHeader)).thenReturn("ADMIN");
+
+        OrderDto orderDto = orderService.createOrder(createMarketOrderDto, authHeader);
+
+        assertEquals(OrderStatus.DONE, orderDto.getStatus());
+        assertEquals(2, orderDto.getTransactions().size());
+        assertEquals(40, orderDto.getTransactions().get(0).getQuantity());
+        assertEquals(0, new BigDecimal(140).compareTo(orderDto.getTransactions().get(0).getPricePerUnit()));
+        assertEquals(60, orderDto.getTransactions().get(1).getQuantity());
+
+        assertEquals(OrderStatus.DONE, restingSell.getStatus());
+        assertEquals(0, restingSell.getRemainingPortions());
+        assertEquals(0, matchingEngine.getBook(listing.getId()).size());
+        verify(portfolioService).updateHoldingsOnOrderExecution(restingSell);
+    }
+
+    @Test
+    void sellSkipsRestingBuyRefusedByBankAndFillsNextLevel() {
+        Order unfundedBuy = OrderMapper.toOrder(new CreateOrderDto(1L, OrderType.LIMIT, 5, 1, OrderDirection.BUY,
+                "111", false, new BigDecimal(160)), 2L, listing, "ADMIN");
+        unfundedBuy.setId(10L);
+        unfundedBuy.setStatus(OrderStatus.APPROVED);
+        matchingEngine.rest(unfundedBuy);
+
+        Order fundedBuy = OrderMapper.toOrder(new CreateOrderDto(1L, OrderType.LIMIT, 5, 1, OrderDirection.BUY,
+                "222", false, new BigDecimal(155)), 3L, listing, "ADMIN");
+        fundedBuy.setId(11L);
+        fundedBuy.setStatus(OrderStatus.APPROVED);
+        matchingEngine.rest(fundedBuy);
+
+        doThrow(new InsufficientFundsException(new BigDecimal(800))).when(bankClient).updateBalance(eq("111"), any());
+
+        Order sell = OrderMapper.toOrder(new CreateOrderDto(1L, OrderType.MARKET, 5, 1, OrderDirection.SELL,
+                "456", false, null), userId, listing, "ADMIN");
+        sell.setId(12L);
+        sell.setStatus(OrderStatus.APPROVED);
+
+        orderService.executeOrder(sell);
+
+        assertEquals(OrderStatus.DONE, sell.getStatus());
+        assertEquals(1, sell.getTransactions().size());
+        assertEquals(0, new BigDecimal(155).compareTo(sell.getTransactions().get(0).getPricePerUnit()));
+        assertEquals(OrderStatus.DONE, fundedBuy.getStatus());
+
+        // odbijeni nalog je izbacen iz knjige i ostaje neizvrsen
+        assertEquals(5, unfundedBuy.getRemainingPortions());
+        assertEquals(OrderStatus.APPROVED, unfundedBuy.getStatus());
+        assertEquals(0, matchingEngine.getBook(listing.getId()).size());
+    }
+
+    @Test
+    void marketOrderRemainderFillsAtCurrentAsk() {
+        Order order = OrderMapper.toOrder(createMarketOrderDto, userId, listing, "ADMIN");
+        order.setId(12L);
+        order.setStatus(OrderStatus.APPROVED);
+        order.setReservedAmount(new BigDecimal(15000));
+        listing.setAsk(new BigDecimal(152));
+
+        orderService.executeOrder(order);
+
+        assertEquals(OrderStatus.DONE, order.getStatus());
+        assertEquals(0, new BigDecimal(152).compareTo(order.getTransactions().get(0).getPricePerUnit()));
+    }
+
+    @Test
+    void limitOrderRestsInBookWhenNothingToMatch() {
+        when(jwtTokenUtil.getUserIdFromAuthHeader(authHeader)).thenReturn(userId);
+        when(listingRepository.findById(listingId)).thenReturn(Optional.of(listing));
+        when(jwtTokenUtil.getUserRoleFromAuthHeader(authHeader)).thenReturn("ADMIN");
+
+        OrderDto orderDto = orderService.createOrder(createLimitOrderDto, authHeader);
+
+        assertEquals(OrderStatus.APPROVED, orderDto.getStatus());
+        assertEquals(false, orderDto.getIsDone());
+        assertEquals(1, matchingEngine.getBook(listing.getId()).size());
+        assertEquals(0, new BigDecimal(100).compareTo(matchingEngine.getBook(listing.getId()).bestBid()));
+    }
+
     @Test
     void shouldReturnOrderDtosWhenUserIsAuthorized() {
         Long userId = 1L;
@@ -598,7 +838,7 @@ public class OrderServiceTest {
         when(jwtTokenUtil.getUserIdFromAuthHeader(authHeader)).thenReturn(userId);
         when(jwtTokenUtil.getUserRoleFromAuthHeader(authHeader)).thenReturn("USER");
         when(orderRepository.findAllByUserId(userId)).thenReturn(List.of(order));
-        when(listingPriceHistoryRepository.findTopByListingOrderByDateDesc(listing)).thenReturn(listingPriceHistory);
+        when(latestPriceCache.getLatest(any())).thenReturn(Map.of(listing.getId(), listingPriceHistory));
         when(listingMapper.toDto(listing, listingPriceHistory)).thenReturn(listingDto);
 
         try (MockedStatic<OrderMapper> mocked = mockStatic(OrderMapper.class)) {
@@ -659,7 +899,7 @@ public class OrderServiceTest {
         when(jwtTokenUtil.getUserIdFromAuthHeader(authHeader)).thenReturn(supervisorId);
         when(jwtTokenUtil.getUserRoleFromAuthHeader(authHeader)).thenReturn("SUPERVISOR");
         when(orderRepository.findAllByUserId(userId)).thenReturn(List.of(order));
-        when(listingPriceHistoryRepository.findTopByListingOrderByDateDesc(listing)).thenReturn(listingPriceHistory);
+        when(latestPriceCache.getLatest(any())).thenReturn(Map.of(listing.getId(), listingPriceHistory));
         when(listingMapper.toDto(listing, listingPriceHistory)).thenReturn(listingDto);
 
         try (MockedStatic<OrderMapper> mocked = mockStatic(OrderMapper.class)) {
@@ -720,7 +960,7 @@ public class OrderServiceTest {
         when(jwtTokenUtil.getUserIdFromAuthHeader(authHeader)).thenReturn(adminId);
         when(jwtTokenUtil.getUserRoleFromAuthHeader(authHeader)).thenReturn("ADMIN");
         when(orderRepository.findAllByUserId(userId)).thenReturn(List.of(order));
-        when(listingPriceHistoryRepository.findTopByListingOrderByDateDesc(listing)).thenReturn(listingPriceHistory);
+        when(latestPriceCache.getLatest(any())).thenReturn(Map.of(listing.getId(), listingPriceHistory));
         when(listingMapper.toDto(listing, listingPriceHistory)).thenReturn(listingDto);
 
         try (MockedStatic<OrderMapper> mocked = mockStatic(OrderMapper.class)) {
@@ -776,7 +1016,6 @@ public class OrderServiceTest {
         when(jwtTokenUtil.getUserIdFromAuthHeader(authHeader)).thenReturn(userId);
         when(jwtTokenUtil.getUserRoleFromAuthHeader(authHeader)).thenReturn("USER");
         when(orderRepository.findAllByUserId(userId)).thenReturn(List.of(order));
-        when(listingPriceHistoryRepository.findTopByListingOrderByDateDesc(null)).thenReturn(null);
         when(listingMapper.toDto(null, null)).thenReturn(null);
 
         try (MockedStatic<OrderMapper> mocked = mockStatic(OrderMapper.class)) {
@@ -818,6 +1057,7 @@ public class OrderServiceTest {
         order.setUserId(userId);
         order.setStatus(OrderStatus.PENDING);
         order.setIsDone(false);
+        order.setListing(listing);
 
         when(jwtTokenUtil.getUserIdFromAuthHeader(authHeader)).thenReturn(userId);
         when(jwtTokenUtil.getUserRoleFromAuthHeader(authHeader)).thenReturn("CLIENT");
@@ -839,6 +1079,7 @@ public class OrderServiceTest {
         order.setUserId(123L);
         order.setStatus(OrderStatus.APPROVED);
         order.setIsDone(false);
+        order.setListing(listing);
 
         when(jwtTokenUtil.getUserIdFromAuthHeader(authHeader)).thenReturn(999L); // different user
         when(jwtTokenUtil.getUserRoleFromAuthHeader(authHeader)).thenReturn("ADMIN");
@@ -0,0 +1,93 @@
+package rs.raf.stock_service.unit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import rs.raf.stock_service.domain.entity.Listing;
+import rs.raf.stock_service.domain.entity.Order;
+import rs.raf.stock_service.domain.entity.Stock;
+import rs.raf.stock_service.domain.enums.OrderDirection;
+import rs.raf.stock_service.domain.enums.OrderStatus;
+import rs.raf.stock_service.domain.enums.OrderType;
+import rs.raf.stock_service.service.OrderTriggerIndex;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderTriggerIndexTest {
+
+    private OrderTriggerIndex index;
+    private Listing listing;
+
+    @BeforeEach
+    void setUp() {
+        index = new OrderTriggerIndex();
+        listing = Stock.builder().build();
+        listing.setId(1L);
+    }
+
+    @Test
+    void crossed_ShouldReturnOnlyOrdersWhoseThresholdWasCrossed() {
+        Order buyStop = order(1L, OrderType.STOP, OrderDirection.BUY, null, "110");
+        Order sellStop = order(2L, OrderType.STOP, OrderDirection.SELL, null, "90");
+        Order buyLimit = order(3L, OrderType.LIMIT, OrderDirection.BUY, "95", null);
+        Order sellLimit = order(4L, OrderType.LIMIT, OrderDirection.SELL, "105", null);
+        List.of(buyStop, sellStop, buyLimit, sellLimit).forEach(index::add);
+
+        assertTrue(index.crossed(1L, new BigDecimal("100"), new BigDecimal("100")).isEmpty());
+        assertEquals(List.of(buyStop), index.crossed(1L, new BigDecimal("104"), new BigDecimal("111")));
+        assertEquals(List.of(sellLimit), index.crossed(1L, new BigDecimal("105"), new BigDecimal("106")));
+        assertEquals(List.of(buyLimit, sellStop), index.crossed(1L, new BigDecimal("89"), new BigDecimal("95")));
+    }
+
+    @Test
+    void add_ShouldMoveStopLimitFromStopToLimitOnceStopIsFulfilled() {
+        Order stopLimit = order(1L, OrderType.STOP_LIMIT, OrderDirection.BUY, "100", "120");
+        index.add(stopLimit);
+
+        assertEquals(List.of(stopLimit), index.crossed(1L, new BigDecimal("121"), new BigDecimal("121")));
+
+        stopLimit.setStopFulfilled(true);
+        index.add(stopLimit);
+
+        assertEquals(1, index.size(1L));
+        assertTrue(index.crossed(1L, new BigDecimal("121"), new BigDecimal("121")).isEmpty());
+        assertEquals(List.of(stopLimit), index.crossed(1L, new BigDecimal("100"), new BigDecimal("100")));
+    }
+
+    @Test
+    void remove_ShouldUseThresholdFromWhenOrderWasAdded() {
+        Order buyLimit = order(1L, OrderType.LIMIT, OrderDirection.BUY, "95", null);
+        index.add(buyLimit);
+
+        buyLimit.setPricePerUnit(new BigDecimal("90"));
+        index.remove(buyLimit);
+
+        assertEquals(0, index.size(1L));
+        assertTrue(index.crossed(1L, new BigDecimal("80"), new BigDecimal("80")).isEmpty());
+    }
+
+    @Test
+    void add_ShouldIgnoreDoneAndMarketOrders() {
+        Order done = order(1L, OrderType.LIMIT, OrderDirection.BUY, "95", null);
+        done.setIsDone(true);
+        index.add(done);
+        index.add(order(2L, OrderType.MARKET, OrderDirection.BUY, "95", null));
+
+        assertEquals(0, index.size(1L));
+    }
+
+    private Order order(Long id, OrderType type, OrderDirection direction, String limit, String stop) {
+        return Order.builder()
+                .id(id)
+                .listing(listing)
+                .orderType(type)
+                .direction(direction)
+                .pricePerUnit(limit == null ? null : new BigDecimal(limit))
+                .stopPrice(stop == null ? null : new BigDecimal(stop))
+                .status(OrderStatus.APPROVED)
+                .isDone(false)
+                .build();
+    }
+}
@@ -0,0 +1,160 @@
+package rs.raf.stock_service.unit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import rs.raf.stock_service.domain.dto.PriceHistoryDto;
+import rs.raf.stock_service.domain.dto.PriceHistoryPageDto;
+import rs.raf.stock_service.domain.entity.ListingPriceHistory;
+import rs.raf.stock_service.domain.entity.PriceHistoryChunk;
+import rs.raf.stock_service.domain.entity.Stock;
+import rs.raf.stock_service.repository.ListingPriceHistoryRepository;
+import rs.raf.stock_service.repository.PriceHistoryChunkRepository;
+import rs.raf.stock_service.service.PriceHistoryStore;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class PriceHistoryStoreTest {
+
+    @Mock
+    private PriceHistoryChunkRepository chunkRepository;
+
+    @Mock
+    private ListingPriceHistoryRepository priceHistoryRepository;
+
+    private PriceHistoryStore store;
+    private Stock stock;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        store = new PriceHistoryStore(chunkRepository, priceHistoryRepository, 7);
+        stock = new Stock();
+        stock.setId(1L);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void appendMergesIntoExistingDayChunk() {
+        PriceHistoryChunk chunk = appendToEmpty(bar(10, 0, "100.5"), bar(10, 10, "101"));
+        when(chunkRepository.findAllForUpdate(eq(1L), anyCollection())).thenReturn(List.of(chunk));
+
+        store.append(List.of(bar(10, 5, "100.25"), bar(10, 10, "999")));
+
+        assertEquals(3, chunk.getBarCount());
+        assertEquals(LocalDateTime.of(2024, 1, 2, 10, 0), chunk.getFirstBar());
+        assertEquals(LocalDateTime.of(2024, 1, 2, 10, 10), chunk.getLastBar());
+
+        when(chunkRepository.findAllByListingIdAndDayBetweenOrderByDayAsc(eq(1L), any(), any())).thenReturn(List.of(chunk));
+        List<PriceHistoryDto> bars = store.getBars(1L, null, null, false);
+        assertEquals(new BigDecimal("100.50"), bars.get(0).getClose());
+        assertEquals(new BigDecimal("100.25"), bars.get(1).getClose());
+        // postojeci bar se ne prepisuje
+        assertEquals(new BigDecimal("101.00"), bars.get(2).getClose());
+    }
+
+    @Test
+    void appendSkipsSaveWhenNothingIsNew() {
+        PriceHistoryChunk chunk = appendToEmpty(bar(10, 0, "100"));
+        when(chunkRepository.findAllForUpdate(eq(1L), anyCollection())).thenReturn(List.of(chunk));
+        clearInvocations(chunkRepository);
+
+        store.append(List.of(bar(10, 0, "100")));
+
+        verify(chunkRepository).saveAll(List.of());
+    }
+
+    @Test
+    void getBarsFiltersByRangeAndOrdersNewestFirst() {
+        PriceHistoryChunk chunk = appendToEmpty(bar(10, 0, "1"), bar(10, 5, "2"), bar(10, 10, "3"), bar(10, 15, "4"));
+        when(chunkRepository.findAllByListingIdAndDayBetweenOrderByDayAsc(1L, LocalDate.of(2024, 1, 2), LocalDate.of(2024, 1, 2)))
+                .thenReturn(List.of(chunk));
+
+        List<PriceHistoryDto> bars = store.getBars(1L,
+                LocalDateTime.of(2024, 1, 2, 10, 5), LocalDateTime.of(2024, 1, 2, 10, 10), true);
+
+        assertEquals(2, bars.size());
+        assertEquals(LocalDateTime.of(2024, 1, 2, 10, 10), bars.get(0).getDatetime());
+        assertEquals(LocalDateTime.of(2024, 1, 2, 10, 5), bars.get(1).getDatetime());
+    }
+
+    @Test
+    void getPageReturnsNewestBarsWithKeysetCursor() {
+        PriceHistoryChunk chunk = appendToEmpty(bar(10, 0, "1"), bar(10, 5, "2"), bar(10, 10, "3"), bar(10, 15, "4"));
+        when(chunkRepository.findAllByListingIdAndDayBetweenOrderByDayDesc(eq(1L), any(), any(), any()))
+                .thenReturn(List.of(chunk));
+
+        PriceHistoryPageDto first = store.getPage(1L, null, null, 2);
+        assertEquals(List.of(LocalDateTime.of(2024, 1, 2, 10, 15), LocalDateTime.of(2024, 1, 2, 10, 10)),
+                first.getBars().stream().map(PriceHistoryDto::getDatetime).toList());
+        assertEquals(LocalDateTime.of(2024, 1, 2, 10, 10), first.getNextCursor());
+
+        PriceHistoryPageDto second = store.getPage(1L, null, first.getNextCursor(), 2);
+        assertEquals(List.of(LocalDateTime.of(2024, 1, 2, 10, 5), LocalDateTime.of(2024, 1, 2, 10, 0)),
+                second.getBars().stream().map(PriceHistoryDto::getDatetime).toList());
+        assertNull(second.getNextCursor());
+    }
+
+    @Test
+    void appendLocksDayRowsBeforeMerging() {
+        appendToEmpty(bar(10, 0, "100"));
+
+        InOrder inOrder = inOrder(chunkRepository);
+        inOrder.verify(chunkRepository).insertEmptyIfAbsent(1L, LocalDate.of(2024, 1, 2), LocalDateTime.of(2024, 1, 2, 0, 0));
+        inOrder.verify(chunkRepository).findAllForUpdate(eq(1L), anyCollection());
+        inOrder.verify(chunkRepository).saveAll(anyList());
+    }
+
+    @Test
+    void appendFillsPlaceholderChunk() {
+        PriceHistoryChunk placeholder = PriceHistoryChunk.builder().listingId(1L).day(LocalDate.of(2024, 1, 2))
+                .firstBar(LocalDateTime.of(2024, 1, 2, 0, 0)).lastBar(LocalDateTime.of(2024, 1, 2, 0, 0))
+                .data(new byte[0]).build();
+        when(chunkRepository.findAllForUpdate(eq(1L), anyCollection())).thenReturn(List.of(placeholder));
+
+        store.append(List.of(bar(10, 0, "100")));
+
+        assertEquals(1, placeholder.getBarCount());
+        assertEquals(LocalDateTime.of(2024, 1, 2, 10, 0), placeholder.getFirstBar());
+        verify(chunkRepository).saveAll(List.of(placeholder));
+    }
+
+    @Test
+    void pruneRowsKeepsNewestRowOfEveryListing() {
+        store.pruneRows();
+
+        verify(priceHistoryRepository).deleteOlderThanKeepingLatest(LocalDate.now().minusDays(7).atStartOfDay());
+    }
+
+    @SuppressWarnings("unchecked")
+    private PriceHistoryChunk appendToEmpty(ListingPriceHistory... bars) {
+        when(chunkRepository.findAllForUpdate(eq(1L), anyCollection())).thenReturn(List.of());
+        store.append(List.of(bars));
+
+        ArgumentCaptor<List<PriceHistoryChunk>> captor = ArgumentCaptor.forClass(List.class);
+        verify(chunkRepository).saveAll(captor.capture());
+        return captor.getValue().get(0);
+    }
+
+    private ListingPriceHistory bar(int hour, int minute, String close) {
+        return ListingPriceHistory.builder()
+                .listing(stock)
+                .date(LocalDateTime.of(2024, 1, 2, hour, minute))
+                .open(new BigDecimal("100"))
+                .high(new BigDecimal("102"))
+                .low(new BigDecimal("99"))
+                .close(new BigDecimal(close))
+                .volume(10L)
+                .build();
+    }
+}
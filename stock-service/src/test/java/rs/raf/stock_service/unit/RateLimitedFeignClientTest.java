@@ -0,0 +1,118 @@
+package rs.raf.stock_service.unit;
+
+import feign.Client;
+import feign.Request;
+import feign.Response;
+import feign.Util;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import rs.raf.stock_service.client.ProviderCallPriority;
+import rs.raf.stock_service.client.ProviderRateLimitExceededException;
+import rs.raf.stock_service.client.ProviderRateLimiter;
+import rs.raf.stock_service.domain.dto.ProviderRateLimitStatsDto;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class RateLimitedFeignClientTest {
+
+    private static final String URL = "https://www.alphavantage.co/query?function=GLOBAL_QUOTE&symbol=AAPL";
+
+    private Client delegate;
+    private ProviderRateLimiter rateLimiter;
+    private Client client;
+
+    @BeforeEach
+    void setUp() {
+        delegate = mock(Client.class);
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("market-data.rate-limit.alphavantage.per-minute", "6000");
+        rateLimiter = new ProviderRateLimiter(environment, 0.5, 1000, 2, 1);
+        client = rateLimiter.limit(delegate, "alphavantage");
+    }
+
+    @Test
+    void execute_ShouldRetryAfterRateLimitNote() throws IOException {
+        when(delegate.execute(any(), any()))
+                .thenAnswer(invocation -> response(invocation.getArgument(0), 200, "{\"Note\":\"Thank you for using Alpha Vantage!\"}"))
+                .thenAnswer(invocation -> response(invocation.getArgument(0), 200, "{\"Global Quote\":{}}"));
+
+        Response response = client.execute(request(), null);
+
+        assertEquals("{\"Global Quote\":{}}", Util.toString(response.body().asReader(StandardCharsets.UTF_8)));
+        verify(delegate, times(2)).execute(any(), any());
+
+        ProviderRateLimitStatsDto stats = rateLimiter.stats().get(0);
+        assertEquals(2, stats.getCalls());
+        assertEquals(1, stats.getRateLimited());
+        assertEquals(1, stats.getRetries());
+    }
+
+    @Test
+    void execute_ShouldGiveUpAfterMaxRetries() throws IOException {
+        when(delegate.execute(any(), any()))
+                .thenAnswer(invocation -> response(invocation.getArgument(0), 429, "{\"code\": 429}"));
+
+        Response response = client.execute(request(), null);
+
+        assertEquals(429, response.status());
+        verify(delegate, times(3)).execute(any(), any());
+    }
+
+    @Test
+    void acquire_ShouldHoldBackBackgroundCallsBeforeInteractive() throws Exception {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("market-data.rate-limit.slow.per-minute", "2");
+        ProviderRateLimiter limiter = new ProviderRateLimiter(environment, 0.5, 0, 0, 1);
+
+        limiter.acquire("slow");
+        Thread background = new Thread(() -> ProviderCallPriority.runAs(ProviderCallPriority.BACKGROUND, () -> {
+            try {
+                limiter.acquire("slow");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ProviderRateLimitExceededException e) {
+                fail("Background calls wait for a permit");
+            }
+        }));
+        background.start();
+        background.join(300);
+
+        assertTrue(background.isAlive());
+        background.interrupt();
+        background.join();
+    }
+
+    @Test
+    void execute_ShouldNotSendInteractiveCallWhenWaitForPermitRunsOut() throws Exception {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("market-data.rate-limit.slow.per-minute", "1");
+        ProviderRateLimiter limiter = new ProviderRateLimiter(environment, 0.5, 50, 0, 1);
+        Client slowClient = limiter.limit(delegate, "slow");
+        when(delegate.execute(any(), any()))
+                .thenAnswer(invocation -> response(invocation.getArgument(0), 200, "{}"));
+
+        slowClient.execute(request(), null);
+
+        assertThrows(ProviderRateLimitExceededException.class, () -> slowClient.execute(request(), null));
+        verify(delegate, times(1)).execute(any(), any());
+        ProviderRateLimitStatsDto stats = limiter.stats().get(0);
+        assertEquals(1, stats.getCalls());
+        assertEquals(1, stats.getRejected());
+    }
+
+    private Request request() {
+        return Request.create(Request.HttpMethod.GET, URL, Map.of(), null, StandardCharsets.UTF_8, null);
+    }
+
+    private Response response(Request request, int status, String body) {
+        return Response.builder().status(status).request(request).headers(Map.of())
+                .body(body, StandardCharsets.UTF_8).build();
+    }
+}
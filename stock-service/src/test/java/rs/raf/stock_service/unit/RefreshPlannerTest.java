@@ -0,0 +1,199 @@
+package rs.raf.stock_service.unit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import rs.raf.stock_service.domain.entity.Country;
+import rs.raf.stock_service.domain.entity.Exchange;
+import rs.raf.stock_service.domain.entity.ForexPair;
+import rs.raf.stock_service.domain.entity.Order;
+import rs.raf.stock_service.domain.entity.Stock;
+import rs.raf.stock_service.domain.enums.OrderDirection;
+import rs.raf.stock_service.domain.enums.OrderType;
+import rs.raf.stock_service.exceptions.ExchangesNotLoadedException;
+import rs.raf.stock_service.repository.PortfolioEntryRepository;
+import rs.raf.stock_service.service.ExchangeService;
+import rs.raf.stock_service.service.ListingDemandTracker;
+import rs.raf.stock_service.service.OrderTriggerIndex;
+import rs.raf.stock_service.service.RefreshPlanner;
+import rs.raf.stock_service.utils.TradingCalendar;
+
+import java.math.BigDecimal;
+import java.time.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RefreshPlannerTest {
+
+    private static final ZoneId NEW_YORK = ZoneId.of("America/New_York");
+    private static final long CLOSED_INTERVAL_MS = 3600000;
+
+    private ExchangeService exchangeService;
+    private OrderTriggerIndex orderTriggerIndex;
+    private PortfolioEntryRepository portfolioEntryRepository;
+    private ListingDemandTracker demandTracker;
+    private RefreshPlanner planner;
+    private Stock stock;
+
+    @BeforeEach
+    void setUp() {
+        Country country = new Country();
+        country.setOpenTime(LocalTime.of(9, 30));
+        country.setCloseTime(LocalTime.of(16, 0));
+        country.setHolidays(new ArrayList<>());
+
+        Exchange exchange = new Exchange();
+        exchange.setMic("XNYS");
+        exchange.setPolity(country);
+        exchange.setZoneId("America/New_York");
+
+        exchangeService = mock(ExchangeService.class);
+        when(exchangeService.getTradingCalendar()).thenReturn(TradingCalendar.of(List.of(exchange)));
+        orderTriggerIndex = mock(OrderTriggerIndex.class);
+        when(orderTriggerIndex.listingIds()).thenReturn(Set.of());
+        portfolioEntryRepository = mock(PortfolioEntryRepository.class);
+        when(portfolioEntryRepository.findAllHeldListingIds()).thenReturn(Set.of());
+        demandTracker = new ListingDemandTracker();
+        planner = planner(CLOSED_INTERVAL_MS, 0);
+
+        stock = new Stock();
+        stock.setId(1L);
+        stock.setExchange(exchange);
+    }
+
+    // hot 1min, warm 5min, cold 30min, pregledi se pamte 15min
+    private RefreshPlanner planner(long closedIntervalMillis, int budgetPerMinute) {
+        return new RefreshPlanner(exchangeService, orderTriggerIndex, portfolioEntryRepository, demandTracker,
+                closedIntervalMillis, 60000, 300000, 1800000, 900000, budgetPerMinute);
+    }
+
+    private Stock stock(long id) {
+        Stock other = new Stock();
+        other.setId(id);
+        other.setExchange(stock.getExchange());
+        return other;
+    }
+
+    // sreda, 10. jul 2024. po njujorskom vremenu
+    private Instant at(int hour, int minute) {
+        return ZonedDateTime.of(2024, 7, 10, hour, minute, 0, 0, NEW_YORK).toInstant();
+    }
+
+    @Test
+    void due_ShouldRefreshByDemandWhileTheMarketIsOpen() {
+        Stock held = stock(2L);
+        Stock ordered = stock(3L);
+        when(portfolioEntryRepository.findAllHeldListingIds()).thenReturn(Set.of(2L));
+        when(orderTriggerIndex.listingIds()).thenReturn(Set.of(3L));
+        List<Stock> listings = List.of(stock, held, ordered);
+
+        assertEquals(3, planner.due(listings, at(10, 0)).size());
+        assertEquals(List.of(ordered), planner.due(listings, at(10, 1)));
+        assertEquals(List.of(ordered, held), planner.due(listings, at(10, 5)));
+        assertEquals(List.of(ordered, held, stock), planner.due(listings, at(10, 30)));
+    }
+
+    @Test
+    void due_ShouldStopTreatingListingAsHotOnceItsLastOrderIsRemoved() {
+        orderTriggerIndex = new OrderTriggerIndex();
+        planner = planner(CLOSED_INTERVAL_MS, 0);
+        Stock ordered = stock(2L);
+        Order order = Order.builder().id(5L).listing(ordered).orderType(OrderType.LIMIT)
+                .direction(OrderDirection.BUY).pricePerUnit(new BigDecimal(100)).isDone(false).build();
+        orderTriggerIndex.add(order);
+        List<Stock> listings = List.of(stock, ordered);
+
+        assertEquals(2, planner.due(listings, at(10, 0)).size());
+        assertEquals(List.of(ordered), planner.due(listings, at(10, 1)));
+
+        orderTriggerIndex.remove(order);
+
+        assertEquals(Set.of(), orderTriggerIndex.listingIds());
+        assertEquals(List.of(), planner.due(listings, at(10, 2)));
+    }
+
+    @Test
+    void due_ShouldWarmUpRecentlyViewedListings() {
+        planner.due(List.of(stock), at(10, 0));
+        demandTracker.recordView(1L, at(10, 2));
+
+        assertEquals(List.of(stock), planner.due(List.of(stock), at(10, 5)));
+        assertEquals(List.of(), planner.due(List.of(stock), at(10, 25)));
+    }
+
+    @Test
+    void due_ShouldStayWithinBudgetAndRefreshMostOverdueFirst() {
+        planner = planner(CLOSED_INTERVAL_MS, 2);
+        Stock ordered = stock(2L);
+        Stock other = stock(3L);
+        when(orderTriggerIndex.listingIds()).thenReturn(Set.of(2L));
+        List<Stock> listings = List.of(stock, ordered, other);
+
+        assertEquals(2, planner.due(listings, at(10, 0)).size());
+        // listing koji je ispao iz budzeta nikad nije osvezen, pa ide prvi
+        assertEquals(List.of(other), planner.due(listings, at(10, 0).plusSeconds(30)));
+        assertEquals(List.of(ordered), planner.due(listings, at(10, 2)));
+    }
+
+    @Test
+    void due_ShouldPullOnceAfterCloseThenDownSample() {
+        planner.due(List.of(stock), at(15, 55));
+
+        assertEquals(List.of(stock), planner.due(List.of(stock), at(16, 0)));
+        assertEquals(List.of(), planner.due(List.of(stock), at(16, 5)));
+        assertEquals(List.of(), planner.due(List.of(stock), at(16, 55)));
+        assertEquals(List.of(stock), planner.due(List.of(stock), at(17, 0)));
+    }
+
+    @Test
+    void due_ShouldSkipClosedMarketsUntilOpenWhenIntervalIsZero() {
+        planner = planner(0, 0);
+
+        assertEquals(List.of(stock), planner.due(List.of(stock), at(4, 0)));
+        assertEquals(List.of(), planner.due(List.of(stock), at(8, 0)));
+        assertEquals(List.of(stock), planner.due(List.of(stock), at(9, 30)));
+    }
+
+    @Test
+    void due_ShouldDeferForexOverTheWeekend() {
+        ForexPair forex = new ForexPair();
+        forex.setId(2L);
+        Instant saturday = ZonedDateTime.of(2024, 7, 13, 12, 0, 0, 0, NEW_YORK).toInstant();
+
+        planner.due(List.of(forex), saturday);
+
+        assertEquals(List.of(), planner.due(List.of(forex), saturday.plusSeconds(300)));
+    }
+
+    @Test
+    void due_ShouldTreatMarketsAsOpenWhenExchangesAreNotLoaded() {
+        when(exchangeService.getTradingCalendar()).thenThrow(new ExchangesNotLoadedException());
+
+        planner.due(List.of(stock), at(4, 0));
+
+        assertEquals(List.of(stock), planner.due(List.of(stock), at(4, 30)));
+    }
+
+    @Test
+    void refreshFailed_ShouldKeepListingOverdue() {
+        planner = planner(CLOSED_INTERVAL_MS, 1);
+
+        assertEquals(List.of(stock), planner.due(List.of(stock), at(10, 0)));
+        planner.refreshFailed(List.of(1L));
+        assertEquals(List.of(stock), planner.due(List.of(stock), at(10, 1)));
+
+        assertEquals(List.of(), planner.due(List.of(stock), at(10, 20)));
+        assertEquals(List.of(stock), planner.due(List.of(stock), at(10, 31)));
+        planner.refreshFailed(List.of(1L));
+        // vraca se prethodno uspesno osvezavanje iz 10:01, ne ono neuspelo
+        assertEquals(List.of(stock), planner.due(List.of(stock), at(10, 32)));
+
+        planner.refreshFailed(List.of(1L));
+        // token neuspelog povlacenja je vracen, pa listing odmah staje u budzet
+        assertEquals(List.of(stock), planner.due(List.of(stock), at(10, 32).plusSeconds(10)));
+    }
+}
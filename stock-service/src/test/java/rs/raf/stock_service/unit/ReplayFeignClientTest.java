@@ -0,0 +1,103 @@
+package rs.raf.stock_service.unit;
+
+import feign.Client;
+import feign.Request;
+import feign.Response;
+import feign.Util;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import rs.raf.stock_service.client.RecordingFeignClient;
+import rs.raf.stock_service.client.ReplayFeignClient;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ReplayFeignClientTest {
+
+    private static final String QUOTE_URL = "https://www.alphavantage.co/query?function=GLOBAL_QUOTE&symbol=AAPL&apikey=demo";
+    private static final String QUOTE_BODY = "{\"Global Quote\":{\"05. price\":\"150.00\"}}";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void key_ShouldIgnoreApiKeyAndParameterOrder() {
+        String first = ReplayFeignClient.key(URI.create(QUOTE_URL), Set.of());
+        String second = ReplayFeignClient.key(
+                URI.create("https://www.alphavantage.co/query?apikey=other&symbol=AAPL&function=GLOBAL_QUOTE"), Set.of());
+
+        assertEquals(first, second);
+        assertFalse(first.contains("demo"));
+    }
+
+    @Test
+    void execute_ShouldServeExactRecording() throws IOException {
+        Files.writeString(directory.resolve(ReplayFeignClient.key(URI.create(QUOTE_URL), Set.of())), QUOTE_BODY);
+        ReplayFeignClient client = new ReplayFeignClient(directory, Set.of("symbol"), 0, 0, 0, 0);
+
+        Response response = client.execute(get(QUOTE_URL), null);
+
+        assertEquals(200, response.status());
+        assertEquals(QUOTE_BODY, body(response));
+    }
+
+    @Test
+    void execute_ShouldFallBackToRecordingWithoutWildcardParams() throws IOException {
+        Files.writeString(directory.resolve(ReplayFeignClient.key(URI.create(QUOTE_URL), Set.of("symbol"))), QUOTE_BODY);
+        ReplayFeignClient client = new ReplayFeignClient(directory, Set.of("symbol"), 0, 0, 0, 0);
+
+        Response response = client.execute(
+                get("https://www.alphavantage.co/query?function=GLOBAL_QUOTE&symbol=MSFT&apikey=demo"), null);
+
+        assertEquals(QUOTE_BODY, body(response));
+    }
+
+    @Test
+    void execute_ShouldReturnNotFoundWithoutRecording() throws IOException {
+        ReplayFeignClient client = new ReplayFeignClient(directory, Set.of(), 0, 0, 0, 0);
+
+        Response response = client.execute(get(QUOTE_URL), null);
+
+        assertEquals(404, response.status());
+        assertTrue(body(response).contains("Error Message"));
+    }
+
+    @Test
+    void execute_ShouldInjectFailuresAndRateLimitNotes() throws IOException {
+        Files.writeString(directory.resolve(ReplayFeignClient.key(URI.create(QUOTE_URL), Set.of())), QUOTE_BODY);
+
+        assertEquals(503, new ReplayFeignClient(directory, Set.of(), 0, 0, 1, 0).execute(get(QUOTE_URL), null).status());
+        assertTrue(body(new ReplayFeignClient(directory, Set.of(), 0, 0, 0, 1).execute(get(QUOTE_URL), null)).contains("Note"));
+    }
+
+    @Test
+    void recordingClient_ShouldSaveResponseForReplay() throws IOException {
+        Client delegate = mock(Client.class);
+        when(delegate.execute(any(), any())).thenAnswer(invocation -> Response.builder().status(200)
+                .request(invocation.getArgument(0)).headers(Map.of())
+                .body(QUOTE_BODY, StandardCharsets.UTF_8).build());
+
+        Response live = new RecordingFeignClient(delegate, directory).execute(get(QUOTE_URL), null);
+        Response replayed = new ReplayFeignClient(directory, Set.of(), 0, 0, 0, 0).execute(get(QUOTE_URL), null);
+
+        assertEquals(QUOTE_BODY, body(live));
+        assertEquals(QUOTE_BODY, body(replayed));
+    }
+
+    private Request get(String url) {
+        return Request.create(Request.HttpMethod.GET, url, Map.of(), null, StandardCharsets.UTF_8, null);
+    }
+
+    private String body(Response response) throws IOException {
+        return Util.toString(response.body().asReader(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,92 @@
+package rs.raf.stock_service.unit;
+
+import org.junit.jupiter.api.Test;
+import rs.raf.stock_service.utils.SingleFlight;
+
+import java.io.IOException;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    @Test
+    void execute_ShouldShareOneCallBetweenConcurrentCallers() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        try {
+            Future<String> leader = executor.submit(() -> singleFlight.execute("AAPL/1day", 5, TimeUnit.SECONDS, () -> {
+                calls.incrementAndGet();
+                leaderStarted.countDown();
+                release.await();
+                return "series";
+            }));
+            assertTrue(leaderStarted.await(5, TimeUnit.SECONDS));
+
+            Future<String> follower = executor.submit(() -> singleFlight.execute("AAPL/1day", 5, TimeUnit.SECONDS, () -> {
+                calls.incrementAndGet();
+                return "other";
+            }));
+            while (singleFlight.getCoalesced() == 0) Thread.onSpinWait();
+            release.countDown();
+
+            assertEquals("series", leader.get(5, TimeUnit.SECONDS));
+            assertEquals("series", follower.get(5, TimeUnit.SECONDS));
+            assertEquals(1, calls.get());
+            assertEquals(0, singleFlight.inFlight());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void execute_ShouldRunAgainOnceCallCompleted() throws Exception {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+        AtomicInteger calls = new AtomicInteger();
+
+        singleFlight.execute("key", 5, TimeUnit.SECONDS, calls::incrementAndGet);
+        singleFlight.execute("key", 5, TimeUnit.SECONDS, calls::incrementAndGet);
+
+        assertEquals(2, calls.get());
+        assertEquals(0, singleFlight.getCoalesced());
+    }
+
+    @Test
+    void execute_ShouldPropagateFailure() {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+
+        assertThrows(IOException.class, () -> singleFlight.execute("key", 5, TimeUnit.SECONDS, () -> {
+            throw new IOException("provider down");
+        }));
+        assertEquals(0, singleFlight.inFlight());
+    }
+
+    @Test
+    void execute_ShouldStopWaitingForHungLeaderAfterTimeout() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            executor.submit(() -> singleFlight.execute("AAPL/1day", 5, TimeUnit.SECONDS, () -> {
+                leaderStarted.countDown();
+                release.await();
+                return "series";
+            }));
+            assertTrue(leaderStarted.await(5, TimeUnit.SECONDS));
+
+            assertThrows(TimeoutException.class,
+                    () -> singleFlight.execute("AAPL/1day", 50, TimeUnit.MILLISECONDS, () -> "other"));
+            assertEquals(1, singleFlight.getCoalesced());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+}
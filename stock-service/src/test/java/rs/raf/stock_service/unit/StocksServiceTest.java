@@ -6,11 +6,14 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.mock.env.MockEnvironment;
 import rs.raf.stock_service.client.AlphavantageClient;
+import rs.raf.stock_service.client.ProviderRateLimiter;
 import rs.raf.stock_service.client.TwelveDataClient;
 import rs.raf.stock_service.domain.dto.StockDto;
 import rs.raf.stock_service.domain.dto.StockSearchDto;
@@ -18,12 +21,15 @@ import rs.raf.stock_service.domain.entity.Exchange;
 import rs.raf.stock_service.exceptions.StockNotFoundException;
 import rs.raf.stock_service.exceptions.SymbolSearchException;
 import rs.raf.stock_service.service.ExchangeService;
+import rs.raf.stock_service.service.MarketDataHedger;
 import rs.raf.stock_service.service.StocksService;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -38,6 +44,9 @@ public class StocksServiceTest {
     private StocksService stockService;
     @Mock
     private ExchangeService exchangeService;
+    @Spy
+    private MarketDataHedger marketDataHedger = new MarketDataHedger(
+            new ProviderRateLimiter(new MockEnvironment(), 0.2, 10000, 3, 2000), true, 95, 200, 3000, 2);
 
     @BeforeEach
     void setUp() {
@@ -49,10 +58,7 @@ public class StocksServiceTest {
         Exchange ex1 = new Exchange();
         ex1.setMic("NYSE");
 
-        Exchange ex2 = new Exchange();
-        ex2.setMic("XNAS");
-
-        when(exchangeService.getAvailableExchanges()).thenReturn(List.of(ex1, ex2));
+        when(exchangeService.getAvailableExchange(anyString())).thenReturn(Optional.of(ex1));
 
         // Pripremite sample JSON odgovore
         String globalQuoteJson = "{ \"Global Quote\": { " +
@@ -87,6 +93,21 @@ public class StocksServiceTest {
         assertThrows(StockNotFoundException.class, () -> stockService.getStockData("INVALID"));
     }
 
+    @Test
+    public void testGetStockData_FailsOverToTwelveData_WhenAlphaVantageIsThrottled() {
+        when(alphavantageClient.getGlobalQuote("TEST")).thenReturn("{ \"Note\": \"API call frequency exceeded\" }");
+        when(twelveDataClient.getQuote("TEST")).thenReturn("{ \"symbol\": \"TEST\", \"name\": \"Test Company\", " +
+                "\"mic_code\": \"XNYS\", \"close\": \"151.25\", \"high\": \"152.00\", " +
+                "\"change\": \"1.25\", \"volume\": \"250000\" }");
+
+        StockDto dto = stockService.getStockData("TEST");
+
+        assertEquals("Test Company", dto.getName());
+        assertEquals(new BigDecimal("151.25"), dto.getPrice());
+        assertEquals(new BigDecimal("1.25"), dto.getChange());
+        assertEquals(250000L, dto.getVolume());
+    }
+
     @Test
     public void testGetStocksList_Pagination() throws Exception {
         String stocksJson = "{ \"data\": [ " +
@@ -0,0 +1,47 @@
+package rs.raf.stock_service.unit;
+
+import org.junit.jupiter.api.Test;
+import rs.raf.stock_service.utils.TokenBucket;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    void tryAcquire_ShouldRefillOverTime() {
+        TokenBucket bucket = new TokenBucket(2, Duration.ofSeconds(2), now::get);
+
+        assertEquals(0, bucket.tryAcquire(0));
+        assertEquals(0, bucket.tryAcquire(0));
+        long wait = bucket.tryAcquire(0);
+        assertEquals(Duration.ofSeconds(1).toNanos(), wait, Duration.ofMillis(1).toNanos());
+
+        now.addAndGet(wait);
+        assertEquals(0, bucket.tryAcquire(0));
+    }
+
+    @Test
+    void tryAcquire_ShouldKeepReserveForHigherPriority() {
+        TokenBucket bucket = new TokenBucket(10, Duration.ofMinutes(1), now::get);
+
+        for (int i = 0; i < 8; i++) assertEquals(0, bucket.tryAcquire(2));
+        assertTrue(bucket.tryAcquire(2) > 0);
+        assertEquals(0, bucket.tryAcquire(0));
+    }
+
+    @Test
+    void pause_ShouldBlockUntilBackoffElapsed() {
+        TokenBucket bucket = new TokenBucket(10, Duration.ofMinutes(1), now::get);
+
+        bucket.pause(Duration.ofSeconds(5));
+        assertEquals(Duration.ofSeconds(5).toNanos(), bucket.tryAcquire(0));
+
+        now.addAndGet(Duration.ofSeconds(11).toNanos());
+        assertEquals(0, bucket.tryAcquire(0));
+    }
+}
@@ -0,0 +1,85 @@
+package rs.raf.stock_service.unit;
+
+import org.junit.jupiter.api.Test;
+import rs.raf.stock_service.domain.entity.Country;
+import rs.raf.stock_service.domain.entity.Exchange;
+import rs.raf.stock_service.domain.entity.Holiday;
+import rs.raf.stock_service.utils.TradingCalendar;
+
+import java.time.*;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TradingCalendarTest {
+
+    private static final ZoneId NEW_YORK = ZoneId.of("America/New_York");
+
+    private Exchange exchange(LocalDate... holidays) {
+        Country country = new Country();
+        country.setOpenTime(LocalTime.of(9, 30));
+        country.setCloseTime(LocalTime.of(16, 0));
+        country.setHolidays(new ArrayList<>());
+        for (LocalDate date : holidays) {
+            Holiday holiday = new Holiday();
+            holiday.setDate(date);
+            holiday.setCountry(country);
+            country.getHolidays().add(holiday);
+        }
+
+        Exchange exchange = new Exchange();
+        exchange.setMic("XNYS");
+        exchange.setPolity(country);
+        exchange.setZoneId("America/New_York");
+        exchange.setTimeZone(-5L);
+        return exchange;
+    }
+
+    private Instant newYork(int year, int month, int day, int hour, int minute) {
+        return ZonedDateTime.of(year, month, day, hour, minute, 0, 0, NEW_YORK).toInstant();
+    }
+
+    @Test
+    void isOpen_ShouldFollowDaylightSavingTime() {
+        TradingCalendar calendar = TradingCalendar.of(List.of(exchange()));
+
+        // 9:45 lokalno je 14:45 UTC zimi i 13:45 UTC leti; fiksni pomeraj od -5h bi leti otvorio berzu sat kasnije
+        assertTrue(calendar.isOpen("XNYS", newYork(2024, 1, 10, 9, 45)));
+        assertTrue(calendar.isOpen("XNYS", newYork(2024, 7, 10, 9, 45)));
+        assertFalse(calendar.isOpen("XNYS", newYork(2024, 7, 10, 16, 0)));
+        assertFalse(calendar.isOpen("xnys", newYork(2024, 7, 10, 9, 29)));
+    }
+
+    @Test
+    void isOpen_ShouldBeClosedOnWeekendsAndHolidays() {
+        TradingCalendar calendar = TradingCalendar.of(List.of(exchange(LocalDate.of(2024, 7, 4))));
+
+        assertFalse(calendar.isOpen("XNYS", newYork(2024, 7, 4, 12, 0)));
+        assertFalse(calendar.isOpen("XNYS", newYork(2024, 7, 6, 12, 0)));
+        assertTrue(calendar.isOpen("XNYS", newYork(2024, 7, 5, 12, 0)));
+        assertFalse(calendar.isOpen("UNKNOWN", newYork(2024, 7, 5, 12, 0)));
+    }
+
+    @Test
+    void nextOpen_ShouldSkipWeekendsAndHolidays() {
+        // cetvrtak 2. jul posle zatvaranja, petak 3. jul je praznik, pa vikend
+        TradingCalendar calendar = TradingCalendar.of(List.of(exchange(LocalDate.of(2026, 7, 3))));
+
+        assertEquals(ZonedDateTime.of(2026, 7, 6, 9, 30, 0, 0, NEW_YORK),
+                calendar.nextOpen("XNYS", newYork(2026, 7, 2, 17, 0)).orElseThrow());
+        assertEquals(ZonedDateTime.of(2026, 7, 2, 9, 30, 0, 0, NEW_YORK),
+                calendar.nextOpen("XNYS", newYork(2026, 7, 2, 8, 0)).orElseThrow());
+    }
+
+    @Test
+    void openExchanges_ShouldAlwaysIncludeTestModeExchanges() {
+        Exchange exchange = exchange();
+        exchange.setTestMode(true);
+
+        TradingCalendar calendar = TradingCalendar.of(List.of(exchange));
+
+        assertEquals(List.of(exchange), calendar.openExchanges(newYork(2024, 7, 6, 3, 0)));
+        assertTrue(calendar.nextOpen("XNYS", newYork(2024, 7, 6, 3, 0)).isEmpty());
+    }
+}
@@ -0,0 +1,47 @@
+package rs.raf.stock_service.unit;
+
+import org.junit.jupiter.api.Test;
+import rs.raf.stock_service.domain.dto.CacheStatsDto;
+import rs.raf.stock_service.utils.TtlCache;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TtlCacheTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    void get_ShouldExpireEntriesAfterTtl() {
+        TtlCache<String, String> cache = new TtlCache<>("test", 10, Duration.ofSeconds(60), now::get);
+        cache.put("AAPL", "quote");
+
+        now.set(Duration.ofSeconds(59).toNanos());
+        assertEquals("quote", cache.get("AAPL"));
+
+        now.set(Duration.ofSeconds(60).toNanos());
+        assertNull(cache.get("AAPL"));
+
+        CacheStatsDto stats = cache.stats();
+        assertEquals(1, stats.getHits());
+        assertEquals(1, stats.getMisses());
+        assertEquals(1, stats.getExpirations());
+        assertEquals(0, stats.getSize());
+    }
+
+    @Test
+    void put_ShouldEvictLeastRecentlyUsedEntryWhenFull() {
+        TtlCache<String, String> cache = new TtlCache<>("test", 2, Duration.ofMinutes(1), now::get);
+        cache.put("AAPL", "a");
+        cache.put("MSFT", "m");
+        cache.get("AAPL");
+        cache.put("TSLA", "t");
+
+        assertEquals("a", cache.get("AAPL"));
+        assertNull(cache.get("MSFT"));
+        assertEquals("t", cache.get("TSLA"));
+        assertEquals(1, cache.stats().getEvictions());
+    }
+}